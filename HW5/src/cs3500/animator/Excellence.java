@@ -2,15 +2,16 @@ package cs3500.animator;
 
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 
 import cs3500.animator.controller.AnimationController;
 import cs3500.animator.controller.Controller;
 import cs3500.animator.model.AnimationModelImpl;
+import cs3500.animator.model.ConcurrentAnimationModel;
 import cs3500.animator.util.AnimationReader;
+import cs3500.animator.util.FileChannelWriter;
 import cs3500.animator.view.EditorAnimationView;
 
 /**
@@ -24,44 +25,48 @@ public final class Excellence {
    * -out [the output file name]
    * -speed [the speed of the animation in ticks per second]
    * -view [the type of view]
-   * -speed must receive a positive int larger than zero,
-   * and -view must be one of visual, svg, or text.
-   * The arguments -in and -view are required, while -out will default to System.out
-   * and -speed will default to 1 if not otherwise specified.
+   * -threads [the number of threads on which to read the input and write the output]
+   * -sync [true or false, whether to force the output file to the disk before exiting]
+   * -speed and -threads must receive a positive int larger than zero,
+   * and -view must be one of visual, svg, text, or binary, or visual-active for a visual view
+   * that draws its frames on a thread of its own and shows how many it draws per second.
+   * Input files may be in the text format or the binary format of the binary view, and may be
+   * compressed with gzip. Output files whose names end with .gz or .svgz are compressed with gzip.
+   * The arguments -in and -view are required, while -out will default to System.out,
+   * -speed will default to 1 and -sync to false if not otherwise specified. Without -threads,
+   * the output is written on one thread per processor, and the input is read on one thread
+   * unless it is large enough to be worth reading on several.
    * If an argument is invalid, System.out will display a message explaining why.
    * @param args the command line arguments
    */
   public static void main(String[] args) {
     int speed = 1;
+    int threads = Runtime.getRuntime().availableProcessors();
+    boolean threadsGiven = false;
     Appendable output = System.out;
-    FileReader input = null;
-    EditorAnimationView view = null;
+    File input = null;
+    File outputFile = null;
+    String viewType = null;
+    boolean sync = false;
 
     for (int i = 0; i < args.length - 1; i += 2) {
       switch (args[i]) {
         case "-in":
-          try {
-            input = new FileReader(new File(args[i + 1]));
-          } catch (FileNotFoundException e) {
+          input = new File(args[i + 1]);
+          if (!input.isFile() || !input.canRead()) {
             showErrorMessage("No file by the name " + args[i + 1] + " was found");
             return;
           }
           break;
         case "-out":
-          try {
-            output = new FileWriter(new File(args[i + 1]));
-          } catch (IOException e) {
-            showErrorMessage("No file by the name " + args[i + 1] + " was found");
-            return;
-          }
+          outputFile = new File(args[i + 1]);
           break;
         case "-view":
-          try {
-            view = ViewFactory.buildView(args[i + 1]);
-          } catch (IllegalArgumentException e) {
+          if (!ViewFactory.isViewType(args[i + 1])) {
             showErrorMessage(args[i + 1] + " is not a valid view type");
             return;
           }
+          viewType = args[i + 1];
           break;
         case "-speed":
           try {
@@ -76,16 +81,52 @@ public final class Excellence {
             return;
           }
           break;
+        case "-threads":
+          try {
+            if (Integer.parseInt(args[i + 1]) > 0) {
+              threads = Integer.parseInt(args[i + 1]);
+              threadsGiven = true;
+            } else {
+              showErrorMessage("Threads must be a positive integer, given " + args[i + 1]);
+              return;
+            }
+          } catch (NumberFormatException e) {
+            showErrorMessage("Threads must be an integer");
+            return;
+          }
+          break;
+        case "-sync":
+          if (!args[i + 1].equals("true") && !args[i + 1].equals("false")) {
+            showErrorMessage("Sync must be true or false, given " + args[i + 1]);
+            return;
+          }
+          sync = args[i + 1].equals("true");
+          break;
         default:
           showErrorMessage("Invalid command " + args[i]);
           return;
       }
     }
 
-    if (view == null || input == null) {
+    if (viewType == null || input == null) {
       showErrorMessage("Please specify a valid view type and input file");
       return;
     }
+    EditorAnimationView view = ViewFactory.buildView(viewType, threads);
+    boolean binary = viewType.equals("binary");
+
+    if (outputFile != null) {
+      try {
+        output = FileChannelWriter.forFile(outputFile.toPath(),
+                ViewFactory.outputCharset(viewType), sync);
+      } catch (IOException | IllegalArgumentException e) {
+        showErrorMessage("No file by the name " + outputFile.getPath() + " was found");
+        return;
+      }
+    } else if (binary) {
+      // the binary view writes each byte as a char, which ISO-8859-1 writes back as that byte
+      output = new OutputStreamWriter(System.out, StandardCharsets.ISO_8859_1);
+    }
 
     try {
       view.setSpeed(speed);
@@ -101,16 +142,18 @@ public final class Excellence {
     Controller controller;
 
     try {
-      controller = new AnimationController(
-              AnimationReader.parseFile(input, new AnimationModelImpl.Builder()),
+      AnimationModelImpl.BulkBuilder builder = new AnimationModelImpl.BulkBuilder();
+      controller = new AnimationController(new ConcurrentAnimationModel(threadsGiven
+              ? AnimationReader.parseFile(input.toPath(), builder, threads)
+              : AnimationReader.parseFile(input.toPath(), builder)),
               view);
-    } catch (IllegalStateException e) {
+    } catch (IllegalStateException | IOException e) {
       showErrorMessage("Unable to read file, returned error message: " + e.getMessage());
       return;
     }
     controller.gogo();
 
-    // We cast here so that we're able to close FileWriters.
+    // We cast here so that we're able to close file writers.
     // It's necessary because the output is only required to be an Appendable, not a Closeable,
     // but Appendables which are also Closeables require closing.
     if (output instanceof Closeable) {
@@ -3,12 +3,13 @@ package cs3500.animator;
 import cs3500.animator.controller.AnimationController;
 import cs3500.animator.model.AnimationModel;
 import cs3500.animator.model.AnimationModelImpl;
+import cs3500.animator.model.ConcurrentAnimationModel;
 import cs3500.animator.view.EditorAnimationView;
 import cs3500.animator.view.EditorView;
 
 public class SanityCheck {
   public static void main(String[] args) {
-    AnimationModel model = new AnimationModelImpl();
+    AnimationModel model = new ConcurrentAnimationModel(new AnimationModelImpl());
     model.setBounds(0, 0, 100, 100);
     model.addLayer("background");
     model.addRectangle("background", "blue");
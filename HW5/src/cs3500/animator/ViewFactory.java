@@ -1,6 +1,14 @@
 package cs3500.animator;
 
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 import cs3500.animator.provider.view.ViewAdapter;
+import cs3500.animator.view.BinaryView;
 import cs3500.animator.view.EditorAnimationView;
 import cs3500.animator.view.EditorView;
 import cs3500.animator.view.EditorViewWrapper;
@@ -12,6 +20,18 @@ import cs3500.animator.view.VisualView;
  * A class that is able to create an instance of different types of animation views.
  */
 public class ViewFactory {
+  private static final Set<String> VIEW_TYPES = Collections.unmodifiableSet(new HashSet<>(
+          Arrays.asList("text", "svg", "binary", "visual", "visual-active", "edit", "provider")));
+
+  /**
+   * Determine whether buildView can build a view of the type given, without building one.
+   * @param type the type of view
+   * @return true if the type is valid, false if it is invalid or null
+   */
+  public static boolean isViewType(String type) {
+    return VIEW_TYPES.contains(type);
+  }
+
   /**
    * Create an animation view of the type given. If the type specified is invalid or null,
    * throw an exception.
@@ -20,16 +40,33 @@ public class ViewFactory {
    * @throws IllegalArgumentException if the given type is invalid
    */
   public static EditorAnimationView buildView(String type) {
+    return buildView(type, 1);
+  }
+
+  /**
+   * Create an animation view of the type given, which writes its output on the given number of
+   * threads if it writes output. If the type specified is invalid or null, throw an exception.
+   * @param type the type of view
+   * @param threads the number of threads for the text and svg views
+   * @return an instance of the specified view
+   * @throws IllegalArgumentException if the given type is invalid or the number of threads is
+   *     not positive
+   */
+  public static EditorAnimationView buildView(String type, int threads) {
     if (type == null) {
       throw new IllegalArgumentException("The type must not be null");
     }
     switch (type) {
       case "text":
-        return new EditorViewWrapper(new TextView());
+        return new EditorViewWrapper(new TextView(threads));
       case "svg":
-        return new EditorViewWrapper(new SVGView());
+        return new EditorViewWrapper(new SVGView(threads));
+      case "binary":
+        return new EditorViewWrapper(new BinaryView());
       case "visual":
         return new EditorViewWrapper(new VisualView());
+      case "visual-active":
+        return new EditorViewWrapper(new VisualView(true));
       case "edit":
         return new EditorView();
       case "provider":
@@ -38,4 +75,28 @@ public class ViewFactory {
         throw new IllegalArgumentException("Invalid view type " + type);
     }
   }
+
+  /**
+   * Return the charset in which to write the output of a view of the type given to a file.
+   * SVG is written in UTF-8, the charset of XML documents that do not declare one. Text is
+   * written in the platform's default charset, in which AnimationReader reads it back. The
+   * binary view writes each byte as a char, which ISO-8859-1 writes back as that byte. Other
+   * views write no animation files, and get the default charset for anything they write.
+   * @param type the type of view
+   * @return the charset
+   * @throws IllegalArgumentException if the given type is null
+   */
+  public static Charset outputCharset(String type) {
+    if (type == null) {
+      throw new IllegalArgumentException("The type must not be null");
+    }
+    switch (type) {
+      case "svg":
+        return StandardCharsets.UTF_8;
+      case "binary":
+        return StandardCharsets.ISO_8859_1;
+      default:
+        return Charset.defaultCharset();
+    }
+  }
 }
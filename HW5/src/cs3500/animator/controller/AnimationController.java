@@ -1,16 +1,26 @@
 package cs3500.animator.controller;
 
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+
+import javax.swing.SwingUtilities;
 
 import cs3500.animator.ViewFactory;
 import cs3500.animator.model.AnimationModel;
 import cs3500.animator.model.AnimationModelImpl;
+import cs3500.animator.model.ConcurrentAnimationModel;
 import cs3500.animator.model.Motion;
+import cs3500.animator.model.ProgressiveBuilder;
 import cs3500.animator.util.AnimationReader;
+import cs3500.animator.util.FileChannelWriter;
 import cs3500.animator.view.EditorAnimationView;
 import cs3500.animator.view.EditorView;
 
@@ -21,6 +31,7 @@ import cs3500.animator.view.EditorView;
 public class AnimationController implements Features, Controller {
   private final AnimationModel model;
   private final EditorAnimationView view;
+  private volatile BackgroundLoad load; // the load in progress, or null
 
   /**
    * Build a controller for animation and prepare everything necessary to play it.
@@ -33,6 +44,7 @@ public class AnimationController implements Features, Controller {
     }
     this.model = model;
     this.view = view;
+    this.load = null;
     try {
       view.addFeatures(this);
     } catch (UnsupportedOperationException e) {
@@ -416,21 +428,31 @@ public class AnimationController implements Features, Controller {
       view.displayErrorMessage("Output location must be set");
       return;
     }
+    // a name ending with .gz asks for a compressed file, which for SVG is a .svgz file
+    boolean compress = fileName.endsWith(".gz");
+    if (compress) {
+      fileName = fileName.substring(0, fileName.length() - ".gz".length());
+    }
     // set up the Editor view's new output
     switch (type) {
       case "svg":
-        fileName += ".svg";
+        fileName += compress ? ".svgz" : ".svg";
         break;
       case "text":
-        fileName += ".txt";
+        fileName += compress ? ".txt.gz" : ".txt";
+        break;
+      case "binary":
+        fileName += compress ? ".anim.gz" : ".anim";
         break;
       default:
         throw new IllegalArgumentException("Unsupported file type " + type);
     }
-    FileWriter writer;
+    Writer writer;
     try {
-      writer = new FileWriter(fileName);
-    } catch (IOException e) {
+      // force the file to the disk on close, so that a saved animation survives a crash
+      writer = FileChannelWriter.forFile(Paths.get(fileName), ViewFactory.outputCharset(type),
+              true);
+    } catch (IOException | InvalidPathException e) {
       view.displayErrorMessage("Could not create a file named " + fileName);
       return;
     }
@@ -440,28 +462,28 @@ public class AnimationController implements Features, Controller {
       throw new IllegalArgumentException("View does not support setting an output");
     }
     // may throw IAE if view type is wrong
-    EditorAnimationView saveView = ViewFactory.buildView(type);
-    String text;
+    EditorAnimationView saveView = ViewFactory.buildView(type,
+            Runtime.getRuntime().availableProcessors());
     try {
-      StringBuilder builder = new StringBuilder();
-      saveView.setOutput(builder);
+      // hand the export to the view piece by piece as it is written, rather than all at once
+      saveView.setOutput(new ViewSaver());
       try {
         saveView.setSpeed(speed);
       } catch (UnsupportedOperationException e) {
         // It's expected for some view types not to support speed. Fail quietly.
       }
-      new AnimationController(model, saveView).gogo();
-      text = builder.toString();
+      // export from a snapshot, so that the export never sees a half-finished edit
+      saveView.setModel(model.snapshot());
+      saveView.animate();
     } catch (UnsupportedOperationException e) {
       throw new IllegalArgumentException("View type " + type + " does not support output");
-    } catch (IllegalStateException e) {
-      view.displayErrorMessage("Could not write to the output");
-      return;
-    }
-    try {
-      view.save(text);
     } catch (IllegalStateException e) {
       view.displayErrorMessage("Could not write to the output file");
+      try {
+        writer.close();
+      } catch (IOException closeError) {
+        // the error has been displayed already
+      }
       return;
     }
     try {
@@ -476,22 +498,151 @@ public class AnimationController implements Features, Controller {
     if (fileName == null) {
       throw new IllegalArgumentException("Arguments must not be null");
     }
-    FileReader reader;
-    try {
-      reader = new FileReader(fileName);
-    } catch (FileNotFoundException e) {
+    File file = new File(fileName);
+    if (!file.isFile() || !file.canRead()) {
       view.displayErrorMessage("Unable to locate file.");
       return;
     }
-    AnimationModel model;
-    try {
-      model = AnimationReader.parseFile(reader, new AnimationModelImpl.Builder());
-    } catch (IllegalStateException e) {
-      view.displayErrorMessage("Incorrect file formatting");
+    // the new window shows the animation as it is read, and closes again if the load fails,
+    // leaving the error to be shown here
+    AnimationModel model = new ConcurrentAnimationModel(new AnimationModelImpl());
+    EditorView window = new EditorView();
+    AnimationController controller = new AnimationController(model, window);
+    controller.gogo();
+    controller.loadInBackground(file.toPath(), message -> SwingUtilities.invokeLater(() -> {
+      window.dispose();
+      view.displayErrorMessage(message);
+    }));
+  }
+
+  /**
+   * Read the animation in the given file into this controller's model on a background thread,
+   * so that the view can show and play the start of the animation while the rest is still
+   * being read. The model must be safe to use from several threads, such as a
+   * ConcurrentAnimationModel. The view is shown the progress each time another part of the
+   * animation has arrived, and is told when the load ends and why, if it did not succeed.
+   * A load can be stopped with cancelLoad, and only one load can run at a time.
+   * @param file the file, in any format that AnimationReader reads
+   * @throws IllegalArgumentException if the file is null
+   * @throws IllegalStateException if a load is already running
+   */
+  public void loadInBackground(Path file) {
+    loadInBackground(file, message -> { });
+  }
+
+  /**
+   * Read the animation in the given file into this controller's model on a background thread,
+   * as loadInBackground(Path) does, and report a load that fails other than by being
+   * cancelled.
+   * @param file the file, in any format that AnimationReader reads
+   * @param failed given the reason the load failed, on the loading thread, after the view
+   * @throws IllegalArgumentException if the file is null
+   * @throws IllegalStateException if a load is already running
+   */
+  private void loadInBackground(Path file, Consumer<String> failed) {
+    if (file == null) {
+      throw new IllegalArgumentException("File must not be null");
+    }
+    BackgroundLoad newLoad = new BackgroundLoad(file, failed);
+    synchronized (this) {
+      if (load != null) {
+        throw new IllegalStateException("A file is already being loaded");
+      }
+      load = newLoad;
+    }
+    Thread thread = new Thread(newLoad, "Animation loader");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  @Override
+  public void cancelLoad() {
+    BackgroundLoad current = load;
+    if (current == null) {
+      view.displayErrorMessage("Nothing is being loaded");
       return;
     }
-    EditorAnimationView view = new EditorView();
-    AnimationController controller = new AnimationController(model, view);
-    controller.gogo();
+    current.builder.cancel();
+  }
+
+  /**
+   * Reads a file into the model, reporting to the view as the animation arrives.
+   */
+  private final class BackgroundLoad implements Runnable {
+    private final Path file;
+    private final Consumer<String> failed;
+    private final ProgressiveBuilder builder;
+    private long size; // of the file, in bytes
+    private long bytesRead;
+    // INVARIANT: size and bytesRead are only used on the loading thread
+
+    /**
+     * Prepare to load the given file.
+     * @param file the file
+     * @param failed given the reason the load failed, unless it was cancelled
+     */
+    private BackgroundLoad(Path file, Consumer<String> failed) {
+      this.file = file;
+      this.failed = failed;
+      this.builder = new ProgressiveBuilder(model, this::showProgress);
+      this.size = 0;
+      this.bytesRead = 0;
+    }
+
+    @Override
+    public void run() {
+      String message = null;
+      boolean cancelled = false;
+      try {
+        size = Files.size(file);
+        AnimationReader.parseFile(file, builder, read -> bytesRead = read);
+      } catch (CancellationException e) {
+        message = "Loading cancelled";
+        cancelled = true;
+      } catch (IllegalStateException | IllegalArgumentException e) {
+        message = "Incorrect file formatting: " + e.getMessage();
+      } catch (IOException e) {
+        message = "Unable to read file.";
+      } catch (RuntimeException e) {
+        // nothing else would hear of it on this thread
+        message = "Unable to load file.";
+      } finally {
+        synchronized (AnimationController.this) {
+          load = null;
+        }
+        view.endLoadProgress(message);
+      }
+      if (message != null && !cancelled) {
+        failed.accept(message);
+      }
+    }
+
+    /**
+     * Show the view how much of the file has been read.
+     */
+    private void showProgress() {
+      view.showLoadProgress(size == 0 ? 1 : Math.min(1, (double) bytesRead / size));
+    }
+  }
+
+  /**
+   * Passes each piece of text appended to it to the view's save method.
+   */
+  private final class ViewSaver implements Appendable {
+    @Override
+    public Appendable append(CharSequence text) {
+      view.save(String.valueOf(text));
+      return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence text, int start, int end) {
+      return append(String.valueOf(text).substring(start, end));
+    }
+
+    @Override
+    public Appendable append(char c) {
+      return append(String.valueOf(c));
+    }
   }
 }
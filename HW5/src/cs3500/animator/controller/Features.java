@@ -166,14 +166,24 @@ public interface Features {
    * @param speed the speed of the animation
    * @param type format to save in:
    *             "text" will produce a text description of the animation in a .txt file,
-   *             while "svg" will produce an svg animation in a .svg file
-   * @param fileName the name of the new file
+   *             "svg" will produce an svg animation in a .svg file,
+   *             and "binary" will produce a compact binary animation in a .anim file
+   * @param fileName the name of the new file, without its extension. A name ending with .gz
+   *                 produces a file compressed with gzip: a .txt.gz, .svgz or .anim.gz file
    */
   void save(double speed, String type, String fileName);
 
   /**
-   * Load a file from the source folder by file name.
+   * Load a file from the source folder by file name into a new editor window. The file may be
+   * in the text format or the binary format, and may be compressed with gzip. The file is read
+   * in the background, and the new window shows the animation as it arrives.
    * @param fileName the name of the file in the source folder.
    */
   void load(String fileName);
+
+  /**
+   * Stop loading the file that is being read into this editor in the background, keeping the
+   * part of the animation read so far.
+   */
+  void cancelLoad();
 }
@@ -1,5 +1,7 @@
 package cs3500.animator.model;
 
+import java.util.function.Consumer;
+
 /**
  * An interface that represents an animation.
  * It allows the user to add and remove shapes (ellipses and rectangles)
@@ -107,6 +109,25 @@ public interface AnimationModel extends ReadOnlyModel {
   void addMotion(String layer, String shapeName, int time, int x, int y, int width,
                  int height, int red, int green, int blue, int rotation);
 
+  /**
+   * Add a new motion to the shape with the given handle.
+   *
+   * @param shape the shape's handle
+   * @param time the time of the new motion
+   * @param x the new motion's x coordinate
+   * @param y the new motion's y coordinate
+   * @param width the new motion's width
+   * @param height the new motion's height
+   * @param red the new motion's color's R component
+   * @param green the new motion's color's B component
+   * @param blue the new motion's color's G component
+   * @param rotation the new motion's rotation
+   * @throws IllegalArgumentException if no shape has the given handle, if the time is less
+   *                                  than 1, or if the shape already has a motion at that time.
+   */
+  void addMotion(int shape, int time, int x, int y, int width, int height,
+                 int red, int green, int blue, int rotation);
+
   /**
    * Replace the motion at the given time with a motion of the given parameters.
    * Rotation defaults to 0.
@@ -145,6 +166,25 @@ public interface AnimationModel extends ReadOnlyModel {
   void editMotion(String layer, String shape, int time, int x, int y, int width, int height,
                   int red, int green, int blue, int rotation);
 
+  /**
+   * Replace the motion at the given time of the shape with the given handle.
+   *
+   * @param shape the shape's handle
+   * @param time the time of the motion to be replaced
+   * @param x the new x coordinate
+   * @param y the new y coordinate
+   * @param width the new width
+   * @param height the new height
+   * @param red the new R component of the color
+   * @param green the new G component of the color
+   * @param blue the new B component of the color
+   * @param rotation the new rotation
+   * @throws IllegalArgumentException if no shape has the given handle, if the new values are
+   *     invalid, or if there is no motion at the given time
+   */
+  void editMotion(int shape, int time, int x, int y, int width, int height,
+                  int red, int green, int blue, int rotation);
+
   /**
    * Delete the motion of the given shape at the given time.
    * @param layer the layer on which the shape is found
@@ -155,6 +195,15 @@ public interface AnimationModel extends ReadOnlyModel {
    */
   void deleteMotion(String layer, String shape, int time);
 
+  /**
+   * Delete the motion at the given time of the shape with the given handle.
+   * @param shape the shape's handle
+   * @param time the time of the motion
+   * @throws IllegalArgumentException if no shape has the given handle or if there is no
+   *     motion at the given time
+   */
+  void deleteMotion(int shape, int time);
+
   /**
    * Remove the last motion of the given shape.
    *
@@ -164,4 +213,26 @@ public interface AnimationModel extends ReadOnlyModel {
    * @throws IllegalStateException    if the shape has no motions
    */
   void deleteLastMotion(String layer, String shapeName);
+
+  /**
+   * Remove the last motion of the shape with the given handle.
+   *
+   * @param shape the shape's handle
+   * @throws IllegalArgumentException if no shape has the given handle
+   * @throws IllegalStateException    if the shape has no motions
+   */
+  void deleteLastMotion(int shape);
+
+  /**
+   * Apply a batch of keyframe changes as one change to the model. The given function records
+   * the changes into a ModelTransaction, and once it returns the changes are checked together
+   * and then applied with a single pass over each changed shape's keyframes.
+   * Either every change is applied or, if any of them is invalid, none are.
+   * Listeners hear about the whole batch through a single keyframesChanged event.
+   * @param edits the function that records the changes
+   * @throws IllegalArgumentException if the function is null, if a change refers to a shape or
+   *     keyframe that doesn't exist, if a change adds a keyframe where there already is one, or
+   *     if the batch changes any keyframe more than once
+   */
+  void batch(Consumer<ModelTransaction> edits);
 }
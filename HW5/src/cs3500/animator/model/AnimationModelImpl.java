@@ -1,9 +1,15 @@
 package cs3500.animator.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 import cs3500.animator.util.AnimationBuilder;
 
@@ -12,10 +18,32 @@ import cs3500.animator.util.AnimationBuilder;
  * that can move, and the possible movements that the shapes make.
  */
 public class AnimationModelImpl implements AnimationModel {
-  private final List<Layer> layers; // earlier layers are drawn beneath later layers
-  private final HashMap<String, Layer> layerMap;
+  private static final int NO_TIME = -1; // stands for the first or last time of an empty shape
+
+  private List<Layer> layers; // earlier layers are drawn beneath later layers
+  private HashMap<String, Layer> layerMap;
   // INVARIANT: layerMap maps the layer's name to the layer.
   // INVARIANT: layers and layerMap have the same Layers stored.
+  private boolean layersShared; // true if a snapshot may be reading layers and layerMap
+  private Object owner;
+  // INVARIANT: only Layers, Shapes and ShapeTable nodes that belong to owner are mutated
+  // in place; anything else may be shared with a snapshot and is copied before it changes.
+  private final LifetimeIndex lifetimes;
+  // INVARIANT: lifetimes is invalidated whenever the set of shapes or the layer order changes,
+  // and updated whenever any shape's first or last keyframe changes.
+  private volatile int version;
+  // INVARIANT: version is incremented whenever any frame of the animation may have changed,
+  // after the change has been made.
+  private TreeMap<Integer, Integer> lastTimes; // how many shapes have their last keyframe at a time
+  private boolean lastTimesShared; // true if a snapshot may be reading lastTimes
+  private volatile int lastTick;
+  // INVARIANT: lastTick is the greatest time in lastTimes, or Motion.START_TICK if that is
+  // greater or lastTimes is empty.
+  private final List<ModelListener> listeners;
+  private final ShapeTable shapes; // indexed by shape handle
+  private int handleCount;
+  // INVARIANT: shapes holds the shape whose handle is h at h, or null if it was deleted.
+  // Handles are never reused, so a deleted shape's handle never refers to a different shape.
   private int x;
   private int y;
   private int width;
@@ -27,6 +55,16 @@ public class AnimationModelImpl implements AnimationModel {
   public AnimationModelImpl() {
     this.layers = new LinkedList<>();
     this.layerMap = new HashMap<>();
+    this.layersShared = false;
+    this.owner = new Object();
+    this.lifetimes = new LifetimeIndex();
+    this.version = 0;
+    this.lastTimes = new TreeMap<>();
+    this.lastTimesShared = false;
+    this.lastTick = Motion.START_TICK;
+    this.listeners = new CopyOnWriteArrayList<>();
+    this.shapes = new ShapeTable();
+    this.handleCount = 0;
     // top left defaults to (0, 0)
     // width and height default to 1
     this.x = 0;
@@ -35,6 +73,29 @@ public class AnimationModelImpl implements AnimationModel {
     this.height = 1;
   }
 
+  /**
+   * Build a snapshot of the given model that shares all of its layers and shapes.
+   * @param other the model to be copied
+   */
+  private AnimationModelImpl(AnimationModelImpl other) {
+    this.layers = other.layers;
+    this.layerMap = other.layerMap;
+    this.layersShared = true;
+    this.owner = new Object();
+    this.lifetimes = other.lifetimes.copy();
+    this.version = 0;
+    this.lastTimes = other.lastTimes;
+    this.lastTimesShared = true;
+    this.lastTick = other.lastTick;
+    this.listeners = new CopyOnWriteArrayList<>();
+    this.shapes = other.shapes.copy();
+    this.handleCount = other.handleCount;
+    this.x = other.x;
+    this.y = other.y;
+    this.width = other.width;
+    this.height = other.height;
+  }
+
   @Override
   public void setBounds(int x, int y, int width, int height) {
     if (width <= 0 || height <= 0) {
@@ -51,15 +112,29 @@ public class AnimationModelImpl implements AnimationModel {
     if (layerMap.containsKey(layerName)) {
       throw new IllegalArgumentException("There is already a layer by the name " + layerName);
     }
-    Layer l = new Layer(layerName);
+    editLayers();
+    Layer l = new Layer(layerName, owner);
     layerMap.put(layerName, l);
     layers.add(l);
+    for (ModelListener listener : listeners) {
+      listener.layerAdded(layerName);
+    }
   }
 
   @Override
   public void deleteLayer(String layerName) {
     checkLayerExists(layerName);
+    editLayers();
+    for (int handle : layerMap.get(layerName).handles()) {
+      updateLastTime(lastTime(shapes.get(handle)), NO_TIME);
+      shapes.set(handle, null, owner);
+    }
     layers.remove(layerMap.remove(layerName)); // remove the layer from both the list and the map
+    lifetimes.invalidate();
+    version++;
+    for (ModelListener listener : listeners) {
+      listener.layerDeleted(layerName);
+    }
   }
 
   @Override
@@ -69,8 +144,14 @@ public class AnimationModelImpl implements AnimationModel {
       throw new IllegalArgumentException("A layer's new position must fall within "
               + "the existing list size");
     }
+    editLayers();
     layers.remove(layerMap.get(layerName));
     layers.add(position, layerMap.get(layerName));
+    lifetimes.invalidate();
+    version++;
+    for (ModelListener listener : listeners) {
+      listener.layerMoved(layerName, position);
+    }
   }
 
   @Override
@@ -93,54 +174,180 @@ public class AnimationModelImpl implements AnimationModel {
    */
   private void addShape(String layer, String shapeName, ShapeType type) {
     checkLayerExists(layer);
-    layerMap.get(layer).addShape(new Shape(shapeName, type));
+    Shape shape = new Shape(shapeName, type, handleCount, owner);
+    editLayer(layer).addShape(shapeName, handleCount);
+    shapes.set(handleCount, shape, owner);
+    handleCount++;
+    lifetimes.invalidate();
+    for (ModelListener listener : listeners) {
+      listener.shapeAdded(layer, shapeName, shape.getHandle());
+    }
   }
 
   @Override
   public void deleteShape(String layer, String shapeName) {
-    checkLayerExists(layer);
-    layerMap.get(layer).deleteShape(shapeName);
+    int handle = getHandle(layer, shapeName);
+    int last = lastTime(shapes.get(handle));
+    editLayer(layer).deleteShape(shapeName);
+    shapes.set(handle, null, owner);
+    updateLastTime(last, NO_TIME);
+    lifetimes.invalidate();
+    version++;
+    for (ModelListener listener : listeners) {
+      listener.shapeDeleted(layer, shapeName, handle);
+    }
   }
 
   @Override
   public void addMotion(String layer, String shapeName, int time, int x, int y,
                         int width, int height, int red, int green, int blue) {
-    addMotion(layer, shapeName, time, x, y, width, height, red, green, blue, 0);
+    addMotion(getHandle(layer, shapeName), time, x, y, width, height, red, green, blue, 0);
   }
 
   @Override
   public void addMotion(String layer, String shapeName, int time, int x, int y,
                         int width, int height,
                         int red, int green, int blue, int rotation) {
-    checkLayerExists(layer);
-    layerMap.get(layer).addMotion(shapeName, time, x, y, width, height, red, green, blue, rotation);
+    addMotion(getHandle(layer, shapeName),
+            time, x, y, width, height, red, green, blue, rotation);
+  }
+
+  @Override
+  public void addMotion(int shape, int time, int x, int y, int width, int height,
+                        int red, int green, int blue, int rotation) {
+    Shape s = editShape(shape);
+    int first = firstTime(s);
+    int last = lastTime(s);
+    s.addMotion(time, x, y, width, height, red, green, blue, rotation);
+    lifetimeChanged(s, first, last);
+    version++;
+    for (ModelListener listener : listeners) {
+      listener.keyframeAdded(shape, time, s.previousTime(time), s.nextTime(time));
+    }
   }
 
   @Override
   public void editMotion(String layer, String shapeName, int time, int x, int y,
                         int width, int height, int red, int green, int blue) {
-    editMotion(layer, shapeName, time, x, y, width, height, red, green, blue, 0);
+    editMotion(getHandle(layer, shapeName), time, x, y, width, height, red, green, blue, 0);
   }
 
   @Override
   public void editMotion(String layer, String shapeName, int time, int x, int y,
                          int width, int height,
                          int red, int green, int blue, int rotation) {
-    checkLayerExists(layer);
-    layerMap.get(layer).editMotion(shapeName,
+    editMotion(getHandle(layer, shapeName),
             time, x, y, width, height, red, green, blue, rotation);
   }
 
+  @Override
+  public void editMotion(int shape, int time, int x, int y, int width, int height,
+                         int red, int green, int blue, int rotation) {
+    Shape s = editShape(shape);
+    s.editMotion(time, x, y, width, height, red, green, blue, rotation);
+    version++; // the keyframe keeps its time, so the shape's lifetime is unchanged
+    for (ModelListener listener : listeners) {
+      listener.keyframeEdited(shape, time, s.previousTime(time), s.nextTime(time));
+    }
+  }
+
   @Override
   public void deleteMotion(String layer, String shapeName, int time) {
-    checkLayerExists(layer);
-    layerMap.get(layer).deleteMotion(shapeName, time);
+    deleteMotion(getHandle(layer, shapeName), time);
+  }
+
+  @Override
+  public void deleteMotion(int shape, int time) {
+    Shape s = editShape(shape);
+    int first = firstTime(s);
+    int last = lastTime(s);
+    int from = s.previousTime(time);
+    int to = s.nextTime(time);
+    s.deleteMotionAt(time);
+    lifetimeChanged(s, first, last);
+    version++;
+    for (ModelListener listener : listeners) {
+      listener.keyframeDeleted(shape, time, from, to);
+    }
   }
 
   @Override
   public void deleteLastMotion(String layer, String shapeName) {
-    checkLayerExists(layer);
-    layerMap.get(layer).deleteLastMotion(shapeName);
+    deleteLastMotion(getHandle(layer, shapeName));
+  }
+
+  @Override
+  public void deleteLastMotion(int shape) {
+    Shape s = editShape(shape);
+    int first = firstTime(s);
+    int last = lastTime(s);
+    s.deleteLastMotion();
+    lifetimeChanged(s, first, last);
+    version++;
+    int from = s.previousTime(last);
+    for (ModelListener listener : listeners) {
+      listener.keyframeDeleted(shape, last, from, last);
+    }
+  }
+
+  @Override
+  public void batch(Consumer<ModelTransaction> edits) {
+    if (edits == null) {
+      throw new IllegalArgumentException("Edits must not be null");
+    }
+    ModelTransaction batch = new ModelTransaction();
+    edits.accept(batch);
+    int count = batch.size();
+    if (count == 0) {
+      return;
+    }
+    // group the changes by shape, then sort each group by time
+    long[] runs = new long[count];
+    for (int i = 0; i < count; i++) {
+      runs[i] = ((long) batch.get(i, ModelTransaction.SHAPE) << 32) | i;
+    }
+    Arrays.sort(runs);
+    int[] handles = new int[count];
+    int[] ends = new int[count];
+    int shapeCount = 0;
+    int start = 0;
+    while (start < count) {
+      int handle = (int) (runs[start] >> 32);
+      int end = start;
+      while (end < count && (int) (runs[end] >> 32) == handle) {
+        int change = (int) runs[end];
+        runs[end] = ((long) batch.get(change, ModelTransaction.KEYFRAME + KeyframeStore.TIME)
+                << 32) | change;
+        end++;
+      }
+      Arrays.sort(runs, start, end);
+      getShape(handle).checkBatch(batch, runs, start, end); // throws before anything changes
+      handles[shapeCount] = handle;
+      ends[shapeCount] = end;
+      shapeCount++;
+      start = end;
+    }
+
+    int fromTick = Integer.MAX_VALUE;
+    int toTick = Integer.MIN_VALUE;
+    start = 0;
+    for (int i = 0; i < shapeCount; i++) {
+      Shape s = editShape(handles[i]);
+      int first = firstTime(s);
+      int last = lastTime(s);
+      // keyframes outside the run's times are unchanged, so the affected range can be
+      // found before the merge
+      fromTick = Math.min(fromTick, s.previousTime((int) (runs[start] >> 32)));
+      toTick = Math.max(toTick, s.nextTime((int) (runs[ends[i] - 1] >> 32)));
+      s.applyBatch(batch, runs, start, ends[i]);
+      lifetimeChanged(s, first, last);
+      start = ends[i];
+    }
+    version++;
+    int[] changed = Arrays.copyOf(handles, shapeCount);
+    for (ModelListener listener : listeners) {
+      listener.keyframesChanged(changed, fromTick, toTick);
+    }
   }
 
   @Override
@@ -179,30 +386,269 @@ public class AnimationModelImpl implements AnimationModel {
   }
 
   @Override
-  public Transformation getTransformationAt(String layer, String shapeName, int tick) {
+  public int getHandle(String layer, String shapeName) {
     checkLayerExists(layer);
-    return layerMap.get(layer).getTransformationAt(shapeName, tick);
+    return layerMap.get(layer).getHandle(shapeName);
+  }
+
+  @Override
+  public int getLastTick() {
+    return lastTick;
+  }
+
+  @Override
+  public void addListener(ModelListener listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("Listener must not be null");
+    }
+    listeners.add(listener);
+  }
+
+  @Override
+  public void removeListener(ModelListener listener) {
+    listeners.remove(listener);
+  }
+
+  @Override
+  public Transformation getTransformationAt(String layer, String shapeName, int tick) {
+    return getTransformationAt(getHandle(layer, shapeName), tick);
+  }
+
+  @Override
+  public Transformation getTransformationAt(int shape, int tick) {
+    return getShape(shape).getTransformationAt(tick);
   }
 
   @Override
   public List<Motion> getMotions(String layer, String shapeName) {
-    checkLayerExists(layer);
-    return layerMap.get(layer).getMotions(shapeName);
+    return getMotions(getHandle(layer, shapeName));
+  }
+
+  @Override
+  public List<Motion> getMotions(int shape) {
+    return getShape(shape).getMotions();
   }
 
   @Override
   public String getShapeType(String layer, String shapeName) {
-    checkLayerExists(layer);
-    return layerMap.get(layer).getShapeType(shapeName);
+    return getShapeType(getHandle(layer, shapeName));
+  }
+
+  @Override
+  public String getShapeType(int shape) {
+    return getShape(shape).getShapeType();
+  }
+
+  @Override
+  public Frame getFrameAt(int tick) {
+    return getFrameAt(tick, new Frame());
+  }
+
+  @Override
+  public Frame getFrameAt(int tick, Frame frame) {
+    if (frame == null) {
+      throw new IllegalArgumentException("Frame must not be null");
+    }
+    frame.reset(tick);
+    lifetimes.addToFrame(layers, shapes, tick, frame);
+    return frame;
+  }
+
+  /**
+   * Take a snapshot of this model. Taking a snapshot copies no layers, shapes or keyframes:
+   * the snapshot and this model share them, and this model copies a layer or shape the first
+   * time it changes it afterwards. A keyframe edit copies only the edited shape, the blocks of its
+   * keyframes that change and one node per level of the shape table, so a snapshot costs memory
+   * in proportion to what changes after it.
+   * The snapshot never changes, and can be read on any thread while this model is edited.
+   * @return the snapshot
+   */
+  @Override
+  public ReadOnlyModel snapshot() {
+    AnimationModelImpl snapshot = new AnimationModelImpl(this);
+    owner = new Object(); // everything built so far now belongs to the snapshot as well
+    layersShared = true;
+    lastTimesShared = true;
+    return snapshot;
+  }
+
+  @Override
+  public FrameCursor cursor(int startTick) {
+    return new SweepFrameCursor(this, startTick);
+  }
+
+  /**
+   * Return a number that changes whenever any frame of the animation may have changed,
+   * so that cursors can tell when the state they keep is out of date.
+   * @return the current version
+   */
+  int getVersion() {
+    return version;
+  }
+
+  /**
+   * Return the interval tree over the current shape lifetimes.
+   * @return the tree
+   */
+  LifetimeIndex.Tree getLifetimes() {
+    return lifetimes.getTree(layers, shapes);
+  }
+
+  /**
+   * Find the shape with the given handle, as the handles in the lifetime tree are resolved.
+   * @param handle the shape's handle
+   * @return the shape, or null if no shape has the handle
+   */
+  Shape getShapeAt(int handle) {
+    return shapes.get(handle);
   }
 
   @Override
   public String displayAnimation() {
-    List<String> layerDisplays = new ArrayList<>(layers.size());
+    StringBuilder out = new StringBuilder();
     for (Layer l : layers) {
-      layerDisplays.add(l.display());
+      if (out.length() > 0) {
+        out.append("\n\n");
+      }
+      l.display(shapes, out);
     }
-    return String.join("\n\n", layerDisplays);
+    return out.toString();
+  }
+
+  /**
+   * Find the shape with the given handle.
+   * @param handle the shape's handle
+   * @return the shape
+   * @throws IllegalArgumentException if no shape has the given handle
+   */
+  private Shape getShape(int handle) {
+    Shape shape = handle < handleCount ? shapes.get(handle) : null;
+    if (shape == null) {
+      throw new IllegalArgumentException("No shape with the handle " + handle + " exists.");
+    }
+    return shape;
+  }
+
+  /**
+   * Find the shape with the given handle, first copying it if it may be shared with a snapshot.
+   * @param handle the shape's handle
+   * @return the shape, which this model may mutate
+   * @throws IllegalArgumentException if no shape has the given handle
+   */
+  private Shape editShape(int handle) {
+    Shape shape = getShape(handle);
+    if (!shape.isOwnedBy(owner)) {
+      shape = shape.copy(owner);
+      shapes.set(handle, shape, owner);
+    }
+    return shape;
+  }
+
+  /**
+   * Bring the lifetime index and the last keyframe times up to date after the keyframes of the
+   * given shape have changed. Only a change that moved the shape's first or last keyframe
+   * touches them, and then only to move that one shape's lifetime and last keyframe time.
+   * @param shape the shape
+   * @param oldFirst the time of the shape's first keyframe before the change, or NO_TIME
+   * @param oldLast the time of the shape's last keyframe before the change, or NO_TIME
+   */
+  private void lifetimeChanged(Shape shape, int oldFirst, int oldLast) {
+    int last = lastTime(shape);
+    if (firstTime(shape) != oldFirst || last != oldLast) {
+      lifetimes.update(shape);
+      updateLastTime(oldLast, last);
+    }
+  }
+
+  /**
+   * Move one shape's last keyframe time in lastTimes, and update lastTick to match.
+   * Costs time logarithmic in the number of distinct last keyframe times.
+   * @param oldLast the shape's old last keyframe time, or NO_TIME if it had no keyframes
+   * @param newLast the shape's new last keyframe time, or NO_TIME if it has no keyframes
+   */
+  private void updateLastTime(int oldLast, int newLast) {
+    if (oldLast == newLast) {
+      return;
+    }
+    if (lastTimesShared) {
+      lastTimes = new TreeMap<>(lastTimes);
+      lastTimesShared = false;
+    }
+    if (oldLast != NO_TIME) {
+      int count = lastTimes.get(oldLast);
+      if (count == 1) {
+        lastTimes.remove(oldLast);
+      } else {
+        lastTimes.put(oldLast, count - 1);
+      }
+    }
+    if (newLast != NO_TIME) {
+      lastTimes.merge(newLast, 1, Integer::sum);
+    }
+    lastTick = lastTimes.isEmpty() ? Motion.START_TICK
+            : Math.max(Motion.START_TICK, lastTimes.lastKey());
+  }
+
+  /**
+   * Find the time of the given shape's first keyframe.
+   * @param shape the shape
+   * @return the time, or NO_TIME if the shape has no keyframes
+   */
+  private static int firstTime(Shape shape) {
+    return shape.isEmpty() ? NO_TIME : shape.getFirstTime();
+  }
+
+  /**
+   * Find the time of the given shape's last keyframe.
+   * @param shape the shape
+   * @return the time, or NO_TIME if the shape has no keyframes
+   */
+  private static int lastTime(Shape shape) {
+    return shape.isEmpty() ? NO_TIME : shape.getLastTime();
+  }
+
+  /**
+   * Find the layer with the given name, first copying it if it may be shared with a snapshot.
+   * The layer must exist.
+   * @param layerName the layer's name
+   * @return the layer, which this model may mutate
+   */
+  private Layer editLayer(String layerName) {
+    Layer layer = layerMap.get(layerName);
+    if (!layer.isOwnedBy(owner)) {
+      editLayers();
+      Layer copy = layer.copy(owner);
+      layers.set(layers.indexOf(layer), copy);
+      layerMap.put(layerName, copy);
+      layer = copy;
+    }
+    return layer;
+  }
+
+  /**
+   * Copy the list and map of layers if they may be shared with a snapshot, so that this model
+   * can change them. The layers themselves are not copied.
+   */
+  private void editLayers() {
+    if (layersShared) {
+      layers = new LinkedList<>(layers);
+      layerMap = new HashMap<>(layerMap);
+      layersShared = false;
+    }
+  }
+
+  /**
+   * Give a shape that has no keyframes the given keyframes all at once, keeping the lifetime
+   * index and the last keyframe times up to date. No version change or event is sent, so this
+   * may only be used while the model is being built.
+   * @param handle the shape's handle
+   * @param rows the keyframes in the layout of KeyframeStore, sorted by strictly increasing time
+   * @param size the number of keyframes
+   */
+  private void loadKeyframes(int handle, int[] rows, int size) {
+    Shape s = editShape(handle);
+    s.loadMotions(rows, size);
+    lifetimeChanged(s, NO_TIME, NO_TIME);
   }
 
   /**
@@ -300,4 +746,211 @@ public class AnimationModelImpl implements AnimationModel {
       return this;
     }
   }
+
+  /**
+   * A builder for loading large animations, which builds the same model as Builder and rejects
+   * invalid input with the same exceptions, in the same order, but much faster.
+   * Layers and shapes are added to the model as they are declared and every keyframe is checked
+   * as it arrives, but the keyframes are only appended to a growable int array per shape, in the
+   * row layout of KeyframeStore. None of the model's per-keyframe work is done: the lookup of the
+   * shape, the sorted insert, the lifetime index, the last keyframe times, the version and the
+   * events. Instead, build sorts the few shapes whose keyframes arrived out of order and hands
+   * every array to its shape in one step.
+   * The model only exists once build has been called, and the builder cannot be used after that.
+   */
+  public static final class BulkBuilder implements AnimationBuilder<AnimationModel> {
+    private final AnimationModelImpl model;
+    private final List<KeyframeBuffer> buffers; // indexed by shape handle
+    private String currentLayer;
+    private int nextRotation;
+    private String lastName; // the name of the shape that received the last keyframe
+    private KeyframeBuffer lastBuffer; // its buffer, or null if it has to be looked up
+    private boolean built;
+
+    public BulkBuilder() {
+      this.model = new AnimationModelImpl();
+      this.buffers = new ArrayList<>();
+      this.nextRotation = 0;
+      this.built = false;
+    }
+
+    /**
+     * The keyframes of one shape, in the order they were added. While the times only increase,
+     * a repeated time can only be the last one; once a keyframe arrives out of order, every
+     * time is also kept in a set.
+     */
+    private static final class KeyframeBuffer {
+      private int[] rows = new int[4 * KeyframeStore.STRIDE];
+      private int size = 0;
+      private Set<Integer> times = null; // all the times, or null while they are sorted
+
+      /**
+       * Append a keyframe whose values have been checked and regularized.
+       * @param time the keyframe's time
+       * @param x the x coordinate
+       * @param y the y coordinate
+       * @param width the width
+       * @param height the height
+       * @param red the R component of the color
+       * @param green the G component of the color
+       * @param blue the B component of the color
+       * @param rotation the rotation
+       * @throws IllegalArgumentException if there is already a keyframe at the given time
+       */
+      private void add(int time, int x, int y, int width, int height,
+                       int red, int green, int blue, int rotation) {
+        int lastTime = size == 0 ? NO_TIME : rows[(size - 1) * KeyframeStore.STRIDE];
+        if (times == null && time <= lastTime) {
+          times = new HashSet<>(size * 2);
+          for (int i = 0; i < size; i++) {
+            times.add(rows[i * KeyframeStore.STRIDE]);
+          }
+        }
+        if (times != null && !times.add(time)) {
+          throw new IllegalArgumentException("This shape already has a motion at time " + time);
+        }
+        if ((size + 1) * KeyframeStore.STRIDE > rows.length) {
+          rows = Arrays.copyOf(rows, rows.length * 2);
+        }
+        int offset = size * KeyframeStore.STRIDE;
+        rows[offset + KeyframeStore.TIME] = time;
+        rows[offset + KeyframeStore.X] = x;
+        rows[offset + KeyframeStore.Y] = y;
+        rows[offset + KeyframeStore.WIDTH] = width;
+        rows[offset + KeyframeStore.HEIGHT] = height;
+        rows[offset + KeyframeStore.RED] = red;
+        rows[offset + KeyframeStore.GREEN] = green;
+        rows[offset + KeyframeStore.BLUE] = blue;
+        rows[offset + KeyframeStore.ROTATION] = rotation;
+        size++;
+      }
+
+      /**
+       * Sort the keyframes by time, if they arrived out of order. Times are never negative, so
+       * sorting the time and the row index packed in a long sorts the rows by time.
+       */
+      private void sort() {
+        if (times == null) {
+          return;
+        }
+        long[] order = new long[size];
+        for (int i = 0; i < size; i++) {
+          order[i] = ((long) rows[i * KeyframeStore.STRIDE] << 32) | i;
+        }
+        Arrays.sort(order);
+        int[] sorted = new int[rows.length];
+        for (int i = 0; i < size; i++) {
+          System.arraycopy(rows, (int) order[i] * KeyframeStore.STRIDE,
+                  sorted, i * KeyframeStore.STRIDE, KeyframeStore.STRIDE);
+        }
+        rows = sorted;
+        times = null;
+      }
+    }
+
+    /**
+     * Give every shape its keyframes and return the model.
+     * @return the model
+     * @throws IllegalStateException if the model has already been built
+     */
+    @Override
+    public AnimationModel build() {
+      checkNotBuilt();
+      built = true;
+      for (int handle = 0; handle < buffers.size(); handle++) {
+        KeyframeBuffer buffer = buffers.get(handle);
+        if (buffer.size > 0) {
+          buffer.sort();
+          model.loadKeyframes(handle, buffer.rows, buffer.size);
+        }
+      }
+      model.version++;
+      buffers.clear();
+      lastBuffer = null;
+      return model;
+    }
+
+    @Override
+    public AnimationBuilder<AnimationModel> setBounds(int x, int y, int width, int height) {
+      checkNotBuilt();
+      model.setBounds(x, y, width, height);
+      return this;
+    }
+
+    @Override
+    public AnimationBuilder<AnimationModel> declareLayer(String layerName) {
+      checkNotBuilt();
+      if (layerName == null) {
+        throw new IllegalArgumentException("Layer name must not be null");
+      }
+      if (! model.layerMap.containsKey(layerName)) {
+        model.addLayer(layerName);
+      }
+      currentLayer = layerName;
+      lastBuffer = null;
+      return this;
+    }
+
+    @Override
+    public AnimationBuilder<AnimationModel> declareRotation(int rotation) {
+      checkNotBuilt();
+      this.nextRotation = rotation;
+      return this;
+    }
+
+    @Override
+    public AnimationBuilder<AnimationModel> declareShape(String name, String type) {
+      checkNotBuilt();
+      if (currentLayer == null) {
+        declareLayer("layer1");
+      }
+      switch (type) {
+        case "rectangle":
+          model.addRectangle(currentLayer, name);
+          break;
+        case "ellipse":
+          model.addEllipse(currentLayer, name);
+          break;
+        default:
+          throw new IllegalArgumentException("Invalid shape type " + type);
+      }
+      buffers.add(new KeyframeBuffer()); // the new shape's handle is its index
+      return this;
+    }
+
+    /**
+     * Add the end of the motion as a keyframe, as Builder does.
+     */
+    @Override
+    public AnimationBuilder<AnimationModel> addMotion(
+            String name, int t1, int x1, int y1, int w1, int h1, int r1, int g1, int b1,
+            int t2, int x2, int y2, int w2, int h2, int r2, int g2, int b2) {
+      return addKeyframe(name, t2, x2, y2, w2, h2, r2, g2, b2);
+    }
+
+    @Override
+    public AnimationBuilder<AnimationModel> addKeyframe(
+            String name, int t, int x, int y, int w, int h, int r, int g, int b) {
+      checkNotBuilt();
+      // runs of keyframes for one shape skip the lookup
+      if (lastBuffer == null || !lastName.equals(name)) {
+        lastBuffer = buffers.get(model.getHandle(currentLayer, name));
+        lastName = name;
+      }
+      Motion.checkValues(t, w, h);
+      lastBuffer.add(t, x, y, w, h, Motion.regularizeColor(r), Motion.regularizeColor(g),
+              Motion.regularizeColor(b), nextRotation);
+      return this;
+    }
+
+    /**
+     * Make sure that the model has not been built yet.
+     * @throws IllegalStateException if it has
+     */
+    private void checkNotBuilt() {
+      if (built) {
+        throw new IllegalStateException("This builder has already built its model");
+      }
+    }
+  }
 }
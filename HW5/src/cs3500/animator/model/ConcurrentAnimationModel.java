@@ -0,0 +1,435 @@
+package cs3500.animator.model;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A thread-safe AnimationModel that wraps another model, so that views can draw the animation
+ * on any thread while the controller edits it.
+ */
+public final class ConcurrentAnimationModel implements AnimationModel {
+  private final AnimationModel model;
+  private final StampedLock lock;
+  private final Map<ModelListener, ModelListener> listeners; // each listener to its forwarder
+  private List<Runnable> events; // the events of the write in progress, sent once it is done
+  // INVARIANT: listeners and events are only used while holding the write lock
+
+  /**
+   * Build a thread-safe model around the given model, which must not be used directly
+   * afterwards.
+   * @param model the model to be wrapped
+   * @throws IllegalArgumentException if the model is null
+   */
+  public ConcurrentAnimationModel(AnimationModel model) {
+    if (model == null) {
+      throw new IllegalArgumentException("Model must not be null");
+    }
+    this.model = model;
+    this.lock = new StampedLock();
+    this.listeners = new IdentityHashMap<>();
+    this.events = new ArrayList<>();
+  }
+
+  @Override
+  public void setBounds(int x, int y, int width, int height) {
+    write(() -> model.setBounds(x, y, width, height));
+  }
+
+  @Override
+  public void addLayer(String layerName) {
+    write(() -> model.addLayer(layerName));
+  }
+
+  @Override
+  public void deleteLayer(String layerName) {
+    write(() -> model.deleteLayer(layerName));
+  }
+
+  @Override
+  public void moveLayer(String layerName, int position) {
+    write(() -> model.moveLayer(layerName, position));
+  }
+
+  @Override
+  public void addEllipse(String layer, String name) {
+    write(() -> model.addEllipse(layer, name));
+  }
+
+  @Override
+  public void addRectangle(String layer, String name) {
+    write(() -> model.addRectangle(layer, name));
+  }
+
+  @Override
+  public void deleteShape(String layer, String shapeName) {
+    write(() -> model.deleteShape(layer, shapeName));
+  }
+
+  @Override
+  public void addMotion(String layer, String shapeName, int time, int x, int y,
+                        int width, int height, int red, int green, int blue) {
+    write(() -> model.addMotion(layer, shapeName, time, x, y, width, height, red, green, blue));
+  }
+
+  @Override
+  public void addMotion(String layer, String shapeName, int time, int x, int y,
+                        int width, int height, int red, int green, int blue, int rotation) {
+    write(() -> model.addMotion(layer, shapeName,
+            time, x, y, width, height, red, green, blue, rotation));
+  }
+
+  @Override
+  public void addMotion(int shape, int time, int x, int y, int width, int height,
+                        int red, int green, int blue, int rotation) {
+    write(() -> model.addMotion(shape, time, x, y, width, height, red, green, blue, rotation));
+  }
+
+  @Override
+  public void editMotion(String layer, String shape, int time, int x, int y,
+                         int width, int height, int red, int green, int blue) {
+    write(() -> model.editMotion(layer, shape, time, x, y, width, height, red, green, blue));
+  }
+
+  @Override
+  public void editMotion(String layer, String shape, int time, int x, int y,
+                         int width, int height, int red, int green, int blue, int rotation) {
+    write(() -> model.editMotion(layer, shape,
+            time, x, y, width, height, red, green, blue, rotation));
+  }
+
+  @Override
+  public void editMotion(int shape, int time, int x, int y, int width, int height,
+                         int red, int green, int blue, int rotation) {
+    write(() -> model.editMotion(shape, time, x, y, width, height, red, green, blue, rotation));
+  }
+
+  @Override
+  public void deleteMotion(String layer, String shape, int time) {
+    write(() -> model.deleteMotion(layer, shape, time));
+  }
+
+  @Override
+  public void deleteMotion(int shape, int time) {
+    write(() -> model.deleteMotion(shape, time));
+  }
+
+  @Override
+  public void deleteLastMotion(String layer, String shapeName) {
+    write(() -> model.deleteLastMotion(layer, shapeName));
+  }
+
+  @Override
+  public void deleteLastMotion(int shape) {
+    write(() -> model.deleteLastMotion(shape));
+  }
+
+  /**
+   * Apply a batch of keyframe changes as one write. The function that records the changes runs
+   * before the write lock is taken, so it may read this model.
+   */
+  @Override
+  public void batch(Consumer<ModelTransaction> edits) {
+    if (edits == null) {
+      throw new IllegalArgumentException("Edits must not be null");
+    }
+    ModelTransaction recorded = new ModelTransaction();
+    edits.accept(recorded);
+    write(() -> model.batch(recorded::moveInto));
+  }
+
+  @Override
+  public List<String> getLayers() {
+    return read(model::getLayers);
+  }
+
+  @Override
+  public List<String> getShapes(String layer) {
+    return read(() -> model.getShapes(layer));
+  }
+
+  @Override
+  public String displayAnimation() {
+    return read(model::displayAnimation);
+  }
+
+  @Override
+  public int getX() {
+    return readField(model::getX);
+  }
+
+  @Override
+  public int getY() {
+    return readField(model::getY);
+  }
+
+  @Override
+  public int getWidth() {
+    return readField(model::getWidth);
+  }
+
+  @Override
+  public int getHeight() {
+    return readField(model::getHeight);
+  }
+
+  @Override
+  public int getLastTick() {
+    return readField(model::getLastTick);
+  }
+
+  @Override
+  public void addListener(ModelListener listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("Listener must not be null");
+    }
+    write(() -> {
+      if (!listeners.containsKey(listener)) {
+        ModelListener forwarder = new DeferredListener(listener);
+        listeners.put(listener, forwarder);
+        model.addListener(forwarder);
+      }
+    });
+  }
+
+  @Override
+  public void removeListener(ModelListener listener) {
+    write(() -> {
+      ModelListener forwarder = listeners.remove(listener);
+      if (forwarder != null) {
+        model.removeListener(forwarder);
+      }
+    });
+  }
+
+  @Override
+  public Transformation getTransformationAt(String layer, String shapeName, int tick) {
+    return read(() -> model.getTransformationAt(layer, shapeName, tick));
+  }
+
+  @Override
+  public int getHandle(String layer, String shapeName) {
+    return read(() -> model.getHandle(layer, shapeName));
+  }
+
+  @Override
+  public Transformation getTransformationAt(int shape, int tick) {
+    return read(() -> model.getTransformationAt(shape, tick));
+  }
+
+  @Override
+  public Frame getFrameAt(int tick) {
+    return read(() -> model.getFrameAt(tick));
+  }
+
+  @Override
+  public Frame getFrameAt(int tick, Frame frame) {
+    return read(() -> model.getFrameAt(tick, frame));
+  }
+
+  /**
+   * Take a snapshot of the wrapped model. The snapshot does not need this model's lock, since
+   * later writes never change it.
+   * @return the snapshot
+   */
+  @Override
+  public ReadOnlyModel snapshot() {
+    long stamp = lock.writeLock(); // taking a snapshot changes which parts the model may mutate
+    try {
+      return model.snapshot();
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public FrameCursor cursor(int startTick) {
+    return new LockedCursor(startTick);
+  }
+
+  @Override
+  public List<Motion> getMotions(String layer, String shapeName) {
+    return read(() -> model.getMotions(layer, shapeName));
+  }
+
+  @Override
+  public List<Motion> getMotions(int shape) {
+    return read(() -> model.getMotions(shape));
+  }
+
+  @Override
+  public String getShapeType(String layer, String shapeName) {
+    return read(() -> model.getShapeType(layer, shapeName));
+  }
+
+  @Override
+  public String getShapeType(int shape) {
+    return read(() -> model.getShapeType(shape));
+  }
+
+  /**
+   * Run the given mutation of the wrapped model under the write lock, and then tell the
+   * listeners about it on this thread, once the lock is released, so they may read or even edit
+   * this model.
+   * @param mutation the mutation
+   */
+  private void write(Runnable mutation) {
+    List<Runnable> done;
+    long stamp = lock.writeLock();
+    try {
+      mutation.run();
+    } finally {
+      done = events;
+      if (!done.isEmpty()) {
+        events = new ArrayList<>();
+      }
+      lock.unlockWrite(stamp);
+    }
+    for (Runnable event : done) {
+      event.run();
+    }
+  }
+
+  /**
+   * Run the given read of the wrapped model under the read lock.
+   * @param reader the read
+   * @param <T> the type of the result
+   * @return the result of the read
+   */
+  private <T> T read(Supplier<T> reader) {
+    long stamp = lock.readLock();
+    try {
+      return reader.get();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Run the given read of one field of the wrapped model, first optimistically and then, if a
+   * write got in the way, under the read lock. Reads that walk the model's collections must use
+   * read instead, since a write may leave them half-changed.
+   * @param reader the read
+   * @return the result of the read
+   */
+  private int readField(IntSupplier reader) {
+    long stamp = lock.tryOptimisticRead();
+    int result = reader.getAsInt();
+    if (lock.validate(stamp)) {
+      return result;
+    }
+    stamp = lock.readLock();
+    try {
+      return reader.getAsInt();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * A listener registered with the wrapped model that holds back each event until the write
+   * that caused it has released the lock, and then passes it on.
+   */
+  private final class DeferredListener implements ModelListener {
+    private final ModelListener listener;
+
+    /**
+     * Build a listener that passes events on to the given listener.
+     * @param listener the listener
+     */
+    private DeferredListener(ModelListener listener) {
+      this.listener = listener;
+    }
+
+    @Override
+    public void layerAdded(String layer) {
+      events.add(() -> listener.layerAdded(layer));
+    }
+
+    @Override
+    public void layerDeleted(String layer) {
+      events.add(() -> listener.layerDeleted(layer));
+    }
+
+    @Override
+    public void layerMoved(String layer, int position) {
+      events.add(() -> listener.layerMoved(layer, position));
+    }
+
+    @Override
+    public void shapeAdded(String layer, String shape, int handle) {
+      events.add(() -> listener.shapeAdded(layer, shape, handle));
+    }
+
+    @Override
+    public void shapeDeleted(String layer, String shape, int handle) {
+      events.add(() -> listener.shapeDeleted(layer, shape, handle));
+    }
+
+    @Override
+    public void keyframeAdded(int shape, int time, int fromTick, int toTick) {
+      events.add(() -> listener.keyframeAdded(shape, time, fromTick, toTick));
+    }
+
+    @Override
+    public void keyframeEdited(int shape, int time, int fromTick, int toTick) {
+      events.add(() -> listener.keyframeEdited(shape, time, fromTick, toTick));
+    }
+
+    @Override
+    public void keyframeDeleted(int shape, int time, int fromTick, int toTick) {
+      events.add(() -> listener.keyframeDeleted(shape, time, fromTick, toTick));
+    }
+
+    @Override
+    public void keyframesChanged(int[] shapes, int fromTick, int toTick) {
+      events.add(() -> listener.keyframesChanged(shapes, fromTick, toTick));
+    }
+  }
+
+  /**
+   * A cursor over the wrapped model's cursor that moves under the read lock. The wrapped
+   * cursor catches up with any writes made between its moves.
+   */
+  private final class LockedCursor implements FrameCursor {
+    private final FrameCursor cursor;
+
+    /**
+     * Build a cursor positioned at the given tick.
+     * @param tick the first tick
+     */
+    private LockedCursor(int tick) {
+      this.cursor = read(() -> model.cursor(tick));
+    }
+
+    @Override
+    public int getTick() {
+      return cursor.getTick();
+    }
+
+    @Override
+    public Frame getFrame() {
+      return read(cursor::getFrame);
+    }
+
+    @Override
+    public Frame advance() {
+      return read(cursor::advance);
+    }
+
+    @Override
+    public Frame seek(int tick) {
+      return read(() -> cursor.seek(tick));
+    }
+
+    @Override
+    public Frame seekTime(double time) {
+      return read(() -> cursor.seekTime(time));
+    }
+  }
+}
@@ -0,0 +1,288 @@
+package cs3500.animator.model;
+
+import java.util.Arrays;
+
+/**
+ * A class representing the state of every visible shape of an animation at a single tick, in
+ * the order they are drawn. A Frame may be passed back to ReadOnlyModel.getFrameAt to be
+ * overwritten.
+ */
+public final class Frame {
+  static final int X = 0;
+  static final int Y = 1;
+  static final int WIDTH = 2;
+  static final int HEIGHT = 3;
+  static final int RED = 4;
+  static final int GREEN = 5;
+  static final int BLUE = 6;
+  static final int ROTATION = 7;
+  static final int STATE_SIZE = Transformation.STATE_SIZE;
+
+  private static final int INITIAL_CAPACITY = 16; // in shapes
+
+  private int tick;
+  private int size;
+  private int[] states; // every shape takes up STATE_SIZE ints in the order given above
+  private ShapeType[] types;
+  private String[] layers;
+  private String[] names;
+  private int[] handles;
+  private int[] scratch; // working space for the model while it fills in this frame
+
+  /**
+   * Build an empty frame.
+   */
+  public Frame() {
+    this.tick = Motion.START_TICK;
+    this.size = 0;
+    this.states = new int[INITIAL_CAPACITY * STATE_SIZE];
+    this.types = new ShapeType[INITIAL_CAPACITY];
+    this.layers = new String[INITIAL_CAPACITY];
+    this.names = new String[INITIAL_CAPACITY];
+    this.handles = new int[INITIAL_CAPACITY];
+    this.scratch = new int[INITIAL_CAPACITY];
+  }
+
+  /**
+   * Get the tick that this frame shows.
+   * @return the tick
+   */
+  public int getTick() {
+    return tick;
+  }
+
+  /**
+   * Get the number of shapes visible in this frame.
+   * @return the number of shapes
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Get the name of the layer of the shape at the given position in the drawing order.
+   * @param index the shape's position
+   * @return the layer name
+   */
+  public String getLayer(int index) {
+    checkIndex(index);
+    return layers[index];
+  }
+
+  /**
+   * Get the name of the shape at the given position in the drawing order.
+   * @param index the shape's position
+   * @return the shape name
+   */
+  public String getShapeName(int index) {
+    checkIndex(index);
+    return names[index];
+  }
+
+  /**
+   * Get the model's handle for the shape at the given position in the drawing order.
+   * @param index the shape's position
+   * @return the shape's handle
+   */
+  public int getHandle(int index) {
+    checkIndex(index);
+    return handles[index];
+  }
+
+  /**
+   * Return a string (either ellipse or rectangle) representing the type of the shape
+   * at the given position in the drawing order.
+   * @param index the shape's position
+   * @return the shape type
+   */
+  public String getShapeType(int index) {
+    checkIndex(index);
+    return types[index].getType();
+  }
+
+  /**
+   * Getter for x.
+   * @param index the shape's position in the drawing order
+   * @return x
+   */
+  public int getX(int index) {
+    return state(index, X);
+  }
+
+  /**
+   * Getter for y.
+   * @param index the shape's position in the drawing order
+   * @return y
+   */
+  public int getY(int index) {
+    return state(index, Y);
+  }
+
+  /**
+   * Getter for width.
+   * @param index the shape's position in the drawing order
+   * @return width
+   */
+  public int getWidth(int index) {
+    return state(index, WIDTH);
+  }
+
+  /**
+   * Getter for height.
+   * @param index the shape's position in the drawing order
+   * @return height
+   */
+  public int getHeight(int index) {
+    return state(index, HEIGHT);
+  }
+
+  /**
+   * Getter for red.
+   * @param index the shape's position in the drawing order
+   * @return red
+   */
+  public int getRed(int index) {
+    return state(index, RED);
+  }
+
+  /**
+   * Getter for green.
+   * @param index the shape's position in the drawing order
+   * @return green
+   */
+  public int getGreen(int index) {
+    return state(index, GREEN);
+  }
+
+  /**
+   * Getter for blue.
+   * @param index the shape's position in the drawing order
+   * @return blue
+   */
+  public int getBlue(int index) {
+    return state(index, BLUE);
+  }
+
+  /**
+   * Getter for rotation.
+   * @param index the shape's position in the drawing order
+   * @return rotation
+   */
+  public int getRotation(int index) {
+    return state(index, ROTATION);
+  }
+
+  /**
+   * Overwrite this frame with a copy of the given frame, growing this frame's arrays only if
+   * they are too small, so that a frame filled on one thread can be handed to another without
+   * building a new frame each time.
+   * @param other the frame to copy
+   * @throws IllegalArgumentException if the frame is null
+   */
+  public void copyFrom(Frame other) {
+    if (other == null) {
+      throw new IllegalArgumentException("Frame must not be null");
+    }
+    if (other == this) {
+      return;
+    }
+    reset(other.tick);
+    if (types.length < other.size) {
+      int capacity = Math.max(other.size, types.length * 2);
+      states = new int[capacity * STATE_SIZE];
+      types = new ShapeType[capacity];
+      layers = new String[capacity];
+      names = new String[capacity];
+      handles = new int[capacity];
+    }
+    System.arraycopy(other.states, 0, states, 0, other.size * STATE_SIZE);
+    System.arraycopy(other.types, 0, types, 0, other.size);
+    System.arraycopy(other.layers, 0, layers, 0, other.size);
+    System.arraycopy(other.names, 0, names, 0, other.size);
+    System.arraycopy(other.handles, 0, handles, 0, other.size);
+    size = other.size;
+  }
+
+  /**
+   * Remove every shape from this frame and set it to show the given tick.
+   * @param tick the new tick
+   */
+  void reset(int tick) {
+    this.tick = tick;
+    // drop references to names so that deleted shapes can be garbage collected
+    Arrays.fill(layers, 0, size, null);
+    Arrays.fill(names, 0, size, null);
+    this.size = 0;
+  }
+
+  /**
+   * Add a shape on top of every shape already in this frame.
+   * The caller must write the shape's state into the states array at the returned offset.
+   * @param layer the shape's layer name
+   * @param name the shape's name
+   * @param type the shape's type
+   * @param handle the shape's handle
+   * @return the offset of the new shape's state in the states array
+   */
+  int add(String layer, String name, ShapeType type, int handle) {
+    if (size == types.length) {
+      int capacity = size * 2;
+      states = Arrays.copyOf(states, capacity * STATE_SIZE);
+      types = Arrays.copyOf(types, capacity);
+      layers = Arrays.copyOf(layers, capacity);
+      names = Arrays.copyOf(names, capacity);
+      handles = Arrays.copyOf(handles, capacity);
+    }
+    types[size] = type;
+    layers[size] = layer;
+    names[size] = name;
+    handles[size] = handle;
+    size++;
+    return (size - 1) * STATE_SIZE;
+  }
+
+  /**
+   * Return the array holding the state of every shape in this frame.
+   * The array may be replaced when shapes are added.
+   * @return the states array
+   */
+  int[] states() {
+    return states;
+  }
+
+  /**
+   * Return an int array that the model may use as working space while it fills in this frame.
+   * The array is kept between frames so that filling a frame does not build a new one.
+   * @param minLength the minimum length of the array
+   * @return the working array, with its contents kept if it had to grow
+   */
+  int[] scratch(int minLength) {
+    if (scratch.length < minLength) {
+      scratch = Arrays.copyOf(scratch, Math.max(minLength, scratch.length * 2));
+    }
+    return scratch;
+  }
+
+  /**
+   * Get one value of the state of the shape at the given position.
+   * @param index the shape's position
+   * @param field the value's offset, from X to ROTATION
+   * @return the value
+   */
+  private int state(int index, int field) {
+    checkIndex(index);
+    return states[index * STATE_SIZE + field];
+  }
+
+  /**
+   * Check whether there is a shape at the given position. If not, throw an exception.
+   * @param index the shape's position
+   * @throws IndexOutOfBoundsException if there is no shape at the given position
+   */
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("No shape at position " + index
+              + " in a frame of " + size + " shapes");
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package cs3500.animator.model;
+
+/**
+ * A cursor over the frames of an animation, for drawing or exporting ticks in sequence. The
+ * cursor overwrites a single Frame each time it moves, so a frame must not be kept after the
+ * next call.
+ */
+public interface FrameCursor {
+  /**
+   * Get the tick at which the cursor is positioned.
+   * @return the tick
+   */
+  int getTick();
+
+  /**
+   * Get the frame at the cursor's tick, reflecting any changes made to the model since the
+   * cursor last moved.
+   * @return the frame
+   */
+  Frame getFrame();
+
+  /**
+   * Move the cursor forward by one tick.
+   * @return the frame at the new tick
+   */
+  Frame advance();
+
+  /**
+   * Move the cursor to any tick, forward or backward. Seeking to the cursor's tick or to the
+   * next tick is as cheap as getFrame or advance, so callers that usually step forward but may
+   * jump can always call seek.
+   * @param tick the new tick
+   * @return the frame at the new tick
+   */
+  Frame seek(int tick);
+
+  /**
+   * Move the cursor to the whole tick at or before the given time, and fill the frame with the
+   * state of the animation at that exact time, as Transformation.getStateAt(double, int[], int)
+   * interpolates it. The shapes are those on screen at the whole tick, and the frame's tick is
+   * that tick. This lets a display draw smoothly between ticks at a higher rate than the
+   * animation's speed; like seek, it builds no new objects while the cursor moves forward.
+   * Seeking to a whole number gives the same frame as seek. Later calls to getFrame give the
+   * frame at the whole tick.
+   * @param time the time
+   * @return the frame at the time
+   */
+  Frame seekTime(double time);
+}
@@ -0,0 +1,471 @@
+package cs3500.animator.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A class that stores a shape's keyframes sorted in order of increasing time, packed into
+ * the rows of int arrays of BLOCK_SIZE keyframes each rather than kept as Motion objects.
+ */
+final class KeyframeStore {
+  static final int TIME = 0;
+  static final int X = 1;
+  static final int Y = 2;
+  static final int WIDTH = 3;
+  static final int HEIGHT = 4;
+  static final int RED = 5;
+  static final int GREEN = 6;
+  static final int BLUE = 7;
+  static final int ROTATION = 8;
+  static final int STRIDE = 9;
+
+  private static final int INITIAL_CAPACITY = 4; // in keyframes
+  private static final int BLOCK_BITS = 5;
+  private static final int BLOCK_SIZE = 1 << BLOCK_BITS; // in keyframes
+  private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+  private int[][] blocks; // keyframe i takes up STRIDE ints of block i / BLOCK_SIZE, in the
+  // order given above; blocks past the capacity are null
+  private boolean[] shared; // true for each block that a copy of this store may read
+  // INVARIANT: only the first block may hold fewer than BLOCK_SIZE keyframes, and only while
+  // there is no second block. A shared block is copied before it changes.
+  private int size;
+  // INVARIANT: keyframes 0 to size - 1 are sorted by strictly increasing time.
+
+  /**
+   * Build an empty keyframe store.
+   */
+  KeyframeStore() {
+    this.blocks = new int[][]{new int[INITIAL_CAPACITY * STRIDE]};
+    this.shared = new boolean[1];
+    this.size = 0;
+  }
+
+  /**
+   * Build a store holding the same keyframes as the given store, sharing its blocks.
+   * @param other the store to be copied
+   */
+  private KeyframeStore(KeyframeStore other) {
+    this.blocks = other.blocks.clone();
+    this.shared = other.shared.clone();
+    this.size = other.size;
+  }
+
+  /**
+   * Return a copy of this store. The two stores share their blocks, and each copies a block
+   * the first time it changes it, so a change to one keyframe copies only its block.
+   * @return the copy
+   */
+  KeyframeStore copy() {
+    Arrays.fill(shared, true);
+    return new KeyframeStore(this);
+  }
+
+  /**
+   * Return the number of keyframes stored.
+   * @return the number of keyframes
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Are there no keyframes stored?.
+   * @return true if there are no keyframes
+   */
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Get one value of the keyframe at the given index.
+   * @param index the index of the keyframe
+   * @param field the column of the value, one of TIME, X, Y, WIDTH, HEIGHT, RED, GREEN, BLUE
+   *     or ROTATION
+   * @return the value
+   */
+  int get(int index, int field) {
+    return blocks[index >>> BLOCK_BITS][(index & BLOCK_MASK) * STRIDE + field];
+  }
+
+  /**
+   * Get the time of the keyframe at the given index.
+   * @param index the index of the keyframe
+   * @return the keyframe's time
+   */
+  int getTime(int index) {
+    return blocks[index >>> BLOCK_BITS][(index & BLOCK_MASK) * STRIDE];
+  }
+
+  /**
+   * Find the index of the keyframe at the given time.
+   * @param time the time of the keyframe
+   * @return the index of the keyframe if there is one, otherwise (-(insertion point) - 1)
+   */
+  int indexOf(int time) {
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int midTime = getTime(mid);
+      if (midTime < time) {
+        low = mid + 1;
+      } else if (midTime > time) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  /**
+   * Find the index of the last keyframe at or before the given time.
+   * @param time the time
+   * @return the index, or -1 if every keyframe comes after the given time
+   */
+  int floorIndex(int time) {
+    int index = indexOf(time);
+    return index >= 0 ? index : -(index + 1) - 1;
+  }
+
+  /**
+   * Find the index of the first keyframe at or after the given time.
+   * @param time the time
+   * @return the index, or -1 if every keyframe comes before the given time
+   */
+  int ceilingIndex(int time) {
+    int index = indexOf(time);
+    if (index >= 0) {
+      return index;
+    }
+    int insertion = -(index + 1);
+    return insertion < size ? insertion : -1;
+  }
+
+  /**
+   * Insert a keyframe in its sorted position.
+   * The values are stored as given, so they must already be valid.
+   *
+   * @param time the keyframe's time
+   * @param x the x coordinate
+   * @param y the y coordinate
+   * @param width the width
+   * @param height the height
+   * @param red the R component of the color
+   * @param green the G component of the color
+   * @param blue the B component of the color
+   * @param rotation the rotation
+   * @throws IllegalArgumentException if there is already a keyframe at the given time
+   */
+  void insert(int time, int x, int y, int width, int height,
+              int red, int green, int blue, int rotation) {
+    int index = indexOf(time);
+    if (index >= 0) {
+      throw new IllegalArgumentException("This shape already has a motion at time " + time);
+    }
+    index = -(index + 1);
+    ensureCapacity(size + 1);
+    openRow(index);
+    size++;
+    editBlock(index >>> BLOCK_BITS)[(index & BLOCK_MASK) * STRIDE + TIME] = time;
+    set(index, x, y, width, height, red, green, blue, rotation);
+  }
+
+  /**
+   * Replace the values of the keyframe at the given index, keeping its time.
+   * The values are stored as given, so they must already be valid.
+   *
+   * @param index the index of the keyframe
+   * @param x the x coordinate
+   * @param y the y coordinate
+   * @param width the width
+   * @param height the height
+   * @param red the R component of the color
+   * @param green the G component of the color
+   * @param blue the B component of the color
+   * @param rotation the rotation
+   */
+  void set(int index, int x, int y, int width, int height,
+           int red, int green, int blue, int rotation) {
+    int[] block = editBlock(index >>> BLOCK_BITS);
+    int offset = (index & BLOCK_MASK) * STRIDE;
+    block[offset + X] = x;
+    block[offset + Y] = y;
+    block[offset + WIDTH] = width;
+    block[offset + HEIGHT] = height;
+    block[offset + RED] = red;
+    block[offset + GREEN] = green;
+    block[offset + BLUE] = blue;
+    block[offset + ROTATION] = rotation;
+  }
+
+  /**
+   * Apply a sorted run of changes from a batch in one merge pass over the stored keyframes.
+   * Each entry of the run holds a keyframe time in its upper 32 bits and the index of a change
+   * in the batch in its lower 32 bits, and the run is sorted by time with no time repeated.
+   * The changes must already have been checked against this store: adds must not match a
+   * stored keyframe, and edits and deletes must.
+   * @param batch the batch holding the changes
+   * @param run the sorted run
+   * @param start the index of the run's first entry
+   * @param end the index just past the run's last entry
+   */
+  void merge(ModelTransaction batch, long[] run, int start, int end) {
+    int[] merged = new int[Math.max(size + end - start, INITIAL_CAPACITY) * STRIDE];
+    int count = 0;
+    int i = 0;
+    for (int k = start; k < end; k++) {
+      int change = (int) run[k];
+      int time = (int) (run[k] >> 32);
+      while (i < size && getTime(i) < time) {
+        copyRow(i, merged, count * STRIDE);
+        i++;
+        count++;
+      }
+      if (i < size && getTime(i) == time) {
+        i++; // the change replaces or deletes this keyframe
+      }
+      if (batch.get(change, ModelTransaction.KIND) != ModelTransaction.DELETE) {
+        batch.copyKeyframe(change, merged, count * STRIDE);
+        count++;
+      }
+    }
+    for (; i < size; i++) {
+      copyRow(i, merged, count * STRIDE);
+      count++;
+    }
+    load(merged, count);
+  }
+
+  /**
+   * Replace the stored keyframes with the first size rows of the given array. If they fit in
+   * one block the array becomes that block instead of being copied; otherwise the rows are
+   * copied into blocks. The rows must be sorted by strictly increasing time and hold valid
+   * values.
+   * @param rows the keyframes, in the layout of this store
+   * @param size the number of keyframes
+   */
+  void load(int[] rows, int size) {
+    int count = Math.max((size + BLOCK_MASK) >>> BLOCK_BITS, 1);
+    this.blocks = new int[count][];
+    this.shared = new boolean[count];
+    if (count == 1 && rows.length <= BLOCK_SIZE * STRIDE) {
+      blocks[0] = rows;
+    } else {
+      for (int b = 0; b < count; b++) {
+        int from = b * BLOCK_SIZE * STRIDE;
+        blocks[b] = Arrays.copyOfRange(rows, from, from + BLOCK_SIZE * STRIDE);
+      }
+    }
+    this.size = size;
+  }
+
+  /**
+   * Remove the keyframe at the given index.
+   * @param index the index of the keyframe
+   */
+  void remove(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("No keyframe at index " + index);
+    }
+    closeRow(index);
+    size--;
+  }
+
+  /**
+   * Write the interpolated state at the given time into the given array starting at the given
+   * offset, in the order x, y, width, height, red, green, blue, rotation.
+   * The result is the same as Transformation.getStateAt, but no objects are built.
+   * @param time the time, which must fall between the first and last keyframes
+   * @param state the array that receives the state
+   * @param offset the index of the state's first value (x) in the array
+   */
+  void stateAt(int time, int[] state, int offset) {
+    stateAtSegment(floorIndex(time), time, state, offset);
+  }
+
+  /**
+   * Write the interpolated state at the given time into the given array as in stateAt,
+   * given the index of the last keyframe at or before that time.
+   * This skips the binary search when the caller already knows the keyframe.
+   * The time may fall between two ticks, as in Transformation.getStateAt(double, int[], int),
+   * and after the last keyframe, where the state is that of the last keyframe.
+   * @param index the index of the last keyframe at or before the time
+   * @param time the time, which must not come before the first keyframe
+   * @param state the array that receives the state
+   * @param offset the index of the state's first value (x) in the array
+   */
+  void stateAtSegment(int index, double time, int[] state, int offset) {
+    int[] fromBlock = blocks[index >>> BLOCK_BITS];
+    int from = (index & BLOCK_MASK) * STRIDE;
+    if (fromBlock[from + TIME] == time || index == size - 1) {
+      System.arraycopy(fromBlock, from + X, state, offset, Transformation.STATE_SIZE);
+      return;
+    }
+    int[] toBlock = blocks[(index + 1) >>> BLOCK_BITS];
+    int to = ((index + 1) & BLOCK_MASK) * STRIDE;
+    double fraction = (time - fromBlock[from + TIME])
+            / (toBlock[to + TIME] - fromBlock[from + TIME]);
+    for (int i = 0; i < Transformation.STATE_SIZE; i++) {
+      state[offset + i] = Transformation.interpolate(fromBlock[from + X + i],
+              (double) toBlock[to + X + i] - fromBlock[from + X + i], fraction);
+    }
+  }
+
+  /**
+   * Find the index of the last keyframe at or before the given time, starting the search from
+   * a keyframe at or before that time. Moving forward through time one tick at a time this way
+   * takes amortized constant time per tick.
+   * @param index the index of a keyframe at or before the time
+   * @param time the time
+   * @return the index of the last keyframe at or before the time
+   */
+  int advanceSegment(int index, int time) {
+    while (index + 1 < size && getTime(index + 1) <= time) {
+      index++;
+    }
+    return index;
+  }
+
+  /**
+   * Build a Motion holding the values of the keyframe at the given index.
+   * @param index the index of the keyframe
+   * @return the keyframe as a Motion
+   */
+  Motion getMotion(int index) {
+    int[] block = blocks[index >>> BLOCK_BITS];
+    int offset = (index & BLOCK_MASK) * STRIDE;
+    return new Motion(block[offset + TIME], block[offset + X], block[offset + Y],
+            block[offset + WIDTH], block[offset + HEIGHT],
+            block[offset + RED], block[offset + GREEN], block[offset + BLUE],
+            block[offset + ROTATION]);
+  }
+
+  /**
+   * Append the keyframe at the given index to the given builder as Motion.display writes it.
+   * @param index the index of the keyframe
+   * @param out the builder
+   * @return the builder
+   */
+  StringBuilder display(int index, StringBuilder out) {
+    int[] block = blocks[index >>> BLOCK_BITS];
+    int offset = (index & BLOCK_MASK) * STRIDE;
+    return Motion.display(out, block[offset + TIME], block[offset + X], block[offset + Y],
+            block[offset + WIDTH], block[offset + HEIGHT],
+            block[offset + RED], block[offset + GREEN], block[offset + BLUE]);
+  }
+
+  /**
+   * Build a list of Motions holding every stored keyframe in order.
+   * @return the keyframes as Motions
+   */
+  List<Motion> toMotions() {
+    List<Motion> motions = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      motions.add(getMotion(i));
+    }
+    return motions;
+  }
+
+  /**
+   * Copy the keyframe at the given index into the given array.
+   * @param index the index of the keyframe
+   * @param rows the array
+   * @param offset the index in the array of the keyframe's time
+   */
+  private void copyRow(int index, int[] rows, int offset) {
+    System.arraycopy(blocks[index >>> BLOCK_BITS], (index & BLOCK_MASK) * STRIDE,
+            rows, offset, STRIDE);
+  }
+
+  /**
+   * Move the keyframes from the given index on one row later, block by block from the last,
+   * leaving the row at the index free. There must be room for one more keyframe.
+   * @param index the index of the row to free
+   */
+  private void openRow(int index) {
+    for (int b = size >>> BLOCK_BITS; b >= index >>> BLOCK_BITS; b--) {
+      int first = b << BLOCK_BITS; // the index of the block's first row
+      // the rows of this block that receive a keyframe
+      int low = Math.max(first, index + 1);
+      int high = Math.min(first + BLOCK_MASK, size);
+      if (low > high) {
+        continue;
+      }
+      int[] block = editBlock(b);
+      int inside = Math.max(low, first + 1); // the first row whose keyframe is in this block
+      if (inside <= high) {
+        System.arraycopy(block, (inside - 1 - first) * STRIDE,
+                block, (inside - first) * STRIDE, (high - inside + 1) * STRIDE);
+      }
+      if (low == first) {
+        System.arraycopy(blocks[b - 1], BLOCK_MASK * STRIDE, block, 0, STRIDE);
+      }
+    }
+  }
+
+  /**
+   * Move the keyframes after the given index one row earlier, block by block from the first,
+   * overwriting the keyframe at the index.
+   * @param index the index of the keyframe to overwrite
+   */
+  private void closeRow(int index) {
+    for (int b = index >>> BLOCK_BITS; b << BLOCK_BITS <= size - 2; b++) {
+      int first = b << BLOCK_BITS; // the index of the block's first row
+      // the rows of this block that receive a keyframe
+      int low = Math.max(first, index);
+      int high = Math.min(first + BLOCK_MASK, size - 2);
+      if (low > high) {
+        continue;
+      }
+      int[] block = editBlock(b);
+      int inside = Math.min(high, first + BLOCK_MASK - 1); // the last row whose keyframe is here
+      if (inside >= low) {
+        System.arraycopy(block, (low + 1 - first) * STRIDE,
+                block, (low - first) * STRIDE, (inside - low + 1) * STRIDE);
+      }
+      if (high == first + BLOCK_MASK) {
+        System.arraycopy(blocks[b + 1], 0, block, BLOCK_MASK * STRIDE, STRIDE);
+      }
+    }
+  }
+
+  /**
+   * Find the block with the given index, first copying it if a copy of this store may read it.
+   * @param block the index of the block
+   * @return the block, which this store may change
+   */
+  private int[] editBlock(int block) {
+    if (shared[block]) {
+      blocks[block] = blocks[block].clone();
+      shared[block] = false;
+    }
+    return blocks[block];
+  }
+
+  /**
+   * Grow the blocks so that they can hold at least the given number of keyframes.
+   * @param keyframes the number of keyframes
+   */
+  private void ensureCapacity(int keyframes) {
+    int[] first = blocks[0];
+    if (keyframes * STRIDE > first.length && first.length < BLOCK_SIZE * STRIDE) {
+      int capacity = Math.min(Math.max(keyframes, first.length / STRIDE * 2), BLOCK_SIZE);
+      blocks[0] = Arrays.copyOf(first, capacity * STRIDE);
+      shared[0] = false;
+    }
+    int count = (keyframes + BLOCK_MASK) >>> BLOCK_BITS;
+    if (count > blocks.length) {
+      int length = Math.max(count, blocks.length * 2);
+      blocks = Arrays.copyOf(blocks, length);
+      shared = Arrays.copyOf(shared, length);
+    }
+    // blocks are allocated in order, so the missing ones are at the end
+    for (int b = count - 1; b > 0 && blocks[b] == null; b--) {
+      blocks[b] = new int[BLOCK_SIZE * STRIDE];
+      shared[b] = false;
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package cs3500.animator.model;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -10,122 +11,104 @@ import java.util.Map;
  */
 class Layer {
   /**
-   * A list representing every shape that can appear in the animation.
+   * The handles of every shape that can appear in the animation, in the order they were added.
    * Shapes can be accessed through their unique names.
    */
-  private final Map<String, Shape> shapes;
-  // INVARIANT: each Shape's key is the same String as its name.
+  private final Map<String, Integer> shapes;
+  // INVARIANT: each handle's key is the same String as its shape's name.
   private String name;
+  private final Object owner; // the edit token of the model that may mutate this layer
 
   /**
    * Build a Layer with no shapes.
    *
    * @param name the layer name
+   * @param owner the edit token of the model that may mutate this layer
    */
-  Layer(String name) {
+  Layer(String name, Object owner) {
     this.shapes = new LinkedHashMap<>();
     this.name = name;
+    this.owner = owner;
   }
 
   /**
-   * Get the shape name.
-   * @return the shape name
+   * Build a copy of the given layer that belongs to the given owner.
+   * @param other the layer to be copied
+   * @param owner the edit token of the model that may mutate the copy
    */
-  public String getName() {
-    return name;
+  private Layer(Layer other, Object owner) {
+    this.shapes = new LinkedHashMap<>(other.shapes);
+    this.name = other.name;
+    this.owner = owner;
   }
 
   /**
-   * Does this layer contain a shape by the given name.
-   * @param shapeName the shape name
-   * @return true if the shape exists
+   * Return a copy of this layer that the model with the given edit token may mutate.
+   * @param owner the edit token
+   * @return the copy
    */
-  public boolean hasShape(String shapeName) {
-    return shapes.containsKey(shapeName);
+  Layer copy(Object owner) {
+    return new Layer(this, owner);
   }
 
   /**
-   * Add the given shape to this layer's list of shapes.
-   * @param shape the shape to be added
-   * @throw IllegalArgumentException if there is already a shape by the given name in this layer
+   * May the model with the given edit token mutate this layer in place?.
+   * @param owner the edit token
+   * @return true if this layer belongs to the given token
    */
-  public void addShape(Shape shape) {
-    if (hasShape(shape.getName())) {
-      throw new IllegalArgumentException("Every shape must have a unique name. The shape "
-              + shape.getName() + " already exists in the layer " + name);
-    }
-    shapes.put(shape.getName(), shape);
+  boolean isOwnedBy(Object owner) {
+    return this.owner == owner;
   }
 
   /**
-   * Delete the given shape and all of its motions from this layer.
-   * @param shapeName the name of the shape to be deleted
+   * Get the shape name.
+   * @return the shape name
    */
-  public void deleteShape(String shapeName) {
-    checkShapeExists(shapeName);
-    shapes.remove(shapeName);
+  public String getName() {
+    return name;
   }
 
   /**
-   * Add a motion of the given parameters to the given shape.
-   * @param shapeName the shape's name
-   * @param time the time of the new motion
-   * @param x the new motion's x coordinate
-   * @param y the new motion's y coordinate
-   * @param width the new motion's width
-   * @param height the new motion's height
-   * @param red the new motion's r component of rgb
-   * @param green the new motion's g component of rgb
-   * @param blue the new motion's b component of rgb
-   * @param rotation the shape's rotation
+   * Does this layer contain a shape by the given name.
+   * @param shapeName the shape name
+   * @return true if the shape exists
    */
-  public void addMotion(String shapeName, int time, int x, int y, int width, int height,
-                        int red, int green, int blue, int rotation) {
-    checkShapeExists(shapeName);
-    // may throw an IAE if the time is incorrect
-    shapes.get(shapeName).addMotion(time, x, y, width, height, red, green, blue, rotation);
+  public boolean hasShape(String shapeName) {
+    return shapes.containsKey(shapeName);
   }
 
   /**
-   * Replace the motion sof the given shape at the given time with a new motion of the given params.
+   * Add the shape with the given name and handle to this layer's list of shapes.
    * @param shapeName the shape's name
-   * @param time the motion's time
-   * @param x the new motion's x coordinate
-   * @param y the new motion's y coordinate
-   * @param width the new motion's width
-   * @param height the new motion's height
-   * @param red the new motion's r component of rgb
-   * @param green the new motion's g component of rgb
-   * @param blue the new motion's b component of rgb
-   * @param rotation the shape's rotation
+   * @param handle the shape's handle
+   * @throw IllegalArgumentException if there is already a shape by the given name in this layer
    */
-  public void editMotion(String shapeName, int time, int x, int y, int width, int height,
-                         int red, int green, int blue, int rotation) {
-    checkShapeExists(shapeName);
-    // Motion constructor check for validity of inputs, throw IAE if invalid
-    Motion m = new Motion(time, x, y, width, height, red, green, blue, rotation);
-    Shape shape = shapes.get(shapeName);
-    shape.deleteMotionAt(time); // throws IAE if there is no motion at the given time
-    shape.addMotion(m);
+  public void addShape(String shapeName, int handle) {
+    if (hasShape(shapeName)) {
+      throw new IllegalArgumentException("Every shape must have a unique name. The shape "
+              + shapeName + " already exists in the layer " + name);
+    }
+    shapes.put(shapeName, handle);
   }
 
   /**
-   * Delete the motion of the given shape at the given time.
-   * @param shapeName the shape to remove a motion form
-   * @param time the time of the motion to be removed
+   * Find the handle of the shape with the given name.
+   * @param shapeName the shape's name
+   * @return the shape's handle
+   * @throws IllegalArgumentException if the shape does not exist
    */
-  public void deleteMotion(String shapeName, int time) {
+  int getHandle(String shapeName) {
     checkShapeExists(shapeName);
-    shapes.get(shapeName).deleteMotionAt(time); // throws IAE if there is no motion at that time
+    return shapes.get(shapeName);
   }
 
   /**
-   * Delete the last motion of the given shape.
-   * @param shapeName the name of the shape from which to delete a motion.
+   * Delete the given shape from this layer.
+   * @param shapeName the name of the shape to be deleted
    */
-  public void deleteLastMotion(String shapeName) {
+  public void deleteShape(String shapeName) {
     checkShapeExists(shapeName);
-    shapes.get(shapeName).deleteLastMotion();
+    shapes.remove(shapeName);
   }
 
   /**
@@ -137,49 +120,26 @@ class Layer {
   }
 
   /**
-   * Concatenate the list of motions of every shape in the layer
-   * under a header naming this layer.
-   * @return a String describing the movements of all shapes in this layer.
+   * Return the handles of every shape in this layer in the order they were added.
+   * The collection is a live view and must not be modified.
+   * @return the handles
    */
-  public String display() {
-    List<String> shapeDisplays = new ArrayList<>(shapes.size() + 1);
-    shapeDisplays.add("layer " + name);
-    for (Shape s : shapes.values()) {
-      shapeDisplays.add(s.display());
-    }
-    return String.join("\n", shapeDisplays);
+  Collection<Integer> handles() {
+    return shapes.values();
   }
 
   /**
-   * Return the Transformation of the given shape at the given time.
-   * @param shapeName the name of the desired shape
-   * @param tick the time of the transformation
-   * @return the transformation currently happening
-   */
-  public Transformation getTransformationAt(String shapeName, int tick) {
-    checkShapeExists(shapeName);
-    return shapes.get(shapeName).getTransformationAt(tick);
-  }
-
-  /**
-   * return a list of every motion of the given shape.
-   * @param shapeName the name of the shape
-   * @return all of the shape's motions
-   */
-  public List<Motion> getMotions(String shapeName) {
-    checkShapeExists(shapeName);
-    return shapes.get(shapeName).getMotions();
-  }
-
-  /**
-   * Return a string representing what type of shape the given shape is.
-   * The string must be one of: rectangle, ellipse.
-   * @param shapeName the shape name
-   * @return the shape type
-   */
-  public String getShapeType(String shapeName) {
-    checkShapeExists(shapeName);
-    return shapes.get(shapeName).getShapeType();
+   * Concatenate the list of motions of every shape in the layer
+   * under a header naming this layer.
+   * @param table the table holding this layer's shapes
+   * @param out the builder to which the movements of all shapes in this layer are appended
+   */
+  public void display(ShapeTable table, StringBuilder out) {
+    out.append("layer ").append(name);
+    for (int handle : shapes.values()) {
+      out.append('\n');
+      table.get(handle).display(out);
+    }
   }
 
   /**
@@ -0,0 +1,378 @@
+package cs3500.animator.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An interval index over the lifetimes of the shapes in an animation, from each shape's first
+ * keyframe to its last, which finds the shapes on screen at a tick without visiting the rest.
+ */
+final class LifetimeIndex {
+  // The tree changes in place, so a query must never overlap a change. A snapshot's index never
+  // changes, but may be queried on several threads at once, each of which may then build the
+  // tree; every tree is finished before it is published, so any of them may be kept.
+  private volatile Tree tree; // null if the index is out of date, and rebuilt on the next query
+  private boolean shared; // true if a copy of this index may be reading the tree
+
+  /**
+   * Build an index that is out of date, so that it is built on the first query.
+   */
+  LifetimeIndex() {
+    this.tree = null;
+    this.shared = false;
+  }
+
+  /**
+   * Build an index that starts out with the same tree as the given index.
+   * @param other the index to be copied
+   */
+  private LifetimeIndex(LifetimeIndex other) {
+    this.tree = other.tree;
+    this.shared = true;
+  }
+
+  /**
+   * Return an index for a copy of this index's animation. Both indexes use the same tree until
+   * one of them changes it, which first copies it.
+   * @return the copy
+   */
+  LifetimeIndex copy() {
+    shared = true;
+    return new LifetimeIndex(this);
+  }
+
+  /**
+   * Mark the index as out of date. Must be called whenever a shape or layer is added or removed,
+   * and whenever the layer order changes.
+   */
+  void invalidate() {
+    tree = null;
+    shared = false;
+  }
+
+  /**
+   * Move the lifetime of the given shape to match its keyframes, leaving every other lifetime
+   * where it is. Must be called whenever a shape's first or last keyframe changes.
+   * @param shape the shape
+   */
+  void update(Shape shape) {
+    Tree t = tree;
+    if (t == null) {
+      return; // the whole tree is built on the next query
+    }
+    if (shared) {
+      t = new Tree(t);
+      t.update(shape);
+      tree = t;
+      shared = false;
+    } else {
+      t.update(shape);
+    }
+  }
+
+  /**
+   * Add the state of every shape on screen at the given tick to the given frame,
+   * in drawing order.
+   * @param layers the layers of the animation, from lowest to highest
+   * @param shapes the table holding the layers' shapes
+   * @param tick the tick
+   * @param frame the frame to which the shapes are added
+   */
+  void addToFrame(List<Layer> layers, ShapeTable shapes, int tick, Frame frame) {
+    getTree(layers, shapes).addToFrame(shapes, tick, frame);
+  }
+
+  /**
+   * Return the tree over the current lifetimes, building it if the index is out of date.
+   * The tree changes along with the animation, so it must be asked for again after any change
+   * to the animation.
+   * @param layers the layers of the animation, from lowest to highest
+   * @param shapes the table holding the layers' shapes
+   * @return the tree
+   */
+  Tree getTree(List<Layer> layers, ShapeTable shapes) {
+    Tree t = tree;
+    if (t == null) {
+      t = new Tree(layers, shapes);
+      tree = t;
+    }
+    return t;
+  }
+
+  /**
+   * An interval tree over the lifetimes of the shapes in the layers.
+   * The lifetimes are sorted by their start and stored as an implicit balanced binary tree:
+   * the root of the range [low, high] is its midpoint, and every node records the latest end
+   * in its subtree so that subtrees with no lifetime reaching the tick can be skipped.
+   * Moving one shape's lifetime shifts the sorted arrays past it rather than sorting again.
+   */
+  static final class Tree {
+    private static final int NONE = -1; // the start and end of a shape with no keyframes
+
+    int size; // the number of lifetimes, one for each shape that has keyframes
+    // the following arrays are sorted by lifetime start and then by rank, up to size
+    final int[] starts;
+    private final int[] ends;
+    private final int[] maxEnds; // the latest end in the subtree rooted at each index
+    final int[] ranks; // the position of the shape in the drawing order
+    // the following arrays are indexed by drawing order, over every shape
+    final int shapeCount;
+    private final int[] startsByRank; // NONE for a shape with no keyframes
+    final int[] endsByRank; // NONE for a shape with no keyframes
+    final int[] handles; // resolved through the shape table, so copying a shape keeps the tree
+    final String[] layerNames;
+    private final int[] rankByHandle; // -1 for a handle with no shape in the layers
+
+    /**
+     * Build a tree over the lifetimes of every shape in the given layers.
+     * @param layers the layers, from lowest to highest
+     * @param table the table holding the layers' shapes
+     */
+    private Tree(List<Layer> layers, ShapeTable table) {
+      int count = 0;
+      int maxHandle = -1;
+      for (Layer l : layers) {
+        for (int h : l.handles()) {
+          count++;
+          maxHandle = Math.max(maxHandle, h);
+        }
+      }
+      this.shapeCount = count;
+      this.handles = new int[count];
+      this.layerNames = new String[count];
+      this.startsByRank = new int[count];
+      this.endsByRank = new int[count];
+      this.rankByHandle = new int[maxHandle + 1];
+      Arrays.fill(rankByHandle, -1);
+      long[] keys = new long[count];
+      int lifetimes = 0;
+      int rank = 0;
+      for (Layer l : layers) {
+        for (int h : l.handles()) {
+          Shape s = table.get(h);
+          handles[rank] = h;
+          layerNames[rank] = l.getName();
+          rankByHandle[h] = rank;
+          if (s.isEmpty()) {
+            startsByRank[rank] = NONE;
+            endsByRank[rank] = NONE;
+          } else {
+            startsByRank[rank] = s.getFirstTime();
+            endsByRank[rank] = s.getLastTime();
+            // times are never negative, so sorting the keys sorts by start and then by rank
+            keys[lifetimes++] = ((long) s.getFirstTime() << 32) | rank;
+          }
+          rank++;
+        }
+      }
+      Arrays.sort(keys, 0, lifetimes);
+      this.size = lifetimes;
+      // no shape has more than one lifetime, so the lifetimes never outgrow the shapes
+      this.starts = new int[count];
+      this.ends = new int[count];
+      this.ranks = new int[count];
+      this.maxEnds = new int[count];
+      for (int i = 0; i < size; i++) {
+        starts[i] = (int) (keys[i] >>> 32);
+        ranks[i] = (int) keys[i];
+        ends[i] = endsByRank[ranks[i]];
+      }
+      buildMaxEnds(0, size - 1);
+    }
+
+    /**
+     * Build a copy of the given tree that may change without changing it.
+     * @param other the tree to be copied
+     */
+    private Tree(Tree other) {
+      this.size = other.size;
+      this.starts = other.starts.clone();
+      this.ends = other.ends.clone();
+      this.maxEnds = other.maxEnds.clone();
+      this.ranks = other.ranks.clone();
+      this.shapeCount = other.shapeCount;
+      this.startsByRank = other.startsByRank.clone();
+      this.endsByRank = other.endsByRank.clone();
+      this.handles = other.handles; // the following never change
+      this.layerNames = other.layerNames;
+      this.rankByHandle = other.rankByHandle;
+    }
+
+    /**
+     * Move the lifetime of the given shape to match its keyframes. A lifetime whose start is
+     * unchanged keeps its place, and only the latest ends on its path from the root are
+     * recomputed; otherwise it is removed and inserted again in order.
+     * @param shape the shape, which must be in the tree
+     */
+    private void update(Shape shape) {
+      int rank = rankByHandle[shape.getHandle()];
+      int oldStart = startsByRank[rank];
+      int start = shape.isEmpty() ? NONE : shape.getFirstTime();
+      int end = shape.isEmpty() ? NONE : shape.getLastTime();
+      startsByRank[rank] = start;
+      endsByRank[rank] = end;
+      if (start == oldStart) {
+        if (start != NONE) {
+          int index = indexOf(start, rank);
+          ends[index] = end;
+          updateMaxEnds(0, size - 1, index);
+        }
+        return;
+      }
+      if (oldStart != NONE) {
+        int index = indexOf(oldStart, rank);
+        int moved = size - index - 1;
+        System.arraycopy(starts, index + 1, starts, index, moved);
+        System.arraycopy(ends, index + 1, ends, index, moved);
+        System.arraycopy(ranks, index + 1, ranks, index, moved);
+        size--;
+      }
+      if (start != NONE) {
+        int index = -(indexOf(start, rank) + 1);
+        int moved = size - index;
+        System.arraycopy(starts, index, starts, index + 1, moved);
+        System.arraycopy(ends, index, ends, index + 1, moved);
+        System.arraycopy(ranks, index, ranks, index + 1, moved);
+        starts[index] = start;
+        ends[index] = end;
+        ranks[index] = rank;
+        size++;
+      }
+      buildMaxEnds(0, size - 1);
+    }
+
+    /**
+     * Find the lifetime with the given start and rank.
+     * @param start the start of the lifetime
+     * @param rank the rank of its shape
+     * @return the index of the lifetime if there is one, otherwise (-(insertion point) - 1)
+     */
+    private int indexOf(int start, int rank) {
+      int low = 0;
+      int high = size - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        if (starts[mid] < start || (starts[mid] == start && ranks[mid] < rank)) {
+          low = mid + 1;
+        } else if (starts[mid] > start || ranks[mid] > rank) {
+          high = mid - 1;
+        } else {
+          return mid;
+        }
+      }
+      return -(low + 1);
+    }
+
+    /**
+     * Recompute the latest ends of the subtrees in the given range that hold the given index.
+     * @param low the first index of the range
+     * @param high the last index of the range
+     * @param index the index whose end changed
+     * @return the latest end in the range
+     */
+    private int updateMaxEnds(int low, int high, int index) {
+      int mid = (low + high) >>> 1;
+      int left = low < mid ? maxEnds[(low + mid - 1) >>> 1] : Integer.MIN_VALUE;
+      int right = mid < high ? maxEnds[(mid + 1 + high) >>> 1] : Integer.MIN_VALUE;
+      if (index < mid) {
+        left = updateMaxEnds(low, mid - 1, index);
+      } else if (index > mid) {
+        right = updateMaxEnds(mid + 1, high, index);
+      }
+      maxEnds[mid] = Math.max(ends[mid], Math.max(left, right));
+      return maxEnds[mid];
+    }
+
+    /**
+     * Record the latest end of every subtree in the given range.
+     * @param low the first index of the range
+     * @param high the last index of the range
+     * @return the latest end in the range, or Integer.MIN_VALUE if the range is empty
+     */
+    private int buildMaxEnds(int low, int high) {
+      if (low > high) {
+        return Integer.MIN_VALUE;
+      }
+      int mid = (low + high) >>> 1;
+      maxEnds[mid] = Math.max(ends[mid],
+              Math.max(buildMaxEnds(low, mid - 1), buildMaxEnds(mid + 1, high)));
+      return maxEnds[mid];
+    }
+
+    /**
+     * Add the state of every shape on screen at the given tick to the given frame,
+     * in drawing order.
+     * @param table the table holding the shapes
+     * @param tick the tick
+     * @param frame the frame to which the shapes are added
+     */
+    private void addToFrame(ShapeTable table, int tick, Frame frame) {
+      int count = collect(tick, frame);
+      int[] active = frame.scratch(0);
+      for (int i = 0; i < count; i++) {
+        table.get(handles[active[i]]).addToFrame(layerNames[active[i]], tick, frame);
+      }
+    }
+
+    /**
+     * Write the drawing order rank of every lifetime that contains the tick into the frame's
+     * scratch array, in drawing order.
+     * @param tick the tick
+     * @param frame the frame whose scratch array receives the ranks
+     * @return the number of ranks written
+     */
+    int collect(int tick, Frame frame) {
+      int count = collect(0, size - 1, tick, frame, 0);
+      Arrays.sort(frame.scratch(0), 0, count);
+      return count;
+    }
+
+    /**
+     * Find the index of the first lifetime that starts after the given tick.
+     * @param tick the tick
+     * @return the index into starts, or size if no lifetime starts after the tick
+     */
+    int firstStartAfter(int tick) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (starts[mid] <= tick) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * Write the drawing order rank of every lifetime in the given range that contains the tick
+     * into the frame's scratch array.
+     * @param low the first index of the range
+     * @param high the last index of the range
+     * @param tick the tick
+     * @param frame the frame whose scratch array receives the ranks
+     * @param count the number of ranks already written
+     * @return the number of ranks written, including those already written
+     */
+    private int collect(int low, int high, int tick, Frame frame, int count) {
+      if (low > high) {
+        return count;
+      }
+      int mid = (low + high) >>> 1;
+      if (maxEnds[mid] < tick) {
+        return count; // every lifetime in this subtree ends before the tick
+      }
+      count = collect(low, mid - 1, tick, frame, count);
+      if (starts[mid] > tick) {
+        return count; // every lifetime from here on starts after the tick
+      }
+      if (ends[mid] >= tick) {
+        frame.scratch(count + 1)[count] = ranks[mid];
+        count++;
+      }
+      return collect(mid + 1, high, tick, frame, count);
+    }
+  }
+}
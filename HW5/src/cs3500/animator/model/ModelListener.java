@@ -0,0 +1,97 @@
+package cs3500.animator.model;
+
+/**
+ * Receives a description of every change made to an animation model once the change is
+ * complete, so that views and caches can update only what it touched. Every method does
+ * nothing by default.
+ */
+public interface ModelListener {
+  /**
+   * A layer was added on top of the other layers.
+   * @param layer the layer's name
+   */
+  default void layerAdded(String layer) {
+    // nothing to do by default
+  }
+
+  /**
+   * A layer and all of its shapes were deleted. No shapeDeleted events are sent for its shapes.
+   * @param layer the layer's name
+   */
+  default void layerDeleted(String layer) {
+    // nothing to do by default
+  }
+
+  /**
+   * A layer was moved to a new position in the drawing order.
+   * @param layer the layer's name
+   * @param position the layer's new position, where 0 is the lowest layer
+   */
+  default void layerMoved(String layer, int position) {
+    // nothing to do by default
+  }
+
+  /**
+   * A shape with no keyframes was added to the end of a layer.
+   * @param layer the shape's layer
+   * @param shape the shape's name
+   * @param handle the shape's handle
+   */
+  default void shapeAdded(String layer, String shape, int handle) {
+    // nothing to do by default
+  }
+
+  /**
+   * A shape and all of its keyframes were deleted.
+   * @param layer the shape's layer
+   * @param shape the shape's name
+   * @param handle the handle that the shape had
+   */
+  default void shapeDeleted(String layer, String shape, int handle) {
+    // nothing to do by default
+  }
+
+  /**
+   * A keyframe was added to a shape.
+   * @param shape the shape's handle
+   * @param time the time of the new keyframe
+   * @param fromTick the first tick whose frame may have changed
+   * @param toTick the last tick whose frame may have changed
+   */
+  default void keyframeAdded(int shape, int time, int fromTick, int toTick) {
+    // nothing to do by default
+  }
+
+  /**
+   * A shape's keyframe was replaced by a keyframe at the same time.
+   * @param shape the shape's handle
+   * @param time the time of the keyframe
+   * @param fromTick the first tick whose frame may have changed
+   * @param toTick the last tick whose frame may have changed
+   */
+  default void keyframeEdited(int shape, int time, int fromTick, int toTick) {
+    // nothing to do by default
+  }
+
+  /**
+   * A keyframe was deleted from a shape.
+   * @param shape the shape's handle
+   * @param time the time of the deleted keyframe
+   * @param fromTick the first tick whose frame may have changed
+   * @param toTick the last tick whose frame may have changed
+   */
+  default void keyframeDeleted(int shape, int time, int fromTick, int toTick) {
+    // nothing to do by default
+  }
+
+  /**
+   * A batch of keyframe changes was applied to one or more shapes. No other keyframe events are
+   * sent for the changes in the batch.
+   * @param shapes the handles of the shapes whose keyframes changed, which must not be modified
+   * @param fromTick the first tick whose frame may have changed
+   * @param toTick the last tick whose frame may have changed
+   */
+  default void keyframesChanged(int[] shapes, int fromTick, int toTick) {
+    // nothing to do by default
+  }
+}
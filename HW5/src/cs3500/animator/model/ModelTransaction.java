@@ -0,0 +1,205 @@
+package cs3500.animator.model;
+
+import java.util.Arrays;
+
+/**
+ * A batch of keyframe changes to be applied to an AnimationModel all at once, built by the
+ * function passed to AnimationModel.batch. Recording a change only checks its values; the rest
+ * is checked for the whole batch when it is applied.
+ */
+public final class ModelTransaction {
+  static final int ADD = 0;
+  static final int PUT = 1;
+  static final int EDIT = 2;
+  static final int DELETE = 3;
+
+  // each change takes up one row of STRIDE ints: its kind, the shape's handle, and then the
+  // keyframe in the layout used by KeyframeStore
+  static final int KIND = 0;
+  static final int SHAPE = 1;
+  static final int KEYFRAME = 2;
+  static final int STRIDE = KEYFRAME + KeyframeStore.STRIDE;
+
+  private static final int INITIAL_CAPACITY = 8; // in changes
+
+  private int[] changes;
+  private int size;
+
+  /**
+   * Build an empty batch.
+   */
+  ModelTransaction() {
+    this.changes = new int[INITIAL_CAPACITY * STRIDE];
+    this.size = 0;
+  }
+
+  /**
+   * Add a keyframe to the shape with the given handle.
+   * @param shape the shape's handle
+   * @param time the time of the keyframe
+   * @param x the x coordinate
+   * @param y the y coordinate
+   * @param width the width
+   * @param height the height
+   * @param red the R component of the color, which is corrected to between 0 and 255
+   * @param green the G component of the color, which is corrected to between 0 and 255
+   * @param blue the B component of the color, which is corrected to between 0 and 255
+   * @param rotation the rotation
+   * @throws IllegalArgumentException if the time, width or height is invalid
+   */
+  public void addMotion(int shape, int time, int x, int y, int width, int height,
+                        int red, int green, int blue, int rotation) {
+    Motion.checkValues(time, width, height);
+    record(ADD, shape, time, x, y, width, height, red, green, blue, rotation);
+  }
+
+  /**
+   * Add a keyframe to the shape with the given handle, replacing the keyframe at the same time
+   * if there is one.
+   * @param shape the shape's handle
+   * @param time the time of the keyframe
+   * @param x the x coordinate
+   * @param y the y coordinate
+   * @param width the width
+   * @param height the height
+   * @param red the R component of the color, which is corrected to between 0 and 255
+   * @param green the G component of the color, which is corrected to between 0 and 255
+   * @param blue the B component of the color, which is corrected to between 0 and 255
+   * @param rotation the rotation
+   * @throws IllegalArgumentException if the time, width or height is invalid
+   */
+  public void putMotion(int shape, int time, int x, int y, int width, int height,
+                        int red, int green, int blue, int rotation) {
+    Motion.checkValues(time, width, height);
+    record(PUT, shape, time, x, y, width, height, red, green, blue, rotation);
+  }
+
+  /**
+   * Replace the keyframe at the given time of the shape with the given handle.
+   * @param shape the shape's handle
+   * @param time the time of the keyframe
+   * @param x the new x coordinate
+   * @param y the new y coordinate
+   * @param width the new width
+   * @param height the new height
+   * @param red the new R component of the color, which is corrected to between 0 and 255
+   * @param green the new G component of the color, which is corrected to between 0 and 255
+   * @param blue the new B component of the color, which is corrected to between 0 and 255
+   * @param rotation the new rotation
+   * @throws IllegalArgumentException if the time, width or height is invalid
+   */
+  public void editMotion(int shape, int time, int x, int y, int width, int height,
+                         int red, int green, int blue, int rotation) {
+    Motion.checkValues(time, width, height);
+    record(EDIT, shape, time, x, y, width, height, red, green, blue, rotation);
+  }
+
+  /**
+   * Delete the keyframe at the given time of the shape with the given handle.
+   * @param shape the shape's handle
+   * @param time the time of the keyframe
+   */
+  public void deleteMotion(int shape, int time) {
+    record(DELETE, shape, time, 0, 0, 0, 0, 0, 0, 0, 0);
+  }
+
+  /**
+   * Return the number of changes in this batch.
+   * @return the number of changes
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Return one value of the given change.
+   * @param change the index of the change
+   * @param field KIND, SHAPE, or KEYFRAME plus one of the field offsets of KeyframeStore
+   * @return the value
+   */
+  int get(int change, int field) {
+    return changes[change * STRIDE + field];
+  }
+
+  /**
+   * Copy the keyframe of the given change into the given array in the layout used by
+   * KeyframeStore.
+   * @param change the index of the change
+   * @param keyframes the array that receives the keyframe
+   * @param offset the index at which the keyframe starts in the array
+   */
+  void copyKeyframe(int change, int[] keyframes, int offset) {
+    System.arraycopy(changes, change * STRIDE + KEYFRAME, keyframes, offset,
+            KeyframeStore.STRIDE);
+  }
+
+  /**
+   * Append every change in this batch to the given batch.
+   * @param other the batch that receives the changes
+   */
+  void copyInto(ModelTransaction other) {
+    other.ensureCapacity(other.size + size);
+    System.arraycopy(changes, 0, other.changes, other.size * STRIDE, size * STRIDE);
+    other.size += size;
+  }
+
+  /**
+   * Append every change in this batch to the given batch, leaving this batch empty. If the
+   * given batch is empty, it takes over this batch's changes without copying them.
+   * @param other the batch that receives the changes
+   */
+  void moveInto(ModelTransaction other) {
+    if (other.size == 0) {
+      int[] empty = other.changes;
+      other.changes = changes;
+      other.size = size;
+      changes = empty;
+    } else {
+      copyInto(other);
+    }
+    size = 0;
+  }
+
+  /**
+   * Append a change to this batch.
+   * @param kind the kind of change
+   * @param shape the shape's handle
+   * @param time the time of the keyframe
+   * @param x the x coordinate
+   * @param y the y coordinate
+   * @param width the width
+   * @param height the height
+   * @param red the R component of the color
+   * @param green the G component of the color
+   * @param blue the B component of the color
+   * @param rotation the rotation
+   */
+  private void record(int kind, int shape, int time, int x, int y, int width, int height,
+                      int red, int green, int blue, int rotation) {
+    ensureCapacity(size + 1);
+    int offset = size * STRIDE;
+    changes[offset + KIND] = kind;
+    changes[offset + SHAPE] = shape;
+    offset += KEYFRAME;
+    changes[offset + KeyframeStore.TIME] = time;
+    changes[offset + KeyframeStore.X] = x;
+    changes[offset + KeyframeStore.Y] = y;
+    changes[offset + KeyframeStore.WIDTH] = width;
+    changes[offset + KeyframeStore.HEIGHT] = height;
+    changes[offset + KeyframeStore.RED] = Motion.regularizeColor(red);
+    changes[offset + KeyframeStore.GREEN] = Motion.regularizeColor(green);
+    changes[offset + KeyframeStore.BLUE] = Motion.regularizeColor(blue);
+    changes[offset + KeyframeStore.ROTATION] = rotation;
+    size++;
+  }
+
+  /**
+   * Make sure the changes array can hold the given number of changes.
+   * @param count the number of changes
+   */
+  private void ensureCapacity(int count) {
+    if (count * STRIDE > changes.length) {
+      changes = Arrays.copyOf(changes, Math.max(count, 2 * changes.length / STRIDE) * STRIDE);
+    }
+  }
+}
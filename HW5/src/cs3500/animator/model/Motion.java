@@ -1,9 +1,5 @@
 package cs3500.animator.model;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.stream.Collectors;
-
 /**
  * A class representing the status of a shape at a moment in time.
  * Each Motion describes the shape's location, size, and color.
@@ -53,13 +49,7 @@ public class Motion {
    */
   public Motion(int time, int x, int y, int width, int height,
                 int red, int green, int blue, int rotation) {
-    if (width <= 0 || height <= 0) {
-      throw new IllegalArgumentException("Width and height must be positive nonzero integers, "
-              + "given " + width + " & " + height);
-    }
-    if (time < START_TICK) {
-      throw new IllegalArgumentException("Time must be a positive integer, given " + time);
-    }
+    checkValues(time, width, height);
     this.time = time;
     this.x = x;
     this.y = y;
@@ -81,6 +71,25 @@ public class Motion {
     return new Motion(time, 0, 0, 1, 1, 0, 0, 0, 0);
   }
 
+  /**
+   * Check that the given keyframe values could make up a valid Motion.
+   *
+   * @param time the moment's time
+   * @param width the moment's width
+   * @param height the moment's height
+   * @throws IllegalArgumentException if the time is negative or the width or height
+   *     are not positive
+   */
+  static void checkValues(int time, int width, int height) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Width and height must be positive nonzero integers, "
+              + "given " + width + " & " + height);
+    }
+    if (time < START_TICK) {
+      throw new IllegalArgumentException("Time must be a positive integer, given " + time);
+    }
+  }
+
   /**
    * If a given integer is not usable as a color (greater than 255 or less than 0), then return the
    * closest possible int that is a legal color.
@@ -88,7 +97,7 @@ public class Motion {
    * @param color the uncorrected color
    * @return the corrected color
    */
-  private int regularizeColor(int color) {
+  static int regularizeColor(int color) {
     return Math.max(0, Math.min(255, color));
   }
 
@@ -100,9 +109,29 @@ public class Motion {
    * @return the display string
    */
   public String display() {
-    ArrayList<Integer> values = new ArrayList<>(
-            Arrays.asList(time, x, y, width, height, red, green, blue));
-    return values.stream().map(i -> Integer.toString(i)).collect(Collectors.joining(" "));
+    return display(new StringBuilder(), time, x, y, width, height, red, green, blue).toString();
+  }
+
+  /**
+   * Append the display string of a motion with the given values, as display() writes it, to
+   * the given builder.
+   *
+   * @param out the builder
+   * @param time the time
+   * @param x the x coordinate
+   * @param y the y coordinate
+   * @param width the width
+   * @param height the height
+   * @param red the R component of the color
+   * @param green the G component of the color
+   * @param blue the B component of the color
+   * @return the builder
+   */
+  static StringBuilder display(StringBuilder out, int time, int x, int y, int width, int height,
+                               int red, int green, int blue) {
+    return out.append(time).append(' ').append(x).append(' ').append(y)
+            .append(' ').append(width).append(' ').append(height)
+            .append(' ').append(red).append(' ').append(green).append(' ').append(blue);
   }
 
   /**
@@ -0,0 +1,211 @@
+package cs3500.animator.model;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+import cs3500.animator.util.AnimationBuilder;
+
+/**
+ * A builder that loads an animation into a model that is already on display, a part at a time,
+ * so that the start of a large animation can be played while the rest is still being read. It
+ * is meant to be called on a background thread, with a thread-safe model such as a
+ * ConcurrentAnimationModel.
+ */
+public final class ProgressiveBuilder implements AnimationBuilder<AnimationModel> {
+  private static final long PUBLISH_INTERVAL = 100_000_000; // in ns
+  private static final int MAX_BATCH_SIZE = 1 << 16; // in keyframes
+  private static final int CLOCK_CHECK_INTERVAL = 1 << 10; // in keyframes
+
+  private final AnimationModel model;
+  private final Runnable published;
+  private final Set<String> declaredLayers;
+  private final Map<Integer, KeyframeTimes> times; // by handle, of the shapes given keyframes
+  private ModelTransaction batch;
+  private int batchSize;
+  private long lastPublished; // from System.nanoTime
+  private String currentLayer;
+  private int nextRotation;
+  private String lastName; // the name of the shape that received the last keyframe
+  private int lastHandle; // its handle, or -1 if it has to be looked up
+  private KeyframeTimes lastTimes; // the times of its keyframes
+  private volatile boolean cancelled;
+
+  /**
+   * Build a builder that loads an animation into the given model.
+   * @param model the model, which may already hold layers and shapes
+   * @param published run after each batch of keyframes has been applied to the model
+   * @throws IllegalArgumentException if either argument is null
+   */
+  public ProgressiveBuilder(AnimationModel model, Runnable published) {
+    if (model == null || published == null) {
+      throw new IllegalArgumentException("Model and callback must not be null");
+    }
+    this.model = model;
+    this.published = published;
+    this.declaredLayers = new HashSet<>();
+    this.times = new HashMap<>();
+    this.batch = new ModelTransaction();
+    this.batchSize = 0;
+    this.lastPublished = System.nanoTime();
+    this.nextRotation = 0;
+    this.lastHandle = -1;
+    this.cancelled = false;
+  }
+
+  /**
+   * Stop the load: the next call to this builder throws a CancellationException, and keyframes
+   * not yet applied to the model are dropped. May be called on any thread.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * Apply the keyframes that have not been applied yet and return the model.
+   * @return the model
+   * @throws CancellationException if the load has been cancelled
+   * @throws IllegalArgumentException if a shape given keyframes has since been deleted from
+   *     the model
+   */
+  @Override
+  public AnimationModel build() {
+    checkNotCancelled();
+    publish();
+    return model;
+  }
+
+  @Override
+  public AnimationBuilder<AnimationModel> setBounds(int x, int y, int width, int height) {
+    checkNotCancelled();
+    model.setBounds(x, y, width, height);
+    return this;
+  }
+
+  @Override
+  public AnimationBuilder<AnimationModel> declareLayer(String layerName) {
+    checkNotCancelled();
+    if (layerName == null) {
+      throw new IllegalArgumentException("Layer name must not be null");
+    }
+    // the layer list is only copied the first time each layer is declared
+    if (declaredLayers.add(layerName) && ! model.getLayers().contains(layerName)) {
+      model.addLayer(layerName);
+    }
+    currentLayer = layerName;
+    lastHandle = -1;
+    return this;
+  }
+
+  @Override
+  public AnimationBuilder<AnimationModel> declareRotation(int rotation) {
+    checkNotCancelled();
+    this.nextRotation = rotation;
+    return this;
+  }
+
+  @Override
+  public AnimationBuilder<AnimationModel> declareShape(String name, String type) {
+    checkNotCancelled();
+    if (currentLayer == null) {
+      declareLayer("layer1");
+    }
+    switch (type) {
+      case "rectangle":
+        model.addRectangle(currentLayer, name);
+        break;
+      case "ellipse":
+        model.addEllipse(currentLayer, name);
+        break;
+      default:
+        throw new IllegalArgumentException("Invalid shape type " + type);
+    }
+    return this;
+  }
+
+  /**
+   * Add the end of the motion as a keyframe, as AnimationModelImpl.Builder does.
+   */
+  @Override
+  public AnimationBuilder<AnimationModel> addMotion(
+          String name, int t1, int x1, int y1, int w1, int h1, int r1, int g1, int b1,
+          int t2, int x2, int y2, int w2, int h2, int r2, int g2, int b2) {
+    return addKeyframe(name, t2, x2, y2, w2, h2, r2, g2, b2);
+  }
+
+  /**
+   * Check the keyframe and collect it in the batch, which is applied to the model once
+   * PUBLISH_INTERVAL has passed since the last batch or it holds MAX_BATCH_SIZE keyframes. A
+   * keyframe at a time its shape already has is rejected here, as AnimationModelImpl.Builder
+   * rejects it, leaving the model with the batches applied before it.
+   */
+  @Override
+  public AnimationBuilder<AnimationModel> addKeyframe(
+          String name, int t, int x, int y, int w, int h, int r, int g, int b) {
+    checkNotCancelled();
+    // runs of keyframes for one shape skip the lookup
+    if (lastHandle < 0 || !lastName.equals(name)) {
+      lastHandle = model.getHandle(currentLayer, name);
+      lastName = name;
+      lastTimes = times.computeIfAbsent(lastHandle, handle -> new KeyframeTimes());
+    }
+    Motion.checkValues(t, w, h);
+    if (lastTimes.all == null && t <= lastTimes.last) {
+      // the first keyframe out of order: every time is kept from now on, starting with those
+      // in the model once the keyframes collected so far have joined them
+      publish();
+      lastTimes.all = new HashSet<>();
+      for (Motion motion : model.getMotions(lastHandle)) {
+        lastTimes.all.add(motion.getTime());
+      }
+    }
+    if (lastTimes.all != null && lastTimes.all.contains(t)) {
+      throw new IllegalArgumentException("This shape already has a motion at time " + t);
+    }
+    batch.addMotion(lastHandle, t, x, y, w, h, r, g, b, nextRotation);
+    if (lastTimes.all != null) {
+      lastTimes.all.add(t);
+    }
+    lastTimes.last = Math.max(lastTimes.last, t);
+    batchSize++;
+    if (batchSize == MAX_BATCH_SIZE || (batchSize % CLOCK_CHECK_INTERVAL == 0
+            && System.nanoTime() - lastPublished >= PUBLISH_INTERVAL)) {
+      publish();
+    }
+    return this;
+  }
+
+  /**
+   * Apply the collected keyframes to the model as one batch, if there are any, and run the
+   * callback. The keyframes are handed over to the model rather than copied.
+   */
+  private void publish() {
+    if (batchSize > 0) {
+      batchSize = 0;
+      model.batch(batch::moveInto);
+      published.run();
+    }
+    lastPublished = System.nanoTime();
+  }
+
+  /**
+   * The times of the keyframes given to one shape. While the times only increase, a repeated
+   * time can only be the last one; once a keyframe arrives out of order, every time is kept.
+   */
+  private static final class KeyframeTimes {
+    private int last = Integer.MIN_VALUE;
+    private Set<Integer> all = null; // all the times, or null while they are sorted
+  }
+
+  /**
+   * Make sure that the load has not been cancelled.
+   * @throws CancellationException if it has
+   */
+  private void checkNotCancelled() {
+    if (cancelled) {
+      throw new CancellationException("The load was cancelled");
+    }
+  }
+}
@@ -89,6 +89,86 @@ public interface ReadOnlyModel {
    */
   Transformation getTransformationAt(String layer, String shapeName, int tick);
 
+  /**
+   * Find the handle of the given shape. A handle is an int that identifies the shape for as
+   * long as it exists, so that callers that query or edit the same shape many times can look
+   * it up once instead of passing its layer and name to every call. Moving layers does not
+   * change a shape's handle, and the handle of a deleted shape is never given to another shape.
+   * @param layer the layer on which the shape is found
+   * @param shapeName the shape's name
+   * @return the shape's handle
+   * @throws IllegalArgumentException if there is no such shape
+   */
+  int getHandle(String layer, String shapeName);
+
+  /**
+   * Find the transformation in progress at the given tick of the shape with the given handle.
+   * @param shape the shape's handle
+   * @param tick the tick of the desired Transformation
+   * @return the transformation
+   * @throws IllegalArgumentException if no shape has the given handle or if the shape is not
+   *     present on the screen during the given tick
+   */
+  Transformation getTransformationAt(int shape, int tick);
+
+  /**
+   * Find the state of every shape on screen at the given tick, in the order they are drawn:
+   * layer by layer from lowest to highest, and within a layer in the order shapes were added.
+   * Shapes with no motion at the given tick are left out.
+   * @param tick the tick of the desired frame
+   * @return a new frame describing the given tick
+   */
+  Frame getFrameAt(int tick);
+
+  /**
+   * Find the state of every shape on screen at the given tick as in getFrameAt(tick),
+   * writing the result into the given frame instead of building a new one.
+   * @param tick the tick of the desired frame
+   * @param frame the frame to be overwritten
+   * @return the given frame, now describing the given tick
+   * @throws IllegalArgumentException if the frame is null
+   */
+  Frame getFrameAt(int tick, Frame frame);
+
+  /**
+   * Return a cursor that steps through the frames of the animation starting at the given tick.
+   * Stepping forward one tick at a time only updates the shapes that change, so playing or
+   * exporting an animation in order is much cheaper than calling getFrameAt for every tick.
+   * @param startTick the tick of the cursor's first frame
+   * @return a cursor positioned at the given tick
+   */
+  FrameCursor cursor(int startTick);
+
+  /**
+   * Find the time of the last keyframe of any shape in the animation.
+   * The model keeps this up to date as it changes, so finding it costs constant time.
+   * @return the last keyframe's time, or Motion.START_TICK if there are no keyframes
+   */
+  int getLastTick();
+
+  /**
+   * Register a listener that is told about every later change to this model.
+   * A model that never changes, such as a snapshot, accepts listeners but never calls them.
+   * @param listener the listener
+   * @throws IllegalArgumentException if the listener is null
+   */
+  void addListener(ModelListener listener);
+
+  /**
+   * Stop telling the given listener about changes to this model. Does nothing if the listener
+   * was never registered.
+   * @param listener the listener
+   */
+  void removeListener(ModelListener listener);
+
+  /**
+   * Return an immutable copy of this model as it is now. Later changes to this model do not
+   * show up in the snapshot, so exporters and background renderers can read it on any thread
+   * without blocking edits.
+   * @return the snapshot
+   */
+  ReadOnlyModel snapshot();
+
   /**
    * Return a list of all of the given shape's motions.
    * @param layer the layer on which the shape is found
@@ -98,6 +178,14 @@ public interface ReadOnlyModel {
    */
   List<Motion> getMotions(String layer, String shapeName);
 
+  /**
+   * Return a list of all motions of the shape with the given handle.
+   * @param shape the shape's handle
+   * @return a list of all keyframes of the shape
+   * @throws IllegalArgumentException if no shape has the given handle
+   */
+  List<Motion> getMotions(int shape);
+
   /**
    * Return a string (either ellipse or rectangle) representing the shape type.
    * @param layer the layer on which the shape is found
@@ -105,4 +193,13 @@ public interface ReadOnlyModel {
    * @return the shape type
    */
   String getShapeType(String layer, String shapeName);
+
+  /**
+   * Return a string (either ellipse or rectangle) representing the type of the shape with the
+   * given handle.
+   * @param shape the shape's handle
+   * @return the shape type
+   * @throws IllegalArgumentException if no shape has the given handle
+   */
+  String getShapeType(int shape);
 }
@@ -1,32 +1,66 @@
 package cs3500.animator.model;
 
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.TreeSet;
 
 /**
  * This class represents a single shape in an animation. The shape contains a list of keyframes
  * (called Motions) that contain location, size, time, and position information about the shape.
  */
 class Shape {
-  private final TreeSet<Motion> motions; // sorted in order of increasing time
+  private final KeyframeStore motions; // sorted in order of increasing time
   private final ShapeType type;
   private final String name;
+  private final int handle; // the model's handle for this shape
+  private final Object owner; // the edit token of the model that may mutate this shape
 
   /**
    * Build a shape with no motions. The name and type must not be null.
    *
    * @param name the shape's name
    * @param type the shape's type
+   * @param handle the handle by which the model refers to this shape
+   * @param owner the edit token of the model that may mutate this shape
    */
-  Shape(String name, ShapeType type) {
+  Shape(String name, ShapeType type, int handle, Object owner) {
     if (name == null || type == null) {
       throw new IllegalArgumentException("Name and shape type must not be null.");
     }
     this.name = name;
     this.type = type;
-    this.motions = new TreeSet<>(Comparator.comparingInt(Motion::getTime));
+    this.handle = handle;
+    this.owner = owner;
+    this.motions = new KeyframeStore();
+  }
+
+  /**
+   * Build a copy of the given shape that belongs to the given owner.
+   * @param other the shape to be copied
+   * @param owner the edit token of the model that may mutate the copy
+   */
+  private Shape(Shape other, Object owner) {
+    this.name = other.name;
+    this.type = other.type;
+    this.handle = other.handle;
+    this.owner = owner;
+    this.motions = other.motions.copy();
+  }
+
+  /**
+   * Return a copy of this shape that the model with the given edit token may mutate.
+   * @param owner the edit token
+   * @return the copy
+   */
+  Shape copy(Object owner) {
+    return new Shape(this, owner);
+  }
+
+  /**
+   * May the model with the given edit token mutate this shape in place?.
+   * @param owner the edit token
+   * @return true if this shape belongs to the given token
+   */
+  boolean isOwnedBy(Object owner) {
+    return this.owner == owner;
   }
 
   /**
@@ -37,6 +71,14 @@ class Shape {
     return name;
   }
 
+  /**
+   * Get the handle by which the model refers to this shape.
+   * @return the handle
+   */
+  int getHandle() {
+    return handle;
+  }
+
   /**
    * Add a new Motion with the given parameters to the end of the list.
    * The time must be after the time of the last existing motion already assigned to this shape.
@@ -57,7 +99,10 @@ class Shape {
    */
   void addMotion(int time, int x, int y, int width, int height,
                  int red, int green, int blue, int rotation) {
-    addMotion(new Motion(time, x, y, width, height, red, green, blue, rotation));
+    Motion.checkValues(time, width, height);
+    // throws an IAE if there is already a motion at the given time
+    motions.insert(time, x, y, width, height, Motion.regularizeColor(red),
+            Motion.regularizeColor(green), Motion.regularizeColor(blue), rotation);
   }
 
   /**
@@ -70,10 +115,89 @@ class Shape {
       throw new IllegalArgumentException("The motion cannot be null.");
     }
     // do not allow new Motions that overlap existing Motions
-    if (motionOverlaps(m)) {
-      throw new IllegalArgumentException("This shape already has a motion at time " + m.getTime());
+    motions.insert(m.getTime(), m.getX(), m.getY(), m.getWidth(), m.getHeight(),
+            m.getRed(), m.getGreen(), m.getBlue(), m.getRotation());
+  }
+
+  /**
+   * Replace the motion at the given time with a motion of the given parameters.
+   *
+   * @param time the time of the motion to be replaced
+   * @param x the new x coordinate
+   * @param y the new y coordinate
+   * @param width the new width
+   * @param height the new height
+   * @param red the new R component of the color
+   * @param green the new G component of the color
+   * @param blue the new B component of the color
+   * @param rotation the new rotation
+   * @throws IllegalArgumentException if the new values are invalid or there is no motion at
+   *     the given time
+   */
+  void editMotion(int time, int x, int y, int width, int height,
+                  int red, int green, int blue, int rotation) {
+    // Motion constructor check for validity of inputs, throw IAE if invalid
+    Motion m = new Motion(time, x, y, width, height, red, green, blue, rotation);
+    // throws IAE if there is no motion at the given time
+    motions.set(indexOfMotion(time), m.getX(), m.getY(), m.getWidth(), m.getHeight(),
+            m.getRed(), m.getGreen(), m.getBlue(), m.getRotation());
+  }
+
+  /**
+   * Check that a sorted run of changes from a batch can be applied to this shape, as described
+   * in KeyframeStore.merge.
+   * @param batch the batch holding the changes
+   * @param run the sorted run, which may repeat a time
+   * @param start the index of the run's first entry
+   * @param end the index just past the run's last entry
+   * @throws IllegalArgumentException if the run changes a keyframe more than once, adds a
+   *     keyframe where there already is one, or edits or deletes a keyframe that doesn't exist
+   */
+  void checkBatch(ModelTransaction batch, long[] run, int start, int end) {
+    for (int k = start; k < end; k++) {
+      int time = (int) (run[k] >> 32);
+      if (k > start && time == (int) (run[k - 1] >> 32)) {
+        throw new IllegalArgumentException("The batch changes the motion at time " + time
+                + " of the shape " + name + " more than once");
+      }
+      boolean exists = time >= Motion.START_TICK && motions.indexOf(time) >= 0;
+      switch (batch.get((int) run[k], ModelTransaction.KIND)) {
+        case ModelTransaction.ADD:
+          if (exists) {
+            throw new IllegalArgumentException("This shape already has a motion at time " + time);
+          }
+          break;
+        case ModelTransaction.EDIT:
+        case ModelTransaction.DELETE:
+          if (!exists) {
+            throw new IllegalArgumentException("No motion at time " + time
+                    + " for the shape " + name);
+          }
+          break;
+        default:
+          break; // a put is valid either way
+      }
     }
-    motions.add(m);
+  }
+
+  /**
+   * Apply a sorted run of changes from a batch that has passed checkBatch.
+   * @param batch the batch holding the changes
+   * @param run the sorted run
+   * @param start the index of the run's first entry
+   * @param end the index just past the run's last entry
+   */
+  void applyBatch(ModelTransaction batch, long[] run, int start, int end) {
+    motions.merge(batch, run, start, end);
+  }
+
+  /**
+   * Replace this shape's motions with the given keyframes, as described in KeyframeStore.load.
+   * @param rows the keyframes, sorted by strictly increasing time
+   * @param size the number of keyframes
+   */
+  void loadMotions(int[] rows, int size) {
+    motions.load(rows, size);
   }
 
   /**
@@ -89,7 +213,7 @@ class Shape {
       throw new IllegalStateException("A shape with no motions "
               + "cannot have its last motion extended.");
     }
-    addMotion(motions.last().extend(time));
+    addMotion(motions.getMotion(motions.size() - 1).extend(time));
   }
 
   /**
@@ -98,11 +222,21 @@ class Shape {
    * @throws IllegalArgumentException if there is no motion at the given time
    */
   void deleteMotionAt(int time) {
-    if (time < Motion.START_TICK
-            || ! motionOverlaps(Motion.defaultMotion(time))) {
+    motions.remove(indexOfMotion(time));
+  }
+
+  /**
+   * Find the index of the motion at the given time.
+   * @param time the time of the motion
+   * @return the index of the motion in motions
+   * @throws IllegalArgumentException if there is no motion at the given time
+   */
+  private int indexOfMotion(int time) {
+    int index = motions.indexOf(time);
+    if (time < Motion.START_TICK || index < 0) {
       throw new IllegalArgumentException("No motion at time " + time + " for the shape " + name);
     }
-    motions.remove(motions.ceiling(Motion.defaultMotion(time)));
+    return index;
   }
 
   /**
@@ -114,7 +248,7 @@ class Shape {
     if (motions.isEmpty()) {
       throw new IllegalStateException("There are no motions to remove.");
     }
-    motions.remove(motions.last());
+    motions.remove(motions.size() - 1);
   }
 
   /**
@@ -130,37 +264,18 @@ class Shape {
    * motion C 80 440 370 120 60 0 255  0    100 440 370 120 60 0 255  0
    * Lines beginning with # are informative and are not included in the final string.
    * If there is only one motions, display it as both the start and end.
+   * Each motion line is preceded by a line giving the rotation of the motion's end.
    *
-   * @return the display string
-   */
-  String display() {
-    List<String> lines = new ArrayList<>(2 * (motions.size() + 1) + 1);
-    List<Motion> allMotions = new ArrayList<>(motions);
-    lines.add("shape " + name + " " + type.getType());
-    if (motions.size() >= 1) {
-      lines.add("rotation " + allMotions.get(0).getRotation());
-      lines.add("motion " + name + " " + allMotions.get(0).display()
-              + "    " + allMotions.get(0).display());
-    }
-    for (int i = 0; i < allMotions.size() - 1; i++) {
-      lines.add("rotation " + allMotions.get(i + 1).getRotation());
-      lines.add("motion " + name + " " + allMotions.get(i).display()
-              + "    " + allMotions.get(i + 1).display());
-    }
-    return String.join("\n", lines);
-  }
-
-  /**
-   * Does this motion occur at the same time as one of this shape's existing motions?.
-   * @param m the motion
-   * @return whether the motions overlaps with an existing motion
+   * @param out the builder to which the display string is appended
    */
-  private boolean motionOverlaps(Motion m) {
-    Motion nearestMotion = motions.ceiling(m);
-    if (nearestMotion == null) {
-      return false;
+  void display(StringBuilder out) {
+    out.append("shape ").append(name).append(' ').append(type.getType());
+    for (int i = 0; i < motions.size(); i++) {
+      out.append("\nrotation ").append(motions.get(i, KeyframeStore.ROTATION));
+      out.append("\nmotion ").append(name).append(' ');
+      motions.display(Math.max(i - 1, 0), out).append("    ");
+      motions.display(i, out);
     }
-    return motions.comparator().compare(nearestMotion, m) == 0;
   }
 
   /**
@@ -174,11 +289,113 @@ class Shape {
     if (motions.isEmpty()) {
       throw new IllegalStateException("The shape " + name + " has no motions.");
     }
-    if (motions.first().getTime() > tick || motions.last().getTime() < tick) {
+    if (motions.getTime(0) > tick || motions.getTime(motions.size() - 1) < tick) {
       throw new IllegalArgumentException("The shape " + name + " has no motions at time " + tick);
     }
-    Motion tickMotion = Motion.defaultMotion(tick);
-    return new Transformation(motions.floor(tickMotion), motions.ceiling(tickMotion));
+    return new Transformation(motions.getMotion(motions.floorIndex(tick)),
+            motions.getMotion(motions.ceilingIndex(tick)));
+  }
+
+  /**
+   * Does this shape have no motions?.
+   * @return true if the shape has no motions
+   */
+  boolean isEmpty() {
+    return motions.isEmpty();
+  }
+
+  /**
+   * Get the time of this shape's first motion.
+   * @return the first time
+   * @throws IllegalStateException if there are no motions
+   */
+  int getFirstTime() {
+    if (motions.isEmpty()) {
+      throw new IllegalStateException("The shape " + name + " has no motions.");
+    }
+    return motions.getTime(0);
+  }
+
+  /**
+   * Get the time of this shape's last motion.
+   * @return the last time
+   * @throws IllegalStateException if there are no motions
+   */
+  int getLastTime() {
+    if (motions.isEmpty()) {
+      throw new IllegalStateException("The shape " + name + " has no motions.");
+    }
+    return motions.getTime(motions.size() - 1);
+  }
+
+  /**
+   * Find the time of the last keyframe before the given time.
+   * @param time the time
+   * @return the keyframe's time, or the given time if no keyframe comes before it
+   */
+  int previousTime(int time) {
+    int index = motions.floorIndex(time - 1);
+    return index < 0 ? time : motions.getTime(index);
+  }
+
+  /**
+   * Find the time of the first keyframe after the given time.
+   * @param time the time
+   * @return the keyframe's time, or the given time if no keyframe comes after it
+   */
+  int nextTime(int time) {
+    int index = motions.ceilingIndex(time + 1);
+    return index < 0 ? time : motions.getTime(index);
+  }
+
+  /**
+   * If this shape is on screen at the given tick, add its state at that tick to the given frame.
+   * @param layer the name of this shape's layer
+   * @param tick the time
+   * @param frame the frame to which this shape's state is added
+   */
+  void addToFrame(String layer, int tick, Frame frame) {
+    if (motions.isEmpty()
+            || motions.getTime(0) > tick || motions.getTime(motions.size() - 1) < tick) {
+      return;
+    }
+    int offset = frame.add(layer, name, type, handle);
+    motions.stateAt(tick, frame.states(), offset);
+  }
+
+  /**
+   * Add this shape's state at the given time to the given frame, given the index of its last
+   * keyframe at or before that time. The shape must be on screen at the whole tick at or
+   * before the time; between that tick and the next, its state is interpolated as in
+   * Transformation.getStateAt(double, int[], int).
+   * @param layer the name of this shape's layer
+   * @param time the time
+   * @param segment the index of the last keyframe at or before the time
+   * @param frame the frame to which this shape's state is added
+   */
+  void addToFrame(String layer, double time, int segment, Frame frame) {
+    int offset = frame.add(layer, name, type, handle);
+    motions.stateAtSegment(segment, time, frame.states(), offset);
+  }
+
+  /**
+   * Find the index of this shape's last keyframe at or before the given tick.
+   * @param tick the time
+   * @return the keyframe index, or -1 if every keyframe comes after the tick
+   */
+  int segmentAt(int tick) {
+    return motions.floorIndex(tick);
+  }
+
+  /**
+   * Find the index of this shape's last keyframe at or before the given tick, starting from
+   * the index of a keyframe at or before that tick.
+   * @param segment the index of a keyframe at or before the tick
+   * @param tick the time
+   * @return the index of the last keyframe at or before the tick
+   */
+  int advanceSegment(int segment, int tick) {
+    return motions.advanceSegment(segment, tick);
   }
 
   /**
@@ -187,7 +404,7 @@ class Shape {
    * @return all of this shape's motions
    */
   public List<Motion> getMotions() {
-    return new ArrayList<>(motions);
+    return motions.toMotions();
   }
 
   /**
@@ -0,0 +1,120 @@
+package cs3500.animator.model;
+
+/**
+ * A persistent array of shapes indexed by handle, stored as a trie with 32 children per node
+ * that copies of the table share until one of them writes to it.
+ */
+final class ShapeTable {
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int MASK = WIDTH - 1;
+
+  private Node root;
+  private int shift; // the number of handle bits below the root's level
+
+  /**
+   * Build an empty table.
+   */
+  ShapeTable() {
+    this.root = new Node(null);
+    this.shift = 0;
+  }
+
+  /**
+   * Build a table that shares the given root.
+   * @param root the root node
+   * @param shift the number of handle bits below the root's level
+   */
+  private ShapeTable(Node root, int shift) {
+    this.root = root;
+    this.shift = shift;
+  }
+
+  /**
+   * Return a table holding the same shapes that shares every node with this table.
+   * Neither table may mutate the shared nodes afterwards, so the owner of this table must
+   * switch to a new edit token.
+   * @return the copy
+   */
+  ShapeTable copy() {
+    return new ShapeTable(root, shift);
+  }
+
+  /**
+   * Get the shape with the given handle.
+   * @param handle the handle
+   * @return the shape, or null if no shape has the handle
+   */
+  Shape get(int handle) {
+    if (handle < 0 || (handle >>> shift) >= WIDTH) {
+      return null;
+    }
+    Node node = root;
+    for (int level = shift; level > 0; level -= BITS) {
+      node = (Node) node.slots[(handle >>> level) & MASK];
+      if (node == null) {
+        return null;
+      }
+    }
+    return (Shape) node.slots[handle & MASK];
+  }
+
+  /**
+   * Store the given shape under the given handle, copying any node along the way that does not
+   * belong to the given edit token.
+   * @param handle the handle, which must not be negative
+   * @param shape the shape, or null to clear the handle
+   * @param owner the edit token of the model that owns this table
+   */
+  void set(int handle, Shape shape, Object owner) {
+    while ((handle >>> shift) >= WIDTH) {
+      Node grown = new Node(owner);
+      grown.slots[0] = root;
+      root = grown;
+      shift += BITS;
+    }
+    root = editable(root, owner);
+    Node node = root;
+    for (int level = shift; level > 0; level -= BITS) {
+      int i = (handle >>> level) & MASK;
+      Node child = (Node) node.slots[i];
+      child = child == null ? new Node(owner) : editable(child, owner);
+      node.slots[i] = child;
+      node = child;
+    }
+    node.slots[handle & MASK] = shape;
+  }
+
+  /**
+   * Return the given node if it belongs to the given edit token, or else a copy that does.
+   * @param node the node
+   * @param owner the edit token
+   * @return a node with the same slots that the token's model may mutate
+   */
+  private static Node editable(Node node, Object owner) {
+    if (node.owner == owner) {
+      return node;
+    }
+    Node copy = new Node(owner);
+    System.arraycopy(node.slots, 0, copy.slots, 0, WIDTH);
+    return copy;
+  }
+
+  /**
+   * A node of the trie. Inner nodes hold nodes and leaves hold shapes. A table only mutates the
+   * nodes carrying its model's edit token, and copies the path to any other node it writes to.
+   */
+  private static final class Node {
+    private final Object owner;
+    private final Object[] slots;
+
+    /**
+     * Build a node with empty slots.
+     * @param owner the edit token of the model that may mutate this node
+     */
+    private Node(Object owner) {
+      this.owner = owner;
+      this.slots = new Object[WIDTH];
+    }
+  }
+}
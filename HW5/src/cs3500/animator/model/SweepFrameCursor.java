@@ -0,0 +1,180 @@
+package cs3500.animator.model;
+
+import java.util.Arrays;
+
+/**
+ * A FrameCursor that sweeps forward through the lifetime intervals of the shapes, so that a
+ * step costs time in proportion to the number of visible shapes.
+ */
+final class SweepFrameCursor implements FrameCursor {
+  private final AnimationModelImpl model;
+  private final Frame frame;
+  private int tick;
+  private int version; // the model version that the cursor's state reflects
+  private LifetimeIndex.Tree tree;
+  private int nextStart; // index into tree.starts of the first lifetime starting after tick
+  private int[] active; // the ranks of the shapes on screen, in drawing order
+  private int activeCount;
+  private int[] merged; // working space for merging newly visible shapes into active
+  private int[] segments; // by rank: the last keyframe at or before tick of each active shape
+  private Shape[] shapes; // by rank: each active shape, resolved from the tree's handle
+  private boolean exact; // false if the frame holds a time between tick and the next tick
+
+  /**
+   * Build a cursor over the given model positioned at the given tick.
+   * @param model the model
+   * @param tick the first tick
+   */
+  SweepFrameCursor(AnimationModelImpl model, int tick) {
+    this.model = model;
+    this.frame = new Frame();
+    this.active = new int[0];
+    this.merged = new int[0];
+    this.segments = new int[0];
+    this.shapes = new Shape[0];
+    this.exact = false; // nothing has been filled in yet
+    rebuild(tick);
+  }
+
+  @Override
+  public int getTick() {
+    return tick;
+  }
+
+  @Override
+  public Frame getFrame() {
+    return seek(tick);
+  }
+
+  @Override
+  public Frame advance() {
+    return seek(tick + 1);
+  }
+
+  @Override
+  public Frame seek(int tick) {
+    if (moveTo(tick) || !exact) {
+      fill(tick);
+    }
+    return frame;
+  }
+
+  @Override
+  public Frame seekTime(double time) {
+    double whole = Math.floor(time);
+    if (whole == time) {
+      return seek((int) whole);
+    }
+    moveTo((int) whole);
+    fill(time);
+    return frame;
+  }
+
+  /**
+   * Move the cursor's state to the given tick, without filling the frame. Moving to the next
+   * tick drops the shapes whose lifetimes ended and adds those whose lifetimes start; moving
+   * anywhere but the current or next tick rebuilds the state from the model's interval tree.
+   * @param tick the new tick
+   * @return true if the state changed, false if it already reflected the model at the tick
+   */
+  private boolean moveTo(int tick) {
+    if (model.getVersion() == version) {
+      if (tick == this.tick) {
+        return false;
+      } else if (tick == this.tick + 1) {
+        step();
+        return true;
+      }
+    }
+    rebuild(tick);
+    return true;
+  }
+
+  /**
+   * Move the cursor's state forward by one tick.
+   */
+  private void step() {
+    tick++;
+    int kept = 0;
+    for (int i = 0; i < activeCount; i++) {
+      int rank = active[i];
+      if (tree.endsByRank[rank] >= tick) {
+        active[kept++] = rank;
+        segments[rank] = shapes[rank].advanceSegment(segments[rank], tick);
+      }
+    }
+    activeCount = kept;
+    while (nextStart < tree.size && tree.starts[nextStart] <= tick) {
+      int rank = tree.ranks[nextStart];
+      active[activeCount++] = rank;
+      shapes[rank] = model.getShapeAt(tree.handles[rank]);
+      segments[rank] = shapes[rank].segmentAt(tick);
+      nextStart++;
+    }
+    if (activeCount > kept) {
+      mergeNewShapes(kept);
+    }
+  }
+
+  /**
+   * Rebuild the cursor's state from the model's interval tree at the given tick.
+   * @param tick the new tick
+   */
+  private void rebuild(int tick) {
+    this.tick = tick;
+    this.version = model.getVersion();
+    this.tree = model.getLifetimes();
+    if (active.length < tree.size) {
+      active = new int[tree.size];
+      merged = new int[tree.size];
+    }
+    if (segments.length < tree.shapeCount) {
+      segments = new int[tree.shapeCount];
+      shapes = new Shape[tree.shapeCount];
+    }
+    activeCount = tree.collect(tick, frame);
+    System.arraycopy(frame.scratch(0), 0, active, 0, activeCount);
+    for (int i = 0; i < activeCount; i++) {
+      int rank = active[i];
+      shapes[rank] = model.getShapeAt(tree.handles[rank]);
+      segments[rank] = shapes[rank].segmentAt(tick);
+    }
+    nextStart = tree.firstStartAfter(tick);
+  }
+
+  /**
+   * Restore the drawing order of the active shapes after new shapes are appended to them.
+   * @param kept the number of shapes at the front of active that were already in order
+   */
+  private void mergeNewShapes(int kept) {
+    Arrays.sort(active, kept, activeCount);
+    int i = 0;
+    int j = kept;
+    int k = 0;
+    while (i < kept && j < activeCount) {
+      merged[k++] = active[i] < active[j] ? active[i++] : active[j++];
+    }
+    while (i < kept) {
+      merged[k++] = active[i++];
+    }
+    while (j < activeCount) {
+      merged[k++] = active[j++];
+    }
+    int[] temp = active;
+    active = merged;
+    merged = temp;
+  }
+
+  /**
+   * Write the state of every active shape at the given time into the frame.
+   * @param time the time, from tick up to but not including the next tick
+   */
+  private void fill(double time) {
+    frame.reset(tick);
+    for (int i = 0; i < activeCount; i++) {
+      int rank = active[i];
+      shapes[rank].addToFrame(tree.layerNames[rank], time, segments[rank], frame);
+    }
+    exact = time == tick;
+  }
+}
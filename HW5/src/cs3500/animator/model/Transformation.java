@@ -5,8 +5,17 @@ package cs3500.animator.model;
  * from it's state at the start to its state at the end.
  */
 public class Transformation {
-  private final Motion start;
-  private final Motion end;
+  /**
+   * The number of values written by getStateAt(int, int[], int), in the order
+   * x, y, width, height, red, green, blue, rotation.
+   */
+  public static final int STATE_SIZE = 8;
+
+  private final int startTime;
+  private final int endTime;
+  private final double duration; // precomputed so each state calculation only divides once
+  private final int[] initial; // the state at the start, in the order of STATE_SIZE
+  private final double[] deltas; // the change in each value of the state from start to end
 
   /**
    * Build a transformation representing a smooth movement of a shape from one state to another.
@@ -18,8 +27,17 @@ public class Transformation {
       throw new IllegalArgumentException(
               "The time at the start must not come after the time at the end");
     }
-    this.start = start;
-    this.end = end;
+    this.startTime = start.getTime();
+    this.endTime = end.getTime();
+    this.duration = endTime - startTime;
+    this.initial = new int[]{start.getX(), start.getY(), start.getWidth(), start.getHeight(),
+        start.getRed(), start.getGreen(), start.getBlue(), start.getRotation()};
+    int[] last = {end.getX(), end.getY(), end.getWidth(), end.getHeight(),
+        end.getRed(), end.getGreen(), end.getBlue(), end.getRotation()};
+    this.deltas = new double[STATE_SIZE];
+    for (int i = 0; i < STATE_SIZE; i++) {
+      deltas[i] = (double) last[i] - initial[i];
+    }
   }
 
   /**
@@ -27,41 +45,89 @@ public class Transformation {
    * packaged as a Motion.
    * @param tick the time to be tested
    * @return the state at time = tick
+   * @throws IllegalArgumentException if the given time is outside the transformation's bounds
    */
   public Motion getStateAt(int tick) {
-    return new Motion(tick,
-            stateAtTime(tick, start.getX(), end.getX()),
-            stateAtTime(tick, start.getY(), end.getY()),
-            stateAtTime(tick, start.getWidth(), end.getWidth()),
-            stateAtTime(tick, start.getHeight(), end.getHeight()),
-            stateAtTime(tick, start.getRed(), end.getRed()),
-            stateAtTime(tick, start.getGreen(), end.getGreen()),
-            stateAtTime(tick, start.getBlue(), end.getBlue()),
-            stateAtTime(tick, start.getRotation(), end.getRotation()));
+    double fraction = fractionAt(tick);
+    return new Motion(tick, valueAt(0, fraction), valueAt(1, fraction), valueAt(2, fraction),
+            valueAt(3, fraction), valueAt(4, fraction), valueAt(5, fraction),
+            valueAt(6, fraction), valueAt(7, fraction));
   }
 
   /**
-   * Determine the state of an integer at time tick if it switches smoothly between
-   * initial (at the time of start's tick) and last (at the time of end's tick).
-   * @param tick the time for which the state should be calculated
-   * @param initial the initial state
-   * @param last the final state
-   * @return the state at the given time
+   * Calculate the shape's state at the given time and write it into the given array
+   * starting at the given offset, in the order x, y, width, height, red, green, blue, rotation.
+   * Unlike getStateAt(int), this method does not build any new objects.
+   * @param tick the time to be tested
+   * @param state the array that receives the state
+   * @param offset the index of the state's first value (x) in the array
+   * @throws IllegalArgumentException if the given time is outside the transformation's bounds
+   *     or if the state does not fit in the array
+   */
+  public void getStateAt(int tick, int[] state, int offset) {
+    getStateAt((double) tick, state, offset);
+  }
+
+  /**
+   * Calculate the shape's state at the given time, which may fall between two ticks, and write
+   * it into the given array as getStateAt(int, int[], int) does. Every value is interpolated in
+   * floating point and then rounded, so at a whole tick the state is exactly the state at that
+   * tick, while between ticks it moves on smoothly, as drawing at a higher rate than the
+   * animation's speed needs. This method does not build any new objects.
+   * @param time the time to be tested
+   * @param state the array that receives the state
+   * @param offset the index of the state's first value (x) in the array
+   * @throws IllegalArgumentException if the given time is outside the transformation's bounds
+   *     or if the state does not fit in the array
+   */
+  public void getStateAt(double time, int[] state, int offset) {
+    double fraction = fractionAt(time);
+    if (state == null || offset < 0 || offset + STATE_SIZE > state.length) {
+      throw new IllegalArgumentException("The state array must hold " + STATE_SIZE
+              + " values after the offset");
+    }
+    for (int i = 0; i < STATE_SIZE; i++) {
+      state[offset + i] = valueAt(i, fraction);
+    }
+  }
+
+  /**
+   * Find how far through the transformation the given time is.
+   * @param time the time
+   * @return the fraction of the duration that has passed, or 0 if there is no duration
    * @throws IllegalArgumentException if the given time is outside the transformation's bounds
    */
-  private int stateAtTime(int tick, int initial, int last) {
-    if (tick < start.getTime() || tick > end.getTime()) {
+  private double fractionAt(double time) {
+    if (!(time >= startTime && time <= endTime)) {
       throw new IllegalArgumentException(
               "Cannot calculate state outside of the transformation's boundaries");
     }
-    // if there is no change in time between the two motions, return the initial state
-    if (start.getTime() == end.getTime()) {
+    // if there is no change in time between the two motions, use the initial state
+    return duration == 0 ? 0 : (time - startTime) / duration;
+  }
+
+  /**
+   * Find one value of the state at the given point through the transformation.
+   * @param index the index of the value, in the order of STATE_SIZE
+   * @param fraction the fraction of the duration that has passed
+   * @return the value
+   */
+  private int valueAt(int index, double fraction) {
+    return interpolate(initial[index], deltas[index], fraction);
+  }
+
+  /**
+   * Determine the state of an integer that switches smoothly from initial by delta, given how
+   * far through the switch the current moment is.
+   * @param initial the initial state
+   * @param delta the final state minus the initial state
+   * @param fraction the fraction of the switch that has passed, from 0 to 1
+   * @return the state at the given time
+   */
+  static int interpolate(int initial, double delta, double fraction) {
+    if (fraction == 0) {
       return initial;
     }
-    return (int) Math.round(
-            (double) (initial * ((end.getTime() - tick)
-                    / (double) (end.getTime() - start.getTime())))
-            + ((double) last * ((tick - start.getTime())
-                    / (double) (end.getTime() - start.getTime()))));
+    return (int) Math.round(initial + delta * fraction);
   }
 }
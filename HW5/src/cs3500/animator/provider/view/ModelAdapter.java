@@ -1,18 +1,42 @@
 package cs3500.animator.provider.view;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.TreeMap;
 
 import cs3500.animator.model.AnimationModel;
+import cs3500.animator.model.Frame;
+import cs3500.animator.model.FrameCursor;
+import cs3500.animator.model.ModelListener;
 
 /**
  * A class that adapts an AnimationModel for use as an IModel.
  */
 public class ModelAdapter implements IModel {
   private final AnimationModel model;
+  private FrameCursor cursor; // steps through the frames requested by the Shape adapters
+  private Frame frame; // the last frame requested by any Shape adapter
+  private boolean frameValid;
+  // INVARIANT: if frameValid, frame shows the model's current state at frame.getTick()
+  private int[] framePositions; // indexed by shape handle
+  private int[] frameStamps; // indexed by shape handle
+  private int frameStamp;
+  // INVARIANT: if frameStamps[h] == frameStamp, the shape with handle h is at position
+  // framePositions[h] in frame; otherwise it is not in frame
 
+  /**
+   * Build an adapter for the given model.
+   * @param model the model to be adapted
+   */
   public ModelAdapter(AnimationModel model) {
     this.model = model;
+    this.cursor = null;
+    this.frame = null;
+    this.frameValid = false;
+    this.framePositions = new int[0];
+    this.frameStamps = new int[0];
+    this.frameStamp = 0;
+    model.addListener(new FrameInvalidator());
   }
 
   @Override
@@ -35,7 +59,7 @@ public class ModelAdapter implements IModel {
     Map<String, Shape> shapes = new TreeMap<>();
     for (String layer : model.getLayers()) {
       for (String shape : model.getShapes(layer)) {
-        shapes.put(shape, new Shape(layer, shape, model));
+        shapes.put(shape, new Shape(layer, shape, model, this));
       }
     }
     return shapes;
@@ -52,4 +76,94 @@ public class ModelAdapter implements IModel {
     // this method is never used
     throw new UnsupportedOperationException();
   }
+
+  /**
+   * Find the state of the given shape at the given tick in the provider's format
+   * [x, y, width, height, r, g, b].
+   * The provider view asks for every shape's state at the same tick one shape at a time,
+   * so the whole frame is computed once for the first shape and reused for the rest.
+   * Frames come from a cursor, so playing the animation in order does not search the model.
+   * @param handle the shape's handle
+   * @param shape the shape's name
+   * @param tick the tick
+   * @return the shape's state
+   * @throws IllegalArgumentException if the shape is not on screen at the given tick
+   */
+  int[] getStateAt(int handle, String shape, int tick) {
+    if (!frameValid || frame.getTick() != tick) {
+      if (cursor == null) {
+        cursor = model.cursor(tick);
+      }
+      frame = cursor.seek(tick);
+      frameStamp++;
+      for (int i = 0; i < frame.size(); i++) {
+        int h = frame.getHandle(i);
+        if (h >= framePositions.length) {
+          framePositions = Arrays.copyOf(framePositions, Math.max(h + 1, framePositions.length * 2));
+          frameStamps = Arrays.copyOf(frameStamps, framePositions.length);
+        }
+        framePositions[h] = i;
+        frameStamps[h] = frameStamp;
+      }
+      frameValid = true;
+    }
+    if (handle >= frameStamps.length || frameStamps[handle] != frameStamp) {
+      throw new IllegalArgumentException("The shape " + shape + " has no motions at time " + tick);
+    }
+    int i = framePositions[handle];
+    return new int[]{frame.getX(i), frame.getY(i), frame.getWidth(i), frame.getHeight(i),
+            frame.getRed(i), frame.getGreen(i), frame.getBlue(i)};
+  }
+
+  /**
+   * Listens to the model and forgets the shared frame whenever a change may have altered it.
+   * Keyframe changes that only touch other ticks keep the frame.
+   */
+  private final class FrameInvalidator implements ModelListener {
+    @Override
+    public void layerDeleted(String layer) {
+      frameValid = false;
+    }
+
+    @Override
+    public void layerMoved(String layer, int position) {
+      frameValid = false;
+    }
+
+    @Override
+    public void shapeDeleted(String layer, String shape, int handle) {
+      frameValid = false;
+    }
+
+    @Override
+    public void keyframeAdded(int shape, int time, int fromTick, int toTick) {
+      keyframesChanged(fromTick, toTick);
+    }
+
+    @Override
+    public void keyframeEdited(int shape, int time, int fromTick, int toTick) {
+      keyframesChanged(fromTick, toTick);
+    }
+
+    @Override
+    public void keyframeDeleted(int shape, int time, int fromTick, int toTick) {
+      keyframesChanged(fromTick, toTick);
+    }
+
+    @Override
+    public void keyframesChanged(int[] shapes, int fromTick, int toTick) {
+      keyframesChanged(fromTick, toTick);
+    }
+
+    /**
+     * Forget the shared frame if its tick lies in the given range.
+     * @param fromTick the first tick whose frame may have changed
+     * @param toTick the last tick whose frame may have changed
+     */
+    private void keyframesChanged(int fromTick, int toTick) {
+      if (frameValid && fromTick <= frame.getTick() && frame.getTick() <= toTick) {
+        frameValid = false;
+      }
+    }
+  }
 }
@@ -2,6 +2,7 @@ package cs3500.animator.provider.view;
 
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
@@ -15,20 +16,24 @@ import cs3500.animator.model.Motion;
  * A class that mimics a "Shape" class in the provider code.
  */
 public class Shape {
-  private final String layer;
   private final String name;
+  private final int handle; // the model's handle for this shape, so it is looked up only once
   private final AnimationModel model;
+  private final ModelAdapter adapter;
 
   /**
    * Creates a "Shape" adapter.
    * @param layer the layer name
    * @param name the shape's name
    * @param model the model to which the shape belongs
+   * @param adapter the model adapter whose shared frame supplies this shape's state at a tick
+   * @throws IllegalArgumentException if the model has no such shape
    */
-  public Shape(String layer, String name, AnimationModel model) {
-    this.layer = layer;
+  public Shape(String layer, String name, AnimationModel model, ModelAdapter adapter) {
     this.name = name;
+    this.handle = model.getHandle(layer, name);
     this.model = model;
+    this.adapter = adapter;
   }
 
   /**
@@ -37,13 +42,13 @@ public class Shape {
    * @return the ShapeType enum of this shape
    */
   public ShapeType getShapeType() {
-    switch (model.getShapeType(layer, name)) {
+    switch (model.getShapeType(handle)) {
       case "ellipse":
         return ShapeType.ELLIPSE;
       case "rectangle":
         return ShapeType.RECTANGLE;
       default:
-        throw new IllegalArgumentException("Illegal shape type " + model.getShapeType(layer, name));
+        throw new IllegalArgumentException("Illegal shape type " + model.getShapeType(handle));
     }
   }
 
@@ -83,7 +88,7 @@ public class Shape {
      */
     @Override
     public boolean containsKey(Object key) {
-      for (Motion m : model.getMotions(layer, name)) {
+      for (Motion m : model.getMotions(handle)) {
         if (m.getTime() == (int) key) {
           return true;
         }
@@ -99,9 +104,7 @@ public class Shape {
      */
     @Override
     public int[] get(Object key) {
-      Motion m = model.getTransformationAt(layer, name, (int) key).getStateAt((int) key);
-      return new int[]{m.getX(), m.getY(), m.getWidth(), m.getHeight(),
-              m.getRed(), m.getGreen(), m.getBlue()};
+      return adapter.getStateAt(handle, name, (int) key);
     }
 
     /**
@@ -113,13 +116,8 @@ public class Shape {
      */
     @Override
     public int[] put(Integer key, int[] value) {
-      try {
-        model.addMotion(layer, name, key, value[0], value[1], value[2],
-                value[3], value[4], value[5], value[6]);
-      } catch (IllegalArgumentException e) {
-        model.editMotion(layer, name, key, value[0], value[1], value[2],
-                value[3], value[4], value[5], value[6]);
-      }
+      model.batch(batch -> batch.putMotion(handle, key, value[0], value[1], value[2],
+              value[3], value[4], value[5], value[6], 0));
       return null;
     }
 
@@ -131,8 +129,8 @@ public class Shape {
     @Override
     public Set<Map.Entry<Integer, int[]>> entrySet() {
       TreeSet<Map.Entry<Integer, int[]>> map = new TreeSet<>();
-      for (Motion m : model.getMotions(layer, name)) {
-        map.add(new MoveListEntry(model, name, m.getTime()));
+      for (Motion m : model.getMotions(handle)) {
+        map.add(new MoveListEntry(model, name, m));
       }
       return map;
     }
@@ -143,7 +141,7 @@ public class Shape {
      */
     @Override
     public boolean isEmpty() {
-      return model.getMotions(layer, name).isEmpty();
+      return model.getMotions(handle).isEmpty();
     }
 
     /**
@@ -156,7 +154,7 @@ public class Shape {
       if (isEmpty()) {
         throw new NoSuchElementException("The shape " + name + " has no motions");
       }
-      return model.getMotions(layer, name).get(0).getTime();
+      return model.getMotions(handle).get(0).getTime();
     }
 
     /**
@@ -169,7 +167,8 @@ public class Shape {
       if (isEmpty()) {
         throw new NoSuchElementException("The shape " + name + " has no motions");
       }
-      return model.getMotions(layer, name).get(model.getMotions(layer, name).size() - 1).getTime();
+      List<Motion> motions = model.getMotions(handle);
+      return motions.get(motions.size() - 1).getTime();
     }
 
     /**
@@ -184,7 +183,7 @@ public class Shape {
         return null;
       }
       int[] m = get(key);
-      model.deleteMotion(layer, name, (int) key);
+      model.deleteMotion(handle, (int) key);
       return m;
     }
 
@@ -237,7 +236,7 @@ public class Shape {
 
     @Override
     public int size() {
-      return model.getMotions(layer, name).size();
+      return model.getMotions(handle).size();
     }
   }
 
@@ -257,13 +256,13 @@ public class Shape {
      * Build a MoveListEntry.
      * @param model the model that contains the shape
      * @param name the shape name
-     * @param time the time of the keyframe
+     * @param motion the model's keyframe
      */
-    private MoveListEntry(AnimationModel model, String name, int time) {
+    private MoveListEntry(AnimationModel model, String name, Motion motion) {
       this.model = model;
       this.name = name;
-      this.time = time;
-      motion = model.getTransformationAt(layer, name, time).getStateAt(time);
+      this.time = motion.getTime();
+      this.motion = motion;
     }
 
     /**
@@ -292,11 +291,11 @@ public class Shape {
      */
     @Override
     public int[] setValue(int[] value) {
-      model.editMotion(layer, name, time, value[0], value[1], value[2], value[3],
-              value[4], value[5], value[6]);
+      model.editMotion(handle, time, value[0], value[1], value[2], value[3],
+              value[4], value[5], value[6], 0);
 
       Motion m = motion;
-      motion = model.getTransformationAt(layer, name, time).getStateAt(time);
+      motion = model.getTransformationAt(handle, time).getStateAt(time);
       return new int[] {m.getX(), m.getY(), m.getWidth(), m.getHeight(),
               m.getRed(), m.getGreen(), m.getBlue()};
     }
@@ -0,0 +1,325 @@
+package cs3500.animator.util;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.regex.Pattern;
+
+/**
+ * Splits animation input into tokens the same way as a Scanner whose delimiter is
+ * (\p{Space}+|#.*)+, but without regular expressions, parsing integers straight from its
+ * buffer.
+ */
+final class AnimationLexer implements AnimationTokens {
+  private static final int INITIAL_CAPACITY = 8192;
+  // the delimiter that AnimationReader's Scanner used, for the rare tokens handed to a Scanner
+  private static final Pattern DELIMITER = Pattern.compile("(\\p{Space}+|#.*)+");
+
+  private final Readable source;
+  private char[] buffer;
+  private int position; // the index of the next unread character
+  private int limit; // the index just past the last character read from the source
+  private boolean exhausted; // true once the source has no more characters
+  private int tokenStart;
+  private int tokenEnd;
+  // INVARIANT: after nextToken returns true, the current token is buffer[tokenStart, tokenEnd)
+  // until the next call to nextToken or restOfLine
+  private boolean inToken; // true while a token is being read, so fill must keep it
+
+  /**
+   * Build a lexer over the given source.
+   * @param source the source of characters
+   */
+  AnimationLexer(Readable source) {
+    this.source = source;
+    this.buffer = new char[INITIAL_CAPACITY];
+    this.position = 0;
+    this.limit = 0;
+    this.exhausted = false;
+    this.tokenStart = 0;
+    this.tokenEnd = 0;
+    this.inToken = false;
+  }
+
+  /**
+   * Move to the next token, skipping whitespace and comments.
+   * @return true if there is a next token, or false if the input has run out
+   */
+  @Override
+  public boolean nextToken() {
+    while (true) {
+      if (position == limit && !fill()) {
+        return false;
+      }
+      char c = buffer[position];
+      if (c == '#') {
+        skipComment();
+      } else if (isSpace(c)) {
+        position++;
+      } else {
+        break;
+      }
+    }
+    tokenStart = position;
+    inToken = true;
+    while (position < limit || fill()) {
+      char c = buffer[position];
+      if (c == '#' || isSpace(c)) {
+        break;
+      }
+      position++;
+    }
+    inToken = false;
+    tokenEnd = position;
+    return true;
+  }
+
+  /**
+   * Return the current token as a String.
+   * @return the token
+   */
+  @Override
+  public String token() {
+    return new String(buffer, tokenStart, tokenEnd - tokenStart);
+  }
+
+  /**
+   * Does the current token match the given word?.
+   * @param word the word
+   * @return true if the token is exactly the word
+   */
+  @Override
+  public boolean tokenIs(String word) {
+    if (tokenEnd - tokenStart != word.length()) {
+      return false;
+    }
+    for (int i = 0; i < word.length(); i++) {
+      if (buffer[tokenStart + i] != word.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Is the current token an integer that a Scanner's nextInt would accept?.
+   * Plain decimal integers with an optional sign are recognized in place; any other token is
+   * handed to a Scanner, so that locale-specific forms such as grouped digits are treated
+   * exactly as before.
+   * @return true if the token is an int
+   */
+  @Override
+  public boolean tokenIsInt() {
+    if (isPlainInt()) {
+      return parsePlainInt() != Long.MIN_VALUE;
+    }
+    return !tokenIsSignsAndDigits() && scanner(token()).hasNextInt();
+  }
+
+  /**
+   * Return the value of the current token, which must be an int as in tokenIsInt.
+   * @return the value
+   */
+  @Override
+  public int tokenInt() {
+    if (isPlainInt()) {
+      return (int) parsePlainInt();
+    }
+    return scanner(token()).nextInt();
+  }
+
+  /**
+   * Parse the current token if it is an int written exactly as Integer.toString writes its
+   * value, with no plus sign or leading zeros. Such a token can be rebuilt from its value alone.
+   * @return the value, or Long.MIN_VALUE if the token is not an int in that form
+   */
+  long tokenCanonicalInt() {
+    int i = tokenStart;
+    boolean negative = buffer[i] == '-';
+    if (negative) {
+      i++;
+    }
+    if (i == tokenEnd || buffer[i] == '0' && (negative || tokenEnd - i > 1)) {
+      return Long.MIN_VALUE; // no digits, "-0", or a leading zero
+    }
+    long value = 0;
+    for (; i < tokenEnd; i++) {
+      char c = buffer[i];
+      if (c < '0' || c > '9') {
+        return Long.MIN_VALUE;
+      }
+      value = value * 10 + (c - '0');
+      if (value > (long) Integer.MAX_VALUE + 1) {
+        return Long.MIN_VALUE;
+      }
+    }
+    value = negative ? -value : value;
+    return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? Long.MIN_VALUE : value;
+  }
+
+  /**
+   * Build a Scanner over the given token that splits input exactly as the lexer does, so
+   * that it sees the whole token as one token.
+   * @param token a token found by a lexer
+   * @return the Scanner
+   */
+  static Scanner scanner(String token) {
+    return new Scanner(token).useDelimiter(DELIMITER);
+  }
+
+  /**
+   * Return the rest of the current line after the current token, as a Scanner's nextLine
+   * would: without the line terminator, which is consumed.
+   * @return the rest of the line
+   * @throws NoSuchElementException if there is no more input at all
+   */
+  @Override
+  public String restOfLine() {
+    if (position == limit && !fill()) {
+      throw new NoSuchElementException("No line found");
+    }
+    StringBuilder line = new StringBuilder();
+    while (position < limit || fill()) {
+      char c = buffer[position++];
+      if (c == '\r') {
+        if ((position < limit || fill()) && buffer[position] == '\n') {
+          position++;
+        }
+        break;
+      }
+      if (isLineTerminator(c)) {
+        break;
+      }
+      line.append(c);
+    }
+    return line.toString();
+  }
+
+  /**
+   * Skip a comment from its # up to, but not including, the end of its line.
+   */
+  private void skipComment() {
+    while (position < limit || fill()) {
+      if (isLineTerminator(buffer[position])) {
+        return;
+      }
+      position++;
+    }
+  }
+
+  /**
+   * Is the current token an optional sign followed by at least one ASCII digit?.
+   * @return true if the token has that form
+   */
+  private boolean isPlainInt() {
+    int i = tokenStart;
+    if (buffer[i] == '-' || buffer[i] == '+') {
+      i++;
+    }
+    if (i == tokenEnd) {
+      return false;
+    }
+    for (; i < tokenEnd; i++) {
+      if (buffer[i] < '0' || buffer[i] > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Is every character of the current token a sign or an ASCII digit?. Such a token is an int
+   * only if isPlainInt is true, so tokenIsInt never needs a Scanner for it.
+   * @return true if the token consists of signs and digits
+   */
+  boolean tokenIsSignsAndDigits() {
+    for (int i = tokenStart; i < tokenEnd; i++) {
+      char c = buffer[i];
+      if ((c < '0' || c > '9') && c != '-' && c != '+') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parse the current token, which must satisfy isPlainInt.
+   * @return the value, or Long.MIN_VALUE if it does not fit in an int
+   */
+  private long parsePlainInt() {
+    int i = tokenStart;
+    boolean negative = buffer[i] == '-';
+    if (negative || buffer[i] == '+') {
+      i++;
+    }
+    long value = 0;
+    for (; i < tokenEnd; i++) {
+      value = value * 10 + (buffer[i] - '0');
+      if (value > (long) Integer.MAX_VALUE + 1) {
+        return Long.MIN_VALUE;
+      }
+    }
+    value = negative ? -value : value;
+    return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? Long.MIN_VALUE : value;
+  }
+
+  /**
+   * Read more characters from the source into the buffer. Characters before the current
+   * position are dropped first, except for the token being read, if any; the buffer only grows
+   * if that token fills it.
+   * @return true if at least one character was read, or false if the source is exhausted
+   */
+  private boolean fill() {
+    if (exhausted) {
+      return false;
+    }
+    int keep = inToken ? tokenStart : position;
+    if (keep > 0) {
+      System.arraycopy(buffer, keep, buffer, 0, limit - keep);
+      limit -= keep;
+      position -= keep;
+      if (inToken) {
+        tokenStart -= keep;
+      }
+    }
+    if (limit == buffer.length) {
+      char[] grown = new char[buffer.length * 2];
+      System.arraycopy(buffer, 0, grown, 0, limit);
+      buffer = grown;
+    }
+    CharBuffer target = CharBuffer.wrap(buffer, limit, buffer.length - limit);
+    int read;
+    try {
+      do {
+        read = source.read(target);
+      } while (read == 0);
+    } catch (IOException e) {
+      read = -1; // a Scanner treats a failed read as the end of its input
+    }
+    if (read < 0) {
+      exhausted = true;
+      return false;
+    }
+    limit += read;
+    return true;
+  }
+
+  /**
+   * Is the given character whitespace as matched by the regular expression \p{Space}?.
+   * @param c the character
+   * @return true if it is an ASCII space, tab, line feed, vertical tab, form feed or return
+   */
+  private static boolean isSpace(char c) {
+    return c == ' ' || (c >= '\t' && c <= '\r');
+  }
+
+  /**
+   * Does the given character end a line, so that it ends a comment?.
+   * @param c the character
+   * @return true if the character is a line terminator as defined by regular expressions
+   */
+  private static boolean isLineTerminator(char c) {
+    return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+  }
+}
@@ -1,13 +1,44 @@
 package cs3500.animator.util;
 
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Objects;
-import java.util.Scanner;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPInputStream;
 
 /**
  * A helper to read animation data and construct an animation from it.
  */
 public class AnimationReader {
+  private static final int[] GZIP_MAGIC = {0x1F, 0x8B};
+  private static final int GZIP_BUFFER_SIZE = 1 << 16;
+  // tokenizing in parallel does more work in all than the sequential lexer, and only pays off
+  // on very large files with enough cores to share it, so it is not chosen for smaller ones
+  private static final long PARALLEL_MIN_SIZE = 256L << 20; // in bytes
+  private static final int PARALLEL_MIN_THREADS = 4;
+  private static final String[] CANVAS_FIELDS = {"left", "top", "width", "height"};
+  private static final String[] MOTION_FIELDS = {
+      "initial time",
+      "initial x-coordinate", "initial y-coordinate",
+      "initial width", "initial height",
+      "initial red value", "initial green value", "initial blue value",
+      "final time",
+      "final x-coordinate", "final y-coordinate",
+      "final width", "final height",
+      "final red value", "final green value", "final blue value",
+  };
+
   /**
    * A factory for producing new animations, given a source of shapes and a
    * builder for constructing animations.
@@ -34,110 +65,317 @@ public class AnimationReader {
   public static <Doc> Doc parseFile(Readable readable, AnimationBuilder<Doc> builder) {
     Objects.requireNonNull(readable, "Must have non-null readable source");
     Objects.requireNonNull(builder, "Must provide a non-null AnimationBuilder");
-    Scanner s = new Scanner(readable);
     // Split at whitespace, and ignore # comment lines
-    s.useDelimiter(Pattern.compile("(\\p{Space}+|#.*)+"));
-    while (s.hasNext()) {
-      String word = s.next();
-      switch (word) {
-        case "canvas":
-          readCanvas(s, builder);
-          break;
-        case "shape":
-          readShape(s, builder);
-          break;
-        case "motion":
-          readMotion(s, builder);
-          break;
-        case "layer":
-          readLayer(s, builder);
-          break;
-        case "rotation":
-          readRotation(s, builder);
-          break;
-        default:
-          throw new IllegalStateException("Unexpected keyword: " + word + s.nextLine());
+    return parse(new AnimationLexer(readable), builder);
+  }
+
+  /**
+   * Read the animation in the given file as parseFile(Path, AnimationBuilder, int) does,
+   * choosing the number of threads: one, unless the file is large enough to be worth
+   * tokenizing in parallel on this machine's processors.
+   *
+   * @param file    The file holding the animation
+   * @param builder A builder for helping to construct a new animation
+   * @param <Doc>   The main model interface type describing animations
+   * @return the animation
+   * @throws IOException if the file cannot be opened or read
+   */
+  public static <Doc> Doc parseFile(Path file, AnimationBuilder<Doc> builder)
+          throws IOException {
+    return parseFile(file, builder, read -> { });
+  }
+
+  /**
+   * Read the animation in the given file as parseFile(Path, AnimationBuilder) does, telling
+   * the given listener how far into the file the reader has got, as
+   * parseFile(Path, AnimationBuilder, int, LongConsumer) does.
+   *
+   * @param file     The file holding the animation
+   * @param builder  A builder for helping to construct a new animation
+   * @param progress Told the number of bytes of the file read so far
+   * @param <Doc>    The main model interface type describing animations
+   * @return the animation
+   * @throws IOException if the file cannot be opened or read
+   */
+  public static <Doc> Doc parseFile(Path file, AnimationBuilder<Doc> builder,
+                                    LongConsumer progress) throws IOException {
+    Objects.requireNonNull(file, "Must have non-null file");
+    int processors = Runtime.getRuntime().availableProcessors();
+    int threads = processors >= PARALLEL_MIN_THREADS && Files.size(file) >= PARALLEL_MIN_SIZE
+            ? processors : 1;
+    return parseFile(file, builder, threads, progress);
+  }
+
+  /**
+   * Read the animation in the given file as parseFile(Readable, AnimationBuilder) does, in the
+   * platform's default charset like a FileReader. With more than one thread, the file is
+   * memory-mapped and split into chunks at line breaks, and the chunks are tokenized in
+   * parallel; the builder is still called on the calling thread in the order of the file, so
+   * the result, and any error, is exactly that of reading the file in one pass.
+   * Files in a charset whose line feeds cannot be found byte by byte are read in one pass.
+   * A file in the binary format of BinaryAnimationWriter is recognized by its first bytes and
+   * read by BinaryAnimationReader instead. A gzip file, also recognized by its first bytes, is
+   * decompressed as it is read, in one pass, and may hold either format.
+   *
+   * @param file    The file holding the animation
+   * @param builder A builder for helping to construct a new animation
+   * @param threads The number of threads on which to tokenize the file
+   * @param <Doc>   The main model interface type describing animations
+   * @return the animation
+   * @throws IOException if the file cannot be opened or read
+   * @throws IllegalArgumentException if the number of threads is not positive
+   */
+  public static <Doc> Doc parseFile(Path file, AnimationBuilder<Doc> builder, int threads)
+          throws IOException {
+    return parseFile(file, builder, threads, read -> { });
+  }
+
+  /**
+   * Read the animation in the given file as parseFile(Path, AnimationBuilder, int) does,
+   * telling the given listener how far into the file the reader has got. The listener is
+   * called on the calling thread, between calls to the builder, each time another block of
+   * the file has been read; the number of bytes it is given never decreases, and is the size
+   * of the file once the whole file has been read. For a gzip file, the bytes are those of
+   * the compressed file.
+   *
+   * @param file     The file holding the animation
+   * @param builder  A builder for helping to construct a new animation
+   * @param threads  The number of threads on which to tokenize the file
+   * @param progress Told the number of bytes of the file read so far
+   * @param <Doc>    The main model interface type describing animations
+   * @return the animation
+   * @throws IOException if the file cannot be opened or read
+   * @throws IllegalArgumentException if the number of threads is not positive
+   */
+  public static <Doc> Doc parseFile(Path file, AnimationBuilder<Doc> builder, int threads,
+                                    LongConsumer progress) throws IOException {
+    Objects.requireNonNull(file, "Must have non-null file");
+    Objects.requireNonNull(builder, "Must provide a non-null AnimationBuilder");
+    Objects.requireNonNull(progress, "Must provide a non-null progress listener");
+    if (threads < 1) {
+      throw new IllegalArgumentException("The number of threads must be positive");
+    }
+    if (isGzip(file)) {
+      return parseGzip(file, builder, progress);
+    }
+    if (BinaryAnimationReader.isBinary(file)) {
+      try (InputStream input = new CountingInputStream(Files.newInputStream(file), progress)) {
+        return BinaryAnimationReader.parseFile(input, builder);
+      }
+    }
+    Charset charset = Charset.defaultCharset();
+    if (threads == 1 || !MappedFileTokens.supports(charset)) {
+      try (Reader reader = new InputStreamReader(
+              new CountingInputStream(Files.newInputStream(file), progress), charset)) {
+        return parseFile(reader, builder);
+      }
+    }
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return parse(new MappedFileTokens(channel, charset, pool, progress), builder);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Does the given file start with the two bytes that start every gzip file?.
+   * No animation file does, since they are not ASCII and not the start of a binary animation.
+   * @param file the file
+   * @return true if the file looks like a gzip file
+   * @throws IOException if the file cannot be read
+   */
+  private static boolean isGzip(Path file) throws IOException {
+    try (InputStream input = Files.newInputStream(file)) {
+      return input.read() == GZIP_MAGIC[0] && input.read() == GZIP_MAGIC[1];
+    }
+  }
+
+  /**
+   * Read the animation in the given gzip file, in the text format or the binary format.
+   * @param file the file
+   * @param builder a builder for helping to construct a new animation
+   * @param progress told the number of compressed bytes read so far
+   * @param <Doc> the main model interface type describing animations
+   * @return the animation
+   * @throws IOException if the file cannot be read or is not a valid gzip file
+   */
+  private static <Doc> Doc parseGzip(Path file, AnimationBuilder<Doc> builder,
+                                     LongConsumer progress) throws IOException {
+    try (InputStream input = new BufferedInputStream(
+            new GZIPInputStream(new CountingInputStream(Files.newInputStream(file), progress),
+                    GZIP_BUFFER_SIZE),
+            GZIP_BUFFER_SIZE)) {
+      input.mark(GZIP_BUFFER_SIZE);
+      boolean binary = BinaryAnimationReader.isBinary(input);
+      input.reset();
+      if (binary) {
+        return BinaryAnimationReader.parseFile(input, builder);
+      }
+      Reader reader = new InputStreamReader(input, Charset.defaultCharset());
+      // the lexer takes a failed read for the end of the input, but a damaged gzip file must
+      // not be read as a shorter animation
+      Readable failLoudly = target -> {
+        try {
+          return reader.read(target);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      };
+      return parse(new AnimationLexer(failLoudly), builder);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * An input stream that tells a listener how many bytes have been read from it so far, each
+   * time it reads more.
+   */
+  private static final class CountingInputStream extends FilterInputStream {
+    private final LongConsumer progress;
+    private long count;
+
+    /**
+     * Count the bytes read from the given stream.
+     * @param input the stream
+     * @param progress told the number of bytes read so far
+     */
+    private CountingInputStream(InputStream input, LongConsumer progress) {
+      super(input);
+      this.progress = progress;
+      this.count = 0;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int read = super.read();
+      if (read >= 0) {
+        counted(1);
+      }
+      return read;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      int read = super.read(bytes, offset, length);
+      if (read > 0) {
+        counted(read);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      if (skipped > 0) {
+        counted(skipped);
+      }
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false; // a reset would count bytes twice
+    }
+
+    /**
+     * Add to the count and tell the listener.
+     * @param bytes the number of bytes just read
+     */
+    private void counted(long bytes) {
+      count += bytes;
+      progress.accept(count);
+    }
+  }
+
+  private static <Doc> Doc parse(AnimationTokens s, AnimationBuilder<Doc> builder) {
+    while (s.nextToken()) {
+      if (s.tokenIs("motion")) {
+        readMotion(s, builder);
+      } else if (s.tokenIs("rotation")) {
+        readRotation(s, builder);
+      } else if (s.tokenIs("shape")) {
+        readShape(s, builder);
+      } else if (s.tokenIs("layer")) {
+        readLayer(s, builder);
+      } else if (s.tokenIs("canvas")) {
+        readCanvas(s, builder);
+      } else {
+        String word = s.token();
+        throw new IllegalStateException("Unexpected keyword: " + word + s.restOfLine());
       }
     }
     return builder.build();
   }
 
-  private static <Doc> void readCanvas(Scanner s, AnimationBuilder<Doc> builder) {
+  private static <Doc> void readCanvas(AnimationTokens s, AnimationBuilder<Doc> builder) {
     int[] vals = new int[4];
-    String[] fieldNames = {"left", "top", "width", "height"};
     for (int i = 0; i < 4; i++) {
-      vals[i] = getInt(s, "Canvas", fieldNames[i]);
+      vals[i] = getInt(s, "Canvas", CANVAS_FIELDS[i]);
     }
     builder.setBounds(vals[0], vals[1], vals[2], vals[3]);
   }
 
-  private static <Doc> void readLayer(Scanner s, AnimationBuilder<Doc> builder) {
+  private static <Doc> void readLayer(AnimationTokens s, AnimationBuilder<Doc> builder) {
     String name;
-    if (s.hasNext()) {
-      name = s.next();
+    if (s.nextToken()) {
+      name = s.token();
     } else {
       throw new IllegalStateException("Layer: Expected a name, but no more input available");
     }
     builder.declareLayer(name);
   }
 
-  private static <Doc> void readShape(Scanner s, AnimationBuilder<Doc> builder) {
+  private static <Doc> void readShape(AnimationTokens s, AnimationBuilder<Doc> builder) {
     String name;
     String type;
-    if (s.hasNext()) {
-      name = s.next();
+    if (s.nextToken()) {
+      name = s.token();
     } else {
       throw new IllegalStateException("Shape: Expected a name, but no more input available");
     }
-    if (s.hasNext()) {
-      type = s.next();
+    if (s.nextToken()) {
+      type = s.token();
     } else {
       throw new IllegalStateException("Shape: Expected a type, but no more input available");
     }
     builder.declareShape(name, type);
   }
 
-  private static <Doc> void readRotation(Scanner s, AnimationBuilder<Doc> builder) {
+  private static <Doc> void readRotation(AnimationTokens s, AnimationBuilder<Doc> builder) {
     int rotation = getInt(s, "Rotation", "rotation");
     builder.declareRotation(rotation);
   }
 
-  private static <Doc> void readMotion(Scanner s, AnimationBuilder<Doc> builder) {
-    String[] fieldNames = new String[]{
-        "initial time",
-        "initial x-coordinate", "initial y-coordinate",
-        "initial width", "initial height",
-        "initial red value", "initial green value", "initial blue value",
-        "final time",
-        "final x-coordinate", "final y-coordinate",
-        "final width", "final height",
-        "final red value", "final green value", "final blue value",
-    };
+  private static <Doc> void readMotion(AnimationTokens s, AnimationBuilder<Doc> builder) {
     int[] vals = new int[16];
     String name;
-    if (s.hasNext()) {
-      name = s.next();
+    if (s.nextToken()) {
+      name = s.token();
     } else {
       throw new IllegalStateException("Motion: Expected a shape name, but no more input available");
     }
     for (int i = 0; i < 16; i++) {
-      vals[i] = getInt(s, "Motion", fieldNames[i]);
+      vals[i] = getInt(s, "Motion", MOTION_FIELDS[i]);
     }
     builder.addMotion(name,
             vals[0], vals[1], vals[2 ], vals[3 ], vals[4 ], vals[5 ], vals[6 ], vals[7 ],
             vals[8], vals[9], vals[10], vals[11], vals[12], vals[13], vals[14], vals[15]);
   }
 
-  private static int getInt(Scanner s, String label, String fieldName) {
-    if (s.hasNextInt()) {
-      return s.nextInt();
-    } else if (s.hasNext()) {
-      throw new IllegalStateException(
-              String.format("%s: expected integer for %s, got: %s", label, fieldName, s.next()));
-    } else {
+  private static int getInt(AnimationTokens s, String label, String fieldName) {
+    if (!s.nextToken()) {
       throw new IllegalStateException(
               String.format("%s: expected integer for %s, but no more input available",
                       label, fieldName));
+    } else if (s.tokenIsInt()) {
+      return s.tokenInt();
+    } else {
+      throw new IllegalStateException(
+              String.format("%s: expected integer for %s, got: %s", label, fieldName, s.token()));
     }
   }
 
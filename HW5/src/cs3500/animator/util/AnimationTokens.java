@@ -0,0 +1,48 @@
+package cs3500.animator.util;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A stream of the tokens of an animation file, from which AnimationReader reads statements.
+ * The current token is the one found by the last successful call to nextToken.
+ */
+interface AnimationTokens {
+  /**
+   * Move to the next token.
+   * @return true if there is a next token, or false if the input has run out
+   */
+  boolean nextToken();
+
+  /**
+   * Return the current token as a String.
+   * @return the token
+   */
+  String token();
+
+  /**
+   * Does the current token match the given word?.
+   * @param word the word
+   * @return true if the token is exactly the word
+   */
+  boolean tokenIs(String word);
+
+  /**
+   * Is the current token an integer, as a Scanner's nextInt would read it?.
+   * @return true if the token is an int
+   */
+  boolean tokenIsInt();
+
+  /**
+   * Return the value of the current token, which must be an int as in tokenIsInt.
+   * @return the value
+   */
+  int tokenInt();
+
+  /**
+   * Return the rest of the line after the current token, without the line terminator, as a
+   * Scanner's nextLine would.
+   * @return the rest of the line
+   * @throws NoSuchElementException if there is no more input at all
+   */
+  String restOfLine();
+}
@@ -0,0 +1,261 @@
+package cs3500.animator.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Reads animations in the binary format written by BinaryAnimationWriter.
+ */
+public final class BinaryAnimationReader {
+  private static final int BUFFER_SIZE = 8192;
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final InputStream input;
+  private final byte[] buffer;
+  private int position;
+  private int limit;
+  private String[] strings;
+
+  /**
+   * Build a reader over the given input.
+   * @param input the input
+   */
+  private BinaryAnimationReader(InputStream input) {
+    this.input = input;
+    this.buffer = new byte[BUFFER_SIZE];
+    this.position = 0;
+    this.limit = 0;
+    this.strings = new String[0];
+  }
+
+  /**
+   * Read a binary animation and construct it with the given builder. Each shape is declared in
+   * its layer, followed by its keyframes in time order through addKeyframe, each preceded by
+   * declareRotation if its rotation differs from the last one declared.
+   * @param input the source of the animation, which is read up to the end of the animation
+   * @param builder a builder for helping to construct a new animation
+   * @param <Doc> the main model interface type describing animations
+   * @return the animation
+   * @throws IOException if the input cannot be read
+   * @throws IllegalStateException if the input is not a binary animation of a supported
+   *     version, or is cut short or damaged
+   */
+  public static <Doc> Doc parseFile(InputStream input, AnimationBuilder<Doc> builder)
+          throws IOException {
+    Objects.requireNonNull(input, "Must have non-null input");
+    Objects.requireNonNull(builder, "Must provide a non-null AnimationBuilder");
+    return new BinaryAnimationReader(input).read(builder);
+  }
+
+  /**
+   * Does the given file start with the bytes that start every binary animation?.
+   * No file in the text format does, since those bytes are not a keyword.
+   * @param file the file
+   * @return true if the file looks like a binary animation
+   * @throws IOException if the file cannot be read
+   */
+  static boolean isBinary(Path file) throws IOException {
+    try (InputStream input = Files.newInputStream(file)) {
+      return isBinary(input);
+    }
+  }
+
+  /**
+   * Does the given input start with the bytes that start every binary animation?.
+   * Reads those bytes, or as many as there are, from the input.
+   * @param input the input
+   * @return true if the input looks like a binary animation
+   * @throws IOException if the input cannot be read
+   */
+  static boolean isBinary(InputStream input) throws IOException {
+    byte[] start = new byte[BinaryAnimationWriter.MAGIC.length];
+    int read = 0;
+    int count;
+    while (read < start.length && (count = input.read(start, read, start.length - read)) > 0) {
+      read += count;
+    }
+    return read == start.length && Arrays.equals(start, BinaryAnimationWriter.MAGIC);
+  }
+
+  /**
+   * Read the whole animation.
+   * @param builder the builder
+   * @param <Doc> the main model interface type describing animations
+   * @return the animation
+   * @throws IOException if the input cannot be read
+   */
+  private <Doc> Doc read(AnimationBuilder<Doc> builder) throws IOException {
+    for (byte expected : BinaryAnimationWriter.MAGIC) {
+      if (readByte() != (expected & 0xFF)) {
+        throw new IllegalStateException("Not a binary animation");
+      }
+    }
+    int version = readNumber();
+    if (version != BinaryAnimationWriter.VERSION) {
+      throw new IllegalStateException("Unsupported binary animation version " + version);
+    }
+    builder.setBounds(readSignedNumber(), readSignedNumber(), readSignedNumber(),
+            readSignedNumber());
+    // arrays grow as their contents arrive, so that a damaged count cannot make them huge
+    int stringCount = readCount();
+    strings = new String[Math.min(stringCount, INITIAL_CAPACITY)];
+    for (int i = 0; i < stringCount; i++) {
+      if (i == strings.length) {
+        strings = Arrays.copyOf(strings, grow(strings.length, stringCount));
+      }
+      strings[i] = readUtf8(readCount());
+    }
+    int[] keyframes = new int[0];
+    boolean rotationDeclared = false;
+    int rotation = 0; // the rotation last declared, if rotationDeclared
+    while (true) {
+      int record = readNumber();
+      if (record == BinaryAnimationWriter.END) {
+        return builder.build();
+      } else if (record == BinaryAnimationWriter.LAYER) {
+        builder.declareLayer(readString());
+      } else if (record == BinaryAnimationWriter.SHAPE) {
+        String name = readString();
+        builder.declareShape(name, readString());
+        int count = readCount();
+        int columns = BinaryAnimationWriter.COLUMNS;
+        int time = 0;
+        for (int i = 0; i < count; i++) {
+          if (keyframes.length < (i + 1) * columns) {
+            keyframes = Arrays.copyOf(keyframes, grow(keyframes.length, count * columns));
+          }
+          time += readSignedNumber();
+          keyframes[i * columns + BinaryAnimationWriter.TIME] = time;
+        }
+        for (int column = BinaryAnimationWriter.TIME + 1; column < columns; column++) {
+          int value = 0;
+          for (int i = column; i < count * columns; i += columns) {
+            value += readSignedNumber();
+            keyframes[i] = value;
+          }
+        }
+        for (int i = 0; i < count * columns; i += columns) {
+          if (!rotationDeclared || rotation != keyframes[i + BinaryAnimationWriter.ROTATION]) {
+            rotationDeclared = true;
+            rotation = keyframes[i + BinaryAnimationWriter.ROTATION];
+            builder.declareRotation(rotation);
+          }
+          builder.addKeyframe(name, keyframes[i + BinaryAnimationWriter.TIME],
+                  keyframes[i + BinaryAnimationWriter.X], keyframes[i + BinaryAnimationWriter.Y],
+                  keyframes[i + BinaryAnimationWriter.WIDTH],
+                  keyframes[i + BinaryAnimationWriter.HEIGHT],
+                  keyframes[i + BinaryAnimationWriter.RED],
+                  keyframes[i + BinaryAnimationWriter.GREEN],
+                  keyframes[i + BinaryAnimationWriter.BLUE]);
+        }
+      } else {
+        throw new IllegalStateException("Binary animation: unknown record type " + record);
+      }
+    }
+  }
+
+  /**
+   * Read the index of a string in the string table and return the string.
+   * @return the string
+   * @throws IOException if the input cannot be read
+   */
+  private String readString() throws IOException {
+    int index = readNumber();
+    if (index < 0 || index >= strings.length) {
+      throw new IllegalStateException("Binary animation: no string number " + index);
+    }
+    return strings[index];
+  }
+
+  /**
+   * Read a count, which is small enough for an array.
+   * @return the count
+   * @throws IOException if the input cannot be read
+   */
+  private int readCount() throws IOException {
+    int count = readNumber();
+    if (count < 0 || count > Integer.MAX_VALUE / BinaryAnimationWriter.COLUMNS) {
+      throw new IllegalStateException("Binary animation: invalid count " + count);
+    }
+    return count;
+  }
+
+  /**
+   * Read a zigzag encoded number.
+   * @return the number
+   * @throws IOException if the input cannot be read
+   */
+  private int readSignedNumber() throws IOException {
+    int value = readNumber();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Read a number of 7 bits per byte.
+   * @return the number, which may be negative if it was written as an unsigned int
+   * @throws IOException if the input cannot be read
+   */
+  private int readNumber() throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      int b = readByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IllegalStateException("Binary animation: malformed number");
+  }
+
+  /**
+   * Read a string of the given number of UTF-8 bytes.
+   * @param length the number of bytes
+   * @return the string
+   * @throws IOException if the input cannot be read
+   */
+  private String readUtf8(int length) throws IOException {
+    byte[] bytes = new byte[Math.min(length, BUFFER_SIZE)];
+    for (int i = 0; i < length; i++) {
+      if (i == bytes.length) {
+        bytes = Arrays.copyOf(bytes, grow(bytes.length, length));
+      }
+      bytes[i] = (byte) readByte();
+    }
+    return new String(bytes, 0, length, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Find the new length of an array that is full, doubling it up to the length it needs.
+   * @param length the array's length
+   * @param needed the length the array needs once all of its contents have arrived
+   * @return the new length
+   */
+  private static int grow(int length, int needed) {
+    return (int) Math.min(needed, Math.max(2L * length, INITIAL_CAPACITY));
+  }
+
+  /**
+   * Read one byte.
+   * @return the byte, from 0 to 255
+   * @throws IOException if the input cannot be read
+   */
+  private int readByte() throws IOException {
+    if (position == limit) {
+      int read;
+      do {
+        read = input.read(buffer);
+      } while (read == 0);
+      if (read < 0) {
+        throw new IllegalStateException("Binary animation: unexpected end of input");
+      }
+      position = 0;
+      limit = read;
+    }
+    return buffer[position++] & 0xFF;
+  }
+}
@@ -0,0 +1,272 @@
+package cs3500.animator.util;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes an animation in the binary animation format, which BinaryAnimationReader reads: a
+ * header, a table of strings, and a record for each layer and shape in drawing order.
+ */
+public final class BinaryAnimationWriter {
+  /**
+   * The version of the format that this class writes.
+   */
+  public static final int VERSION = 1;
+
+  // the first bytes of every file: a non-ASCII byte, so that the file cannot be read as text,
+  // a name, and line endings and an end-of-file character, so that damage by text tools shows
+  static final byte[] MAGIC = {(byte) 0x89, 'A', 'N', 'M', '\r', '\n', 0x1A, '\n'};
+
+  // the kinds of record; a LAYER record holds the index of the layer's name, and a SHAPE record
+  // the indexes of the shape's name and type, its number of keyframes, and its keyframes
+  static final int END = 0;
+  static final int LAYER = 1;
+  static final int SHAPE = 2;
+
+  // the columns of a shape's keyframes, in the order they are written
+  static final int TIME = 0;
+  static final int X = 1;
+  static final int Y = 2;
+  static final int WIDTH = 3;
+  static final int HEIGHT = 4;
+  static final int RED = 5;
+  static final int GREEN = 6;
+  static final int BLUE = 7;
+  static final int ROTATION = 8;
+  static final int COLUMNS = 9;
+
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final int CHUNK_SIZE = 8192; // in chars appended at once
+
+  private final int[] bounds;
+  private final Map<String, Integer> stringIndexes;
+  private final ByteSink strings;
+  private final ByteSink records;
+  private int[] keyframes; // the current shape's keyframes, COLUMNS ints each
+  private int keyframeCount;
+  private int shapeName; // the index of the current shape's name, or -1 if there is none
+  private int shapeType;
+
+  /**
+   * Build a writer for an animation with no layers on a canvas with the given bounds.
+   * @param x the leftmost x value
+   * @param y the topmost y value
+   * @param width the canvas width
+   * @param height the canvas height
+   */
+  public BinaryAnimationWriter(int x, int y, int width, int height) {
+    this.bounds = new int[]{x, y, width, height};
+    this.stringIndexes = new HashMap<>();
+    this.strings = new ByteSink();
+    this.records = new ByteSink();
+    this.keyframes = new int[INITIAL_CAPACITY];
+    this.keyframeCount = 0;
+    this.shapeName = -1;
+    this.shapeType = -1;
+  }
+
+  /**
+   * Add a layer on top of the layers added so far. Later shapes are added to this layer.
+   * @param name the layer's name
+   * @throws IllegalArgumentException if the name is null
+   */
+  public void addLayer(String name) {
+    if (name == null) {
+      throw new IllegalArgumentException("Layer name must not be null");
+    }
+    finishShape();
+    records.writeNumber(LAYER);
+    records.writeNumber(stringIndex(name));
+  }
+
+  /**
+   * Add a shape with no keyframes to the end of the current layer. Later keyframes are added
+   * to this shape.
+   * @param name the shape's name
+   * @param type the shape's type
+   * @throws IllegalArgumentException if the name or type is null
+   */
+  public void addShape(String name, String type) {
+    if (name == null || type == null) {
+      throw new IllegalArgumentException("Shape name and type must not be null");
+    }
+    finishShape();
+    shapeName = stringIndex(name);
+    shapeType = stringIndex(type);
+  }
+
+  /**
+   * Add a keyframe to the current shape, after its other keyframes.
+   * @param time the time of the keyframe
+   * @param x the x coordinate
+   * @param y the y coordinate
+   * @param width the width
+   * @param height the height
+   * @param red the R component of the color
+   * @param green the G component of the color
+   * @param blue the B component of the color
+   * @param rotation the rotation
+   * @throws IllegalStateException if no shape has been added
+   */
+  public void addKeyframe(int time, int x, int y, int width, int height,
+                          int red, int green, int blue, int rotation) {
+    if (shapeName < 0) {
+      throw new IllegalStateException("A shape must be added before its keyframes");
+    }
+    int offset = keyframeCount * COLUMNS;
+    if (offset + COLUMNS > keyframes.length) {
+      keyframes = Arrays.copyOf(keyframes, 2 * keyframes.length);
+    }
+    keyframes[offset + TIME] = time;
+    keyframes[offset + X] = x;
+    keyframes[offset + Y] = y;
+    keyframes[offset + WIDTH] = width;
+    keyframes[offset + HEIGHT] = height;
+    keyframes[offset + RED] = red;
+    keyframes[offset + GREEN] = green;
+    keyframes[offset + BLUE] = blue;
+    keyframes[offset + ROTATION] = rotation;
+    keyframeCount++;
+  }
+
+  /**
+   * Write the animation added so far: MAGIC, VERSION, the canvas's bounds, the string table
+   * and then the records, ending with an END record. Each byte is appended as the char with the
+   * same value, from 0 to 255, so the Appendable must store chars as ISO-8859-1 bytes, as a
+   * StringBuilder or a Writer with that charset does.
+   * Writing finishes the current shape, so no more keyframes can be added to it.
+   * @param output the Appendable that receives the animation
+   * @throws IOException if the output cannot be written
+   */
+  public void writeTo(Appendable output) throws IOException {
+    finishShape();
+    ByteSink header = new ByteSink();
+    header.write(MAGIC, MAGIC.length);
+    header.writeNumber(VERSION);
+    for (int bound : bounds) {
+      header.writeSignedNumber(bound);
+    }
+    header.writeNumber(stringIndexes.size());
+    char[] chunk = new char[CHUNK_SIZE];
+    header.appendTo(output, chunk);
+    strings.appendTo(output, chunk);
+    records.appendTo(output, chunk);
+    chunk[0] = (char) END;
+    output.append(CharBuffer.wrap(chunk, 0, 1));
+  }
+
+  /**
+   * Write the current shape's record, if there is a current shape, and clear it. The keyframes
+   * are written column by column, each value as its difference from the one before it, so the
+   * slowly changing values of a typical animation take one byte each.
+   */
+  private void finishShape() {
+    if (shapeName < 0) {
+      return;
+    }
+    records.writeNumber(SHAPE);
+    records.writeNumber(shapeName);
+    records.writeNumber(shapeType);
+    records.writeNumber(keyframeCount);
+    for (int column = 0; column < COLUMNS; column++) {
+      int previous = 0;
+      for (int i = column; i < keyframeCount * COLUMNS; i += COLUMNS) {
+        records.writeSignedNumber(keyframes[i] - previous); // wraps around, as reading does
+        previous = keyframes[i];
+      }
+    }
+    shapeName = -1;
+    shapeType = -1;
+    keyframeCount = 0;
+  }
+
+  /**
+   * Find the index of the given string in the string table, adding it as its length and its
+   * UTF-8 bytes if it is not there.
+   * @param string the string
+   * @return its index
+   */
+  private int stringIndex(String string) {
+    Integer index = stringIndexes.get(string);
+    if (index == null) {
+      index = stringIndexes.size();
+      stringIndexes.put(string, index);
+      byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+      strings.writeNumber(bytes.length);
+      strings.write(bytes, bytes.length);
+    }
+    return index;
+  }
+
+  /**
+   * A growable array of bytes.
+   */
+  private static final class ByteSink {
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Append the given bytes.
+     * @param source the bytes
+     * @param length the number of bytes to append from the start of source
+     */
+    void write(byte[] source, int length) {
+      ensureCapacity(length);
+      System.arraycopy(source, 0, bytes, size, length);
+      size += length;
+    }
+
+    /**
+     * Append a number that is never negative, 7 bits per byte from the lowest, with the high bit
+     * of each byte set if more bytes follow.
+     * @param value the number, which is treated as unsigned
+     */
+    void writeNumber(int value) {
+      ensureCapacity(5);
+      while ((value & ~0x7F) != 0) {
+        bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      bytes[size++] = (byte) value;
+    }
+
+    /**
+     * Append a number that may be negative, zigzag encoded so that small negative numbers take
+     * as few bytes as small positive ones.
+     * @param value the number
+     */
+    void writeSignedNumber(int value) {
+      writeNumber((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Append every byte to the given Appendable as the char with the same value.
+     * @param output the Appendable
+     * @param chunk a buffer through which to copy the bytes
+     * @throws IOException if the output cannot be written
+     */
+    void appendTo(Appendable output, char[] chunk) throws IOException {
+      for (int start = 0; start < size; start += chunk.length) {
+        int length = Math.min(chunk.length, size - start);
+        for (int i = 0; i < length; i++) {
+          chunk[i] = (char) (bytes[start + i] & 0xFF);
+        }
+        output.append(CharBuffer.wrap(chunk, 0, length));
+      }
+    }
+
+    /**
+     * Make sure the given number of bytes can be appended without growing.
+     * @param extra the number of bytes
+     */
+    private void ensureCapacity(int extra) {
+      if (size + extra > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(size + extra, 2 * bytes.length));
+      }
+    }
+  }
+}
@@ -0,0 +1,246 @@
+package cs3500.animator.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
+
+/**
+ * The tokens of an animation file, tokenized in parallel from memory-mapped chunks and handed
+ * out in file order, exactly as one AnimationLexer over the whole file would produce them.
+ */
+final class MappedFileTokens implements AnimationTokens {
+  static final int CHUNK_SIZE = 1 << 20; // in bytes
+  private static final int CHUNKS_AHEAD_PER_THREAD = 2;
+  private static final int BOUNDARY_SEARCH_SIZE = 4096;
+  // a generous guess at the number of characters per token, including the spaces after it
+  private static final int CHARS_PER_TOKEN = 4;
+
+  private final FileChannel channel;
+  private final Charset charset;
+  private final long[] bounds; // chunk i is the bytes [bounds[i], bounds[i + 1])
+  private final ForkJoinPool pool;
+  private final LongConsumer progress;
+  private final int window; // the chunks tokenized ahead of the reader, to bound the memory held
+  private final Deque<Future<TokenChunk>> pending;
+  private int nextToSubmit;
+  private int chunkIndex; // the index of the current chunk, or -1 before the first token
+  private TokenChunk chunk;
+  private int token;
+
+  /**
+   * Start tokenizing the given file.
+   * @param channel the file, which must stay open until every token has been read
+   * @param charset the file's charset, for which supports must be true
+   * @param pool the pool on which to tokenize chunks
+   * @param progress told, as the tokens of each chunk start being read, the number of bytes
+   *     of the file up to the end of that chunk
+   * @throws IOException if the file cannot be read
+   */
+  MappedFileTokens(FileChannel channel, Charset charset, ForkJoinPool pool,
+                   LongConsumer progress) throws IOException {
+    this.channel = channel;
+    this.charset = charset;
+    this.bounds = split(channel);
+    this.pool = pool;
+    this.progress = progress;
+    this.window = pool.getParallelism() * CHUNKS_AHEAD_PER_THREAD;
+    this.pending = new ArrayDeque<>();
+    this.nextToSubmit = 0;
+    this.chunkIndex = -1;
+    this.chunk = null;
+    this.token = 0;
+    submitAhead();
+  }
+
+  /**
+   * Can files in the given charset be split at line feed bytes?.
+   * @param charset the charset
+   * @return true if every line feed byte in the charset's encoding is a line feed character
+   */
+  static boolean supports(Charset charset) {
+    return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+            || charset.equals(StandardCharsets.ISO_8859_1);
+  }
+
+  @Override
+  public boolean nextToken() {
+    token++;
+    while (chunk == null || token >= chunk.size()) {
+      if (pending.isEmpty()) {
+        return false;
+      }
+      chunk = await(pending.removeFirst());
+      chunkIndex++;
+      token = 0;
+      progress.accept(bounds[chunkIndex + 1]);
+      submitAhead();
+    }
+    return true;
+  }
+
+  @Override
+  public String token() {
+    return chunk.text(token);
+  }
+
+  @Override
+  public boolean tokenIs(String word) {
+    return chunk.is(token, word);
+  }
+
+  @Override
+  public boolean tokenIsInt() {
+    return chunk.isInt(token);
+  }
+
+  @Override
+  public int tokenInt() {
+    return chunk.value(token);
+  }
+
+  /**
+   * Return the rest of the line after the current token. Only the tokens of each chunk are
+   * kept, so the current chunk is read again up to the current token to find the line.
+   * @return the rest of the line
+   */
+  @Override
+  public String restOfLine() {
+    AnimationLexer lexer;
+    try {
+      lexer = new AnimationLexer(decode(chunkIndex));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    for (int i = 0; i <= token; i++) {
+      lexer.nextToken();
+    }
+    return lexer.restOfLine();
+  }
+
+  /**
+   * Keep the pool busy with the chunks after the current one, up to the window size.
+   */
+  private void submitAhead() {
+    while (nextToSubmit < bounds.length - 1 && pending.size() < window) {
+      int index = nextToSubmit++;
+      pending.addLast(pool.submit(() -> {
+        try {
+          CharBuffer chars = decode(index);
+          return TokenChunk.tokenize(new AnimationLexer(chars),
+                  chars.remaining() / CHARS_PER_TOKEN);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }));
+    }
+  }
+
+  /**
+   * Map and decode the given chunk.
+   * @param index the chunk's index
+   * @return the chunk's characters
+   * @throws IOException if the file cannot be read
+   */
+  private CharBuffer decode(int index) throws IOException {
+    ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, bounds[index],
+            bounds[index + 1] - bounds[index]);
+    // like a FileReader, replace malformed input instead of failing
+    return charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE)
+            .decode(bytes);
+  }
+
+  /**
+   * Wait for a chunk to be tokenized.
+   * @param future the chunk's task
+   * @return the chunk
+   */
+  private static TokenChunk await(Future<TokenChunk> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while reading the file");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  /**
+   * Split the given file into chunks of about CHUNK_SIZE bytes, each ending just after a line
+   * feed except possibly the last, so that no token or comment crosses a chunk boundary.
+   * @param channel the file
+   * @return the chunk boundaries, starting with 0 and ending with the file's size
+   * @throws IOException if the file cannot be read
+   */
+  private static long[] split(FileChannel channel) throws IOException {
+    long size = channel.size();
+    List<Long> bounds = new ArrayList<>();
+    bounds.add(0L);
+    ByteBuffer search = ByteBuffer.allocate(BOUNDARY_SEARCH_SIZE);
+    long start = 0;
+    while (size - start > CHUNK_SIZE) {
+      long end = nextLineStart(channel, start + CHUNK_SIZE, size, search);
+      if (end == size) {
+        break;
+      }
+      bounds.add(end);
+      start = end;
+    }
+    bounds.add(size);
+    long[] result = new long[bounds.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = bounds.get(i);
+    }
+    return result;
+  }
+
+  /**
+   * Find the first position at or after the given one that follows a line feed.
+   * @param channel the file
+   * @param from the position from which to search
+   * @param size the file's size
+   * @param search a buffer to read the file into
+   * @return the position just after the first line feed at or after from, or the file's size
+   *     if there is none
+   * @throws IOException if the file cannot be read
+   */
+  private static long nextLineStart(FileChannel channel, long from, long size, ByteBuffer search)
+          throws IOException {
+    long position = from;
+    while (position < size) {
+      search.clear();
+      int read = channel.read(search, position);
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        if (search.get(i) == '\n') {
+          return position + i + 1;
+        }
+      }
+      position += read;
+    }
+    return size;
+  }
+}
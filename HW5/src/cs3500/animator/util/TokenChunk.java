@@ -0,0 +1,151 @@
+package cs3500.animator.util;
+
+import java.util.Arrays;
+import java.util.Scanner;
+
+/**
+ * The tokens of one chunk of an animation file, read ahead of time by an AnimationLexer so that
+ * several chunks can be tokenized at once and read back in order afterwards.
+ */
+final class TokenChunk {
+  // shared by every chunk instead of building a new String for each
+  private static final String[] KEYWORDS = {"motion", "rotation", "shape", "layer", "canvas"};
+  private static final int MIN_CAPACITY = 16;
+  private static final byte WORD = 0;
+  private static final byte INT = 1;
+  // not yet known to be an int or not, which takes a Scanner to decide if the token is read as
+  // an int, as the lexer itself would
+  private static final byte UNDECIDED = 2;
+
+  private int size;
+  private byte[] kinds;
+  private int[] values;
+  private String[] texts;
+  // INVARIANT: for each token i < size, texts[i] is null only if kinds[i] is INT and the
+  // token's text is Integer.toString(values[i]); values[i] is the token's value if kinds[i]
+  // is INT
+
+  /**
+   * Build an empty chunk.
+   * @param capacity the number of tokens the chunk can hold before it grows
+   */
+  private TokenChunk(int capacity) {
+    this.size = 0;
+    this.kinds = new byte[capacity];
+    this.values = new int[capacity];
+    this.texts = new String[capacity];
+  }
+
+  /**
+   * Read every token from the given lexer.
+   * @param lexer the lexer, which is read to the end of its input
+   * @param expected the number of tokens expected, to size the chunk
+   * @return the chunk holding the tokens
+   */
+  static TokenChunk tokenize(AnimationLexer lexer, int expected) {
+    TokenChunk chunk = new TokenChunk(Math.max(expected, MIN_CAPACITY));
+    while (lexer.nextToken()) {
+      if (chunk.size == chunk.texts.length) {
+        chunk.grow();
+      }
+      int i = chunk.size++;
+      long canonical = lexer.tokenCanonicalInt();
+      if (canonical != Long.MIN_VALUE) {
+        chunk.kinds[i] = INT;
+        chunk.values[i] = (int) canonical;
+        chunk.texts[i] = null;
+      } else if (!lexer.tokenIsSignsAndDigits()) {
+        String keyword = keyword(lexer);
+        chunk.kinds[i] = keyword == null ? UNDECIDED : WORD;
+        chunk.texts[i] = keyword == null ? lexer.token() : keyword;
+      } else if (lexer.tokenIsInt()) {
+        chunk.kinds[i] = INT;
+        chunk.values[i] = lexer.tokenInt();
+        chunk.texts[i] = lexer.token();
+      } else {
+        chunk.kinds[i] = WORD;
+        chunk.texts[i] = lexer.token();
+      }
+    }
+    return chunk;
+  }
+
+  /**
+   * Return the number of tokens in this chunk.
+   * @return the number of tokens
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Return the text of the given token.
+   * @param token the token's index
+   * @return the text
+   */
+  String text(int token) {
+    String text = texts[token];
+    return text == null ? Integer.toString(values[token]) : text;
+  }
+
+  /**
+   * Does the given token match the given word?.
+   * @param token the token's index
+   * @param word the word
+   * @return true if the token is exactly the word
+   */
+  boolean is(int token, String word) {
+    return texts[token] == word || text(token).equals(word);
+  }
+
+  /**
+   * Is the given token an int?.
+   * @param token the token's index
+   * @return true if the token is an int as in AnimationLexer.tokenIsInt
+   */
+  boolean isInt(int token) {
+    if (kinds[token] == UNDECIDED) {
+      Scanner scanner = AnimationLexer.scanner(texts[token]);
+      if (scanner.hasNextInt()) {
+        kinds[token] = INT;
+        values[token] = scanner.nextInt();
+      } else {
+        kinds[token] = WORD;
+      }
+    }
+    return kinds[token] == INT;
+  }
+
+  /**
+   * Return the value of the given token, which must be an int as in isInt.
+   * @param token the token's index
+   * @return the value
+   */
+  int value(int token) {
+    return values[token];
+  }
+
+  /**
+   * Find the keyword that is the current token of the given lexer.
+   * @param lexer the lexer
+   * @return the keyword's constant, or null if the token is not a keyword
+   */
+  private static String keyword(AnimationLexer lexer) {
+    for (String keyword : KEYWORDS) {
+      if (lexer.tokenIs(keyword)) {
+        return keyword;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Double the capacity of the arrays.
+   */
+  private void grow() {
+    int capacity = texts.length * 2;
+    kinds = Arrays.copyOf(kinds, capacity);
+    values = Arrays.copyOf(values, capacity);
+    texts = Arrays.copyOf(texts, capacity);
+  }
+}
@@ -0,0 +1,167 @@
+package cs3500.animator.view;
+
+import java.awt.Canvas;
+import java.awt.DisplayMode;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.DoubleConsumer;
+
+import cs3500.animator.model.Motion;
+import cs3500.animator.model.ReadOnlyModel;
+
+/**
+ * A canvas that plays an animation by drawing its frames into a BufferStrategy on a thread of
+ * its own, at the refresh rate of the display, rather than asking Swing to repaint it.
+ */
+final class ActiveRenderer extends Canvas {
+  private static final long serialVersionUID = 1L;
+  private static final int BUFFERS = 3;
+  private static final int DEFAULT_REFRESH_RATE = 60; // in Hz, if the display does not say
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+  private final ReadOnlyModel model;
+  private final AnimationPanel scene; // draws the frames, without being shown itself
+  private final DoubleConsumer measured;
+  private volatile boolean running;
+  private volatile double framesPerSecond;
+
+  /**
+   * Build a canvas that plays the animation of the given model once started.
+   * @param model the model
+   * @param measured given the number of frames drawn per second, once a second, on the
+   *     rendering thread
+   * @throws IllegalArgumentException if either argument is null
+   */
+  ActiveRenderer(ReadOnlyModel model, DoubleConsumer measured) {
+    if (model == null || measured == null) {
+      throw new IllegalArgumentException("Model and callback must not be null");
+    }
+    this.model = model;
+    this.scene = new AnimationPanel(model);
+    this.measured = measured;
+    this.running = false;
+    this.framesPerSecond = 0;
+    setPreferredSize(scene.getPreferredSize());
+    setBackground(scene.getBackground());
+    setIgnoreRepaint(true); // every frame is drawn by the rendering thread
+  }
+
+  /**
+   * Start playing the animation from its first tick to its last on a new thread. The canvas
+   * must already be displayable, as it is once its window has been packed or shown.
+   * @param speed the speed of the animation in ticks per second
+   * @throws IllegalArgumentException if the speed is not positive
+   * @throws IllegalStateException if the canvas is not displayable or is already playing
+   */
+  void start(double speed) {
+    if (!isDisplayable()) {
+      throw new IllegalStateException("The canvas must be displayable to be rendered");
+    }
+    if (running) {
+      throw new IllegalStateException("The animation is already playing");
+    }
+    FramePacer pacer = new FramePacer(speed);
+    createBufferStrategy(BUFFERS);
+    running = true;
+    Thread thread = new Thread(() -> renderLoop(pacer), "Animation renderer");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Find the number of frames drawn per second over the last second.
+   * @return the number of frames, or 0 if less than a second has been played
+   */
+  double getFramesPerSecond() {
+    return framesPerSecond;
+  }
+
+  /**
+   * Stop rendering before the canvas loses its buffers.
+   */
+  @Override
+  public void removeNotify() {
+    running = false;
+    super.removeNotify();
+  }
+
+  /**
+   * Draw frames until the canvas is removed, each at the time a FramePacer says has been
+   * reached, so a fast animation skips ticks between frames and a slow one is drawn between
+   * ticks.
+   * @param pacer counts the ticks of the animation
+   */
+  private void renderLoop(FramePacer pacer) {
+    BufferStrategy strategy = getBufferStrategy();
+    long frameTime = NANOS_PER_SECOND / refreshRate();
+    int tick = Motion.START_TICK;
+    long nextFrame = System.nanoTime();
+    long measureStart = nextFrame;
+    int frames = 0;
+    pacer.restart(nextFrame);
+    try {
+      while (running) {
+        long now = System.nanoTime();
+        // the animation does not loop, so it stays at its last tick once there
+        int lastTick = Math.max(Motion.START_TICK, model.getLastTick());
+        tick = (int) Math.min((long) tick + pacer.ticksDue(now), lastTick);
+        drawFrame(strategy, tick < lastTick ? tick + pacer.fraction(now) : lastTick);
+        frames++;
+        if (now - measureStart >= NANOS_PER_SECOND) {
+          framesPerSecond = (double) frames * NANOS_PER_SECOND / (now - measureStart);
+          measured.accept(framesPerSecond);
+          measureStart = now;
+          frames = 0;
+        }
+        nextFrame += frameTime;
+        long wait = nextFrame - System.nanoTime();
+        if (wait > 0) {
+          LockSupport.parkNanos(wait);
+        } else if (wait < -frameTime) {
+          nextFrame = System.nanoTime(); // skip the frames that are already late
+        }
+      }
+    } catch (IllegalStateException e) {
+      // the canvas lost its buffers while being removed
+    }
+  }
+
+  /**
+   * Draw the given time into the next buffer and show it, drawing it again if the buffer's
+   * contents are lost on the way, as can happen to buffers in video memory.
+   * @param strategy the canvas's buffers
+   * @param time the time to draw, which may fall between two ticks
+   */
+  private void drawFrame(BufferStrategy strategy, double time) {
+    do {
+      do {
+        Graphics2D g2 = (Graphics2D) strategy.getDrawGraphics();
+        try {
+          scene.render(g2, time, getWidth(), getHeight());
+        } finally {
+          g2.dispose();
+        }
+      } while (strategy.contentsRestored());
+      strategy.show();
+    } while (strategy.contentsLost());
+    Toolkit.getDefaultToolkit().sync(); // some window systems hold drawing back otherwise
+  }
+
+  /**
+   * Find the refresh rate of the display that shows the canvas.
+   * @return the refresh rate in Hz
+   */
+  private int refreshRate() {
+    GraphicsConfiguration gc = getGraphicsConfiguration();
+    if (gc != null) {
+      int rate = gc.getDevice().getDisplayMode().getRefreshRate();
+      if (rate != DisplayMode.REFRESH_RATE_UNKNOWN) {
+        return rate;
+      }
+    }
+    return DEFAULT_REFRESH_RATE;
+  }
+}
@@ -4,30 +4,117 @@ import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Color;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.Transparency;
 import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import javax.swing.JPanel;
 
-import cs3500.animator.model.Motion;
+import cs3500.animator.model.Frame;
+import cs3500.animator.model.FrameCursor;
+import cs3500.animator.model.ModelListener;
 import cs3500.animator.model.ReadOnlyModel;
 
 /**
  * A class that draws the state of an animation represented by a model at one point in time.
+ * Layers that look as they did on the last paint are drawn from images of them, and moving to
+ * another frame only repaints the part of the panel that changes.
  */
 class AnimationPanel extends JPanel {
+  static final long DEFAULT_CACHE_BUDGET = 64L << 20; // in bytes
+  private static final int COLOR_CACHE_SIZE = 256; // must be a power of two
+  // runs of fewer shapes are drawn faster than an image of them
+  private static final int MIN_CACHED_SHAPES = 32;
+  // once the part of the panel that changes covers this much of it, all of it is repainted
+  private static final double FULL_REPAINT_FRACTION = 0.5;
+  // the transforms under which an image is drawn exactly as its shapes would be
+  private static final int CACHEABLE_TRANSFORMS = AffineTransform.TYPE_TRANSLATION
+          | AffineTransform.TYPE_UNIFORM_SCALE | AffineTransform.TYPE_GENERAL_SCALE;
+
   private final ReadOnlyModel model;
-  private int tick; // the moment in time of the model that the panel displays
+  // time and stale are shared with the model's listener, which may run on any thread
+  private volatile double time; // the moment in time of the model that the panel displays
+  private volatile boolean stale;
+  // INVARIANT: if stale is false, the panel shows the model's current frame at time
+  private FrameCursor cursor; // steps through the frames, built on the first repaint
+  private Frame supplied; // a frame computed elsewhere for time, drawn instead, or null
+  private final Color[] colors; // recently used colors, so that no Color is built per shape
+  private final LayerImageCache images; // null if no images are kept
+  // the description of each layer as last painted, LayerImageCache.ROW ints per shape, which
+  // is overwritten when the layer changes; a run of unchanged layers is likely to stay that
+  // way, so it is drawn once into an image and from the image on later paints
+  private final Map<String, int[]> lastPainted;
+  private final List<int[]> run; // the descriptions of a run of unchanged layers
+  private int[] runRows; // the descriptions of a run of several layers, one after another
+  private final LayerImageCache.Key probe; // looks up images without building a key each time
+  private final AffineTransform imageTransform; // the transform under which images are drawn
+  private final Rectangle clip; // the bounds of the part of the panel being painted
+  // the shapes of the frame last repainted, to find the part of the panel that the next frame
+  // changes: by handle, each shape's description (LayerImageCache.ROW ints), its box on the
+  // panel (left, top, right and bottom) and its position in the frame
+  private int[] trackedRows;
+  private int[] trackedBoxes;
+  private int[] trackedOrder;
+  private int[] trackedHandles; // the handles of the frame last repainted, in drawing order
+  private int trackedCount; // the number of shapes in that frame, or -1 to repaint everything
+  private int[] stamps; // by handle, the serial of the last frame tracked that held the shape
+  private int serial;
+  private int[] rotated; // the handles of the rotated shapes outside the part repainted
+  // changes reported by the model, on any thread, to be applied to the images when painting
+  private final ConcurrentLinkedQueue<int[]> editedShapes;
+  private volatile boolean layersEdited;
 
   /**
-   * Build a JPanel that draws the current state of an animation model.
+   * Build a JPanel that draws the current state of an animation model, keeping images of
+   * unchanging layers in up to DEFAULT_CACHE_BUDGET bytes.
    * @param model the model that is drawn
    */
   public AnimationPanel(ReadOnlyModel model) {
+    this(model, DEFAULT_CACHE_BUDGET);
+  }
+
+  /**
+   * Build a JPanel that draws the current state of an animation model.
+   * @param model the model that is drawn
+   * @param cacheBudget the most memory, in bytes, that images of unchanging layers may take, or
+   *     0 to draw every shape on every paint
+   * @throws IllegalArgumentException if the model is null or the budget is negative
+   */
+  AnimationPanel(ReadOnlyModel model, long cacheBudget) {
     if (model == null) {
       throw new IllegalArgumentException("Model must not be null");
     }
     this.model = model;
+    this.cursor = null;
+    this.stale = true;
+    this.colors = new Color[COLOR_CACHE_SIZE];
+    this.images = cacheBudget == 0 ? null : new LayerImageCache(cacheBudget);
+    this.lastPainted = new HashMap<>();
+    this.run = new ArrayList<>();
+    this.runRows = new int[0];
+    this.probe = new LayerImageCache.Key();
+    this.imageTransform = new AffineTransform();
+    this.clip = new Rectangle();
+    this.trackedRows = new int[0];
+    this.trackedBoxes = new int[0];
+    this.trackedOrder = new int[0];
+    this.trackedHandles = new int[0];
+    this.trackedCount = -1;
+    this.stamps = new int[0];
+    this.serial = 0;
+    this.rotated = new int[0];
+    this.editedShapes = new ConcurrentLinkedQueue<>();
+    this.layersEdited = false;
+    model.addListener(new StaleFrameListener());
     setPreferredSize(new Dimension(model.getWidth() + model.getX(),
             model.getHeight() + model.getY()));
   }
@@ -35,50 +122,639 @@ class AnimationPanel extends JPanel {
   @Override
   protected void paintComponent(Graphics g) {
     super.paintComponent(g);
+    drawFrame((Graphics2D) g, getWidth(), getHeight());
+  }
 
-    Graphics2D g2 = (Graphics2D) g;
+  /**
+   * Draw the scene at the given time on the given graphics, over the panel's background, for a
+   * display that draws its frames itself rather than through repaint. A panel drawn this way
+   * must not also be shown in a Swing component, and must always be drawn on the same thread.
+   * @param g2 the graphics to draw on
+   * @param time the point in time to draw, which may fall between two ticks
+   * @param width the width of the area to draw
+   * @param height the height of the area to draw
+   */
+  void render(Graphics2D g2, double time, int width, int height) {
+    this.time = time;
+    stale = false;
+    supplied = null;
+    g2.setColor(getBackground());
+    g2.fillRect(0, 0, width, height);
+    drawFrame(g2, width, height);
+  }
 
+  /**
+   * Draw all the shapes at the current time.
+   * @param g2 the graphics to draw on
+   * @param width the width of the area drawn on, outside which nothing is seen
+   * @param height the height of the area drawn on, outside which nothing is seen
+   */
+  private void drawFrame(Graphics2D g2, int width, int height) {
     AffineTransform originalTransform = g2.getTransform();
     //g2.translate(model.getX(), model.getY());
 
-    // draw all the shapes
-    for (String layer : model.getLayers()) {
-      for (String shape : model.getShapes(layer)) {
-        if (!model.getMotions(layer, shape).isEmpty()) { // if shape has no motions, don't draw it
-          try {
-            Motion state = model.getTransformationAt(layer, shape, tick).getStateAt(tick);
-            g2.setColor(new Color(state.getRed(), state.getGreen(), state.getBlue()));
-            g2.rotate(Math.PI * state.getRotation() / 180,
-                    state.getX() + (state.getWidth() / 2),
-                    state.getY() + (state.getHeight() / 2));
-            switch (model.getShapeType(layer, shape)) {
-              case "ellipse":
-                g2.fillOval(state.getX(), state.getY(), state.getWidth(), state.getHeight());
-                break;
-              case "rectangle":
-                g2.fillRect(state.getX(), state.getY(), state.getWidth(), state.getHeight());
-                break;
-              default:
-                throw new IllegalStateException("Invalid shape type");
-            }
-            g2.setTransform(originalTransform);
-          } catch (IllegalArgumentException e) {
-            // if the shape has no motion at the current tick, do not draw it.
-          }
+    // draw all the shapes on screen at the current time that cross the part being painted
+    Frame frame = getFrame();
+    clip.setBounds(Integer.MIN_VALUE / 2, Integer.MIN_VALUE / 2,
+            Integer.MAX_VALUE, Integer.MAX_VALUE); // left as it is if nothing is clipped
+    g2.getClipBounds(clip);
+    if (images == null || (originalTransform.getType() & ~CACHEABLE_TRANSFORMS) != 0) {
+      drawShapes(g2, frame, 0, frame.size(), originalTransform, clip);
+      return;
+    }
+    dropEditedImages();
+    run.clear(); // the unchanged layers since runStart
+    int runStart = 0;
+    for (int start = 0, end; start < frame.size(); start = end) {
+      String layer = frame.getLayer(start);
+      end = start + 1;
+      while (end < frame.size() && frame.getLayer(end).equals(layer)) {
+        end++;
+      }
+      int[] rows = lastPainted.get(layer);
+      if (rows != null && describes(rows, frame, start, end)) {
+        if (run.isEmpty()) {
+          runStart = start;
         }
+        run.add(rows);
+      } else {
+        lastPainted.put(layer, describe(rows, frame, start, end));
+        drawRun(g2, frame, runStart, start, originalTransform, width, height);
+        run.clear();
+        drawShapes(g2, frame, start, end, originalTransform, clip);
+      }
+    }
+    drawRun(g2, frame, runStart, frame.size(), originalTransform, width, height);
+  }
+
+  /**
+   * Draw the given shapes of a frame one by one.
+   * @param g2 the graphics to draw on
+   * @param frame the frame
+   * @param from the index of the first shape to draw
+   * @param to the index after the last shape to draw
+   * @param originalTransform the transform of the graphics, which is restored afterwards
+   * @param bounds the bounds of the part being painted, outside which shapes are skipped, or
+   *     null to draw every shape
+   */
+  private void drawShapes(Graphics2D g2, Frame frame, int from, int to,
+                          AffineTransform originalTransform, Rectangle bounds) {
+    for (int i = from; i < to; i++) {
+      if (bounds != null && !crosses(frame, i, bounds)) {
+        continue;
+      }
+      g2.setColor(getColor(frame.getRed(i), frame.getGreen(i), frame.getBlue(i)));
+      g2.rotate(Math.PI * frame.getRotation(i) / 180,
+              frame.getX(i) + (frame.getWidth(i) / 2),
+              frame.getY(i) + (frame.getHeight(i) / 2));
+      switch (frame.getShapeType(i)) {
+        case "ellipse":
+          g2.fillOval(frame.getX(i), frame.getY(i), frame.getWidth(i), frame.getHeight(i));
+          break;
+        case "rectangle":
+          g2.fillRect(frame.getX(i), frame.getY(i), frame.getWidth(i), frame.getHeight(i));
+          break;
+        default:
+          throw new IllegalStateException("Invalid shape type");
+      }
+      g2.setTransform(originalTransform);
+    }
+  }
+
+  /**
+   * Determine whether a shape may cross the given bounds, judging a rotated shape by a circle
+   * around it, which is quicker to find than its box.
+   * @param frame the frame
+   * @param i the index of the shape
+   * @param bounds the bounds
+   * @return false if the shape lies wholly outside the bounds
+   */
+  private static boolean crosses(Frame frame, int i, Rectangle bounds) {
+    int x = frame.getX(i);
+    int y = frame.getY(i);
+    int w = frame.getWidth(i);
+    int h = frame.getHeight(i);
+    double left = x;
+    double top = y;
+    double right = x + w;
+    double bottom = y + h;
+    if (frame.getRotation(i) % 360 != 0) {
+      // no corner is further from the center than the length of the diagonal
+      double radius = Math.hypot(w, h);
+      left = x + (w / 2) - radius;
+      top = y + (h / 2) - radius;
+      right = x + (w / 2) + radius;
+      bottom = y + (h / 2) + radius;
+    }
+    // a pixel more all round, for edges drawn into the pixels they touch
+    return right + 1 > bounds.x && left - 1 < (double) bounds.x + bounds.width
+            && bottom + 1 > bounds.y && top - 1 < (double) bounds.y + bounds.height;
+  }
+
+  /**
+   * Draw a run of layers that look as they did on the last paint, from a cached image of them
+   * if there is one, or else drawing them into a new image first. Short runs are drawn shape by
+   * shape.
+   * @param g2 the graphics to draw on, whose transform is only a scale and a translation
+   * @param frame the frame
+   * @param from the index of the first shape of the run
+   * @param to the index after the last shape of the run
+   * @param transform the transform of the graphics, only a scale and a translation
+   * @param width the width of the area drawn on
+   * @param height the height of the area drawn on
+   */
+  private void drawRun(Graphics2D g2, Frame frame, int from, int to, AffineTransform transform,
+                       int width, int height) {
+    if (run.isEmpty()) {
+      return;
+    }
+    if (to - from < MIN_CACHED_SHAPES) {
+      drawShapes(g2, frame, from, to, transform, clip);
+      return;
+    }
+    int[] rows = run.get(0);
+    int length = (to - from) * LayerImageCache.ROW;
+    if (run.size() > 1) {
+      if (runRows.length < length) {
+        runRows = new int[Math.max(length, runRows.length * 2)];
+      }
+      int offset = 0;
+      for (int[] layer : run) {
+        System.arraycopy(layer, 0, runRows, offset, layer.length);
+        offset += layer.length;
+      }
+      rows = runRows;
+    }
+    probe.set(rows, length, width, height, transform.getScaleX(), transform.getScaleY(),
+            transform.getTranslateX(), transform.getTranslateY());
+    LayerImageCache.Entry entry = images.get(probe);
+    if (entry == null) {
+      entry = drawImage(g2, frame, from, to, transform, width, height);
+      if (entry == null) {
+        return; // the run lies outside the panel
+      }
+    }
+    // the image was drawn for whole-pixel translation 0
+    imageTransform.setToTranslation(Math.floor(transform.getTranslateX()),
+            Math.floor(transform.getTranslateY()));
+    g2.setTransform(imageTransform);
+    g2.drawImage(entry.image, entry.x, entry.y, null);
+    g2.setTransform(transform);
+  }
+
+  /**
+   * Draw the given shapes into a new image of the part of the area drawn on that they cover,
+   * in device pixels, and keep the image in the cache under the probe key.
+   * @param g2 the graphics drawn on
+   * @param frame the frame
+   * @param from the index of the first shape to draw
+   * @param to the index after the last shape to draw
+   * @param transform the transform of the graphics, only a scale and a translation
+   * @param width the width of the area drawn on
+   * @param height the height of the area drawn on
+   * @return the image, or null if the shapes cover no part of the area
+   */
+  private LayerImageCache.Entry drawImage(Graphics2D g2, Frame frame, int from, int to,
+                                          AffineTransform transform, int width, int height) {
+    // a box in user space around all the shapes, as they may be rotated about their centers
+    double left = Double.MAX_VALUE;
+    double top = Double.MAX_VALUE;
+    double right = -Double.MAX_VALUE;
+    double bottom = -Double.MAX_VALUE;
+    for (int i = from; i < to; i++) {
+      int x = frame.getX(i);
+      int y = frame.getY(i);
+      int w = frame.getWidth(i);
+      int h = frame.getHeight(i);
+      if (frame.getRotation(i) % 360 == 0) {
+        left = Math.min(left, x);
+        top = Math.min(top, y);
+        right = Math.max(right, x + w);
+        bottom = Math.max(bottom, y + h);
+      } else {
+        // no corner is further from the center than the length of the diagonal
+        double radius = Math.hypot(w, h);
+        left = Math.min(left, x + (w / 2) - radius);
+        top = Math.min(top, y + (h / 2) - radius);
+        right = Math.max(right, x + (w / 2) + radius);
+        bottom = Math.max(bottom, y + (h / 2) + radius);
+      }
+    }
+    left = Math.max(left, 0);
+    top = Math.max(top, 0);
+    right = Math.min(right, width);
+    bottom = Math.min(bottom, height);
+    if (left >= right || top >= bottom) {
+      return null;
+    }
+
+    // the same box in device space, for whole-pixel translation 0, and a pixel more all round
+    double shiftX = transform.getTranslateX() - Math.floor(transform.getTranslateX());
+    double shiftY = transform.getTranslateY() - Math.floor(transform.getTranslateY());
+    int x = (int) Math.floor(left * transform.getScaleX() + shiftX) - 1;
+    int y = (int) Math.floor(top * transform.getScaleY() + shiftY) - 1;
+    int imageWidth = (int) Math.ceil(right * transform.getScaleX() + shiftX) + 1 - x;
+    int imageHeight = (int) Math.ceil(bottom * transform.getScaleY() + shiftY) + 1 - y;
+
+    GraphicsConfiguration gc = g2.getDeviceConfiguration();
+    BufferedImage image = gc == null
+            ? new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB_PRE)
+            : gc.createCompatibleImage(imageWidth, imageHeight, Transparency.TRANSLUCENT);
+    Graphics2D ig = image.createGraphics();
+    try {
+      ig.setRenderingHints(g2.getRenderingHints());
+      ig.setTransform(new AffineTransform(transform.getScaleX(), 0, 0, transform.getScaleY(),
+              shiftX - x, shiftY - y));
+      drawShapes(ig, frame, from, to, ig.getTransform(), null);
+    } finally {
+      ig.dispose();
+    }
+    return images.put(probe, image, x, y);
+  }
+
+  /**
+   * Describe the given shapes of a frame as in a LayerImageCache.Key.
+   * @param rows an array to overwrite with the description if it has the right length, or null
+   * @param frame the frame
+   * @param from the index of the first shape
+   * @param to the index after the last shape
+   * @return the description
+   */
+  private static int[] describe(int[] rows, Frame frame, int from, int to) {
+    if (rows == null || rows.length != (to - from) * LayerImageCache.ROW) {
+      rows = new int[(to - from) * LayerImageCache.ROW];
+    }
+    for (int i = from, r = 0; i < to; i++, r += LayerImageCache.ROW) {
+      describe(rows, r, frame, i);
+    }
+    return rows;
+  }
+
+  /**
+   * Determine whether the given description matches the given shapes of a frame.
+   * @param rows the description
+   * @param frame the frame
+   * @param from the index of the first shape
+   * @param to the index after the last shape
+   * @return true if describe would return the same description
+   */
+  private static boolean describes(int[] rows, Frame frame, int from, int to) {
+    if (rows.length != (to - from) * LayerImageCache.ROW) {
+      return false;
+    }
+    for (int i = from, r = 0; i < to; i++, r += LayerImageCache.ROW) {
+      if (!describes(rows, r, frame, i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Describe one shape of a frame as in a LayerImageCache.Key, in LayerImageCache.ROW ints.
+   * @param rows the array to write the description into
+   * @param offset the index of the description's first int in the array
+   * @param frame the frame
+   * @param i the index of the shape
+   */
+  private static void describe(int[] rows, int offset, Frame frame, int i) {
+    rows[offset] = frame.getHandle(i);
+    rows[offset + 1] = typeCode(frame.getShapeType(i));
+    rows[offset + 2] = frame.getX(i);
+    rows[offset + 3] = frame.getY(i);
+    rows[offset + 4] = frame.getWidth(i);
+    rows[offset + 5] = frame.getHeight(i);
+    rows[offset + 6] = frame.getRed(i);
+    rows[offset + 7] = frame.getGreen(i);
+    rows[offset + 8] = frame.getBlue(i);
+    rows[offset + 9] = frame.getRotation(i);
+  }
+
+  /**
+   * Determine whether the description at the given place in an array matches a shape.
+   * @param rows the array holding the description
+   * @param offset the index of the description's first int in the array
+   * @param frame the frame
+   * @param i the index of the shape
+   * @return true if describe would write the same description
+   */
+  private static boolean describes(int[] rows, int offset, Frame frame, int i) {
+    return rows[offset] == frame.getHandle(i)
+            && rows[offset + 1] == typeCode(frame.getShapeType(i))
+            && rows[offset + 2] == frame.getX(i)
+            && rows[offset + 3] == frame.getY(i)
+            && rows[offset + 4] == frame.getWidth(i)
+            && rows[offset + 5] == frame.getHeight(i)
+            && rows[offset + 6] == frame.getRed(i)
+            && rows[offset + 7] == frame.getGreen(i)
+            && rows[offset + 8] == frame.getBlue(i)
+            && rows[offset + 9] == frame.getRotation(i);
+  }
+
+  /**
+   * Find the number that stands for a shape type in a description.
+   * @param type the shape type
+   * @return the number
+   */
+  private static int typeCode(String type) {
+    switch (type) {
+      case "ellipse":
+        return 0;
+      case "rectangle":
+        return 1;
+      default:
+        throw new IllegalStateException("Invalid shape type");
+    }
+  }
+
+  /**
+   * Drop the images of the shapes that have been edited since the last paint.
+   */
+  private void dropEditedImages() {
+    if (layersEdited) {
+      layersEdited = false;
+      editedShapes.clear();
+      images.clear();
+      lastPainted.clear();
+      return;
+    }
+    BitSet edited = null;
+    for (int[] shapes = editedShapes.poll(); shapes != null; shapes = editedShapes.poll()) {
+      if (edited == null) {
+        edited = new BitSet();
+      }
+      for (int shape : shapes) {
+        edited.set(shape);
       }
     }
+    if (edited != null) {
+      images.remove(edited);
+    }
+  }
 
-    g2.setTransform(originalTransform);
+  /**
+   * Return a Color with the given components, reusing a previously built Color if possible.
+   * @param red the R component
+   * @param green the G component
+   * @param blue the B component
+   * @return the color
+   */
+  private Color getColor(int red, int green, int blue) {
+    int rgb = (red << 16) | (green << 8) | blue;
+    int slot = (rgb ^ (rgb >>> 8) ^ (rgb >>> 16)) & (COLOR_CACHE_SIZE - 1);
+    Color c = colors[slot];
+    if (c == null || (c.getRGB() & 0xFFFFFF) != rgb) {
+      c = new Color(rgb);
+      colors[slot] = c;
+    }
+    return c;
+  }
+
+  /**
+   * Find the memory taken by the images of unchanging layers that the panel keeps.
+   * @return the memory in bytes, which is 0 if the panel keeps no images
+   */
+  long getCacheSize() {
+    return images == null ? 0 : images.size();
+  }
+
+  /**
+   * Get the frame at the current time: the frame supplied for it, if any, or else the frame
+   * found by the cursor. Playback moves forward through time, which the cursor handles without
+   * searching the model.
+   * @return the frame at the current time
+   */
+  private Frame getFrame() {
+    if (supplied != null) {
+      if (!stale) {
+        return supplied;
+      }
+      // a stale frame may no longer match the model, whose frame is drawn instead, and which
+      // the next frame is not compared with
+      trackedCount = -1;
+    }
+    if (cursor == null) {
+      cursor = model.cursor((int) Math.floor(time));
+    }
+    return cursor.seekTime(time);
   }
 
   /**
    * Draw the scene of the animation described by the model at the given tick.
+   * Does nothing if the panel already shows that tick and no change to the model has touched
+   * it since, so that editing a keyframe elsewhere in the animation does not redraw the frame.
    * @param tick the point in time to draw.
    */
   public void paintTick(int tick) {
-    this.tick = tick;
-    repaint();
+    paintTime(tick);
+  }
+
+  /**
+   * Draw the scene of the animation at the given time, which may fall between two ticks, as
+   * paintTick does.
+   * @param time the point in time to draw
+   */
+  void paintTime(double time) {
+    if (time != this.time || stale || supplied != null) {
+      this.time = time;
+      stale = false;
+      supplied = null;
+      repaintChanges(getFrame());
+    }
+  }
+
+  /**
+   * Draw the given frame of the animation, computed elsewhere for the given time, instead of
+   * finding the frame at that time in the model. The panel draws the frame whenever it is
+   * repainted until it is told to draw something else, so the frame must not change until
+   * then.
+   * @param frame the frame
+   * @param time the time that the frame shows, which may fall between two ticks
+   * @throws IllegalArgumentException if the frame is null
+   */
+  void paintFrame(Frame frame, double time) {
+    if (frame == null) {
+      throw new IllegalArgumentException("Frame must not be null");
+    }
+    this.supplied = frame;
+    this.time = time;
+    stale = false;
+    repaintChanges(frame);
+  }
+
+  /**
+   * Repaint the part of the panel that differs between the frame last repainted and the given
+   * frame: the boxes around every shape that has moved or changed, where it was and where it
+   * is now, around every shape that has appeared, and where every shape that has gone was.
+   * Everything is repainted the first time, and when shapes that are in both frames are drawn
+   * in a different order, as when a layer has moved.
+   * @param frame the frame about to be painted
+   */
+  private void repaintChanges(Frame frame) {
+    serial++;
+    boolean all = trackedCount < 0;
+    int left = Integer.MAX_VALUE;
+    int top = Integer.MAX_VALUE;
+    int right = Integer.MIN_VALUE;
+    int bottom = Integer.MIN_VALUE;
+    int lastPosition = -1;
+    for (int i = 0; i < frame.size(); i++) {
+      int handle = frame.getHandle(i);
+      growTracking(handle);
+      stamps[handle] = serial;
+      int position = trackedOrder[handle];
+      boolean tracked = position < trackedCount && trackedHandles[position] == handle;
+      int row = handle * LayerImageCache.ROW;
+      int box = handle * 4;
+      if (tracked) {
+        if (position < lastPosition) {
+          all = true; // the shapes were drawn in a different order
+        }
+        lastPosition = position;
+        if (describes(trackedRows, row, frame, i)) {
+          continue;
+        }
+        left = Math.min(left, trackedBoxes[box]);
+        top = Math.min(top, trackedBoxes[box + 1]);
+        right = Math.max(right, trackedBoxes[box + 2]);
+        bottom = Math.max(bottom, trackedBoxes[box + 3]);
+      }
+      describe(trackedRows, row, frame, i);
+      findBox(frame, i, trackedBoxes, box);
+      left = Math.min(left, trackedBoxes[box]);
+      top = Math.min(top, trackedBoxes[box + 1]);
+      right = Math.max(right, trackedBoxes[box + 2]);
+      bottom = Math.max(bottom, trackedBoxes[box + 3]);
+    }
+    for (int i = 0; i < trackedCount; i++) {
+      int handle = trackedHandles[i];
+      if (stamps[handle] != serial) { // the shape has gone
+        int box = handle * 4;
+        left = Math.min(left, trackedBoxes[box]);
+        top = Math.min(top, trackedBoxes[box + 1]);
+        right = Math.max(right, trackedBoxes[box + 2]);
+        bottom = Math.max(bottom, trackedBoxes[box + 3]);
+      }
+    }
+
+    // the frame is now the one last repainted
+    if (trackedHandles.length < frame.size()) {
+      trackedHandles = new int[Math.max(frame.size(), trackedHandles.length * 2)];
+    }
+    for (int i = 0; i < frame.size(); i++) {
+      trackedHandles[i] = frame.getHandle(i);
+      trackedOrder[trackedHandles[i]] = i;
+    }
+    trackedCount = frame.size();
+
+    if (all) {
+      repaint();
+      return;
+    }
+    if (left >= right || top >= bottom) {
+      return;
+    }
+    // a rotated shape is drawn a pixel differently here and there along the edge of a clip that
+    // cuts through it, so the part repainted grows to take in every rotated shape it cuts. The
+    // part only grows, so a shape it has taken in is never looked at again
+    int outside = 0;
+    if (rotated.length < frame.size()) {
+      rotated = new int[Math.max(frame.size(), rotated.length * 2)];
+    }
+    for (int i = 0; i < frame.size(); i++) {
+      if (frame.getRotation(i) % 360 != 0) {
+        rotated[outside++] = frame.getHandle(i);
+      }
+    }
+    double fullArea = FULL_REPAINT_FRACTION * getWidth() * getHeight();
+    for (boolean grown = true; grown; ) {
+      if ((double) (right - left) * (bottom - top) >= fullArea) {
+        repaint();
+        return;
+      }
+      grown = false;
+      int kept = 0;
+      for (int k = 0; k < outside; k++) {
+        int box = rotated[k] * 4;
+        boolean inside = trackedBoxes[box] >= left && trackedBoxes[box + 2] <= right
+                && trackedBoxes[box + 1] >= top && trackedBoxes[box + 3] <= bottom;
+        if (inside) {
+          continue;
+        }
+        boolean crossing = trackedBoxes[box] < right && trackedBoxes[box + 2] > left
+                && trackedBoxes[box + 1] < bottom && trackedBoxes[box + 3] > top;
+        if (crossing) {
+          left = Math.min(left, trackedBoxes[box]);
+          top = Math.min(top, trackedBoxes[box + 1]);
+          right = Math.max(right, trackedBoxes[box + 2]);
+          bottom = Math.max(bottom, trackedBoxes[box + 3]);
+          grown = true;
+        } else {
+          rotated[kept++] = rotated[k];
+        }
+      }
+      outside = kept;
+    }
+    repaint(left, top, right - left, bottom - top);
+  }
+
+  /**
+   * Make room to track the shape with the given handle.
+   * @param handle the handle
+   */
+  private void growTracking(int handle) {
+    if (handle < stamps.length) {
+      return;
+    }
+    int length = Math.max(handle + 1, stamps.length * 2);
+    trackedRows = Arrays.copyOf(trackedRows, length * LayerImageCache.ROW);
+    trackedBoxes = Arrays.copyOf(trackedBoxes, length * 4);
+    trackedOrder = Arrays.copyOf(trackedOrder, length);
+    stamps = Arrays.copyOf(stamps, length);
+  }
+
+  /**
+   * Find the box on the panel that a shape of a frame covers, rotated as it is drawn about the
+   * point that drawShapes rotates it about, with a pixel more all round.
+   * @param frame the frame
+   * @param i the index of the shape
+   * @param boxes the array to write the left, top, right and bottom of the box into
+   * @param offset the index in the array of the left of the box
+   */
+  private static void findBox(Frame frame, int i, int[] boxes, int offset) {
+    int x = frame.getX(i);
+    int y = frame.getY(i);
+    int w = frame.getWidth(i);
+    int h = frame.getHeight(i);
+    double left = x;
+    double top = y;
+    double right = x + w;
+    double bottom = y + h;
+    if (frame.getRotation(i) % 360 != 0) {
+      double angle = Math.PI * frame.getRotation(i) / 180;
+      double cos = Math.cos(angle);
+      double sin = Math.sin(angle);
+      double centerX = x + (w / 2);
+      double centerY = y + (h / 2);
+      left = Double.MAX_VALUE;
+      top = Double.MAX_VALUE;
+      right = -Double.MAX_VALUE;
+      bottom = -Double.MAX_VALUE;
+      for (int corner = 0; corner < 4; corner++) {
+        double dx = (corner & 1) == 0 ? x - centerX : x + w - centerX;
+        double dy = (corner & 2) == 0 ? y - centerY : y + h - centerY;
+        double cornerX = centerX + dx * cos - dy * sin;
+        double cornerY = centerY + dx * sin + dy * cos;
+        left = Math.min(left, cornerX);
+        top = Math.min(top, cornerY);
+        right = Math.max(right, cornerX);
+        bottom = Math.max(bottom, cornerY);
+      }
+    }
+    boxes[offset] = (int) Math.floor(left) - 1;
+    boxes[offset + 1] = (int) Math.floor(top) - 1;
+    boxes[offset + 2] = (int) Math.ceil(right) + 1;
+    boxes[offset + 3] = (int) Math.ceil(bottom) + 1;
   }
 
   /**
@@ -86,15 +762,77 @@ class AnimationPanel extends JPanel {
    * @return the last tick
    */
   public int getMaxTick() {
-    int maxTick = Motion.START_TICK;
-    for (String layer : model.getLayers()) {
-      for (String shape : model.getShapes(layer)) {
-        List<Motion> motions = model.getMotions(layer, shape);
-        if (!motions.isEmpty()) {
-          maxTick = Math.max(maxTick, motions.get(motions.size() - 1).getTime());
-        }
+    return model.getLastTick();
+  }
+
+  /**
+   * Listens to the model and marks the drawn frame as stale whenever a change may have altered
+   * it. Keyframe changes that only touch other ticks leave the frame as it is.
+   */
+  private final class StaleFrameListener implements ModelListener {
+    @Override
+    public void layerDeleted(String layer) {
+      stale = true;
+      layersEdited = images != null;
+    }
+
+    @Override
+    public void layerMoved(String layer, int position) {
+      stale = true;
+      layersEdited = images != null;
+    }
+
+    @Override
+    public void shapeDeleted(String layer, String shape, int handle) {
+      stale = true;
+      shapesEdited(new int[] {handle});
+    }
+
+    @Override
+    public void keyframeAdded(int shape, int time, int fromTick, int toTick) {
+      keyframesChanged(fromTick, toTick);
+      shapesEdited(new int[] {shape});
+    }
+
+    @Override
+    public void keyframeEdited(int shape, int time, int fromTick, int toTick) {
+      keyframesChanged(fromTick, toTick);
+      shapesEdited(new int[] {shape});
+    }
+
+    @Override
+    public void keyframeDeleted(int shape, int time, int fromTick, int toTick) {
+      keyframesChanged(fromTick, toTick);
+      shapesEdited(new int[] {shape});
+    }
+
+    @Override
+    public void keyframesChanged(int[] shapes, int fromTick, int toTick) {
+      keyframesChanged(fromTick, toTick);
+      shapesEdited(shapes.clone());
+    }
+
+    /**
+     * Have the images of the given shapes dropped on the next paint.
+     * @param shapes the handles of the shapes, which this listener may keep
+     */
+    private void shapesEdited(int[] shapes) {
+      if (images != null) {
+        editedShapes.add(shapes);
+      }
+    }
+
+    /**
+     * Mark the drawn frame as stale if it depends on a tick in the given range: the tick it
+     * shows, or both ticks around the time it shows.
+     * @param fromTick the first tick whose frame may have changed
+     * @param toTick the last tick whose frame may have changed
+     */
+    private void keyframesChanged(int fromTick, int toTick) {
+      double shown = time;
+      if (fromTick <= Math.ceil(shown) && Math.floor(shown) <= toTick) {
+        stale = true;
       }
     }
-    return maxTick;
   }
 }
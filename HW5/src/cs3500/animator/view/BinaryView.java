@@ -0,0 +1,81 @@
+package cs3500.animator.view;
+
+import java.io.IOException;
+import java.util.List;
+
+import cs3500.animator.model.Motion;
+import cs3500.animator.model.ReadOnlyModel;
+import cs3500.animator.util.BinaryAnimationWriter;
+
+/**
+ * The class BinaryView represents a view that exports the animation described in an
+ * AnimationModel in the compact binary format of BinaryAnimationWriter.
+ */
+public class BinaryView implements AnimationView {
+  private Appendable output;
+  private ReadOnlyModel model;
+
+  /**
+   * setSpeed is unsupported in this view.
+   * @param speed ticks per second
+   * @throws UnsupportedOperationException if called
+   */
+  @Override
+  public void setSpeed(double speed) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException("BinaryView has no speed");
+  }
+
+  @Override
+  public void setOutput(Appendable output) {
+    if (output == null) {
+      throw new IllegalArgumentException("Output Appendable must not be null");
+    }
+    this.output = output;
+  }
+
+  @Override
+  public void setModel(ReadOnlyModel model) {
+    if (model == null) {
+      throw new IllegalArgumentException("Model must not be null");
+    }
+    if (this.model != null) {
+      throw new IllegalStateException("This view already has a model");
+    }
+    this.model = model;
+  }
+
+  /**
+   * Export the animation in the binary format: every layer from lowest to highest, and every
+   * shape of each layer with all of its keyframes. Each byte is written as the char with the
+   * same value, so the output must store chars as ISO-8859-1 bytes for the file to be read back.
+   * @throws IllegalStateException if the output cannot be written to the appendable
+   */
+  @Override
+  public void animate() {
+    if (output == null) {
+      throw new IllegalStateException("The output Appendable has not been set");
+    }
+    if (model == null) {
+      throw new IllegalStateException("The model has not been set");
+    }
+    BinaryAnimationWriter writer = new BinaryAnimationWriter(model.getX(), model.getY(),
+            model.getWidth(), model.getHeight());
+    for (String layer : model.getLayers()) {
+      writer.addLayer(layer);
+      for (String shape : model.getShapes(layer)) {
+        int handle = model.getHandle(layer, shape);
+        writer.addShape(shape, model.getShapeType(handle));
+        List<Motion> motions = model.getMotions(handle);
+        for (Motion m : motions) {
+          writer.addKeyframe(m.getTime(), m.getX(), m.getY(), m.getWidth(), m.getHeight(),
+                  m.getRed(), m.getGreen(), m.getBlue(), m.getRotation());
+        }
+      }
+    }
+    try {
+      writer.writeTo(output);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not write to the output");
+    }
+  }
+}
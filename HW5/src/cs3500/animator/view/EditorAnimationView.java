@@ -122,4 +122,22 @@ public interface EditorAnimationView extends AnimationView {
    * @param m the motion to set the text boxes to
    */
   void setEditFrameText(Motion m);
+
+  /**
+   * Show that the model is being loaded in the background and that more of the animation has
+   * arrived: bring the last tick and the lists of layers and shapes up to date with the model,
+   * keeping the user's selection, and show how much of the file has been read along with a
+   * way to cancel the load. May be called on any thread.
+   * @param fraction the fraction of the file read so far, between 0 and 1
+   */
+  void showLoadProgress(double fraction);
+
+  /**
+   * Stop showing the progress of a background load, which has finished, failed or been
+   * cancelled, after bringing the display up to date with the model one last time.
+   * May be called on any thread.
+   * @param message a message for the user, such as why the load failed, or null if the whole
+   *     file was loaded
+   */
+  void endLoadProgress(String message);
 }
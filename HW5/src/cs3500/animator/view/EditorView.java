@@ -20,9 +20,13 @@ import javax.swing.JList;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JProgressBar;
 import javax.swing.BoxLayout;
+import javax.swing.ListModel;
+import javax.swing.SwingUtilities;
 
 import cs3500.animator.controller.Features;
+import cs3500.animator.model.Frame;
 import cs3500.animator.model.Motion;
 import cs3500.animator.model.ReadOnlyModel;
 
@@ -31,14 +35,19 @@ import cs3500.animator.model.ReadOnlyModel;
  */
 public class EditorView extends JFrame implements EditorAnimationView {
   private static String CAPTION = "Animation editor";
+  private static final int PROGRESS_STEPS = 1000; // the resolution of the load progress bar
 
+  private ReadOnlyModel model;
   private AnimationPanel animationPanel;
   private double speed;
   private boolean playing;
   private Timer timer;
-  // INVARIANT: the delay equals 1000 / speed
+  // INVARIANT: the delay equals FramePacer.FRAME_DELAY
+  // computes the frames shown while playing on a thread of its own, built with the model
+  private FramePipeline pipeline;
   private int tick;
-  // INVARIANT: if animationPanel exists, it displays the current tick
+  // INVARIANT: if animationPanel exists, it displays the current tick, or while playing a time
+  // within the current tick
   private boolean looping;
   private int maxTick;
   // INVARIANT: equals the time of the last keyframe in the model.
@@ -72,9 +81,13 @@ public class EditorView extends JFrame implements EditorAnimationView {
   private final JTextField saveFileName;
   private final JButton saveSVG;
   private final JButton saveText;
+  private final JButton saveBinary;
   private final JButton load;
   private final JTextField loadInfo;
   private final JLabel errorDisplay;
+  private final JProgressBar loadProgress; // only visible while a file is being loaded
+  private final JButton cancelLoad;
+  private boolean updatingLists; // true while the lists are refreshed, not changed by the user
 
   private EditShapeDialogFactory editFactory;
   private EditShapeDialog editDialog; // if there is no dialog, this will be null.
@@ -112,13 +125,25 @@ public class EditorView extends JFrame implements EditorAnimationView {
     saveFileName = new JTextField(10);
     saveSVG = new JButton("save to SVG");
     saveText = new JButton("save to text");
+    saveBinary = new JButton("save to binary");
     load = new JButton("load");
     loadInfo = new JTextField(10);
     errorDisplay = new JLabel("No errors yet :)");
+    loadProgress = new JProgressBar(0, PROGRESS_STEPS);
+    cancelLoad = new JButton("cancel load");
+    loadProgress.setStringPainted(true);
+    loadProgress.setVisible(false);
+    cancelLoad.setVisible(false);
 
-    timer = new Timer((int) Math.round((1000 / speed)), (ActionEvent e) -> {
+    timer = new Timer(FramePacer.FRAME_DELAY, (ActionEvent e) -> {
       if (playing) {
-        incrementTick();
+        // show the latest frame that the pipeline has ready for the time reached, if any
+        Frame frame = pipeline.take(System.nanoTime());
+        if (frame != null) {
+          tick = frame.getTick();
+          showCurrentTick();
+          animationPanel.paintFrame(frame, pipeline.getShownTime());
+        }
       }
     });
 
@@ -171,8 +196,11 @@ public class EditorView extends JFrame implements EditorAnimationView {
     saveBar.add(saveFileName);
     saveBar.add(saveSVG);
     saveBar.add(saveText);
+    saveBar.add(saveBinary);
     saveBar.add(loadInfo);
     saveBar.add(load);
+    saveBar.add(loadProgress);
+    saveBar.add(cancelLoad);
 
     add(saveBar, BorderLayout.PAGE_START);
   }
@@ -192,7 +220,9 @@ public class EditorView extends JFrame implements EditorAnimationView {
     if (editFactory == null) {
       throw new IllegalStateException("Must set features before setting the model");
     }
+    this.model = model;
     this.animationPanel = new AnimationPanel(model);
+    this.pipeline = new FramePipeline(model, FramePipeline.DEFAULT_CAPACITY);
     add(animationPanel, BorderLayout.CENTER);
     updateMaxTick();
     drawCurrentTick();
@@ -218,20 +248,51 @@ public class EditorView extends JFrame implements EditorAnimationView {
     timer.start();
   }
 
+  /**
+   * Stop playing and close the window, ending the thread that computes its frames.
+   */
+  @Override
+  public void dispose() {
+    timer.stop();
+    if (pipeline != null) {
+      pipeline.close();
+    }
+    super.dispose();
+  }
+
   @Override
   public void drawCurrentTick() {
     animationPanel.paintTick(tick);
+    showCurrentTick();
+  }
+
+  /**
+   * Show the current tick in the tick label and on the slider.
+   */
+  private void showCurrentTick() {
     tickLabel.setText(Integer.toString(tick));
     scrub.setValue(tick);
   }
 
+  /**
+   * Start the pipeline over from the given time, if the animation is playing.
+   * @param time the time to play from
+   */
+  private void replay(double time) {
+    if (playing && pipeline != null) {
+      pipeline.play(time, speed, looping, System.nanoTime());
+    }
+  }
+
   @Override
   public void setSpeed(double speed) {
     if (speed <= 0) {
       throw new IllegalArgumentException("Speed must be positive");
     }
     this.speed = speed;
-    timer.setDelay((int) Math.round(1000 / speed));
+    if (pipeline != null) {
+      replay(pipeline.getShownTime());
+    }
   }
 
   /**
@@ -250,12 +311,20 @@ public class EditorView extends JFrame implements EditorAnimationView {
   public void togglePlay() {
     playing = !playing;
     play.setSelected(playing);
+    if (playing) {
+      replay(tick);
+    } else if (pipeline != null) {
+      pipeline.stop();
+    }
   }
 
   @Override
   public void pause() {
     playing = false;
     play.setSelected(playing);
+    if (pipeline != null) {
+      pipeline.stop();
+    }
   }
 
   @Override
@@ -295,6 +364,7 @@ public class EditorView extends JFrame implements EditorAnimationView {
   public void setTick(int tick) {
     this.tick = tick;
     drawCurrentTick();
+    replay(tick);
   }
 
   /**
@@ -314,6 +384,9 @@ public class EditorView extends JFrame implements EditorAnimationView {
   public void toggleLoop() {
     looping = !looping;
     loop.setSelected(looping);
+    if (pipeline != null) {
+      replay(pipeline.getShownTime());
+    }
   }
 
   @Override
@@ -379,6 +452,73 @@ public class EditorView extends JFrame implements EditorAnimationView {
     editDialog.setEditFrameText(m);
   }
 
+  @Override
+  public void showLoadProgress(double fraction) {
+    SwingUtilities.invokeLater(() -> {
+      loadProgress.setValue((int) Math.round(fraction * PROGRESS_STEPS));
+      loadProgress.setVisible(true);
+      cancelLoad.setVisible(true);
+      refreshFromModel();
+    });
+  }
+
+  @Override
+  public void endLoadProgress(String message) {
+    SwingUtilities.invokeLater(() -> {
+      loadProgress.setVisible(false);
+      cancelLoad.setVisible(false);
+      refreshFromModel();
+      if (message != null) {
+        displayErrorMessage(message);
+      }
+    });
+  }
+
+  /**
+   * Bring the last tick, the lists of layers and shapes and the drawn frame up to date with a
+   * model that has changed without this view being told how, such as while it is being loaded.
+   * The selected layer and shape stay selected, and lists that have not changed are left alone.
+   */
+  private void refreshFromModel() {
+    updateMaxTick();
+    String selectedLayer = layers.getSelectedValue();
+    String selectedShape = shapes.getSelectedValue();
+    updatingLists = true;
+    try {
+      List<String> layerNames = model.getLayers();
+      if (!layerNames.equals(contents(layers.getModel()))) {
+        layers.setListData(layerNames.toArray(new String[0]));
+        layers.setSelectedValue(selectedLayer, false);
+      }
+      String layer = layers.getSelectedValue();
+      if (layer != null) {
+        List<String> shapeNames = model.getShapes(layer);
+        if (!shapeNames.equals(contents(shapes.getModel()))) {
+          shapes.setListData(shapeNames.toArray(new String[0]));
+          shapes.setSelectedValue(selectedShape, false);
+        }
+      } else if (shapes.getModel().getSize() > 0) {
+        shapes.setListData(new String[0]); // the selected layer is gone
+      }
+    } finally {
+      updatingLists = false;
+    }
+    drawCurrentTick();
+  }
+
+  /**
+   * List the elements of a list's model.
+   * @param list the list's model
+   * @return the elements in order
+   */
+  private static List<String> contents(ListModel<String> list) {
+    List<String> elements = new ArrayList<>(list.getSize());
+    for (int i = 0; i < list.getSize(); i++) {
+      elements.add(list.getElementAt(i));
+    }
+    return elements;
+  }
+
   @Override
   public void save(String text) {
     if (text == null) {
@@ -425,7 +565,11 @@ public class EditorView extends JFrame implements EditorAnimationView {
     });
 
     // layer editing controls
-    layers.addListSelectionListener(evt -> features.showShapeList(layers.getSelectedValue()));
+    layers.addListSelectionListener(evt -> {
+      if (!updatingLists) {
+        features.showShapeList(layers.getSelectedValue());
+      }
+    });
     moveLayerBack.addActionListener(evt ->
             features.moveLayer(layers.getSelectedValue(), layers.getSelectedIndex() - 1));
     moveLayerForwards.addActionListener(evt ->
@@ -444,7 +588,9 @@ public class EditorView extends JFrame implements EditorAnimationView {
     // saving controls
     saveSVG.addActionListener(evt -> features.save(speed, "svg", saveFileName.getText()));
     saveText.addActionListener(evt -> features.save(speed, "text", saveFileName.getText()));
+    saveBinary.addActionListener(evt -> features.save(speed, "binary", saveFileName.getText()));
     load.addActionListener(evt -> features.load(loadInfo.getText()));
+    cancelLoad.addActionListener(evt -> features.cancelLoad());
 
     // text fields
     fps.addActionListener(evt -> features.setSpeedToUserInput(fps.getText()));
@@ -141,4 +141,14 @@ public class EditorViewWrapper implements EditorAnimationView {
   public void setEditFrameText(Motion m) {
     throw new UnsupportedOperationException(ERROR_MESSAGE);
   }
+
+  @Override
+  public void showLoadProgress(double fraction) {
+    throw new UnsupportedOperationException(ERROR_MESSAGE);
+  }
+
+  @Override
+  public void endLoadProgress(String message) {
+    throw new UnsupportedOperationException(ERROR_MESSAGE);
+  }
 }
@@ -0,0 +1,82 @@
+package cs3500.animator.view;
+
+/**
+ * Counts the ticks of an animation playing at a given speed from the time that has really
+ * passed, as told by System.nanoTime, rather than from the number of times a timer has fired.
+ */
+final class FramePacer {
+  // the delay for Swing timers that draw a frame each time they fire: about one refresh of a
+  // display, below which Swing timers are not precise anyway
+  static final int FRAME_DELAY = 1000 / 60; // in ms
+  private static final double NANOS_PER_SECOND = 1e9;
+
+  private double speed; // in ticks per second
+  private long start; // the time from which ticks are counted, from System.nanoTime
+  private long counted; // the ticks due since start that have been handed out
+
+  /**
+   * Build a pacer that starts counting now.
+   * @param speed the speed of the animation in ticks per second
+   * @throws IllegalArgumentException if the speed is not positive
+   */
+  FramePacer(double speed) {
+    if (!(speed > 0)) {
+      throw new IllegalArgumentException("Speed must be positive");
+    }
+    this.speed = speed;
+    restart(System.nanoTime());
+  }
+
+  /**
+   * Start counting ticks again from the given time, dropping any part of a tick already
+   * counted, as when playback resumes after a pause.
+   * @param now the time, from System.nanoTime
+   */
+  void restart(long now) {
+    start = now;
+    counted = 0;
+  }
+
+  /**
+   * Change the speed from the given time on. Ticks due before that time stay due.
+   * @param speed the new speed in ticks per second
+   * @param now the time, from System.nanoTime
+   * @throws IllegalArgumentException if the speed is not positive
+   */
+  void setSpeed(double speed, long now) {
+    if (!(speed > 0)) {
+      throw new IllegalArgumentException("Speed must be positive");
+    }
+    // the fraction of a tick counted so far carries over to the new speed
+    double elapsed = (now - start) * this.speed / NANOS_PER_SECOND;
+    double fraction = elapsed - Math.floor(elapsed);
+    long owed = (long) Math.floor(elapsed) - counted;
+    this.speed = speed;
+    this.start = now - (long) (fraction * NANOS_PER_SECOND / speed);
+    this.counted = -owed;
+  }
+
+  /**
+   * Find how many ticks have become due since the last call, or since counting started. When
+   * calls fall behind, the ticks missed are all due at once, to be skipped rather than played
+   * late.
+   * @param now the time, from System.nanoTime
+   * @return the number of ticks, which is 0 if less than a tick has passed
+   */
+  int ticksDue(long now) {
+    long total = (long) ((now - start) * speed / NANOS_PER_SECOND);
+    long due = Math.max(0, total - counted);
+    counted += due;
+    return (int) Math.min(due, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Find how far the animation is into the tick after the last tick handed out by ticksDue.
+   * @param now the time, from System.nanoTime, usually the time just given to ticksDue
+   * @return the part of a tick that has passed, from 0 up to but not including 1
+   */
+  double fraction(long now) {
+    double fraction = (now - start) * speed / NANOS_PER_SECOND - counted;
+    return Math.max(0, Math.min(fraction, Math.nextDown(1.0)));
+  }
+}
@@ -0,0 +1,398 @@
+package cs3500.animator.view;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import cs3500.animator.model.ConcurrentAnimationModel;
+import cs3500.animator.model.Frame;
+import cs3500.animator.model.FrameCursor;
+import cs3500.animator.model.Motion;
+import cs3500.animator.model.ModelListener;
+import cs3500.animator.model.ReadOnlyModel;
+
+/**
+ * Computes the frames of a playing animation on a thread of its own, a few display refreshes
+ * ahead of the display that shows them. Only a ConcurrentAnimationModel is read off the display's
+ * thread; the frames of any other model are computed as the display takes them.
+ */
+final class FramePipeline {
+  static final int DEFAULT_CAPACITY = 4; // in frames
+  // playback is divided into slots of this much real time, each showing the animation at the
+  // time reached at its start
+  private static final long SLOT_NANOS = TimeUnit.MILLISECONDS.toNanos(FramePacer.FRAME_DELAY);
+  private static final double NANOS_PER_SECOND = 1e9;
+
+  private final ReadOnlyModel model;
+  private final boolean background; // true if the frames are computed by the worker
+  private final LongSupplier clock; // the worker's System.nanoTime
+  private final ModelListener listener;
+  private final Object lock; // guards everything below, which the worker shares
+  private final Frame[] frames; // the ring: slot s is kept at s % length
+  private final long[] slots; // the slot of each frame in the ring, or -1 if it has none
+  private final double[] times; // the time of the animation in each frame
+  private Thread worker; // started on the first play
+  private boolean playing;
+  private boolean closed;
+  private boolean finished; // the last tick of a non-looping animation has been computed
+  private long generation; // counts the times the frames were dropped
+  private long start; // the start of slot 0, from System.nanoTime
+  private double startTime; // the time of the animation at the start of slot 0
+  private double speed; // in ticks per second
+  private boolean looping;
+  private long next; // the next slot for the worker to compute
+  private long shownSlot; // the slot of the frame last taken by the display
+  private Frame shown; // the frame last taken by the display, which the display keeps
+  private double shownTime;
+  private FrameCursor cursor; // computes the frames the display takes, unless background
+
+  /**
+   * Build a pipeline for the given model, which stays idle until play is called.
+   * @param model the model whose frames are computed
+   * @param capacity the number of frames in the ring, at least 2
+   * @throws IllegalArgumentException if the model is null or the capacity is less than 2
+   */
+  FramePipeline(ReadOnlyModel model, int capacity) {
+    this(model, capacity, System::nanoTime);
+  }
+
+  /**
+   * Build a pipeline for the given model whose worker reads the time from the given clock.
+   * @param model the model whose frames are computed
+   * @param capacity the number of frames in the ring, at least 2
+   * @param clock the clock, counting nanoseconds as System.nanoTime does
+   * @throws IllegalArgumentException if the model or clock is null or the capacity is less
+   *     than 2
+   */
+  FramePipeline(ReadOnlyModel model, int capacity, LongSupplier clock) {
+    if (model == null) {
+      throw new IllegalArgumentException("Model must not be null");
+    }
+    if (capacity < 2) {
+      throw new IllegalArgumentException("The pipeline must hold at least 2 frames");
+    }
+    if (clock == null) {
+      throw new IllegalArgumentException("Clock must not be null");
+    }
+    this.model = model;
+    this.background = model instanceof ConcurrentAnimationModel;
+    this.clock = clock;
+    this.lock = new Object();
+    this.frames = new Frame[capacity];
+    for (int i = 0; i < capacity; i++) {
+      frames[i] = new Frame();
+    }
+    this.slots = new long[capacity];
+    Arrays.fill(slots, -1);
+    this.times = new double[capacity];
+    this.shown = new Frame();
+    this.playing = false;
+    this.closed = false;
+    this.listener = new FlushingListener();
+    model.addListener(listener);
+  }
+
+  /**
+   * Start computing frames from the given time, dropping any computed before.
+   * @param time the time of the animation to play from, shown from now
+   * @param speed the speed of the animation in ticks per second
+   * @param looping true if the animation goes back to its first tick after its last one, false
+   *     if it stops at its last tick
+   * @param now the time, from System.nanoTime
+   * @throws IllegalArgumentException if the speed is not positive
+   * @throws IllegalStateException if the pipeline has been closed
+   */
+  void play(double time, double speed, boolean looping, long now) {
+    if (!(speed > 0)) {
+      throw new IllegalArgumentException("Speed must be positive");
+    }
+    synchronized (lock) {
+      if (closed) {
+        throw new IllegalStateException("The pipeline has been closed");
+      }
+      this.start = now;
+      this.startTime = time;
+      this.speed = speed;
+      this.looping = looping;
+      this.playing = true;
+      this.shownSlot = -1;
+      this.shownTime = time;
+      flush();
+      if (background && worker == null) {
+        worker = new Thread(this::computeFrames, "Frame pipeline");
+        worker.setDaemon(true);
+        worker.start();
+      }
+    }
+  }
+
+  /**
+   * Stop computing frames, dropping any computed so far.
+   */
+  void stop() {
+    synchronized (lock) {
+      playing = false;
+      flush();
+    }
+  }
+
+  /**
+   * Stop computing frames for good, ending the worker and no longer listening to the model.
+   * Closing a closed pipeline does nothing.
+   */
+  void close() {
+    Thread ended;
+    synchronized (lock) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      playing = false;
+      flush();
+      ended = worker;
+    }
+    model.removeListener(listener);
+    if (ended != null) {
+      ended.interrupt();
+    }
+  }
+
+  /**
+   * Take the latest frame computed for a slot that has started by the given time, if it is
+   * later than the frame taken last. The frame stays unchanged until the next call to take,
+   * and the frame taken before it goes back to the ring. If the model is not read in the
+   * background, the frame is computed here.
+   * @param now the time, from System.nanoTime
+   * @return the frame, or null if no later frame is ready
+   */
+  Frame take(long now) {
+    synchronized (lock) {
+      if (!playing) {
+        return null;
+      }
+      long due = slotAt(now);
+      if (!background) {
+        return computeShown(due);
+      }
+      int best = -1;
+      for (int i = 0; i < slots.length; i++) {
+        if (slots[i] > shownSlot && slots[i] <= due && (best < 0 || slots[i] > slots[best])) {
+          best = i;
+        }
+      }
+      if (best < 0) {
+        return null;
+      }
+      Frame frame = frames[best];
+      frames[best] = shown;
+      shown = frame;
+      shownSlot = slots[best];
+      shownTime = times[best];
+      slots[best] = -1;
+      lock.notifyAll(); // the worker may have been waiting for room
+      return frame;
+    }
+  }
+
+  /**
+   * Find the time of the animation in the frame last taken, or the time played from if none
+   * has been taken since.
+   * @return the time
+   */
+  double getShownTime() {
+    synchronized (lock) {
+      return shownTime;
+    }
+  }
+
+  /**
+   * Compute the frame of the given slot into the frame shown, if the slot is later than the
+   * one shown and the animation has not finished. Must be called holding the lock.
+   * @param slot the slot
+   * @return the frame shown, or null if it was not computed
+   */
+  private Frame computeShown(long slot) {
+    if (slot <= shownSlot || finished) {
+      return null;
+    }
+    double played = startTime + slot * speed * SLOT_NANOS / NANOS_PER_SECOND;
+    int lastTick = model.getLastTick();
+    double time = timeline(played, lastTick);
+    if (cursor == null) {
+      cursor = model.cursor((int) Math.floor(time));
+    }
+    shown.copyFrom(cursor.seekTime(time));
+    shownSlot = slot;
+    shownTime = time;
+    finished = isLast(played, lastTick);
+    return shown;
+  }
+
+  /**
+   * Find whether the frame for the given time played is the last of the animation.
+   * @param played the time played
+   * @param lastTick the last tick of the animation
+   * @return true if no frames follow it
+   */
+  private boolean isLast(double played, int lastTick) {
+    // a looping animation never ends, unless it has no ticks to go back to
+    return played >= lastTick && !(looping && lastTick >= Motion.START_TICK);
+  }
+
+  /**
+   * Drop every frame in the ring, and have the worker compute them again from the slot after
+   * the one shown. Must be called holding the lock.
+   */
+  private void flush() {
+    generation++;
+    Arrays.fill(slots, -1);
+    next = shownSlot + 1;
+    finished = false;
+    lock.notifyAll();
+  }
+
+  /**
+   * Find the slot that has started by the given time.
+   * @param now the time, from System.nanoTime
+   * @return the slot, which is -1 before slot 0 has started
+   */
+  private long slotAt(long now) {
+    return Math.floorDiv(now - start, SLOT_NANOS);
+  }
+
+  /**
+   * Compute frames while the animation plays, and wait otherwise. Runs on the worker thread.
+   */
+  private void computeFrames() {
+    FrameCursor cursor = null;
+    Frame computed = new Frame();
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        long slot;
+        long computedGeneration;
+        double played; // the time of the animation at the slot, before looping or stopping
+        synchronized (lock) {
+          slot = nextSlot();
+          computedGeneration = generation;
+          played = startTime + slot * speed * SLOT_NANOS / NANOS_PER_SECOND;
+        }
+        int lastTick = model.getLastTick();
+        double time = timeline(played, lastTick);
+        if (cursor == null) {
+          cursor = model.cursor((int) Math.floor(time));
+        }
+        computed.copyFrom(cursor.seekTime(time));
+        synchronized (lock) {
+          if (computedGeneration == generation) { // nothing was dropped in the meantime
+            int index = (int) (slot % frames.length);
+            Frame free = frames[index];
+            frames[index] = computed;
+            computed = free;
+            slots[index] = slot;
+            times[index] = time;
+            next = slot + 1;
+            finished = isLast(played, lastTick);
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      // the worker has no one to report to, and simply ends
+    }
+  }
+
+  /**
+   * Wait until there is a slot for the worker to compute, and find it. Must be called holding
+   * the lock.
+   * @return the slot
+   * @throws InterruptedException if the worker is interrupted while waiting, or the pipeline
+   *     has been closed
+   */
+  private long nextSlot() throws InterruptedException {
+    while (true) {
+      if (closed) {
+        throw new InterruptedException();
+      }
+      if (!playing || finished) {
+        lock.wait();
+        continue;
+      }
+      long now = clock.getAsLong();
+      long due = slotAt(now);
+      next = Math.max(next, due); // slots already past are not worth computing
+      if (next < due + frames.length - 1) {
+        return next;
+      }
+      // the slots from next - frames.length + 1 on are still to be shown, so wait for the
+      // first of them to start before overwriting it
+      long wait = start + (next - frames.length + 2) * SLOT_NANOS - now;
+      TimeUnit.NANOSECONDS.timedWait(lock, Math.max(wait, 1));
+    }
+  }
+
+  /**
+   * Find the time of the animation to show for the given time played, going back to the first
+   * tick after the last if looping, or staying at the last tick if not.
+   * @param played the time played
+   * @param lastTick the last tick of the animation
+   * @return the time to show
+   */
+  private double timeline(double played, int lastTick) {
+    int range = lastTick - Motion.START_TICK + 1;
+    if (looping && range > 0) {
+      double offset = (played - Motion.START_TICK) % range;
+      return Motion.START_TICK + (offset < 0 ? offset + range : offset);
+    }
+    return Math.max(Motion.START_TICK, Math.min(played, lastTick));
+  }
+
+  /**
+   * Drops the computed frames whenever the model changes in a way that may change a frame.
+   */
+  private final class FlushingListener implements ModelListener {
+    @Override
+    public void layerDeleted(String layer) {
+      modelChanged();
+    }
+
+    @Override
+    public void layerMoved(String layer, int position) {
+      modelChanged();
+    }
+
+    @Override
+    public void shapeDeleted(String layer, String shape, int handle) {
+      modelChanged();
+    }
+
+    @Override
+    public void keyframeAdded(int shape, int time, int fromTick, int toTick) {
+      modelChanged();
+    }
+
+    @Override
+    public void keyframeEdited(int shape, int time, int fromTick, int toTick) {
+      modelChanged();
+    }
+
+    @Override
+    public void keyframeDeleted(int shape, int time, int fromTick, int toTick) {
+      modelChanged();
+    }
+
+    @Override
+    public void keyframesChanged(int[] shapes, int fromTick, int toTick) {
+      modelChanged();
+    }
+
+    /**
+     * Drop the computed frames, if the animation is playing.
+     */
+    private void modelChanged() {
+      synchronized (lock) {
+        if (playing) {
+          flush();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,253 @@
+package cs3500.animator.view;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Images of groups of shapes, each drawn once and kept, within a memory budget, to be drawn
+ * again as long as the group looks the same. An image is found by the exact content of its
+ * group, so it never shows anything but what drawing its shapes would show.
+ */
+final class LayerImageCache {
+  // the length of the description of one shape in a key: its handle, type, position, size,
+  // color and rotation
+  static final int ROW = 10;
+  private static final int BYTES_PER_PIXEL = 4;
+
+  private final long budget;
+  private final LinkedHashMap<Key, Entry> entries;
+  private long bytes;
+
+  /**
+   * Build an empty cache.
+   * @param budget the most memory that the images may take, in bytes
+   * @throws IllegalArgumentException if the budget is negative
+   */
+  LayerImageCache(long budget) {
+    if (budget < 0) {
+      throw new IllegalArgumentException("The cache budget must not be negative");
+    }
+    this.budget = budget;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true); // in order of last use
+    this.bytes = 0;
+  }
+
+  /**
+   * Find the image drawn for the given key, and mark it as just used.
+   * @param key the key, which the cache does not keep
+   * @return the image, or null if there is none
+   */
+  Entry get(Key key) {
+    return entries.get(key);
+  }
+
+  /**
+   * Keep the given image for the given key, dropping the least recently used images until all
+   * of them fit in the budget. An image larger than the whole budget is not kept.
+   * @param key the key, of which the cache keeps a copy
+   * @param image the image of the key's shapes
+   * @param x the x coordinate in device space of the image's left edge, leaving out the whole
+   *     pixels of the key's translation
+   * @param y the y coordinate in device space of the image's top edge, leaving out the whole
+   *     pixels of the key's translation
+   * @return the entry of the image
+   */
+  Entry put(Key key, BufferedImage image, int x, int y) {
+    Entry entry = new Entry(image, x, y, key.handles());
+    if (entry.size() > budget) {
+      return entry;
+    }
+    Entry old = entries.put(key.copy(), entry);
+    if (old != null) {
+      bytes -= old.size();
+    }
+    bytes += entry.size();
+    Iterator<Entry> oldest = entries.values().iterator();
+    while (bytes > budget) {
+      bytes -= oldest.next().size();
+      oldest.remove();
+    }
+    return entry;
+  }
+
+  /**
+   * Drop the images that show any of the given shapes.
+   * @param shapes the handles of the shapes
+   */
+  void remove(BitSet shapes) {
+    Iterator<Entry> it = entries.values().iterator();
+    while (it.hasNext()) {
+      Entry entry = it.next();
+      for (int shape : entry.handles) {
+        if (shapes.get(shape)) {
+          bytes -= entry.size();
+          it.remove();
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Drop all images.
+   */
+  void clear() {
+    entries.clear();
+    bytes = 0;
+  }
+
+  /**
+   * Find the memory taken by the images.
+   * @return the memory in bytes
+   */
+  long size() {
+    return bytes;
+  }
+
+  /**
+   * The content of a group of shapes, and the device space it is drawn in. The transform is
+   * kept only up to whole device pixels of translation, which move a drawing without changing
+   * it.
+   * A key is changed by set, which must not be called on a key in the cache.
+   */
+  static final class Key {
+    private int[] rows; // ROW ints per shape, in the first length ints
+    private int length;
+    private int width; // of the panel
+    private int height;
+    private double scaleX;
+    private double scaleY;
+    private double shiftX; // the fractional parts of the translation
+    private double shiftY;
+    private int hash;
+
+    /**
+     * Build a key of no shapes, to be set before use.
+     */
+    Key() {
+      this.rows = new int[0];
+    }
+
+    /**
+     * Make this key describe the given shapes in the given device space. The key uses the
+     * array as it is, without copying it.
+     * @param rows the description of the shapes, ROW ints each, starting with the handle
+     * @param length the number of ints of the array that describe the shapes
+     * @param width the width of the panel
+     * @param height the height of the panel
+     * @param scaleX the horizontal scale from user space to device space
+     * @param scaleY the vertical scale from user space to device space
+     * @param translateX the horizontal translation from user space to device space
+     * @param translateY the vertical translation from user space to device space
+     */
+    void set(int[] rows, int length, int width, int height, double scaleX, double scaleY,
+             double translateX, double translateY) {
+      this.rows = rows;
+      this.length = length;
+      this.width = width;
+      this.height = height;
+      this.scaleX = scaleX;
+      this.scaleY = scaleY;
+      this.shiftX = translateX - Math.floor(translateX);
+      this.shiftY = translateY - Math.floor(translateY);
+      int h = 1;
+      for (int i = 0; i < length; i++) {
+        h = 31 * h + rows[i];
+      }
+      h = 31 * h + width;
+      h = 31 * h + height;
+      h = 31 * h + Double.hashCode(scaleX);
+      h = 31 * h + Double.hashCode(scaleY);
+      h = 31 * h + Double.hashCode(shiftX);
+      this.hash = 31 * h + Double.hashCode(shiftY);
+    }
+
+    /**
+     * Build a key equal to this one that has an array of its own.
+     * @return the copy
+     */
+    private Key copy() {
+      Key copy = new Key();
+      copy.rows = Arrays.copyOf(rows, length);
+      copy.length = length;
+      copy.width = width;
+      copy.height = height;
+      copy.scaleX = scaleX;
+      copy.scaleY = scaleY;
+      copy.shiftX = shiftX;
+      copy.shiftY = shiftY;
+      copy.hash = hash;
+      return copy;
+    }
+
+    /**
+     * Find the handles of the shapes.
+     * @return the handles
+     */
+    private int[] handles() {
+      int[] handles = new int[length / ROW];
+      for (int i = 0; i < handles.length; i++) {
+        handles[i] = rows[i * ROW];
+      }
+      return handles;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return hash == that.hash && length == that.length
+              && width == that.width && height == that.height
+              && scaleX == that.scaleX && scaleY == that.scaleY
+              && shiftX == that.shiftX && shiftY == that.shiftY
+              && Arrays.equals(rows, 0, length, that.rows, 0, length);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * An image in the cache, with the place in device space where it is drawn, leaving out the
+   * whole pixels of the translation.
+   */
+  static final class Entry {
+    final BufferedImage image;
+    final int x;
+    final int y;
+    private final int[] handles; // of the shapes in the image
+
+    /**
+     * Build an entry.
+     * @param image the image
+     * @param x the x coordinate in device space of the image's left edge
+     * @param y the y coordinate in device space of the image's top edge
+     * @param handles the handles of the shapes in the image
+     */
+    private Entry(BufferedImage image, int x, int y, int[] handles) {
+      this.image = image;
+      this.x = x;
+      this.y = y;
+      this.handles = handles;
+    }
+
+    /**
+     * Find the memory taken by the image.
+     * @return the memory in bytes
+     */
+    private long size() {
+      return (long) image.getWidth() * image.getHeight() * BYTES_PER_PIXEL;
+    }
+  }
+}
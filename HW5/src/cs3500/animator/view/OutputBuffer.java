@@ -0,0 +1,144 @@
+package cs3500.animator.view;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * Collects text for an Appendable in a fixed-size buffer, so that views can stream a document
+ * of any size piece by piece without building it as one String.
+ */
+final class OutputBuffer {
+  private static final int CAPACITY = 8192;
+  // enough for any int, including the sign of Integer.MIN_VALUE
+  private static final int MAX_INT_LENGTH = 11;
+
+  private final Appendable output;
+  private final char[] buffer;
+  private int size;
+
+  /**
+   * Build a buffer in front of the given Appendable.
+   * @param output the Appendable that receives the text
+   */
+  OutputBuffer(Appendable output) {
+    this.output = output;
+    this.buffer = new char[CAPACITY];
+    this.size = 0;
+  }
+
+  /**
+   * Write the given text.
+   * @param text the text
+   * @return this buffer
+   * @throws IOException if the Appendable cannot be written
+   */
+  OutputBuffer append(String text) throws IOException {
+    int start = 0;
+    int length = text.length();
+    while (length - start > buffer.length - size) {
+      int count = buffer.length - size;
+      text.getChars(start, start + count, buffer, size);
+      size += count;
+      start += count;
+      flush();
+    }
+    text.getChars(start, length, buffer, size);
+    size += length - start;
+    return this;
+  }
+
+  /**
+   * Write the text in the given builder.
+   * @param text the builder
+   * @return this buffer
+   * @throws IOException if the Appendable cannot be written
+   */
+  OutputBuffer append(StringBuilder text) throws IOException {
+    int start = 0;
+    int length = text.length();
+    while (length - start > buffer.length - size) {
+      int count = buffer.length - size;
+      text.getChars(start, start + count, buffer, size);
+      size += count;
+      start += count;
+      flush();
+    }
+    text.getChars(start, length, buffer, size);
+    size += length - start;
+    return this;
+  }
+
+  /**
+   * Write the given character.
+   * @param c the character
+   * @return this buffer
+   * @throws IOException if the Appendable cannot be written
+   */
+  OutputBuffer append(char c) throws IOException {
+    if (size == buffer.length) {
+      flush();
+    }
+    buffer[size++] = c;
+    return this;
+  }
+
+  /**
+   * Write the given int in decimal, as Integer.toString does.
+   * @param value the int
+   * @return this buffer
+   * @throws IOException if the Appendable cannot be written
+   */
+  OutputBuffer append(int value) throws IOException {
+    if (buffer.length - size < MAX_INT_LENGTH) {
+      flush();
+    }
+    if (value == Integer.MIN_VALUE) {
+      return append(Integer.toString(value)); // its magnitude does not fit in an int
+    }
+    if (value < 0) {
+      buffer[size++] = '-';
+      value = -value;
+    }
+    int end = size + digits(value);
+    for (int i = end - 1; i >= size; i--) {
+      buffer[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+    size = end;
+    return this;
+  }
+
+  /**
+   * Hand everything written so far to the Appendable. Must be called after the last piece.
+   * @throws IOException if the Appendable cannot be written
+   */
+  void flush() throws IOException {
+    if (size == 0) {
+      return;
+    }
+    // Writers and StringBuilders take the chars directly; other Appendables need a sequence
+    if (output instanceof Writer) {
+      ((Writer) output).write(buffer, 0, size);
+    } else if (output instanceof StringBuilder) {
+      ((StringBuilder) output).append(buffer, 0, size);
+    } else {
+      output.append(CharBuffer.wrap(buffer, 0, size));
+    }
+    size = 0;
+  }
+
+  /**
+   * Count the decimal digits of the given int.
+   * @param value the int, which must not be negative
+   * @return the number of digits
+   */
+  private static int digits(int value) {
+    int count = 1;
+    while (value >= 10) {
+      value /= 10;
+      count++;
+    }
+    return count;
+  }
+}
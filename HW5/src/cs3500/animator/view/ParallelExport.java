@@ -0,0 +1,125 @@
+package cs3500.animator.view;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import cs3500.animator.model.ReadOnlyModel;
+
+/**
+ * Writes the layers of a model on several threads, for views in which the text of each shape
+ * depends only on that shape.
+ */
+final class ParallelExport {
+  static final int SECTION_SIZE = 256; // in shapes
+  private static final int SECTIONS_AHEAD_PER_THREAD = 2;
+
+  /**
+   * Writes a run of shapes from one layer.
+   */
+  interface SectionWriter {
+    /**
+     * Write the given shapes, which follow each other in the given layer.
+     * @param out the buffer that receives the text
+     * @param layer the layer's name
+     * @param first true if the section starts the layer, which is the only section of an
+     *     empty layer
+     * @param shapes the names of the shapes
+     * @throws IOException if the output cannot be written
+     */
+    void write(OutputBuffer out, String layer, boolean first, List<String> shapes)
+            throws IOException;
+  }
+
+  private ParallelExport() {
+    // only static methods
+  }
+
+  /**
+   * Write every layer of the given model with the given writer. The layers are cut into
+   * sections of at most SECTION_SIZE shapes, each written to its own buffer and copied to the
+   * output in layer order, so the output is the same on any number of threads.
+   * @param model the model
+   * @param out the buffer that receives the text
+   * @param threads the number of threads on which to write sections
+   * @param writer the writer for each section, which must be safe to call from several
+   *     threads at once
+   * @throws IOException if the output cannot be written
+   */
+  static void write(ReadOnlyModel model, OutputBuffer out, int threads, SectionWriter writer)
+          throws IOException {
+    if (threads == 1) {
+      for (String layer : model.getLayers()) {
+        writer.write(out, layer, true, model.getShapes(layer));
+      }
+      return;
+    }
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    int window = threads * SECTIONS_AHEAD_PER_THREAD; // bounds the text not yet copied
+    Deque<Future<StringBuilder>> pending = new ArrayDeque<>();
+    int lastLength = 16; // sections tend to be alike, so size each buffer like the last one
+    try {
+      for (String layer : model.getLayers()) {
+        List<String> shapes = model.getShapes(layer);
+        int start = 0;
+        do {
+          int end = Math.min(start + SECTION_SIZE, shapes.size());
+          boolean first = start == 0;
+          List<String> section = shapes.subList(start, end);
+          if (pending.size() == window) {
+            StringBuilder text = await(pending.removeFirst());
+            lastLength = text.length();
+            out.append(text);
+          }
+          int capacity = lastLength;
+          pending.addLast(pool.submit(() -> {
+            StringBuilder text = new StringBuilder(capacity);
+            OutputBuffer buffer = new OutputBuffer(text);
+            writer.write(buffer, layer, first, section);
+            buffer.flush();
+            return text;
+          }));
+          start = end;
+        } while (start < shapes.size());
+      }
+      while (!pending.isEmpty()) {
+        out.append(await(pending.removeFirst()));
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Wait for a section to be written.
+   * @param future the section's task
+   * @return the section's text
+   * @throws IOException if the section could not be written
+   */
+  private static StringBuilder await(Future<StringBuilder> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while writing the animation");
+    } catch (ExecutionException e) {
+      // the pool wraps a checked exception in RuntimeExceptions, so look for it among the causes
+      for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+      }
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+}
@@ -1,8 +1,6 @@
 package cs3500.animator.view;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
 import cs3500.animator.model.Motion;
@@ -13,10 +11,31 @@ import cs3500.animator.model.ReadOnlyModel;
  * represented by an AnimationModel.
  */
 public class SVGView implements AnimationView {
+  private final int threads;
   private ReadOnlyModel model;
   private Appendable output;
   private double speed = 1;
 
+  /**
+   * Build an SVG view that writes the animation on one thread.
+   */
+  public SVGView() {
+    this(1);
+  }
+
+  /**
+   * Build an SVG view that writes the shapes of the animation on the given number of threads.
+   * The text is the same for any number of threads.
+   * @param threads the number of threads
+   * @throws IllegalArgumentException if the number of threads is not positive
+   */
+  public SVGView(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("The number of threads must be positive");
+    }
+    this.threads = threads;
+  }
+
   @Override
   public void setSpeed(double speed) {
     if (speed <= 0) {
@@ -47,6 +66,8 @@ public class SVGView implements AnimationView {
 
   /**
    * Creates a text formatted for SVG graphics based on the animation described in the model.
+   * The text is written to the output element by element as it is produced, or with more than
+   * one thread, section by section in order as the sections are finished.
    */
   @Override
   public void animate() {
@@ -57,170 +78,234 @@ public class SVGView implements AnimationView {
       throw new IllegalStateException("The model has not been set");
     }
     try {
-      output.append(formatAnimation());
+      OutputBuffer svg = new OutputBuffer(output);
+      writeAnimation(svg);
+      svg.flush();
     } catch (IOException e) {
       throw new IllegalStateException("Could not write to the output");
     }
   }
 
   /**
-   * Creates an SVG-formatted text representing the animation described in the model.
-   * @return the SVG text
+   * Write an SVG-formatted text representing the animation described in the model, with the
+   * elements on separate lines.
+   * @param svg the buffer that receives the text
+   * @throws IOException if the output cannot be written
+   */
+  private void writeAnimation(OutputBuffer svg) throws IOException {
+    svg.append("<svg width=\"").append(model.getWidth() + model.getX())
+            .append("\" height=\"").append(model.getHeight() + model.getY())
+            .append("\" version=\"1.1\" xmlns=\"http://www.w3.org/2000/svg\">");
+    ParallelExport.write(model, svg, threads, this::writeShapes);
+    svg.append("\n</svg>");
+  }
+
+  /**
+   * Write the elements of the given shapes of the given layer.
+   * @param svg the buffer that receives the text
+   * @param layer the layer
+   * @param first true if the shapes start the layer, which makes no difference in SVG
+   * @param shapes the names of the shapes
+   * @throws IOException if the output cannot be written
    */
-  private String formatAnimation() {
-    LinkedList<String> svgLines = new LinkedList<>();
-    svgLines.add("<svg width=\"" + (model.getWidth() + model.getX())
-            + "\" height=\"" + (model.getHeight() + model.getY())
-            + "\" version=\"1.1\" xmlns=\"http://www.w3.org/2000/svg\">");
-    for (String layer : model.getLayers()) {
-      for (String shape : model.getShapes(layer)) {
-        List<Motion> motions = model.getMotions(layer, shape);
-        switch (model.getShapeType(layer, shape)) {
-          case "ellipse":
-            if (!motions.isEmpty()) {
-              svgLines.add(initEllipse(motions.get(0), shape));
-              for (int i = 0; i < motions.size() - 1; i++) {
-                svgLines.addAll(moveEllipse(motions.get(i), motions.get(i + 1), shape));
-              }
-              svgLines.add("</ellipse>");
+  private void writeShapes(OutputBuffer svg, String layer, boolean first, List<String> shapes)
+          throws IOException {
+    for (String shape : shapes) {
+      int handle = model.getHandle(layer, shape);
+      List<Motion> motions = model.getMotions(handle);
+      String type = model.getShapeType(handle);
+      switch (type) {
+        case "ellipse":
+          if (!motions.isEmpty()) {
+            initEllipse(svg, motions.get(0), shape);
+            for (int i = 0; i < motions.size() - 1; i++) {
+              moveEllipse(svg, motions.get(i), motions.get(i + 1));
             }
-            break;
-          case "rectangle":
-            if (!motions.isEmpty()) {
-              svgLines.add(initRect(motions.get(0), shape));
-              for (int i = 0; i < motions.size() - 1; i++) {
-                svgLines.addAll(moveRect(motions.get(i), motions.get(i + 1), shape));
-              }
-              svgLines.add("</rect>");
+            svg.append("\n</ellipse>");
+          }
+          break;
+        case "rectangle":
+          if (!motions.isEmpty()) {
+            initRect(svg, motions.get(0), shape);
+            for (int i = 0; i < motions.size() - 1; i++) {
+              moveRect(svg, motions.get(i), motions.get(i + 1));
             }
-            break;
-          default:
-            throw new IllegalArgumentException("Invalid shape type "
-                    + model.getShapeType(layer, shape));
-        }
+            svg.append("\n</rect>");
+          }
+          break;
+        default:
+          throw new IllegalArgumentException("Invalid shape type " + type);
       }
     }
-    svgLines.add("</svg>");
-    return String.join("\n", svgLines);
   }
 
   /**
-   * Create the opening line for a rectangle at the initial position described in the given motion.
+   * Write the opening line for a rectangle at the initial position described in the given
+   * motion.
+   * @param svg the buffer that receives the line
    * @param m the rectangle's initial position
    * @param shape the shape name
-   * @return the starting text for a rectangle
+   * @throws IOException if the output cannot be written
    */
-  private String initRect(Motion m, String shape) {
-    return "<rect id=\"" + shape
-            + "\" x=\"" + (m.getX())
-            + "\" y=\"" + (m.getY())
-            + "\" width=\"" + m.getWidth()
-            + "\" height=\"" + m.getHeight()
-            + "\" fill=\"rgb(" + m.getRed()
-            + "," + m.getGreen()
-            + "," + m.getBlue()
-            + ")\" visibility=\"visible\" >";
+  private void initRect(OutputBuffer svg, Motion m, String shape) throws IOException {
+    svg.append("\n<rect id=\"").append(shape)
+            .append("\" x=\"").append(m.getX())
+            .append("\" y=\"").append(m.getY())
+            .append("\" width=\"").append(m.getWidth())
+            .append("\" height=\"").append(m.getHeight());
+    appendFill(svg, "\" fill=\"", m).append("\" visibility=\"visible\" >");
   }
 
   /**
-   * Create the opening line for an ellipse at the initial position described in the given motion.
+   * Write the opening line for an ellipse at the initial position described in the given
+   * motion.
+   * @param svg the buffer that receives the line
    * @param m the ellipse's original position
    * @param shape the ellipse's name
-   * @return the starting text for an ellipse
+   * @throws IOException if the output cannot be written
    */
-  private String initEllipse(Motion m, String shape) {
-    return "<ellipse id=\"" + shape
-            + "\" cx=\"" + (m.getX())
-            + "\" cy=\"" + (m.getY())
-            + "\" rx=\"" + (m.getWidth() / 2)
-            + "\" ry=\"" + (m.getHeight() / 2)
-            + "\" fill=\"rgb(" + m.getRed()
-            + "," + m.getGreen()
-            + "," + m.getBlue()
-            + ")\" visibility=\"visible\" >";
+  private void initEllipse(OutputBuffer svg, Motion m, String shape) throws IOException {
+    svg.append("\n<ellipse id=\"").append(shape)
+            .append("\" cx=\"").append(m.getX())
+            .append("\" cy=\"").append(m.getY())
+            .append("\" rx=\"").append(m.getWidth() / 2)
+            .append("\" ry=\"").append(m.getHeight() / 2);
+    appendFill(svg, "\" fill=\"", m).append("\" visibility=\"visible\" >");
   }
 
   /**
-   * Write an animation formatted in SVG for a rectangle.
+   * Write the animation lines for an ellipse.
+   * @param svg the buffer that receives the lines
    * @param start the start position
    * @param end the end position
-   * @param shape the rectangle's name
-   * @return the animation line
+   * @throws IOException if the output cannot be written
    */
-  private List<String> moveEllipse(Motion start, Motion end, String shape) {
-    return moveShape(start, end, shape, "cx", "cy", "rx", "ry", 2);
+  private void moveEllipse(OutputBuffer svg, Motion start, Motion end) throws IOException {
+    moveShape(svg, start, end, "cx", "cy", "rx", "ry", 2);
   }
 
   /**
-   * Write an animation formatted in SVG for an ellipse.
+   * Write the animation lines for a rectangle.
+   * @param svg the buffer that receives the lines
    * @param start the start position
    * @param end the end position
-   * @param shape the ellipse's name
-   * @return the animation line
+   * @throws IOException if the output cannot be written
    */
-  private List<String> moveRect(Motion start, Motion end, String shape) {
-    return moveShape(start, end, shape, "x", "y", "width", "height", 1);
+  private void moveRect(OutputBuffer svg, Motion start, Motion end) throws IOException {
+    moveShape(svg, start, end, "x", "y", "width", "height", 1);
   }
 
   /**
-   * Write an SVG-formatted animation for any shape. Don't write animation lines
+   * Write SVG-formatted animation lines for any shape. Don't write animation lines
    * for components (eg width, height, color) that do not change between the start and end.
+   * @param svg the buffer that receives the lines
    * @param start the starting position
    * @param end the ending position
-   * @param shape the shape name
    * @param x the x component's name
    * @param y the y component's name
    * @param width the width component's name
    * @param height the height component's name
    * @param widthModifier the number by which to divide the shape's width and height
-   * @return the animation line
+   * @throws IOException if the output cannot be written
    */
-  private List<String> moveShape(Motion start, Motion end, String shape,
-                                 String x, String y, String width, String height,
-                                 int widthModifier) {
-    ArrayList<String> motions = new ArrayList<>(6);
-    // order of inputs: start (ms), duration (ms), attribute type, from, to
-    String template = "<animate attributeType=\"xml\" begin=\"%sms\" dur=\"%sms\" "
-            + "attributeName=\"%s\" from=\"%s\" to=\"%s\" fill=\"freeze\" />";
+  private void moveShape(OutputBuffer svg, Motion start, Motion end,
+                         String x, String y, String width, String height,
+                         int widthModifier) throws IOException {
     int startTime = (int) Math.round((start.getTime() - 1) * 1000 / speed);
     int duration = (int) Math.round((end.getTime() - start.getTime()) * 1000 / speed);
 
     if (start.getX() - end.getX() != 0) {
-      motions.add(String.format(template, startTime, duration, x,
-              start.getX(), end.getX()));
+      startAnimate(svg, startTime, duration, x).append(start.getX());
+      endAnimate(svg).append(end.getX());
+      finishAnimate(svg);
     }
     if (start.getY() - end.getY() != 0) {
-      motions.add(String.format(template, startTime, duration, y,
-              start.getY(), end.getY()));
+      startAnimate(svg, startTime, duration, y).append(start.getY());
+      endAnimate(svg).append(end.getY());
+      finishAnimate(svg);
     }
     if (start.getWidth() - end.getWidth() != 0) {
-      motions.add(String.format(template, startTime, duration,
-              width, (start.getWidth() / widthModifier), (end.getWidth() / widthModifier)));
+      startAnimate(svg, startTime, duration, width).append(start.getWidth() / widthModifier);
+      endAnimate(svg).append(end.getWidth() / widthModifier);
+      finishAnimate(svg);
     }
     if (start.getHeight() - end.getHeight() != 0) {
-      motions.add(String.format(template, startTime, duration,
-              height, (start.getHeight() / widthModifier), (end.getHeight() / widthModifier)));
+      startAnimate(svg, startTime, duration, height).append(start.getHeight() / widthModifier);
+      endAnimate(svg).append(end.getHeight() / widthModifier);
+      finishAnimate(svg);
     }
     if (start.getRed() - end.getRed() != 0
             || start.getGreen() - end.getGreen() != 0
             || start.getBlue() - end.getBlue() != 0) {
-      motions.add(String.format(template, startTime, duration, "fill",
-              String.format("rgb(%s,%s,%s)", start.getRed(), start.getGreen(), start.getBlue()),
-              String.format("rgb(%s,%s,%s)", end.getRed(), end.getGreen(), end.getBlue())));
+      appendFill(startAnimate(svg, startTime, duration, "fill"), "", start);
+      appendFill(endAnimate(svg), "", end);
+      finishAnimate(svg);
     }
     if (start.getRotation() - end.getRotation() != 0) {
-      motions.add(String.format("<animateTransform attributeType=\"xml\" "
-                      + "attributeName=\"transform\" begin=\"%sms\" "
-                      + "type=\"rotate\" from=\"%s %s %s\" to=\"%s %s %s\" dur=\"%sms\" />",
-              startTime,
-              start.getRotation(),
-              start.getX() + start.getWidth() - (widthModifier * start.getWidth() / 2),
-              start.getY() + start.getHeight() - (widthModifier * start.getHeight() / 2),
-              end.getRotation(),
-              end.getX() + end.getWidth() - (widthModifier * end.getWidth() / 2),
-              end.getY() + end.getHeight() - (widthModifier * end.getHeight() / 2),
-              duration));
+      svg.append("\n<animateTransform attributeType=\"xml\" attributeName=\"transform\" begin=\"")
+              .append(startTime)
+              .append("ms\" type=\"rotate\" from=\"").append(start.getRotation())
+              .append(' ')
+              .append(start.getX() + start.getWidth() - (widthModifier * start.getWidth() / 2))
+              .append(' ')
+              .append(start.getY() + start.getHeight() - (widthModifier * start.getHeight() / 2))
+              .append("\" to=\"").append(end.getRotation())
+              .append(' ')
+              .append(end.getX() + end.getWidth() - (widthModifier * end.getWidth() / 2))
+              .append(' ')
+              .append(end.getY() + end.getHeight() - (widthModifier * end.getHeight() / 2))
+              .append("\" dur=\"").append(duration).append("ms\" />");
     }
-    return motions;
+  }
+
+  /**
+   * Write the start of an animate element, up to the value of its from attribute.
+   * @param svg the buffer that receives the element
+   * @param startTime the start of the animation in ms
+   * @param duration the duration of the animation in ms
+   * @param attribute the name of the animated attribute
+   * @return the buffer
+   * @throws IOException if the output cannot be written
+   */
+  private static OutputBuffer startAnimate(OutputBuffer svg, int startTime, int duration,
+                                           String attribute) throws IOException {
+    return svg.append("\n<animate attributeType=\"xml\" begin=\"").append(startTime)
+            .append("ms\" dur=\"").append(duration)
+            .append("ms\" attributeName=\"").append(attribute)
+            .append("\" from=\"");
+  }
+
+  /**
+   * Write the middle of an animate element, between its from value and its to value.
+   * @param svg the buffer that receives the element
+   * @return the buffer
+   * @throws IOException if the output cannot be written
+   */
+  private static OutputBuffer endAnimate(OutputBuffer svg) throws IOException {
+    return svg.append("\" to=\"");
+  }
+
+  /**
+   * Write the end of an animate element, after its to value.
+   * @param svg the buffer that receives the element
+   * @throws IOException if the output cannot be written
+   */
+  private static void finishAnimate(OutputBuffer svg) throws IOException {
+    svg.append("\" fill=\"freeze\" />");
+  }
+
+  /**
+   * Write the given text followed by the color of the given motion as rgb(r,g,b).
+   * @param svg the buffer that receives the color
+   * @param prefix the text before the color
+   * @param m the motion
+   * @return the buffer
+   * @throws IOException if the output cannot be written
+   */
+  private static OutputBuffer appendFill(OutputBuffer svg, String prefix, Motion m)
+          throws IOException {
+    return svg.append(prefix).append("rgb(").append(m.getRed())
+            .append(',').append(m.getGreen())
+            .append(',').append(m.getBlue()).append(')');
   }
 }
@@ -1,7 +1,6 @@
 package cs3500.animator.view;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 
 import cs3500.animator.model.Motion;
@@ -12,9 +11,30 @@ import cs3500.animator.model.ReadOnlyModel;
  * described in an AnimationModel.
  */
 public class TextView implements AnimationView {
+  private final int threads;
   private Appendable output;
   private ReadOnlyModel model;
 
+  /**
+   * Build a text view that writes the animation on one thread.
+   */
+  public TextView() {
+    this(1);
+  }
+
+  /**
+   * Build a text view that writes the shapes of the animation on the given number of threads.
+   * The text is the same for any number of threads.
+   * @param threads the number of threads
+   * @throws IllegalArgumentException if the number of threads is not positive
+   */
+  public TextView(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("The number of threads must be positive");
+    }
+    this.threads = threads;
+  }
+
   /**
    * setSpeed is unsupported in this view.
    * @param speed ticks per second
@@ -73,57 +93,64 @@ public class TextView implements AnimationView {
       throw new IllegalStateException("The model has not been set");
     }
     try {
-      output.append(createTextDisplay());
+      OutputBuffer text = new OutputBuffer(output);
+      writeTextDisplay(text);
+      text.flush();
     } catch (IOException e) {
       throw new IllegalStateException("Could not write to the output");
     }
   }
 
   /**
-   * Format the output of the animation in the format described in animate().
-   * @return the text animation
-   * @throws IllegalStateException if the model has not been set
+   * Write the animation in the format described in animate(), line by line.
+   * @param text the buffer that receives the text
+   * @throws IOException if the output cannot be written
    */
-  private String createTextDisplay() {
-    if (model == null) {
-      throw new IllegalStateException("Cannot animate a null model");
+  private void writeTextDisplay(OutputBuffer text) throws IOException {
+    text.append("canvas ").append(model.getX()).append(' ').append(model.getY())
+            .append(' ').append(model.getWidth()).append(' ').append(model.getHeight());
+    ParallelExport.write(model, text, threads, this::writeShapes);
+  }
+
+  /**
+   * Write the given shapes of the given layer, preceded by the layer's line if they start it.
+   * @param text the buffer that receives the text
+   * @param layer the layer
+   * @param first true if the shapes start the layer
+   * @param shapes the names of the shapes
+   * @throws IOException if the output cannot be written
+   */
+  private void writeShapes(OutputBuffer text, String layer, boolean first, List<String> shapes)
+          throws IOException {
+    if (first) {
+      text.append("\nlayer ").append(layer);
     }
-    List<String> layersText = new ArrayList<>(model.getLayers().size() + 1);
-    layersText.add(joinWithSpaces("canvas",
-            Integer.toString(model.getX()),
-            Integer.toString(model.getY()),
-            Integer.toString(model.getWidth()),
-            Integer.toString(model.getHeight())));
-    for (String layer : model.getLayers()) {
-      List<String> shapesText = new ArrayList<>(model.getShapes(layer).size() + 1);
-      shapesText.add("layer " + layer);
-      for (String shape : model.getShapes(layer)) {
-        List<Motion> motions = model.getMotions(layer, shape);
-        List<String> motionLines = new ArrayList<>(2 * (motions.size() + 1));
-        motionLines.add(joinWithSpaces("shape", shape, model.getShapeType(layer, shape)));
-        if (motions.size() >= 1) {
-          motionLines.add("rotation " + motions.get(0).getRotation());
-          motionLines.add(joinWithSpaces("motion", shape,
-                  motions.get(0).display(), motions.get(0).display()));
-        }
-        for (int i = 0; i < motions.size() - 1; i++) {
-          motionLines.add("rotation " + motions.get(i + 1).getRotation());
-          motionLines.add(joinWithSpaces("motion", shape,
-                  motions.get(i).display(), motions.get(i + 1).display()));
-        }
-        shapesText.add(String.join("\n", motionLines));
+    for (String shape : shapes) {
+      int handle = model.getHandle(layer, shape);
+      List<Motion> motions = model.getMotions(handle);
+      text.append("\nshape ").append(shape).append(' ').append(model.getShapeType(handle));
+      for (int i = 0; i < motions.size(); i++) {
+        Motion start = motions.get(Math.max(i - 1, 0));
+        Motion end = motions.get(i);
+        text.append("\nrotation ").append(end.getRotation());
+        text.append("\nmotion ").append(shape).append(' ');
+        appendMotion(text, start).append(' ');
+        appendMotion(text, end);
       }
-      layersText.add(String.join("\n", shapesText));
     }
-    return String.join("\n", layersText);
   }
 
   /**
-   * Join the given words with spaces in between them and return the result as a String.
-   * @param words the words to join
-   * @return a single string made up of the words separated by a single space each
+   * Write the given motion as Motion.display describes it.
+   * @param text the buffer that receives the motion
+   * @param m the motion
+   * @return the buffer
+   * @throws IOException if the output cannot be written
    */
-  private String joinWithSpaces(String... words) {
-    return String.join(" ", words);
+  private static OutputBuffer appendMotion(OutputBuffer text, Motion m) throws IOException {
+    return text.append(m.getTime()).append(' ').append(m.getX()).append(' ').append(m.getY())
+            .append(' ').append(m.getWidth()).append(' ').append(m.getHeight())
+            .append(' ').append(m.getRed()).append(' ').append(m.getGreen())
+            .append(' ').append(m.getBlue());
   }
 }
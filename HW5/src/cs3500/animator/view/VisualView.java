@@ -2,29 +2,46 @@ package cs3500.animator.view;
 
 import javax.swing.JFrame;
 import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 import java.awt.event.ActionEvent;
 
+import cs3500.animator.model.Frame;
 import cs3500.animator.model.Motion;
 import cs3500.animator.model.ReadOnlyModel;
 
 /**
  * A class representing an animation view that displays the animation detailed in
- * an AnimationModel on screen.
+ * an AnimationModel on screen, following the time that has really passed.
  */
 public class VisualView  extends JFrame implements AnimationView {
-  private AnimationPanel animationPanel;
+  private static final String TITLE = "Animation";
+
+  private final boolean activeRendering;
+  private AnimationPanel animationPanel; // null if the view renders actively
+  private FramePipeline pipeline; // computes the frames Swing draws; null if rendering actively
+  private ActiveRenderer renderer; // null unless the view renders actively
+  private Timer timer; // null until the view is animated by Swing
   private double speed = 1;
-  private int tick;
 
   /**
-   * Create a visual view.
+   * Create a visual view that is repainted by Swing.
    */
   public VisualView() {
+    this(false);
+  }
+
+  /**
+   * Create a visual view.
+   * @param activeRendering true if the view should draw its frames on a thread of its own,
+   *     showing the frames drawn per second in its title, false if it should be repainted by
+   *     Swing
+   */
+  public VisualView(boolean activeRendering) {
     super();
-    this.setTitle("Animation");
+    this.setTitle(TITLE);
     this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-    this.tick = Motion.START_TICK;
+    this.activeRendering = activeRendering;
   }
 
   @Override
@@ -32,11 +49,18 @@ public class VisualView  extends JFrame implements AnimationView {
     if (model == null) {
       throw new IllegalArgumentException("Model must not be null");
     }
-    if (animationPanel != null) {
+    if (animationPanel != null || renderer != null) {
       throw new IllegalStateException("This view already has a model");
     }
-    this.animationPanel = new AnimationPanel(model);
-    this.add(new JScrollPane(animationPanel));
+    if (activeRendering) {
+      this.renderer = new ActiveRenderer(model, fps -> SwingUtilities.invokeLater(
+          () -> setTitle(String.format("%s (%.1f fps)", TITLE, fps))));
+      this.add(renderer);
+    } else {
+      this.animationPanel = new AnimationPanel(model);
+      this.pipeline = new FramePipeline(model, FramePipeline.DEFAULT_CAPACITY);
+      this.add(new JScrollPane(animationPanel));
+    }
     this.pack();
   }
 
@@ -60,26 +84,58 @@ public class VisualView  extends JFrame implements AnimationView {
   }
 
   /**
-   * Displays a non-looping visual representation of the model animation on screen.
+   * Displays a non-looping visual representation of the model animation on screen, which stops
+   * at the last tick of the animation.
    * Requires setModel to be called beforehand.
    */
   @Override
   public void animate() {
-    if (animationPanel == null) {
+    if (animationPanel == null && renderer == null) {
       throw new IllegalStateException("There is no model to animate");
     }
-    Timer timer = new Timer((int) Math.round((1000 / speed)), (ActionEvent e) -> {
-      updateDisplay();
-    });
     this.setVisible(true);
+    if (renderer != null) {
+      renderer.start(speed);
+      return;
+    }
+    timer = new Timer(FramePacer.FRAME_DELAY, (ActionEvent e) -> updateDisplay());
+    animationPanel.paintTick(Motion.START_TICK);
+    pipeline.play(Motion.START_TICK, speed, false, System.nanoTime());
     timer.start();
   }
 
   /**
-   * Update the animation to the next tick and refresh the screen.
+   * Stop playing and close the window, ending the thread that computes its frames.
+   */
+  @Override
+  public void dispose() {
+    if (timer != null) {
+      timer.stop();
+    }
+    if (pipeline != null) {
+      pipeline.close();
+    }
+    super.dispose();
+  }
+
+  /**
+   * Find the number of frames drawn per second over the last second, if the view renders
+   * actively.
+   * @return the number of frames, or 0 if the view does not render actively or has played for
+   *     less than a second
+   */
+  public double getFramesPerSecond() {
+    return renderer == null ? 0 : renderer.getFramesPerSecond();
+  }
+
+  /**
+   * Refresh the screen with the latest frame that the pipeline has ready for the time reached,
+   * if any.
    */
   private void updateDisplay() {
-    animationPanel.paintTick(tick);
-    tick += 1;
+    Frame frame = pipeline.take(System.nanoTime());
+    if (frame != null) {
+      animationPanel.paintFrame(frame, pipeline.getShownTime());
+    }
   }
 }
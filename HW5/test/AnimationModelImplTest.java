@@ -1,17 +1,31 @@
 import org.junit.Before;
 import org.junit.Test;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
 
 import cs3500.animator.model.AnimationModel;
 import cs3500.animator.model.AnimationModelImpl;
+import cs3500.animator.model.ConcurrentAnimationModel;
+import cs3500.animator.model.Frame;
+import cs3500.animator.model.FrameCursor;
+import cs3500.animator.model.ModelListener;
 import cs3500.animator.model.Motion;
+import cs3500.animator.model.ProgressiveBuilder;
+import cs3500.animator.model.ReadOnlyModel;
 import cs3500.animator.model.Transformation;
+import cs3500.animator.util.AnimationBuilder;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -678,6 +692,549 @@ public class AnimationModelImplTest {
   }
 
 
+  @Test
+  public void testMotionsStaySortedOutOfOrder() {
+    original.addRectangle("1", "R");
+    original.addMotion("1", "R", 10, 10, 10, 10, 10, 10, 10, 10);
+    original.addMotion("1", "R", 2, 2, 2, 2, 2, 2, 2, 2);
+    original.addMotion("1", "R", 6, 6, 6, 6, 6, 6, 6, 6);
+    original.addMotion("1", "R", 4, 4, 4, 4, 4, 4, 4, 4);
+    List<Motion> motions = original.getMotions("1", "R");
+    assertEquals(4, motions.size());
+    assertEquals(2, motions.get(0).getTime());
+    assertEquals(4, motions.get(1).getTime());
+    assertEquals(6, motions.get(2).getTime());
+    assertEquals(10, motions.get(3).getTime());
+
+    // the transformation is found from the keyframes on either side of the tick
+    assertEquals(5, original.getTransformationAt("1", "R", 5).getStateAt(5).getX());
+    assertEquals(8, original.getTransformationAt("1", "R", 8).getStateAt(8).getX());
+
+    original.deleteMotion("1", "R", 6);
+    assertEquals(7, original.getTransformationAt("1", "R", 7).getStateAt(7).getX());
+    assertEquals(3, original.getMotions("1", "R").size());
+    try {
+      original.addMotion("1", "R", 4, 1, 1, 1, 1, 1, 1, 1);
+      fail("Added two motions at the same time");
+    } catch (IllegalArgumentException e) {
+      assertEquals("This shape already has a motion at time 4", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testGetFrameAt() {
+    original.addLayer("2");
+    original.addRectangle("2", "top");
+    original.addEllipse("1", "bottom");
+    original.addRectangle("1", "hidden");
+    original.addRectangle("1", "late");
+    original.addMotion("2", "top", 1, 0, 0, 10, 10, 255, 0, 0, 0);
+    original.addMotion("2", "top", 5, 40, 0, 10, 10, 255, 0, 0, 90);
+    original.addMotion("1", "bottom", 2, 5, 5, 20, 20, 0, 0, 255);
+    original.addMotion("1", "bottom", 4, 5, 5, 20, 20, 0, 0, 255);
+    original.addMotion("1", "late", 10, 1, 1, 1, 1, 1, 1, 1);
+
+    Frame frame = original.getFrameAt(3);
+    assertEquals(3, frame.getTick());
+    // shapes are ordered from the bottom layer up; shapes with no motion at the tick are skipped
+    assertEquals(2, frame.size());
+    assertEquals("1", frame.getLayer(0));
+    assertEquals("bottom", frame.getShapeName(0));
+    assertEquals("ellipse", frame.getShapeType(0));
+    assertEquals(255, frame.getBlue(0));
+    assertEquals("top", frame.getShapeName(1));
+    assertEquals("rectangle", frame.getShapeType(1));
+    assertEquals(20, frame.getX(1));
+    assertEquals(45, frame.getRotation(1));
+
+    // reusing a frame overwrites its contents
+    assertTrue(frame == original.getFrameAt(5, frame));
+    assertEquals(1, frame.size());
+    assertEquals("top", frame.getShapeName(0));
+    assertEquals(40, frame.getX(0));
+    assertEquals(0, original.getFrameAt(7, frame).size());
+    assertEquals(1, original.getFrameAt(10, frame).size());
+    try {
+      frame.getX(1);
+      fail("Read a shape that is not in the frame");
+    } catch (IndexOutOfBoundsException e) {
+      assertEquals("No shape at position 1 in a frame of 1 shapes", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testGetFrameAtMatchesTransformations() {
+    original.addEllipse("1", "E");
+    original.addMotion("1", "E", 2, 0, 100, 7, 9, 255, 0, 12, -90);
+    original.addMotion("1", "E", 9, 33, -50, 20, 1, 0, 255, 200, 45);
+    original.addMotion("1", "E", 13, 1, 2, 3, 4, 5, 6, 7, 8);
+    Frame frame = new Frame();
+    for (int tick = 2; tick <= 13; tick++) {
+      Motion m = original.getTransformationAt("1", "E", tick).getStateAt(tick);
+      original.getFrameAt(tick, frame);
+      assertEquals(m.getX(), frame.getX(0));
+      assertEquals(m.getY(), frame.getY(0));
+      assertEquals(m.getWidth(), frame.getWidth(0));
+      assertEquals(m.getHeight(), frame.getHeight(0));
+      assertEquals(m.getRed(), frame.getRed(0));
+      assertEquals(m.getGreen(), frame.getGreen(0));
+      assertEquals(m.getBlue(), frame.getBlue(0));
+      assertEquals(m.getRotation(), frame.getRotation(0));
+    }
+  }
+
+  @Test
+  public void testGetFrameAtAfterEdits() {
+    Random rand = new Random(3500);
+    original.addLayer("2");
+    original.addLayer("3");
+    for (int i = 0; i < 60; i++) {
+      String layer = Integer.toString(1 + rand.nextInt(3));
+      original.addRectangle(layer, "s" + i);
+      int start = rand.nextInt(50);
+      for (int k = 0; k < 1 + rand.nextInt(3); k++) {
+        original.addMotion(layer, "s" + i, start + 5 * k, i, i, 1, 1, 0, 0, 0);
+      }
+    }
+    checkFrames();
+    original.moveLayer("3", 0);
+    checkFrames();
+    original.deleteLayer("2");
+    checkFrames();
+    for (String shape : original.getShapes("1")) {
+      original.addMotion("1", shape, 70, 0, 0, 1, 1, 0, 0, 0);
+    }
+    checkFrames();
+    for (String shape : original.getShapes("3")) {
+      original.deleteLastMotion("3", shape);
+    }
+    checkFrames();
+  }
+
+  @Test
+  public void testGetFrameAtAfterLifetimeEdits() {
+    // each edit moves a first or last keyframe after the frames have been found, so the
+    // lifetimes are moved one at a time
+    Random rand = new Random(3503);
+    original.addLayer("2");
+    for (int i = 0; i < 30; i++) {
+      original.addRectangle(Integer.toString(1 + i % 2), "s" + i);
+    }
+    FrameCursor cursor = original.cursor(0);
+    ReadOnlyModel snapshot = null;
+    List<Integer> sizes = new ArrayList<>(); // the size of each frame of the snapshot
+    for (int step = 0; step < 200; step++) {
+      String layer = Integer.toString(1 + rand.nextInt(2));
+      List<String> shapes = original.getShapes(layer);
+      String shape = shapes.get(rand.nextInt(shapes.size()));
+      List<Motion> motions = original.getMotions(layer, shape);
+      if (motions.isEmpty() || rand.nextInt(3) > 0) {
+        int time = rand.nextInt(70);
+        if (motions.stream().noneMatch(m -> m.getTime() == time)) {
+          original.addMotion(layer, shape, time, step, 0, 1, 1, 0, 0, 0);
+        }
+      } else if (rand.nextBoolean()) {
+        original.deleteMotion(layer, shape, motions.get(0).getTime());
+      } else {
+        original.deleteLastMotion(layer, shape);
+      }
+      checkCursor(cursor.seek(rand.nextInt(76)), cursor.getTick());
+      if (step % 20 == 0) {
+        checkFrames();
+      }
+      if (step == 100) {
+        snapshot = original.snapshot();
+        for (int tick = 0; tick <= 75; tick++) {
+          sizes.add(snapshot.getFrameAt(tick).size());
+        }
+      }
+    }
+    checkFrames();
+    for (int tick = 0; tick <= 75; tick++) {
+      assertEquals((int) sizes.get(tick), snapshot.getFrameAt(tick).size());
+    }
+  }
+
+  /**
+   * Check that the frame at every tick holds exactly the shapes that have a transformation at
+   * that tick, in layer order.
+   */
+  private void checkFrames() {
+    Frame frame = new Frame();
+    for (int tick = 0; tick <= 75; tick++) {
+      original.getFrameAt(tick, frame);
+      int i = 0;
+      for (String layer : original.getLayers()) {
+        for (String shape : original.getShapes(layer)) {
+          try {
+            original.getTransformationAt(layer, shape, tick);
+          } catch (IllegalStateException | IllegalArgumentException e) {
+            continue; // the shape is not on screen
+          }
+          assertEquals(layer, frame.getLayer(i));
+          assertEquals(shape, frame.getShapeName(i));
+          i++;
+        }
+      }
+      assertEquals(i, frame.size());
+    }
+  }
+
+  /**
+   * Add a second layer to the model, and 40 ellipses with random keyframes on both layers.
+   */
+  private void addRandomShapes() {
+    Random rand = new Random(3501);
+    original.addLayer("2");
+    for (int i = 0; i < 40; i++) {
+      String layer = Integer.toString(1 + rand.nextInt(2));
+      original.addEllipse(layer, "s" + i);
+      int time = rand.nextInt(40);
+      for (int k = 0; k < 1 + rand.nextInt(4); k++) {
+        time += 1 + rand.nextInt(6);
+        original.addMotion(layer, "s" + i, time, rand.nextInt(100),
+                rand.nextInt(100), 1 + rand.nextInt(9), 1 + rand.nextInt(9),
+                rand.nextInt(256), rand.nextInt(256), rand.nextInt(256), rand.nextInt(360));
+      }
+    }
+  }
+
+  @Test
+  public void testCursorMatchesGetFrameAt() {
+    addRandomShapes();
+    FrameCursor cursor = original.cursor(0);
+    assertEquals(0, cursor.getTick());
+    checkCursor(cursor.getFrame(), 0);
+    for (int tick = 1; tick <= 70; tick++) {
+      checkCursor(cursor.advance(), tick);
+    }
+    // backward and forward jumps
+    checkCursor(cursor.seek(12), 12);
+    checkCursor(cursor.seek(12), 12);
+    checkCursor(cursor.seek(13), 13);
+    checkCursor(cursor.seek(50), 50);
+    checkCursor(cursor.seek(3), 3);
+    // changes to the model are picked up by the next move
+    original.deleteLayer("2");
+    checkCursor(cursor.getFrame(), 3);
+    for (int tick = 4; tick <= 30; tick++) {
+      checkCursor(cursor.advance(), tick);
+    }
+    original.editMotion("1", original.getShapes("1").get(0),
+            original.getMotions("1", original.getShapes("1").get(0)).get(0).getTime(),
+            0, 0, 1, 1, 0, 0, 0);
+    for (int tick = 31; tick <= 70; tick++) {
+      checkCursor(cursor.advance(), tick);
+    }
+  }
+
+  @Test
+  public void testCursorSeekTime() {
+    addRandomShapes();
+    FrameCursor cursor = original.cursor(0);
+    for (double time = 0; time <= 70; time += 0.25) {
+      checkCursorTime(cursor.seekTime(time), time);
+    }
+    // whole times give the frames at the ticks, and getFrame goes back to the whole tick
+    checkCursor(cursor.seekTime(20.0), 20);
+    checkCursorTime(cursor.seekTime(20.5), 20.5);
+    checkCursor(cursor.getFrame(), 20);
+    checkCursorTime(cursor.seekTime(20.75), 20.75);
+    checkCursor(cursor.seek(20), 20);
+    checkCursorTime(cursor.seekTime(5.5), 5.5);
+    checkCursor(cursor.advance(), 6);
+    // changes to the model are picked up by the next move
+    original.deleteLayer("2");
+    for (double time = 6.1; time <= 70; time += 0.3) {
+      checkCursorTime(cursor.seekTime(time), time);
+    }
+
+    // moving forward does not build new objects once the frame has grown to fit
+    AnimationModel big = new AnimationModelImpl();
+    big.addLayer("L");
+    for (int i = 0; i < 1000; i++) {
+      big.addRectangle("L", "R" + i);
+      for (int k = 0; k < 10; k++) {
+        big.addMotion("L", "R" + i, 1 + 10 * k + i % 10, i, k, 5, 5, 0, 0, 0, 0);
+      }
+    }
+    FrameCursor bigCursor = big.cursor(1);
+    for (double time = 1; time < 100; time += 0.1) {
+      bigCursor.seekTime(time);
+    }
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+      long id = Thread.currentThread().getId();
+      long before = counter.getThreadAllocatedBytes(id);
+      for (double time = 1; time < 100; time += 0.1) {
+        bigCursor.seekTime(time);
+      }
+      long allocated = counter.getThreadAllocatedBytes(id) - before;
+      assertTrue("Allocated " + allocated + " bytes", allocated < 10_000);
+    }
+  }
+
+  /**
+   * Check that the frame returned by seekTime holds the shapes on screen at the whole tick at or
+   * before the time, with their states at the time.
+   * @param frame the frame returned by the cursor
+   * @param time the time that the frame should show
+   */
+  private void checkCursorTime(Frame frame, double time) {
+    int tick = (int) Math.floor(time);
+    Frame expected = original.getFrameAt(tick);
+    assertEquals(tick, frame.getTick());
+    assertEquals(expected.size(), frame.size());
+    int[] state = new int[Transformation.STATE_SIZE];
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.getLayer(i), frame.getLayer(i));
+      assertEquals(expected.getShapeName(i), frame.getShapeName(i));
+      // the shape's motions at or before the time and after it, if there is one
+      List<Motion> motions = original.getMotions(expected.getLayer(i), expected.getShapeName(i));
+      int next = 0;
+      while (next < motions.size() && motions.get(next).getTime() <= time) {
+        next++;
+      }
+      Motion before = motions.get(next - 1);
+      Motion after = next < motions.size() ? motions.get(next) : before;
+      new Transformation(before, after).getStateAt(after == before ? before.getTime() : time,
+              state, 0);
+      assertEquals(state[0], frame.getX(i));
+      assertEquals(state[1], frame.getY(i));
+      assertEquals(state[2], frame.getWidth(i));
+      assertEquals(state[3], frame.getHeight(i));
+      assertEquals(state[4], frame.getRed(i));
+      assertEquals(state[5], frame.getGreen(i));
+      assertEquals(state[6], frame.getBlue(i));
+      assertEquals(state[7], frame.getRotation(i));
+    }
+  }
+
+  /**
+   * Check that the frame returned by a cursor is the same as the frame from getFrameAt.
+   * @param frame the frame returned by the cursor
+   * @param tick the tick that the frame should show
+   */
+  private void checkCursor(Frame frame, int tick) {
+    Frame expected = original.getFrameAt(tick);
+    assertEquals(tick, frame.getTick());
+    assertEquals(expected.size(), frame.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.getLayer(i), frame.getLayer(i));
+      assertEquals(expected.getShapeName(i), frame.getShapeName(i));
+      assertEquals(expected.getX(i), frame.getX(i));
+      assertEquals(expected.getY(i), frame.getY(i));
+      assertEquals(expected.getWidth(i), frame.getWidth(i));
+      assertEquals(expected.getHeight(i), frame.getHeight(i));
+      assertEquals(expected.getRed(i), frame.getRed(i));
+      assertEquals(expected.getGreen(i), frame.getGreen(i));
+      assertEquals(expected.getBlue(i), frame.getBlue(i));
+      assertEquals(expected.getRotation(i), frame.getRotation(i));
+    }
+  }
+
+  @Test
+  public void testFrameCopyFrom() {
+    addRandomShapes();
+    Frame source = new Frame();
+    Frame copy = new Frame();
+    for (int tick = 0; tick <= 70; tick++) {
+      copy.copyFrom(original.getFrameAt(tick, source));
+      original.getFrameAt(tick + 1, source); // the copy does not share the source's arrays
+      checkCursor(copy, tick);
+    }
+    copy.copyFrom(copy);
+    checkCursor(copy, 70);
+    try {
+      copy.copyFrom(null);
+      fail("Copied a null frame");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Frame must not be null", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testHandles() {
+    original.addLayer("2");
+    original.addEllipse("1", "E");
+    original.addRectangle("2", "E");
+    int e1 = original.getHandle("1", "E");
+    int e2 = original.getHandle("2", "E");
+    assertNotEquals(e1, e2);
+    assertEquals("ellipse", original.getShapeType(e1));
+    assertEquals("rectangle", original.getShapeType(e2));
+
+    // the String methods and the handle methods act on the same shape
+    original.addMotion(e1, 1, 10, 10, 5, 5, 0, 0, 0, 0);
+    original.addMotion("1", "E", 5, 20, 10, 5, 5, 0, 0, 0, 90);
+    assertEquals(2, original.getMotions(e1).size());
+    assertEquals(original.getMotions("1", "E").get(1).getRotation(),
+            original.getMotions(e1).get(1).getRotation());
+    assertEquals(15, original.getTransformationAt(e1, 3).getStateAt(3).getX());
+    original.editMotion(e1, 5, 30, 10, 5, 5, 0, 0, 0, 0);
+    assertEquals(30, original.getMotions("1", "E").get(1).getX());
+    original.addMotion(e2, 2, 0, 0, 1, 1, 0, 0, 0, 0);
+    original.addMotion(e2, 4, 0, 0, 1, 1, 0, 0, 0, 0);
+    original.deleteMotion(e2, 4);
+    original.deleteLastMotion(e2);
+    assertTrue(original.getMotions("2", "E").isEmpty());
+
+    // handles survive layer moves and show up in frames
+    original.moveLayer("2", 0);
+    assertEquals(e1, original.getHandle("1", "E"));
+    assertEquals(e1, original.getFrameAt(3).getHandle(0));
+
+    // deleted shapes' handles are never given to another shape
+    original.deleteShape("1", "E");
+    original.addEllipse("1", "E");
+    assertNotEquals(e1, original.getHandle("1", "E"));
+    try {
+      original.getMotions(e1);
+      fail("Used the handle of a deleted shape");
+    } catch (IllegalArgumentException e) {
+      assertEquals("No shape with the handle " + e1 + " exists.", e.getMessage());
+    }
+    original.deleteLayer("2");
+    try {
+      original.addMotion(e2, 1, 0, 0, 1, 1, 0, 0, 0, 0);
+      fail("Used the handle of a shape in a deleted layer");
+    } catch (IllegalArgumentException e) {
+      assertEquals("No shape with the handle " + e2 + " exists.", e.getMessage());
+    }
+    try {
+      original.getHandle("1", "R");
+      fail("Found a handle for a shape that doesn't exist");
+    } catch (IllegalArgumentException e) {
+      assertEquals("No shape with the name R exists in the layer 1.", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testSnapshot() {
+    original.addLayer("2");
+    original.addEllipse("1", "E");
+    original.addRectangle("2", "R");
+    original.addMotion("1", "E", 1, 0, 0, 10, 10, 0, 0, 0);
+    original.addMotion("1", "E", 11, 10, 0, 10, 10, 0, 0, 0);
+    original.addMotion("2", "R", 1, 5, 5, 1, 1, 0, 0, 0);
+    String before = original.displayAnimation();
+    ReadOnlyModel snapshot = original.snapshot();
+    assertEquals(before, snapshot.displayAnimation());
+
+    original.editMotion("1", "E", 11, 20, 0, 10, 10, 0, 0, 0);
+    original.addMotion("1", "E", 21, 20, 0, 10, 10, 0, 0, 0);
+    original.addRectangle("1", "S");
+    original.deleteShape("2", "R");
+    original.moveLayer("2", 0);
+    original.addLayer("3");
+    assertEquals(before, snapshot.displayAnimation());
+    assertEquals(Arrays.asList("1", "2"), snapshot.getLayers());
+    assertEquals(Arrays.asList("R"), snapshot.getShapes("2"));
+    assertEquals(5, snapshot.getTransformationAt("1", "E", 6).getStateAt(6).getX());
+    assertEquals(10, original.getTransformationAt("1", "E", 6).getStateAt(6).getX());
+    Frame frame = snapshot.getFrameAt(1);
+    assertEquals(2, frame.size());
+    assertEquals("R", frame.getShapeName(1));
+    assertEquals(1, original.getFrameAt(1).size());
+
+    // a snapshot of a snapshot, and a second snapshot, are independent of each other
+    ReadOnlyModel copy = snapshot.snapshot();
+    String after = original.displayAnimation();
+    ReadOnlyModel second = original.snapshot();
+    original.deleteLayer("1");
+    assertEquals(before, copy.displayAnimation());
+    assertEquals(after, second.displayAnimation());
+    assertEquals(Arrays.asList("2", "3"), original.getLayers());
+  }
+
+  @Test
+  public void testSnapshotsUnderRandomEdits() {
+    Random rand = new Random(3502);
+    List<ReadOnlyModel> snapshots = new ArrayList<>();
+    List<String> displays = new ArrayList<>();
+    original.addLayer("2");
+    for (int i = 0; i < 30; i++) {
+      original.addRectangle(Integer.toString(1 + i % 2), "s" + i);
+    }
+    for (int step = 0; step < 400; step++) {
+      String layer = Integer.toString(1 + rand.nextInt(2));
+      List<String> shapes = original.getShapes(layer);
+      if (shapes.isEmpty()) {
+        continue;
+      }
+      String shape = shapes.get(rand.nextInt(shapes.size()));
+      int time = 1 + rand.nextInt(20);
+      if (original.getMotions(layer, shape).stream().anyMatch(m -> m.getTime() == time)) {
+        if (rand.nextBoolean()) {
+          original.deleteMotion(layer, shape, time);
+        } else {
+          original.editMotion(layer, shape, time, step, step, 1, 1, 0, 0, 0);
+        }
+      } else {
+        original.addMotion(layer, shape, time, step, step, 1, 1, 0, 0, 0);
+      }
+      if (step % 40 == 0) {
+        original.addEllipse(layer, "new" + step);
+        original.moveLayer(layer, 0);
+      }
+      if (step % 25 == 0) {
+        snapshots.add(original.snapshot());
+        displays.add(original.displayAnimation());
+      }
+    }
+    for (int i = 0; i < snapshots.size(); i++) {
+      assertEquals(displays.get(i), snapshots.get(i).displayAnimation());
+    }
+  }
+
+  @Test
+  public void testSnapshotsOfLongShape() {
+    // enough keyframes that the shape's keyframes span several blocks
+    Random rand = new Random(3500);
+    TreeMap<Integer, Integer> expected = new TreeMap<>(); // each keyframe's time to its x
+    original.addRectangle("1", "L");
+    for (int time = 2; time <= 200; time += 2) {
+      original.addMotion("1", "L", time, time, 0, 1, 1, 0, 0, 0);
+      expected.put(time, time);
+    }
+    List<ReadOnlyModel> snapshots = new ArrayList<>();
+    List<String> displays = new ArrayList<>();
+    for (int step = 0; step < 600; step++) {
+      int time = 1 + rand.nextInt(300);
+      if (!expected.containsKey(time)) {
+        original.addMotion("1", "L", time, step, 0, 1, 1, 0, 0, 0);
+        expected.put(time, step);
+      } else if (rand.nextBoolean()) {
+        original.deleteMotion("1", "L", time);
+        expected.remove(time);
+      } else {
+        original.editMotion("1", "L", time, -step, 0, 1, 1, 0, 0, 0);
+        expected.put(time, -step);
+      }
+      if (step % 50 == 0) {
+        snapshots.add(original.snapshot());
+        displays.add(original.displayAnimation());
+      }
+    }
+    List<Motion> motions = original.getMotions("1", "L");
+    assertEquals(expected.size(), motions.size());
+    int i = 0;
+    for (Map.Entry<Integer, Integer> keyframe : expected.entrySet()) {
+      assertEquals((int) keyframe.getKey(), motions.get(i).getTime());
+      assertEquals((int) keyframe.getValue(), motions.get(i).getX());
+      i++;
+    }
+    for (i = 0; i < snapshots.size(); i++) {
+      assertEquals(displays.get(i), snapshots.get(i).displayAnimation());
+    }
+    FrameCursor cursor = original.cursor(expected.firstKey());
+    for (int tick = expected.firstKey(); tick <= expected.lastKey(); tick++) {
+      assertEquals(original.getTransformationAt("1", "L", tick).getStateAt(tick).getX(),
+              cursor.seek(tick).getX(0));
+    }
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testGetMotionsFail() {
     original.addEllipse("1", "E");
@@ -779,4 +1336,354 @@ public class AnimationModelImplTest {
                     "motion B 2 2 2 2 2 2 2 2    3 4 5 6 6 5 4 3",
             testModel.displayAnimation());
   }
-}
\ No newline at end of file
+
+  /**
+   * Drive the given builder with random calls, a few of which are invalid, and describe the
+   * model it builds or the exception it throws.
+   * @param builder the builder
+   * @param seed the seed of the random calls
+   * @return the model's text, last tick and visible shapes, or the exception and its message
+   */
+  private static String describeBuild(AnimationBuilder<AnimationModel> builder, long seed) {
+    Random rand = new Random(seed);
+    Map<String, List<String>> shapes = new HashMap<>();
+    String layer = "layer1"; // the builder's default
+    try {
+      builder.setBounds(0, 0, 100, 1 + rand.nextInt(100));
+      if (rand.nextBoolean()) {
+        layer = "L" + rand.nextInt(4);
+        builder.declareLayer(layer);
+      }
+      for (int step = 0; step < 300; step++) {
+        List<String> names = shapes.computeIfAbsent(layer, l -> new ArrayList<>());
+        int choice = rand.nextInt(1000);
+        if (choice < 30) {
+          layer = "L" + rand.nextInt(4);
+          builder.declareLayer(layer);
+        } else if (choice < 80 || names.isEmpty()) {
+          String name = choice < 32 && !names.isEmpty() ? names.get(0) : "s" + step;
+          builder.declareShape(name, choice == 33 ? "triangle"
+                  : step % 2 == 0 ? "rectangle" : "ellipse");
+          names.add(name);
+        } else if (choice < 130) {
+          builder.declareRotation(rand.nextInt(360));
+        } else {
+          String name = choice < 132 ? "none" : names.get(rand.nextInt(names.size()));
+          // mostly in order, sometimes out of order, rarely a repeat or an invalid size
+          int time = choice < 150 ? rand.nextInt(3 * step + 1) : 3 * step + rand.nextInt(3);
+          builder.addMotion(name, 0, 0, 0, 1, 1, 0, 0, 0, time, rand.nextInt(100),
+                  rand.nextInt(100), choice == 500 ? 0 : 1 + rand.nextInt(9), 1 + rand.nextInt(9),
+                  rand.nextInt(300) - 20, rand.nextInt(256), rand.nextInt(256));
+        }
+      }
+      AnimationModel model = builder.build();
+      StringBuilder description = new StringBuilder(model.displayAnimation());
+      description.append("\nlast tick ").append(model.getLastTick());
+      Frame frame = new Frame();
+      for (int tick = 0; tick <= model.getLastTick(); tick += 7) {
+        model.getFrameAt(tick, frame);
+        description.append("\n").append(tick).append(":");
+        for (int i = 0; i < frame.size(); i++) {
+          description.append(" ").append(frame.getShapeName(i));
+        }
+      }
+      return description.toString();
+    } catch (RuntimeException e) {
+      return e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+  }
+
+  @Test
+  public void testBulkBuilderMatchesBuilder() {
+    int built = 0;
+    for (long seed = 0; seed < 400; seed++) {
+      String expected = describeBuild(new AnimationModelImpl.Builder(), seed);
+      assertEquals(expected, describeBuild(new AnimationModelImpl.BulkBuilder(), seed));
+      if (expected.startsWith("layer")) {
+        built++;
+      }
+    }
+    // both valid and invalid input are covered
+    assertTrue(built > 50 && built < 350);
+  }
+
+  @Test
+  public void testProgressiveBuilderMatchesBuilder() {
+    for (long seed = 0; seed < 400; seed++) {
+      AnimationModel model = new ConcurrentAnimationModel(new AnimationModelImpl());
+      assertEquals(describeBuild(new AnimationModelImpl.Builder(), seed),
+              describeBuild(new ProgressiveBuilder(model, () -> { }), seed));
+    }
+  }
+
+  @Test
+  public void testProgressiveBuilderRepeatedKeyframe() {
+    AnimationModel model = new ConcurrentAnimationModel(new AnimationModelImpl());
+    int[] published = new int[1];
+    ProgressiveBuilder builder = new ProgressiveBuilder(model, () -> published[0]++);
+    builder.declareShape("A", "ellipse");
+    builder.addKeyframe("A", 10, 0, 0, 5, 5, 0, 0, 0);
+    assertEquals(0, published[0]);
+    // a keyframe out of order is checked against the keyframes already in the model, which
+    // first receives those collected so far
+    try {
+      builder.addKeyframe("A", 10, 1, 1, 5, 5, 0, 0, 0);
+      fail("Added two keyframes at the same time");
+    } catch (IllegalArgumentException e) {
+      assertEquals("This shape already has a motion at time 10", e.getMessage());
+    }
+    assertEquals(1, published[0]);
+    assertEquals(10, model.getLastTick());
+    builder.addKeyframe("A", 20, 0, 0, 5, 5, 0, 0, 0);
+    builder.addKeyframe("A", 5, 0, 0, 5, 5, 0, 0, 0);
+    try {
+      builder.addKeyframe("A", 20, 1, 1, 5, 5, 0, 0, 0);
+      fail("Added a keyframe at a time already collected");
+    } catch (IllegalArgumentException e) {
+      assertEquals("This shape already has a motion at time 20", e.getMessage());
+    }
+    assertEquals(1, published[0]);
+    builder.addKeyframe("A", 15, 0, 0, 5, 5, 0, 0, 0);
+    assertSame(model, builder.build());
+    assertEquals(2, published[0]);
+    List<Motion> motions = model.getMotions("layer1", "A");
+    assertEquals(4, motions.size());
+    for (int i = 0; i < 4; i++) {
+      assertEquals(5 * (i + 1), motions.get(i).getTime());
+    }
+  }
+
+  @Test
+  public void testBulkBuilder() {
+    AnimationModelImpl.BulkBuilder builder = new AnimationModelImpl.BulkBuilder();
+    builder.declareShape("A", "ellipse");
+    builder.addKeyframe("A", 20, 0, 0, 5, 5, 0, 0, 0);
+    builder.addKeyframe("A", 10, 0, 0, 5, 5, 0, 0, 0);
+    try {
+      builder.addKeyframe("A", 20, 1, 1, 5, 5, 0, 0, 0);
+      fail("Added two keyframes at the same time");
+    } catch (IllegalArgumentException e) {
+      assertEquals("This shape already has a motion at time 20", e.getMessage());
+    }
+    try {
+      builder.addKeyframe("B", 30, 1, 1, 5, 5, 0, 0, 0);
+      fail("Added a keyframe to a shape that doesn't exist");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    AnimationModel model = builder.build();
+    assertEquals(Arrays.asList(10, 20), Arrays.asList(model.getMotions("layer1", "A").get(0)
+            .getTime(), model.getMotions("layer1", "A").get(1).getTime()));
+    assertEquals(20, model.getLastTick());
+    // the built model is an ordinary model
+    model.addMotion("layer1", "A", 40, 0, 0, 5, 5, 0, 0, 0);
+    assertEquals(40, model.getLastTick());
+    assertEquals(1, model.getFrameAt(30).size());
+    try {
+      builder.declareLayer("2");
+      fail("Used a builder after it built its model");
+    } catch (IllegalStateException e) {
+      assertEquals("This builder has already built its model", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testListener() {
+    StringBuilder log = new StringBuilder();
+    original.addListener(new ModelListener() {
+      @Override
+      public void layerAdded(String layer) {
+        log.append("layerAdded ").append(layer).append("\n");
+      }
+
+      @Override
+      public void layerDeleted(String layer) {
+        log.append("layerDeleted ").append(layer).append("\n");
+      }
+
+      @Override
+      public void layerMoved(String layer, int position) {
+        log.append("layerMoved ").append(layer).append(" ").append(position).append("\n");
+      }
+
+      @Override
+      public void shapeAdded(String layer, String shape, int handle) {
+        log.append("shapeAdded ").append(layer).append(" ").append(shape).append("\n");
+      }
+
+      @Override
+      public void shapeDeleted(String layer, String shape, int handle) {
+        log.append("shapeDeleted ").append(layer).append(" ").append(shape).append("\n");
+      }
+
+      @Override
+      public void keyframeAdded(int shape, int time, int fromTick, int toTick) {
+        log.append("keyframeAdded ").append(time)
+                .append(" ").append(fromTick).append("-").append(toTick).append("\n");
+      }
+
+      @Override
+      public void keyframeEdited(int shape, int time, int fromTick, int toTick) {
+        log.append("keyframeEdited ").append(time)
+                .append(" ").append(fromTick).append("-").append(toTick).append("\n");
+      }
+
+      @Override
+      public void keyframeDeleted(int shape, int time, int fromTick, int toTick) {
+        log.append("keyframeDeleted ").append(time)
+                .append(" ").append(fromTick).append("-").append(toTick).append("\n");
+      }
+    });
+    original.addLayer("2");
+    original.addRectangle("2", "R");
+    original.addMotion("2", "R", 10, 0, 0, 1, 1, 0, 0, 0);
+    original.addMotion("2", "R", 30, 0, 0, 1, 1, 0, 0, 0);
+    original.addMotion("2", "R", 20, 0, 0, 1, 1, 0, 0, 0);
+    original.editMotion("2", "R", 30, 5, 0, 1, 1, 0, 0, 0);
+    original.deleteMotion("2", "R", 20);
+    original.deleteLastMotion("2", "R");
+    original.moveLayer("2", 0);
+    original.deleteShape("2", "R");
+    original.deleteLayer("2");
+    try {
+      original.deleteMotion("1", "E", 1);
+      fail("Deleted a keyframe of a shape that doesn't exist");
+    } catch (IllegalArgumentException e) {
+      // failed changes are not reported
+    }
+    assertEquals("layerAdded 2\n"
+            + "shapeAdded 2 R\n"
+            + "keyframeAdded 10 10-10\n"
+            + "keyframeAdded 30 10-30\n"
+            + "keyframeAdded 20 10-30\n"
+            + "keyframeEdited 30 20-30\n"
+            + "keyframeDeleted 20 10-30\n"
+            + "keyframeDeleted 30 10-30\n"
+            + "layerMoved 2 0\n"
+            + "shapeDeleted 2 R\n"
+            + "layerDeleted 2\n", log.toString());
+
+    // snapshots never tell the listener about anything
+    ReadOnlyModel snapshot = original.snapshot();
+    snapshot.addListener(new ModelListener() {
+      @Override
+      public void layerAdded(String layer) {
+        fail("A snapshot changed");
+      }
+    });
+    original.addLayer("3");
+  }
+
+  @Test
+  public void testLastTick() {
+    assertEquals(Motion.START_TICK, original.getLastTick());
+    original.addRectangle("1", "R");
+    original.addEllipse("1", "E");
+    original.addMotion("1", "R", 5, 0, 0, 1, 1, 0, 0, 0);
+    original.addMotion("1", "E", 5, 0, 0, 1, 1, 0, 0, 0);
+    original.addMotion("1", "E", 40, 0, 0, 1, 1, 0, 0, 0);
+    assertEquals(40, original.getLastTick());
+    original.addMotion("1", "R", 60, 0, 0, 1, 1, 0, 0, 0);
+    ReadOnlyModel snapshot = original.snapshot();
+    assertEquals(60, original.getLastTick());
+    original.deleteMotion("1", "R", 60);
+    assertEquals(40, original.getLastTick());
+    assertEquals(60, snapshot.getLastTick());
+    original.addMotion("1", "R", 40, 0, 0, 1, 1, 0, 0, 0);
+    original.deleteShape("1", "E");
+    assertEquals(40, original.getLastTick());
+    original.deleteLastMotion("1", "R");
+    assertEquals(5, original.getLastTick());
+    original.deleteLayer("1");
+    assertEquals(Motion.START_TICK, original.getLastTick());
+    assertEquals(60, snapshot.getLastTick());
+  }
+
+  @Test
+  public void testBatch() {
+    original.addRectangle("1", "R");
+    original.addEllipse("1", "E");
+    int r = original.getHandle("1", "R");
+    int e = original.getHandle("1", "E");
+    original.addMotion(r, 10, 0, 0, 1, 1, 0, 0, 0, 0);
+    original.addMotion(r, 20, 0, 0, 1, 1, 0, 0, 0, 0);
+    original.addMotion(r, 40, 0, 0, 1, 1, 0, 0, 0, 0);
+    List<String> events = new ArrayList<>();
+    original.addListener(new ModelListener() {
+      @Override
+      public void keyframeAdded(int shape, int time, int fromTick, int toTick) {
+        events.add("keyframeAdded");
+      }
+
+      @Override
+      public void keyframesChanged(int[] shapes, int fromTick, int toTick) {
+        events.add(Arrays.toString(shapes) + " " + fromTick + "-" + toTick);
+      }
+    });
+
+    original.batch(batch -> {
+      batch.putMotion(r, 30, 3, 0, 1, 1, 300, 0, 0, 0);
+      batch.deleteMotion(r, 20);
+      batch.addMotion(e, 5, 0, 0, 2, 2, 0, 0, 0, 0);
+      batch.putMotion(r, 40, 4, 0, 1, 1, 0, 0, 0, 0);
+      batch.addMotion(e, 50, 0, 0, 2, 2, 0, 0, 0, 0);
+      batch.editMotion(r, 10, 1, 0, 1, 1, 0, 0, 0, 0);
+    });
+    assertEquals(Arrays.asList("[" + r + ", " + e + "] 5-50"), events);
+    List<Motion> motions = original.getMotions(r);
+    assertEquals(3, motions.size());
+    assertEquals(1, motions.get(0).getX());
+    assertEquals(30, motions.get(1).getTime());
+    assertEquals(255, motions.get(1).getRed());
+    assertEquals(4, motions.get(2).getX());
+    assertEquals(2, original.getMotions(e).size());
+    assertEquals(50, original.getLastTick());
+    assertEquals(2, original.getFrameAt(10).size());
+
+    // a batch with any invalid change leaves the model unchanged
+    String before = original.displayAnimation();
+    String[] errors = {
+        "This shape already has a motion at time 30",
+        "No motion at time 20 for the shape R",
+        "The batch changes the motion at time 15 of the shape R more than once",
+        "No shape with the handle 7 exists."};
+    for (int i = 0; i < errors.length; i++) {
+      int error = i;
+      try {
+        original.batch(batch -> {
+          batch.addMotion(e, 60, 0, 0, 2, 2, 0, 0, 0, 0);
+          batch.addMotion(r, 15, 0, 0, 1, 1, 0, 0, 0, 0);
+          switch (error) {
+            case 0:
+              batch.addMotion(r, 30, 0, 0, 1, 1, 0, 0, 0, 0);
+              break;
+            case 1:
+              batch.deleteMotion(r, 20);
+              break;
+            case 2:
+              batch.putMotion(r, 15, 0, 0, 1, 1, 0, 0, 0, 0);
+              break;
+            default:
+              batch.editMotion(7, 30, 0, 0, 1, 1, 0, 0, 0, 0);
+          }
+        });
+        fail("Applied an invalid batch");
+      } catch (IllegalArgumentException ex) {
+        assertEquals(errors[i], ex.getMessage());
+      }
+    }
+    assertEquals(before, original.displayAnimation());
+    assertEquals(1, events.size());
+
+    try {
+      original.batch(batch -> batch.addMotion(r, 70, 0, 0, 0, 1, 0, 0, 0, 0));
+      fail("Recorded a keyframe with no width");
+    } catch (IllegalArgumentException ex) {
+      assertEquals("Width and height must be positive nonzero integers, given 0 & 1",
+              ex.getMessage());
+    }
+    original.batch(batch -> { });
+    assertEquals(before, original.displayAnimation());
+    assertEquals(1, events.size());
+  }
+}
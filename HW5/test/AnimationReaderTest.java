@@ -0,0 +1,363 @@
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import cs3500.animator.util.AnimationBuilder;
+import cs3500.animator.util.AnimationReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the class AnimationReader. Its results are compared with those of the Scanner-based
+ * parser that it replaced, which must agree on every input, including invalid ones.
+ */
+public class AnimationReaderTest {
+  private static final String[] WORDS = {
+      "canvas", "shape", "motion", "layer", "rotation", "R", "ellipse", "rectangle",
+      "0", "7", "-3", "+12", "007", "200", "2147483647", "-2147483648", "2147483648",
+      "99999999999", "1,000", "1-2", "-", "+", "x1", "#", "# comment", "a#b", "\u0661\u0662",
+      "motionR", "\u00a0"};
+  private static final String[] BLANKS = {" ", "  ", "\t", "\n", "\r\n", "\r", "\f"};
+  private static final String[] SPACES = {" ", "  ", "\t", "\n", "\r\n", "\r", "\f", "\u000b",
+      "\u2028", "\u0085"};
+
+  /**
+   * A builder that writes every call it receives to a log, so that two parses can be compared.
+   */
+  private static final class LoggingBuilder implements AnimationBuilder<String> {
+    private final StringBuilder log = new StringBuilder();
+
+    @Override
+    public String build() {
+      return log.append("build").toString();
+    }
+
+    @Override
+    public AnimationBuilder<String> setBounds(int x, int y, int width, int height) {
+      log.append("bounds ").append(x).append(" ").append(y).append(" ").append(width)
+              .append(" ").append(height).append("\n");
+      return this;
+    }
+
+    @Override
+    public AnimationBuilder<String> declareLayer(String layerName) {
+      log.append("layer ").append(layerName).append("\n");
+      return this;
+    }
+
+    @Override
+    public AnimationBuilder<String> declareRotation(int rotation) {
+      log.append("rotation ").append(rotation).append("\n");
+      return this;
+    }
+
+    @Override
+    public AnimationBuilder<String> declareShape(String name, String type) {
+      log.append("shape ").append(name).append(" ").append(type).append("\n");
+      return this;
+    }
+
+    @Override
+    public AnimationBuilder<String> addMotion(String name,
+            int t1, int x1, int y1, int w1, int h1, int r1, int g1, int b1,
+            int t2, int x2, int y2, int w2, int h2, int r2, int g2, int b2) {
+      log.append("motion ").append(name);
+      for (int v : new int[]{t1, x1, y1, w1, h1, r1, g1, b1, t2, x2, y2, w2, h2, r2, g2, b2}) {
+        log.append(" ").append(v);
+      }
+      log.append("\n");
+      return this;
+    }
+
+    @Override
+    public AnimationBuilder<String> addKeyframe(String name,
+            int t, int x, int y, int w, int h, int r, int g, int b) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * A source that hands out at most one character per read, so that every token is split
+   * across reads.
+   */
+  private static final class TrickleReadable implements Readable {
+    private final String text;
+    private int position;
+
+    private TrickleReadable(String text) {
+      this.text = text;
+    }
+
+    @Override
+    public int read(CharBuffer cb) {
+      if (position == text.length()) {
+        return -1;
+      }
+      cb.put(text.charAt(position++));
+      return 1;
+    }
+  }
+
+  /**
+   * Parse the given input and describe the result or the exception.
+   * @param input the input
+   * @param scanner true to use the Scanner-based parser
+   * @param trickle true to read the input one character at a time
+   * @return the log of builder calls, or the exception's class and message
+   */
+  private static String parse(String input, boolean scanner, boolean trickle) {
+    Readable source = trickle ? new TrickleReadable(input) : new StringReader(input);
+    try {
+      return scanner ? ScannerAnimationReader.parseFile(source, new LoggingBuilder())
+              : AnimationReader.parseFile(source, new LoggingBuilder());
+    } catch (RuntimeException e) {
+      return e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+  }
+
+  /**
+   * Check that the lexer and the Scanner read the given input the same way.
+   * @param input the input
+   */
+  private static void checkSame(String input) {
+    String expected = parse(input, true, false);
+    assertEquals(input, expected, parse(input, false, false));
+    assertEquals(input, expected, parse(input, false, true));
+  }
+
+  @Test
+  public void testValidInput() {
+    String input = "# a comment\ncanvas 200 70 360 360\nlayer back\n"
+            + "shape R rectangle\nrotation 45\n"
+            + "motion R 1 200 200 50 100 255 0 0    10  200 200 50 100 255 0 0 # trailing\r\n"
+            + "shape C ellipse\tmotion C 6 440 70 120 60 0 0 255 20 440 70 120 60 0 0 255";
+    assertEquals("bounds 200 70 360 360\nlayer back\nshape R rectangle\nrotation 45\n"
+            + "motion R 1 200 200 50 100 255 0 0 10 200 200 50 100 255 0 0\n"
+            + "shape C ellipse\n"
+            + "motion C 6 440 70 120 60 0 0 255 20 440 70 120 60 0 0 255\nbuild",
+            parse(input, false, false));
+    checkSame(input);
+  }
+
+  @Test
+  public void testErrorMessages() {
+    checkSame("canvas 1 2 three 4");
+    checkSame("canvas 1 2");
+    checkSame("motion");
+    checkSame("motion R 1 2 3 4 5 6 7 8 9 10 11 12 13 14 15 2147483648");
+    checkSame("shape R");
+    checkSame("layer");
+    checkSame("rotation +");
+    checkSame("circle C ellipse # comment\nshape C ellipse");
+    checkSame("circle");
+    checkSame("circle\n");
+    assertEquals("IllegalStateException: Unexpected keyword: circle C ellipse # comment",
+            parse("circle C ellipse # comment\nshape C ellipse", false, false));
+  }
+
+  @Test
+  public void testRandomInput() {
+    Random rand = new Random(3500);
+    for (int i = 0; i < 3000; i++) {
+      StringBuilder input = new StringBuilder();
+      int words = rand.nextInt(40);
+      for (int j = 0; j < words; j++) {
+        input.append(WORDS[rand.nextInt(WORDS.length)]);
+        input.append(SPACES[rand.nextInt(SPACES.length)]);
+      }
+      checkSame(input.toString());
+    }
+  }
+
+  @Test
+  public void testLongToken() {
+    StringBuilder name = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      name.append((char) ('a' + i % 26));
+    }
+    checkSame("layer " + name + "\nshape " + name + " ellipse");
+  }
+
+  /**
+   * Parse the given file on the given number of threads and describe the result or the
+   * exception.
+   * @param file the file
+   * @param threads the number of threads
+   * @return the log of builder calls, or the exception's class and message
+   */
+  private static String parse(Path file, int threads) throws IOException {
+    try {
+      return AnimationReader.parseFile(file, new LoggingBuilder(), threads);
+    } catch (RuntimeException e) {
+      return e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+  }
+
+  /**
+   * Generate a valid animation of at least the given size, with random whitespace and
+   * comments between tokens.
+   * @param rand the source of randomness
+   * @param size the minimum number of characters
+   * @return the animation text
+   */
+  private static StringBuilder generate(Random rand, int size) {
+    StringBuilder text = new StringBuilder("canvas 0 0 800 600\n");
+    for (int s = 0; text.length() < size; s++) {
+      text.append("layer L").append(s).append(BLANKS[rand.nextInt(BLANKS.length)]);
+      text.append("shape S").append(s).append(" ellipse").append(BLANKS[rand.nextInt(4)]);
+      for (int m = 0; m < 20; m++) {
+        text.append(rand.nextBoolean() ? "rotation +" : "rotation ").append(rand.nextInt(360));
+        text.append(rand.nextInt(10) == 0 ? " # turn\r\n" : "\n");
+        text.append("motion S").append(s);
+        for (int v = 0; v < 16; v++) {
+          text.append(BLANKS[rand.nextInt(BLANKS.length)]).append(v % 8 == 0 ? m + v / 8
+                  : rand.nextInt(1000) - 10);
+        }
+        text.append("\n");
+      }
+    }
+    return text;
+  }
+
+  @Test
+  public void testParallelFile() throws IOException {
+    Random rand = new Random(3500);
+    StringBuilder body = generate(rand, 7 << 19);
+    Path file = Files.createTempFile("animation", ".txt");
+    try {
+      // a file of a few MB is read as one thread reads it when the reader chooses
+      Files.write(file, body.toString().getBytes(Charset.defaultCharset()));
+      assertEquals(parse(file, 1), AnimationReader.parseFile(file, new LoggingBuilder()));
+
+      String[] endings = {"", "motion S1 1 2 3", "canvas 1 2 x 4\n"};
+      for (String ending : endings) {
+        Files.write(file, (body + ending).getBytes(Charset.defaultCharset()));
+        assertEquals(parse(file, 1), parse(file, 3));
+      }
+      // an unknown keyword far from the start of the file, so its line is found again in a
+      // later chunk
+      body.insert(body.indexOf("\nlayer", 5 << 19) + 1, "circle C # note\r\n");
+      Files.write(file, body.toString().getBytes(Charset.defaultCharset()));
+      assertEquals("IllegalStateException: Unexpected keyword: circle C # note",
+              parse(file, 4));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testRandomFile() throws IOException {
+    Random rand = new Random(2019);
+    Path file = Files.createTempFile("animation", ".txt");
+    try {
+      for (int i = 0; i < 200; i++) {
+        StringBuilder input = new StringBuilder();
+        int words = rand.nextInt(40);
+        for (int j = 0; j < words; j++) {
+          input.append(WORDS[rand.nextInt(WORDS.length)]);
+          input.append(SPACES[rand.nextInt(SPACES.length)]);
+        }
+        Files.write(file, input.toString().getBytes(Charset.defaultCharset()));
+        assertEquals(input.toString(), parse(file, 1), parse(file, 2));
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testGzipFile() throws IOException {
+    Random rand = new Random(1);
+    String text = generate(rand, 1 << 18) + "circle C";
+    byte[] bytes = text.getBytes(Charset.defaultCharset());
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (OutputStream gzip = new GZIPOutputStream(compressed)) {
+      gzip.write(bytes);
+    }
+    Path file = Files.createTempFile("animation", ".txt");
+    Path gzipFile = Files.createTempFile("animation", ".txt.gz");
+    try {
+      Files.write(file, bytes);
+      Files.write(gzipFile, compressed.toByteArray());
+      assertEquals(parse(file, 1), parse(gzipFile, 1));
+      assertEquals(parse(file, 1), parse(gzipFile, 3));
+      // a damaged file is an error, not a shorter animation
+      byte[] cut = Arrays.copyOf(compressed.toByteArray(), compressed.size() / 2);
+      Files.write(gzipFile, cut);
+      try {
+        AnimationReader.parseFile(gzipFile, new LoggingBuilder(), 1);
+        fail("Read a damaged gzip file");
+      } catch (EOFException e) {
+        // expected
+      }
+    } finally {
+      Files.delete(file);
+      Files.delete(gzipFile);
+    }
+  }
+
+  /**
+   * Parse the given file on the given number of threads, and check that the progress reported
+   * never goes back and ends at the end of the file.
+   * @param file the file
+   * @param threads the number of threads
+   * @return the number of times the progress was reported
+   */
+  private static int checkProgress(Path file, int threads) throws IOException {
+    long[] last = {0};
+    int[] reports = {0};
+    AnimationReader.parseFile(file, new LoggingBuilder(), threads, read -> {
+      assertTrue(read >= last[0]);
+      last[0] = read;
+      reports[0]++;
+    });
+    assertEquals(Files.size(file), last[0]);
+    return reports[0];
+  }
+
+  @Test
+  public void testProgress() throws IOException {
+    String text = generate(new Random(7), 3 << 20).toString();
+    Path file = Files.createTempFile("animation", ".txt");
+    Path gzipFile = Files.createTempFile("animation", ".txt.gz");
+    try {
+      Files.write(file, text.getBytes(Charset.defaultCharset()));
+      try (OutputStream gzip = new GZIPOutputStream(Files.newOutputStream(gzipFile))) {
+        gzip.write(text.getBytes(Charset.defaultCharset()));
+      }
+      assertTrue(checkProgress(file, 1) > 1);
+      assertTrue(checkProgress(file, 3) > 1);
+      assertTrue(checkProgress(gzipFile, 1) > 1);
+    } finally {
+      Files.delete(file);
+      Files.delete(gzipFile);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoThreads() throws IOException {
+    AnimationReader.parseFile(Paths.get("animation.txt"), new LoggingBuilder(), 0);
+  }
+
+  @Test
+  public void testFailingSource() {
+    Readable failing = cb -> {
+      throw new IOException("disk on fire");
+    };
+    assertEquals("build", AnimationReader.parseFile(failing, new LoggingBuilder()));
+  }
+}
@@ -0,0 +1,225 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import cs3500.animator.model.AnimationModel;
+import cs3500.animator.model.AnimationModelImpl;
+import cs3500.animator.model.ReadOnlyModel;
+import cs3500.animator.util.AnimationReader;
+import cs3500.animator.util.BinaryAnimationReader;
+import cs3500.animator.view.AnimationView;
+import cs3500.animator.view.BinaryView;
+import cs3500.animator.view.TextView;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the class BinaryView and for reading its output back with BinaryAnimationReader.
+ */
+public class BinaryViewTests {
+  private static final String ANIMATION = "canvas -20 70 360 360\n"
+          + "layer back\n"
+          + "shape R rectangle\n"
+          + "rotation 45\n"
+          + "motion R 1 200 200 50 100 255 0 0 1 200 200 50 100 255 0 0\n"
+          + "rotation 45\n"
+          + "motion R 1 200 200 50 100 255 0 0 10 -200 200 50 100 255 0 0\n"
+          + "rotation 0\n"
+          + "motion R 10 -200 200 50 100 255 0 0 5000 300 300 50 100 0 170 85\n"
+          + "shape empty ellipse\n"
+          + "layer \u00e9t\u00e9\n"
+          + "layer front\n"
+          + "shape C ellipse\n"
+          + "rotation 0\n"
+          + "motion C 6 440 70 120 60 0 0 255 6 440 70 120 60 0 0 255\n"
+          + "rotation 0\n"
+          + "motion C 6 440 70 120 60 0 0 255 20 440 70 120 60 0 0 255\n"
+          + "shape R2 rectangle";
+
+  private AnimationModel model;
+  private AnimationView view;
+  private StringBuilder output;
+
+  @Before
+  public void init() {
+    model = new AnimationModelImpl();
+    model.addLayer("1");
+    view = new BinaryView();
+    output = new StringBuilder();
+
+    view.setModel(model);
+    view.setOutput(output);
+  }
+
+  /**
+   * Describe the given model in the text format.
+   * @param model the model
+   * @return the text
+   */
+  private static String text(ReadOnlyModel model) {
+    AnimationView textView = new TextView();
+    StringBuilder text = new StringBuilder();
+    textView.setModel(model);
+    textView.setOutput(text);
+    textView.animate();
+    return text.toString();
+  }
+
+  /**
+   * Export the given model with a BinaryView.
+   * @param model the model
+   * @return the bytes written
+   */
+  private static byte[] export(ReadOnlyModel model) {
+    AnimationView binaryView = new BinaryView();
+    StringBuilder chars = new StringBuilder();
+    binaryView.setModel(model);
+    binaryView.setOutput(chars);
+    binaryView.animate();
+    return chars.toString().getBytes(StandardCharsets.ISO_8859_1);
+  }
+
+  /**
+   * Read the given bytes as a binary animation.
+   * @param bytes the bytes
+   * @return the model
+   */
+  private static AnimationModel read(byte[] bytes) throws IOException {
+    return BinaryAnimationReader.parseFile(new ByteArrayInputStream(bytes),
+            new AnimationModelImpl.Builder());
+  }
+
+  @Test
+  public void testSetSpeed() {
+    try {
+      view.setSpeed(1);
+      fail("Set speed for a binary view");
+    } catch (UnsupportedOperationException e) {
+      assertEquals("BinaryView has no speed", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testFormat() {
+    view.animate();
+    byte[] expected = {(byte) 0x89, 'A', 'N', 'M', '\r', '\n', 0x1A, '\n', // magic
+        1, // version
+        0, 0, 2, 2, // canvas 0 0 1 1
+        1, 1, '1', // one string, "1"
+        1, 0, // layer "1"
+        0}; // end
+    assertArrayEquals(expected, output.toString().getBytes(StandardCharsets.ISO_8859_1));
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    AnimationModel original = AnimationReader.parseFile(new StringReader(ANIMATION),
+            new AnimationModelImpl.Builder());
+    byte[] bytes = export(original);
+    AnimationModel copy = read(bytes);
+    assertEquals(text(original), text(copy));
+    assertArrayEquals(bytes, export(copy));
+    assertEquals(Arrays.asList("back", "\u00e9t\u00e9", "front"), copy.getLayers());
+    assertEquals(45, copy.getMotions("back", "R").get(1).getRotation());
+    assertEquals(0, copy.getMotions("back", "R").get(2).getRotation());
+  }
+
+  @Test
+  public void testLoadFromFile() throws IOException {
+    AnimationModel original = AnimationReader.parseFile(new StringReader(ANIMATION),
+            new AnimationModelImpl.Builder());
+    Path file = Files.createTempFile("animation", ".anim");
+    Path gzipFile = Files.createTempFile("animation", ".anim.gz");
+    try {
+      Files.write(file, export(original));
+      assertEquals(text(original), text(AnimationReader.parseFile(file,
+              new AnimationModelImpl.Builder(), 2)));
+      try (OutputStream gzip = new GZIPOutputStream(Files.newOutputStream(gzipFile))) {
+        gzip.write(export(original));
+      }
+      assertEquals(text(original), text(AnimationReader.parseFile(gzipFile,
+              new AnimationModelImpl.Builder(), 2)));
+    } finally {
+      Files.delete(file);
+      Files.delete(gzipFile);
+    }
+  }
+
+  @Test
+  public void testInvalidInput() throws IOException {
+    view.animate();
+    byte[] bytes = output.toString().getBytes(StandardCharsets.ISO_8859_1);
+    try {
+      read(Arrays.copyOf(bytes, bytes.length - 1));
+      fail("Read a cut short animation");
+    } catch (IllegalStateException e) {
+      assertEquals("Binary animation: unexpected end of input", e.getMessage());
+    }
+    bytes[8] = 2;
+    try {
+      read(bytes);
+      fail("Read an animation of an unknown version");
+    } catch (IllegalStateException e) {
+      assertEquals("Unsupported binary animation version 2", e.getMessage());
+    }
+    bytes[8] = 1;
+    bytes[17] = 5;
+    try {
+      read(bytes);
+      fail("Read a layer with an unknown name");
+    } catch (IllegalStateException e) {
+      assertEquals("Binary animation: no string number 5", e.getMessage());
+    }
+    try {
+      read("canvas 0 0 1 1".getBytes(StandardCharsets.ISO_8859_1));
+      fail("Read text as a binary animation");
+    } catch (IllegalStateException e) {
+      assertEquals("Not a binary animation", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testHugeCounts() throws IOException {
+    byte[] huge = {(byte) 0x80, (byte) 0x84, (byte) 0xAF, 0x5F}; // 200,000,000
+    byte[] start = {(byte) 0x89, 'A', 'N', 'M', '\r', '\n', 0x1A, '\n', 1, 0, 0, 2, 2};
+    byte[][] damaged = {
+        {}, // strings
+        {1}, // bytes of a string
+        {2, 1, 'R', 9, 'r', 'e', 'c', 't', 'a', 'n', 'g', 'l', 'e', 1, 0, 2, 0, 1}, // keyframes
+    };
+    for (byte[] middle : damaged) {
+      byte[] bytes = new byte[start.length + middle.length + huge.length];
+      System.arraycopy(start, 0, bytes, 0, start.length);
+      System.arraycopy(middle, 0, bytes, start.length, middle.length);
+      System.arraycopy(huge, 0, bytes, start.length + middle.length, huge.length);
+      try {
+        read(bytes);
+        fail("Read a count larger than the input");
+      } catch (IllegalStateException e) {
+        assertEquals("Binary animation: unexpected end of input", e.getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void testBadOutput() {
+    view.setOutput(new EvilAppendable());
+    try {
+      view.animate();
+      fail("Wrote to a broken output");
+    } catch (IllegalStateException e) {
+      assertEquals("Could not write to the output", e.getMessage());
+    }
+  }
+}
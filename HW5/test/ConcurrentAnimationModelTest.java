@@ -0,0 +1,157 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import cs3500.animator.model.AnimationModel;
+import cs3500.animator.model.AnimationModelImpl;
+import cs3500.animator.model.ConcurrentAnimationModel;
+import cs3500.animator.model.Frame;
+import cs3500.animator.model.FrameCursor;
+import cs3500.animator.model.ModelListener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the class ConcurrentAnimationModel.
+ */
+public class ConcurrentAnimationModelTest {
+  private static final int READERS = 4;
+  private static final int WRITES = 3000;
+
+  AnimationModel model;
+
+  /**
+   * Build a model in which the shape R moves one pixel to the right every tick from tick 1 to
+   * tick 100. Keyframes added between those ticks on the same line do not change any frame.
+   */
+  @Before
+  public void init() {
+    model = new ConcurrentAnimationModel(new AnimationModelImpl());
+    model.addLayer("1");
+    model.addRectangle("1", "R");
+    model.addMotion("1", "R", 1, 0, 0, 10, 10, 0, 0, 0);
+    model.addMotion("1", "R", 100, 99, 0, 10, 10, 0, 0, 0);
+  }
+
+  @Test
+  public void testDelegates() {
+    AnimationModel plain = new AnimationModelImpl();
+    plain.addLayer("1");
+    plain.addRectangle("1", "R");
+    plain.addMotion("1", "R", 1, 0, 0, 10, 10, 0, 0, 0);
+    plain.addMotion("1", "R", 100, 99, 0, 10, 10, 0, 0, 0);
+    assertEquals(plain.displayAnimation(), model.displayAnimation());
+    assertEquals(49, model.getTransformationAt("1", "R", 50).getStateAt(50).getX());
+    int r = model.getHandle("1", "R");
+    model.deleteLastMotion(r);
+    assertEquals(1, model.getMotions(r).size());
+    model.batch(batch -> batch.putMotion(r, 50, model.getLastTick(), 0, 10, 10, 0, 0, 0, 0));
+    assertEquals(2, model.getMotions(r).size());
+    assertEquals(1, model.getMotions(r).get(1).getX());
+    try {
+      model.getTransformationAt("1", "E", 50);
+      fail("Found a shape that doesn't exist");
+    } catch (IllegalArgumentException e) {
+      assertEquals("No shape with the name E exists in the layer 1.", e.getMessage());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullModel() {
+    new ConcurrentAnimationModel(null);
+  }
+
+  /**
+   * Readers check that every frame they see is consistent while a writer keeps adding and
+   * deleting keyframes and shapes.
+   */
+  @Test
+  public void testReadersAndWriter() throws InterruptedException {
+    AtomicBoolean done = new AtomicBoolean(false);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < READERS; i++) {
+      int reader = i;
+      threads.add(new Thread(() -> {
+        try {
+          int r = model.getHandle("1", "R");
+          Frame frame = new Frame();
+          FrameCursor cursor = model.cursor(1);
+          int tick = 1;
+          while (!done.get()) {
+            tick = tick % 100 + 1;
+            assertEquals(tick - 1, model.getTransformationAt(r, tick).getStateAt(tick).getX());
+            assertEquals(tick - 1,
+                    model.getTransformationAt("1", "R", tick).getStateAt(tick).getX());
+            model.getFrameAt(tick, frame);
+            assertEquals("R", frame.getShapeName(0));
+            assertEquals(tick - 1, frame.getX(0));
+            Frame f;
+            if (reader % 2 == 0) {
+              f = cursor.seek(tick);
+            } else {
+              f = cursor.getTick() == 100 ? cursor.seek(1) : cursor.advance();
+            }
+            assertEquals("R", f.getShapeName(0));
+            assertEquals(f.getTick() - 1, f.getX(0));
+          }
+        } catch (Throwable t) {
+          failure.compareAndSet(null, t);
+        }
+      }));
+    }
+    threads.add(new Thread(() -> {
+      try {
+        for (int i = 0; i < WRITES; i++) {
+          int time = 2 + i % 97;
+          model.addMotion("1", "R", time, time - 1, 0, 10, 10, 0, 0, 0);
+          model.addRectangle("1", "S" + i);
+          model.addMotion("1", "S" + i, time, 0, 0, 1, 1, 0, 0, 0);
+          model.moveLayer("1", 0);
+          model.deleteMotion("1", "R", time);
+          model.deleteShape("1", "S" + i);
+        }
+      } catch (Throwable t) {
+        failure.compareAndSet(null, t);
+      } finally {
+        done.set(true);
+      }
+    }));
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertNull(failure.get());
+    assertEquals(2, model.getMotions("1", "R").size());
+    assertEquals(1, model.getShapes("1").size());
+  }
+
+  /**
+   * Listeners hear about a change after the lock is released, so they may read the model.
+   */
+  @Test
+  public void testListenerReadsModel() {
+    List<Integer> lastTicks = new ArrayList<>();
+    ModelListener listener = new ModelListener() {
+      @Override
+      public void keyframeAdded(int shape, int time, int fromTick, int toTick) {
+        lastTicks.add(model.getLastTick());
+      }
+    };
+    model.addListener(listener);
+    model.addListener(listener);
+    model.addMotion("1", "R", 120, 119, 0, 10, 10, 0, 0, 0);
+    model.removeListener(listener);
+    model.addMotion("1", "R", 130, 129, 0, 10, 10, 0, 0, 0);
+    assertEquals(Arrays.asList(120), lastTicks);
+  }
+}
@@ -1,10 +1,23 @@
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import cs3500.animator.controller.AnimationController;
+import cs3500.animator.model.AnimationModel;
 import cs3500.animator.model.AnimationModelImpl;
+import cs3500.animator.model.ConcurrentAnimationModel;
+import cs3500.animator.model.ModelListener;
+import cs3500.animator.util.AnimationReader;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -514,4 +527,144 @@ public class ControllerTests {
     controller.load("");
     assertEquals("Error: Unable to locate file.\n", viewOutput.toString());
   }
+
+  /**
+   * Write an animation with enough keyframes to be loaded in several parts.
+   * @return the file
+   * @throws IOException if the file cannot be written
+   */
+  private static Path writeLargeAnimation() throws IOException {
+    StringBuilder text = new StringBuilder("canvas 0 0 800 600\nlayer L\n");
+    for (int s = 0; s < 300; s++) {
+      text.append("shape S").append(s).append(" ellipse\n");
+      for (int t = 1; t <= 500; t++) {
+        text.append("motion S").append(s).append(" 1 0 0 1 1 0 0 0 ").append(t).append(" ")
+                .append(s).append(" ").append(t).append(" 10 10 ").append(t % 256)
+                .append(" 0 0\n");
+      }
+    }
+    Path file = Files.createTempFile("animation", ".txt");
+    Files.write(file, text.toString().getBytes(Charset.defaultCharset()));
+    return file;
+  }
+
+  /**
+   * Load the given file into the given model in the background, and wait for the load to end.
+   * @param model the model
+   * @param file the file
+   * @param cancelEarly true to cancel the load as soon as the first part of it has arrived
+   * @return the log of calls to the view
+   * @throws InterruptedException if interrupted while waiting
+   */
+  private static String loadInBackground(AnimationModel model, Path file, boolean cancelEarly)
+          throws InterruptedException {
+    StringBuilder log = new StringBuilder();
+    CountDownLatch done = new CountDownLatch(1);
+    AnimationController[] loader = new AnimationController[1];
+    WritingMockView view = new WritingMockView(log) {
+      @Override
+      public void showLoadProgress(double fraction) {
+        super.showLoadProgress(fraction);
+        if (cancelEarly) {
+          loader[0].cancelLoad();
+        }
+      }
+
+      @Override
+      public void endLoadProgress(String message) {
+        super.endLoadProgress(message);
+        done.countDown();
+      }
+    };
+    loader[0] = new AnimationController(model, view);
+    loader[0].loadInBackground(file);
+    assertTrue(done.await(60, TimeUnit.SECONDS));
+    return log.toString();
+  }
+
+  @Test
+  public void testLoadInBackground() throws IOException, InterruptedException {
+    Path file = writeLargeAnimation();
+    try {
+      AnimationModel model = new ConcurrentAnimationModel(new AnimationModelImpl());
+      String log = loadInBackground(model, file, false);
+      assertTrue(log.endsWith("endLoadProgress called with null\n"));
+      // the animation arrived in several parts, reading more of the file each time
+      double last = 0;
+      int parts = 0;
+      for (String line : log.split("\n")) {
+        if (line.startsWith("showLoadProgress called with ")) {
+          double fraction = Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+          assertTrue(fraction >= last && fraction <= 1);
+          last = fraction;
+          parts++;
+        }
+      }
+      assertTrue(parts > 1);
+      assertEquals(1, last, 0);
+      assertEquals(AnimationReader.parseFile(file, new AnimationModelImpl.BulkBuilder(), 1)
+              .displayAnimation(), model.displayAnimation());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testCancelLoad() throws IOException, InterruptedException {
+    Path file = writeLargeAnimation();
+    try {
+      AnimationModel model = new ConcurrentAnimationModel(new AnimationModelImpl());
+      String log = loadInBackground(model, file, true);
+      assertTrue(log.endsWith("endLoadProgress called with Loading cancelled\n"));
+      assertEquals(1, log.split("showLoadProgress").length - 1);
+      // the part loaded before the load was cancelled stays
+      assertTrue(model.getLastTick() > 0);
+      assertNotEquals(AnimationReader.parseFile(file, new AnimationModelImpl.BulkBuilder(), 1)
+              .displayAnimation(), model.displayAnimation());
+    } finally {
+      Files.delete(file);
+    }
+
+    clear();
+    controller.cancelLoad();
+    assertEquals("Error: Nothing is being loaded\n", viewOutput.toString());
+  }
+
+  @Test
+  public void testLoadInBackgroundUnexpectedError() throws IOException, InterruptedException {
+    Path file = Files.createTempFile("animation", ".txt");
+    try {
+      Files.write(file, ("layer L\nshape R rectangle\n"
+              + "motion R 1 0 0 1 1 0 0 0 1 0 0 1 1 0 0 0\n")
+              .getBytes(Charset.defaultCharset()));
+      AnimationModel model = new ConcurrentAnimationModel(new AnimationModelImpl());
+      model.addListener(new ModelListener() {
+        @Override
+        public void keyframesChanged(int[] shapes, int fromTick, int toTick) {
+          throw new UnsupportedOperationException("Listener failed");
+        }
+      });
+      assertTrue(loadInBackground(model, file, false).endsWith(
+              "endLoadProgress called with Unable to load file.\n"));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testLoadInBackgroundBadFile() throws IOException, InterruptedException {
+    Path file = Files.createTempFile("animation", ".txt");
+    try {
+      Files.write(file, ("layer L\nshape R rectangle\n"
+              + "motion R 1 0 0 1 1 0 0 0 1 0 0 1 1 0 0 0\ncircle C\n")
+              .getBytes(Charset.defaultCharset()));
+      AnimationModel model = new ConcurrentAnimationModel(new AnimationModelImpl());
+      assertTrue(loadInBackground(model, file, false).endsWith(
+              "endLoadProgress called with Incorrect file formatting: Unexpected keyword: "
+                      + "circle C\n"));
+      assertEquals("layer L\nshape R rectangle", model.displayAnimation());
+    } finally {
+      Files.delete(file);
+    }
+  }
 }
@@ -0,0 +1,119 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import cs3500.animator.util.FileChannelWriter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the class FileChannelWriter.
+ */
+public class FileChannelWriterTest {
+  private Path file;
+
+  @Before
+  public void init() throws IOException {
+    file = Files.createTempFile("export", ".txt");
+  }
+
+  @After
+  public void cleanUp() throws IOException {
+    Files.delete(file);
+  }
+
+  @Test
+  public void testLongOutput() throws IOException {
+    // more than one buffer's worth, with surrogate pairs split between writes
+    StringBuilder expected = new StringBuilder();
+    try (Writer writer = new FileChannelWriter(file, StandardCharsets.UTF_8, true)) {
+      for (int i = 0; expected.length() < 3 << 20; i++) {
+        String piece = "<rect id=\"R" + i + "\" \u00e9\u20ac\ud83d";
+        expected.append(piece);
+        if (i % 3 == 0) {
+          writer.write(piece.toCharArray());
+        } else if (i % 3 == 1) {
+          writer.write(piece);
+        } else {
+          writer.append(CharBuffer.wrap(("#" + piece).toCharArray(), 1, piece.length()));
+        }
+        expected.append('\ude00');
+        writer.write('\ude00');
+      }
+    }
+    assertArrayEquals(expected.toString().getBytes(StandardCharsets.UTF_8),
+            Files.readAllBytes(file));
+  }
+
+  @Test
+  public void testFlushAndClose() throws IOException {
+    Writer writer = new FileChannelWriter(file, StandardCharsets.ISO_8859_1, false);
+    writer.write("canvas \u00ff \u20ac");
+    assertEquals(0, Files.size(file));
+    writer.flush();
+    // like an OutputStreamWriter, unmappable characters are replaced
+    assertEquals("canvas \u00ff ?", new String(Files.readAllBytes(file),
+            StandardCharsets.ISO_8859_1));
+    writer.close();
+    writer.close();
+    try {
+      writer.write("more");
+      fail("Wrote to a closed writer");
+    } catch (IOException e) {
+      assertEquals("The writer has been closed", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testTruncate() throws IOException {
+    Files.write(file, "a longer file than the new one".getBytes(StandardCharsets.UTF_8));
+    try (Writer writer = new FileChannelWriter(file, StandardCharsets.UTF_8, false)) {
+      writer.write("short");
+    }
+    assertEquals("short", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testCompressed() throws IOException {
+    Path compressed = Files.createTempFile("export", ".svgz");
+    try {
+      StringBuilder expected = new StringBuilder();
+      try (Writer writer = FileChannelWriter.forFile(compressed, StandardCharsets.UTF_8, true)) {
+        for (int i = 0; expected.length() < 3 << 20; i++) {
+          String piece = "\n<ellipse id=\"C" + i + "\" cx=\"" + (i % 800) + "\" />";
+          expected.append(piece);
+          writer.write(piece);
+        }
+      }
+      byte[] bytes = Files.readAllBytes(compressed);
+      assertTrue(bytes.length < expected.length() / 4);
+      ByteArrayOutputStream text = new ByteArrayOutputStream();
+      try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+        gzip.transferTo(text);
+      }
+      assertEquals(expected.toString(), text.toString(StandardCharsets.UTF_8));
+    } finally {
+      Files.delete(compressed);
+    }
+
+    // only names ending with .gz or .svgz are compressed
+    try (Writer writer = FileChannelWriter.forFile(file, StandardCharsets.UTF_8, false)) {
+      writer.write("canvas");
+    }
+    assertEquals("canvas", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+  }
+}
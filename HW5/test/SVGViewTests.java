@@ -1,6 +1,8 @@
 import org.junit.Before;
 import org.junit.Test;
 
+import java.nio.CharBuffer;
+
 import cs3500.animator.model.AnimationModel;
 import cs3500.animator.model.AnimationModelImpl;
 import cs3500.animator.view.AnimationView;
@@ -375,4 +377,54 @@ public class SVGViewTests {
               e.getMessage());
     }
   }
+
+  @Test
+  public void testLongOutput() {
+    // enough shapes that the output is written in many pieces
+    StringBuilder expected = new StringBuilder("<svg width=\"1\" height=\"1\" version=\"1.1\" "
+            + "xmlns=\"http://www.w3.org/2000/svg\">");
+    for (int i = 0; i < 1000; i++) {
+      model.addRectangle("1", "R" + i);
+      model.addMotion("1", "R" + i, 1, 1, 1, 1, 1, 1, 1, 1);
+      model.addMotion("1", "R" + i, 2, 1, 1, 2, 2, 1, 1, 1);
+      expected.append("\n<rect id=\"R").append(i).append("\" x=\"1\" y=\"1\" width=\"1\" "
+              + "height=\"1\" fill=\"rgb(1,1,1)\" visibility=\"visible\" >\n"
+              + "<animate attributeType=\"xml\" begin=\"0ms\" dur=\"1000ms\" "
+              + "attributeName=\"width\" from=\"1\" to=\"2\" fill=\"freeze\" />\n"
+              + "<animate attributeType=\"xml\" begin=\"0ms\" dur=\"1000ms\" "
+              + "attributeName=\"height\" from=\"1\" to=\"2\" fill=\"freeze\" />\n"
+              + "</rect>");
+    }
+    model.addEllipse("1", "C");
+    model.addMotion("1", "C", 1, Integer.MIN_VALUE, 0, 2, 2, 0, 0, 0);
+    model.addMotion("1", "C", 2, -5, Integer.MAX_VALUE, 2, 2, 0, 0, 0);
+    expected.append("\n<ellipse id=\"C\" cx=\"-2147483648\" cy=\"0\" rx=\"1\" ry=\"1\" "
+            + "fill=\"rgb(0,0,0)\" visibility=\"visible\" >\n"
+            + "<animate attributeType=\"xml\" begin=\"0ms\" dur=\"1000ms\" "
+            + "attributeName=\"cx\" from=\"-2147483648\" to=\"-5\" fill=\"freeze\" />\n"
+            + "<animate attributeType=\"xml\" begin=\"0ms\" dur=\"1000ms\" "
+            + "attributeName=\"cy\" from=\"0\" to=\"2147483647\" fill=\"freeze\" />\n"
+            + "</ellipse>\n</svg>");
+    view.animate();
+    assertEquals(expected.toString(), output.toString());
+
+    // an Appendable that is neither a StringBuilder nor a Writer receives the same text
+    AnimationView view2 = new SVGView();
+    CharBuffer output2 = CharBuffer.allocate(expected.length());
+    view2.setModel(model);
+    view2.setOutput(output2);
+    view2.animate();
+    output2.flip();
+    assertEquals(expected.toString(), output2.toString());
+  }
+
+  @Test
+  public void testInvalidThreads() {
+    try {
+      new SVGView(0);
+      fail("Built a view with no threads");
+    } catch (IllegalArgumentException e) {
+      assertEquals("The number of threads must be positive", e.getMessage());
+    }
+  }
 }
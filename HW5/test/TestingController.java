@@ -129,4 +129,9 @@ public class TestingController implements Features, Controller {
   public void load(String fileName) {
     //this controller exists for testing only and doesn't do anything
   }
+
+  @Override
+  public void cancelLoad() {
+    //this controller exists for testing only and doesn't do anything
+  }
 }
@@ -292,4 +292,32 @@ public class TextViewTests {
               e.getMessage());
     }
   }
+
+  @Test
+  public void testLongOutput() {
+    // enough shapes that the output is written in many pieces
+    StringBuilder expected = new StringBuilder("canvas 0 0 1 1\nlayer 1");
+    for (int i = 0; i < 1000; i++) {
+      model.addRectangle("1", "R" + i);
+      model.addMotion("1", "R" + i, 1, -i, i, 1, 1, 1, 1, 1, 0);
+      model.addMotion("1", "R" + i, 2, Integer.MIN_VALUE, Integer.MAX_VALUE, 2, 2, 1, 1, 1, i);
+      expected.append("\nshape R").append(i).append(" rectangle\nrotation 0\nmotion R")
+              .append(i).append(" 1 ").append(-i).append(' ').append(i).append(" 1 1 1 1 1 1 ")
+              .append(-i).append(' ').append(i).append(" 1 1 1 1 1\nrotation ").append(i)
+              .append("\nmotion R").append(i).append(" 1 ").append(-i).append(' ').append(i)
+              .append(" 1 1 1 1 1 2 -2147483648 2147483647 2 2 1 1 1");
+    }
+    view.animate();
+    assertEquals(expected.toString(), output.toString());
+  }
+
+  @Test
+  public void testInvalidThreads() {
+    try {
+      new TextView(0);
+      fail("Built a view with no threads");
+    } catch (IllegalArgumentException e) {
+      assertEquals("The number of threads must be positive", e.getMessage());
+    }
+  }
 }
@@ -3,7 +3,9 @@ import org.junit.Test;
 import cs3500.animator.model.Motion;
 import cs3500.animator.model.Transformation;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -97,4 +99,99 @@ public class TransformationTests {
               e.getMessage());
     }
   }
+
+  @Test
+  public void testGetStateAtIntoArray() {
+    Transformation t1 = new Transformation(m1, m2);
+    int[] state = new int[Transformation.STATE_SIZE + 2];
+    t1.getStateAt(3, state, 2);
+    assertEquals(0, state[0]);
+    assertEquals(0, state[1]);
+    for (int i = 2; i < state.length; i++) {
+      assertEquals(3, state[i]);
+    }
+
+    // the array path agrees with the Motion path for every tick
+    Transformation t2 = new Transformation(new Motion(3, 0, 100, 7, 9, 255, 0, 12, -90),
+            new Motion(10, 33, -50, 20, 1, 0, 255, 200, 45));
+    for (int tick = 3; tick <= 10; tick++) {
+      Motion m = t2.getStateAt(tick);
+      t2.getStateAt(tick, state, 0);
+      assertEquals(m.getX(), state[0]);
+      assertEquals(m.getY(), state[1]);
+      assertEquals(m.getWidth(), state[2]);
+      assertEquals(m.getHeight(), state[3]);
+      assertEquals(m.getRed(), state[4]);
+      assertEquals(m.getGreen(), state[5]);
+      assertEquals(m.getBlue(), state[6]);
+      assertEquals(m.getRotation(), state[7]);
+    }
+
+    try {
+      t1.getStateAt(6, state, 0);
+      fail("Got the state from after the transformation ended");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Cannot calculate state outside of the transformation's boundaries",
+              e.getMessage());
+    }
+
+    try {
+      t1.getStateAt(2, state, 3);
+      fail("Wrote a state past the end of the array");
+    } catch (IllegalArgumentException e) {
+      assertEquals("The state array must hold 8 values after the offset", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testGetStateAtFractionalTime() {
+    Transformation t1 = new Transformation(new Motion(2, 0, 0, 10, 10, 0, 0, 0, 0),
+            new Motion(6, 40, -8, 10, 30, 255, 100, 0, 90));
+    int[] state = new int[Transformation.STATE_SIZE];
+    t1.getStateAt(3.5, state, 0);
+    // 3/8 of the way from the start
+    assertEquals(15, state[0]);
+    assertEquals(-3, state[1]);
+    assertEquals(10, state[2]);
+    assertEquals(18, state[3]);
+    assertEquals(96, state[4]);
+    assertEquals(38, state[5]);
+    assertEquals(0, state[6]);
+    assertEquals(34, state[7]);
+
+    // at whole ticks, the state is exactly the state at the tick
+    int[] atTick = new int[Transformation.STATE_SIZE];
+    for (int tick = 2; tick <= 6; tick++) {
+      t1.getStateAt((double) tick, state, 0);
+      t1.getStateAt(tick, atTick, 0);
+      assertArrayEquals(atTick, state);
+    }
+
+    // between ticks, every value lies between its values at the ticks around it
+    for (double time = 2; time <= 6; time += 0.125) {
+      t1.getStateAt(time, state, 0);
+      t1.getStateAt((int) Math.floor(time), atTick, 0);
+      int[] next = new int[Transformation.STATE_SIZE];
+      t1.getStateAt((int) Math.ceil(time), next, 0);
+      for (int i = 0; i < Transformation.STATE_SIZE; i++) {
+        assertTrue(Math.min(atTick[i], next[i]) <= state[i]
+                && state[i] <= Math.max(atTick[i], next[i]));
+      }
+    }
+
+    try {
+      t1.getStateAt(6.01, state, 0);
+      fail("Got the state from after the transformation ended");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Cannot calculate state outside of the transformation's boundaries",
+              e.getMessage());
+    }
+    try {
+      t1.getStateAt(Double.NaN, state, 0);
+      fail("Got the state at no time");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Cannot calculate state outside of the transformation's boundaries",
+              e.getMessage());
+    }
+  }
 }
@@ -2,9 +2,15 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 import cs3500.animator.model.AnimationModel;
+import cs3500.animator.model.Frame;
+import cs3500.animator.model.FrameCursor;
+import cs3500.animator.model.ModelListener;
+import cs3500.animator.model.ModelTransaction;
 import cs3500.animator.model.Motion;
+import cs3500.animator.model.ReadOnlyModel;
 import cs3500.animator.model.Transformation;
 
 /**
@@ -81,6 +87,16 @@ public class WritingMockModel implements AnimationModel {
             Integer.toString(position)));
   }
 
+  @Override
+  public void addMotion(int shape, int time, int x, int y, int width, int height,
+                        int red, int green, int blue, int rotation) {
+    append(String.join(" ", "addMotion called with", Integer.toString(shape),
+            Integer.toString(time), Integer.toString(x), Integer.toString(y),
+            Integer.toString(width), Integer.toString(height),
+            Integer.toString(red), Integer.toString(green), Integer.toString(blue),
+            Integer.toString(rotation)));
+  }
+
   @Override
   public void editMotion(String layer, String shape, int time, int x, int y, int width, int height,
                          int red, int green, int blue) {
@@ -100,16 +116,36 @@ public class WritingMockModel implements AnimationModel {
             Integer.toString(position)));
   }
 
+  @Override
+  public void editMotion(int shape, int time, int x, int y, int width, int height,
+                         int red, int green, int blue, int rotation) {
+    append(String.join(" ", "editMotion called with", Integer.toString(shape),
+            Integer.toString(time), Integer.toString(x), Integer.toString(y),
+            Integer.toString(width), Integer.toString(height),
+            Integer.toString(red), Integer.toString(green), Integer.toString(blue),
+            Integer.toString(rotation)));
+  }
+
   @Override
   public void deleteMotion(String layer, String shape, int time) {
     append("deleteMotion called with " + shape + " " + time);
   }
 
+  @Override
+  public void deleteMotion(int shape, int time) {
+    append("deleteMotion called with " + shape + " " + time);
+  }
+
   @Override
   public void deleteLastMotion(String layer, String shapeName) {
     append("deleteLastMotion called with " + shapeName);
   }
 
+  @Override
+  public void deleteLastMotion(int shape) {
+    append("deleteLastMotion called with " + shape);
+  }
+
   @Override
   public List<String> getLayers() {
     append("getLayers called");
@@ -152,6 +188,12 @@ public class WritingMockModel implements AnimationModel {
     return 1;
   }
 
+  @Override
+  public int getHandle(String layer, String shapeName) {
+    append("getHandle called with " + shapeName);
+    return 0;
+  }
+
   @Override
   public Transformation getTransformationAt(String layer, String shapeName, int tick) {
     append("getTransformationAt called with " + shapeName + " " + tick);
@@ -159,18 +201,111 @@ public class WritingMockModel implements AnimationModel {
             new Motion(3, 3, 3, 3, 3, 3, 3, 3));
   }
 
+  @Override
+  public Transformation getTransformationAt(int shape, int tick) {
+    append("getTransformationAt called with " + shape + " " + tick);
+    return new Transformation(new Motion(1, 1, 1, 1, 1, 1, 1, 1),
+            new Motion(3, 3, 3, 3, 3, 3, 3, 3));
+  }
+
+  @Override
+  public Frame getFrameAt(int tick) {
+    append("getFrameAt called with " + tick);
+    return new Frame();
+  }
+
+  @Override
+  public Frame getFrameAt(int tick, Frame frame) {
+    append("getFrameAt called with " + tick);
+    return frame;
+  }
+
+  @Override
+  public FrameCursor cursor(int startTick) {
+    append("cursor called with " + startTick);
+    Frame frame = new Frame();
+    return new FrameCursor() {
+      private int tick = startTick;
+
+      @Override
+      public int getTick() {
+        return tick;
+      }
+
+      @Override
+      public Frame getFrame() {
+        return getFrameAt(tick, frame);
+      }
+
+      @Override
+      public Frame advance() {
+        return seek(tick + 1);
+      }
+
+      @Override
+      public Frame seek(int tick) {
+        this.tick = tick;
+        return getFrame();
+      }
+
+      @Override
+      public Frame seekTime(double time) {
+        return seek((int) Math.floor(time));
+      }
+    };
+  }
+
+  @Override
+  public void batch(Consumer<ModelTransaction> edits) {
+    append("batch called");
+  }
+
+  @Override
+  public int getLastTick() {
+    append("getLastTick called");
+    return 0;
+  }
+
+  @Override
+  public void addListener(ModelListener listener) {
+    append("addListener called");
+  }
+
+  @Override
+  public void removeListener(ModelListener listener) {
+    append("removeListener called");
+  }
+
+  @Override
+  public ReadOnlyModel snapshot() {
+    append("snapshot called");
+    return this;
+  }
+
   @Override
   public List<Motion> getMotions(String layer, String shapeName) {
     append("getMotions called with " + shapeName);
     return new ArrayList<>();
   }
 
+  @Override
+  public List<Motion> getMotions(int shape) {
+    append("getMotions called with " + shape);
+    return new ArrayList<>();
+  }
+
   @Override
   public String getShapeType(String layer, String shapeName) {
     append("getShapeType called with " + shapeName);
     return "ellipse";
   }
 
+  @Override
+  public String getShapeType(int shape) {
+    append("getShapeType called with " + shape);
+    return "ellipse";
+  }
+
   /**
    * Append the given message onto the output appendable.
    * @param message the message to be written
@@ -125,6 +125,16 @@ public class WritingMockView implements EditorAnimationView {
     append("setEditFrameText called with motion " + m.display());
   }
 
+  @Override
+  public void showLoadProgress(double fraction) {
+    append("showLoadProgress called with " + fraction);
+  }
+
+  @Override
+  public void endLoadProgress(String message) {
+    append("endLoadProgress called with " + message);
+  }
+
   @Override
   public void setModel(ReadOnlyModel model) {
     append("setModel called with " + model);
@@ -0,0 +1,411 @@
+package cs3500.animator.view;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import cs3500.animator.model.AnimationModel;
+import cs3500.animator.model.AnimationModelImpl;
+import cs3500.animator.model.Frame;
+import cs3500.animator.model.ReadOnlyModel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the class AnimationPanel, painted into images rather than onto the screen.
+ */
+public class AnimationPanelTest {
+  private static final int WIDTH = 200;
+  private static final int HEIGHT = 150;
+  private static final int SHAPES = 40; // per background layer, enough for an image of it
+
+  private AnimationModel model;
+  private AnimationPanel cached;
+
+  @Before
+  public void init() {
+    model = new AnimationModelImpl();
+    model.setBounds(0, 0, WIDTH, HEIGHT);
+    Random random = new Random(1);
+    for (int l = 0; l < 2; l++) {
+      String layer = "bg" + l;
+      model.addLayer(layer);
+      for (int s = 0; s < SHAPES; s++) {
+        String name = layer + "_" + s;
+        if (s % 2 == 0) {
+          model.addRectangle(layer, name);
+        } else {
+          model.addEllipse(layer, name);
+        }
+        int x = random.nextInt(WIDTH);
+        int y = random.nextInt(HEIGHT);
+        int w = 1 + random.nextInt(30);
+        int h = 1 + random.nextInt(30);
+        int rotation = s % 3 == 0 ? random.nextInt(360) : 0;
+        int red = random.nextInt(256);
+        // the background keeps still until tick 50, and then changes color until tick 100
+        model.addMotion(layer, name, 0, x, y, w, h, red, 0, 0, rotation);
+        model.addMotion(layer, name, 50, x, y, w, h, red, 0, 0, rotation);
+        model.addMotion(layer, name, 100, x, y, w, h, 0, 0, red, rotation);
+      }
+    }
+    model.addLayer("fg");
+    for (int s = 0; s < 3; s++) {
+      model.addEllipse("fg", "f" + s);
+      model.addMotion("fg", "f" + s, 0, 10 * s, 20, 15, 15, 0, 255, 0, 0);
+      model.addMotion("fg", "f" + s, 100, WIDTH - 10 * s, HEIGHT - 20, 15, 15, 0, 255, 0, 45);
+    }
+    cached = new AnimationPanel(model);
+    cached.setSize(WIDTH, HEIGHT);
+  }
+
+  @Test
+  public void testNegativeBudget() {
+    try {
+      new AnimationPanel(model, -1);
+      fail("Built a panel of cache budget -1");
+    } catch (IllegalArgumentException e) {
+      assertEquals("The cache budget must not be negative", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testCachedMatchesUncached() {
+    for (int tick = 0; tick <= 110; tick += 3) {
+      checkPaint(cached, tick);
+    }
+    assertTrue(cached.getCacheSize() > 0);
+  }
+
+  @Test
+  public void testCachedMatchesUncachedWhenScaled() {
+    for (int tick = 0; tick <= 110; tick += 3) {
+      checkPaint(cached, tick, 1.5, 0.5);
+    }
+    assertTrue(cached.getCacheSize() > 0);
+  }
+
+  @Test
+  public void testEvictionKeepsPainting() {
+    // room for about one image of a layer, so images are dropped and drawn again
+    AnimationPanel small = new AnimationPanel(model, WIDTH * HEIGHT * 4);
+    small.setSize(WIDTH, HEIGHT);
+    for (int tick = 0; tick <= 110; tick += 3) {
+      checkPaint(small, tick);
+      assertTrue(small.getCacheSize() <= WIDTH * HEIGHT * 4);
+    }
+  }
+
+  @Test
+  public void testKeyframeEdited() {
+    long before = cacheBackground();
+    model.editMotion("bg0", "bg0_2", 50, 30, 30, 60, 60, 0, 0, 255, 30);
+    checkPaint(cached, 20);
+    checkDropped(before);
+    model.editMotion("bg1", "bg1_2", 0, 30, 30, 60, 60, 0, 0, 255, 0);
+    checkPaint(cached, 20);
+    checkDropped(before);
+  }
+
+  @Test
+  public void testKeyframeAddedAndDeleted() {
+    long before = cacheBackground();
+    model.addMotion("bg0", "bg0_3", 25, 0, 0, 80, 80, 255, 255, 255, 0);
+    checkPaint(cached, 20);
+    checkDropped(before);
+    model.deleteMotion("bg0", "bg0_3", 25);
+    checkPaint(cached, 20);
+    checkDropped(before);
+  }
+
+  @Test
+  public void testKeyframesChanged() {
+    long before = cacheBackground();
+    int first = model.getHandle("bg0", "bg0_4");
+    int second = model.getHandle("bg1", "bg1_4");
+    model.batch(t -> {
+      t.editMotion(first, 50, 100, 100, 50, 50, 255, 255, 0, 0);
+      t.addMotion(second, 30, 0, 0, 90, 90, 0, 255, 255, 0);
+    });
+    checkPaint(cached, 20);
+    checkDropped(before);
+  }
+
+  @Test
+  public void testShapeDeleted() {
+    long before = cacheBackground();
+    model.deleteShape("bg0", "bg0_5");
+    checkPaint(cached, 20);
+    checkDropped(before);
+    model.deleteShape("bg1", "bg1_6");
+    checkPaint(cached, 23);
+    checkDropped(before);
+  }
+
+  @Test
+  public void testLayerDeletedAndMoved() {
+    long before = cacheBackground();
+    model.moveLayer("fg", 0);
+    checkPaint(cached, 20);
+    checkDropped(before);
+    model.moveLayer("bg1", 0);
+    checkPaint(cached, 20);
+    checkDropped(before);
+    model.deleteLayer("bg0");
+    checkPaint(cached, 20);
+    checkDropped(before);
+  }
+
+  @Test
+  public void testEditRepaintsShownTick() {
+    RecordingPanel panel = new RecordingPanel(model, AnimationPanel.DEFAULT_CACHE_BUDGET);
+    panel.paintTick(20);
+    assertNotNull(panel.takeRegion());
+    panel.paintTick(20);
+    assertNull(panel.takeRegion()); // nothing has changed
+
+    // an edit to the keyframes around tick 20 changes it, and one after tick 100 does not
+    model.editMotion("bg0", "bg0_2", 50, 30, 30, 60, 60, 0, 0, 255, 30);
+    panel.paintTick(20);
+    assertNotNull(panel.takeRegion());
+    model.addMotion("bg0", "bg0_2", 105, 30, 30, 60, 60, 0, 0, 255, 30);
+    panel.paintTick(20);
+    assertNull(panel.takeRegion());
+    model.batch(t -> t.deleteMotion(model.getHandle("bg1", "bg1_2"), 0));
+    panel.paintTick(20);
+    assertNotNull(panel.takeRegion());
+
+    model.deleteShape("bg1", "bg1_3");
+    panel.paintTick(20);
+    assertNotNull(panel.takeRegion());
+    model.moveLayer("fg", 0);
+    panel.paintTick(20);
+    assertNotNull(panel.takeRegion());
+    model.deleteLayer("bg0");
+    panel.paintTick(20);
+    assertNotNull(panel.takeRegion());
+  }
+
+  @Test
+  public void testRepaintsChangesWithoutImages() {
+    checkRepaintedChanges(new RecordingPanel(model, 0));
+  }
+
+  @Test
+  public void testRepaintsChangesWithImages() {
+    checkRepaintedChanges(new RecordingPanel(model, AnimationPanel.DEFAULT_CACHE_BUDGET));
+  }
+
+  @Test
+  public void testRepaintsAllPastHalf() {
+    AnimationModel small = new AnimationModelImpl();
+    small.setBounds(0, 0, WIDTH, HEIGHT);
+    small.addLayer("l");
+    // a still rotated rectangle over most of the panel, and a square moving from within it out
+    // to a corner
+    small.addRectangle("l", "big");
+    small.addMotion("l", "big", 0, 30, 20, 140, 110, 255, 0, 0, 10);
+    small.addMotion("l", "big", 10, 30, 20, 140, 110, 255, 0, 0, 10);
+    small.addRectangle("l", "square");
+    small.addMotion("l", "square", 0, 90, 70, 4, 4, 0, 0, 255, 0);
+    small.addMotion("l", "square", 5, 100, 80, 4, 4, 0, 0, 255, 0);
+    small.addMotion("l", "square", 6, 190, 140, 4, 4, 0, 0, 255, 0);
+    small.addMotion("l", "square", 10, 180, 130, 4, 4, 0, 0, 255, 0);
+    RecordingPanel panel = new RecordingPanel(small, 0);
+    panel.paintTick(0);
+    panel.takeRegion();
+
+    // the square cuts the rotated rectangle, which takes in most of the panel
+    panel.paintTick(1);
+    assertEquals(new Rectangle(0, 0, WIDTH, HEIGHT), panel.takeRegion());
+    panel.paintTick(7);
+    panel.takeRegion();
+    // in the corner, the square is repainted alone
+    panel.paintTick(8);
+    Rectangle region = panel.takeRegion();
+    assertNotNull(region);
+    assertTrue(region.width < WIDTH / 4 && region.height < HEIGHT / 4);
+  }
+
+  /**
+   * Play the animation on a panel between ticks, repainting only the part that the panel asks
+   * to be repainted over what it showed before, and check that every frame then looks as a
+   * full repaint draws it, and that no part repainted alone covers half of it. On the way, a
+   * rotated shape is moved and another deleted, a shape is deleted and layers are moved, and
+   * every other frame is supplied rather than found.
+   * @param panel the panel
+   */
+  private void checkRepaintedChanges(RecordingPanel panel) {
+    BufferedImage screen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    panel.paintTick(0);
+    panel.takeRegion();
+    paintInto(screen, panel, null);
+    Frame supplied = new Frame();
+    int partial = 0;
+    for (double time = 0.5; time < 110; time += 0.75) {
+      if (time == 30.5) {
+        model.editMotion("bg0", "bg0_0", 50, 120, 40, 50, 20, 255, 0, 0, 60);
+      } else if (time == 35) {
+        model.deleteShape("fg", "f1");
+      } else if (time == 39.5) {
+        model.moveLayer("fg", 0);
+      } else if (time == 41) {
+        model.moveLayer("bg1", 0);
+      } else if (time == 44) {
+        model.deleteShape("bg1", "bg1_4");
+      }
+      if (time % 1.5 == 0) {
+        panel.paintTime(time);
+      } else {
+        supplied.copyFrom(model.cursor((int) Math.floor(time)).seekTime(time));
+        panel.paintFrame(supplied, time);
+      }
+      Rectangle region = panel.takeRegion();
+      if (region != null) {
+        paintInto(screen, panel, region);
+        if (!region.contains(0, 0, WIDTH, HEIGHT)) {
+          // a part covering half the panel or more is repainted as all of it
+          assertTrue("time " + time, region.width * region.height < WIDTH * HEIGHT / 2);
+          partial++;
+        }
+      }
+
+      AnimationPanel plain = new AnimationPanel(model, 0);
+      plain.setSize(WIDTH, HEIGHT);
+      plain.paintTime(time);
+      BufferedImage full = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+      paintInto(full, plain, null);
+      assertArrayEquals("time " + time, full.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH),
+              screen.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH));
+    }
+    assertTrue(partial > 0);
+  }
+
+  /**
+   * Paint a panel over what an image already shows, within the given part of it.
+   * @param image the image
+   * @param panel the panel
+   * @param region the part to paint, or null to paint all of it
+   */
+  private static void paintInto(BufferedImage image, AnimationPanel panel, Rectangle region) {
+    Graphics2D g2 = image.createGraphics();
+    g2.clipRect(0, 0, WIDTH, HEIGHT);
+    if (region != null) {
+      g2.clipRect(region.x, region.y, region.width, region.height);
+    }
+    panel.paintComponent(g2);
+    g2.dispose();
+  }
+
+  /**
+   * Paint tick 20 twice, so that the unchanging background is drawn from an image the second
+   * time.
+   * @return the memory taken by the images kept then
+   */
+  private long cacheBackground() {
+    checkPaint(cached, 20);
+    checkPaint(cached, 20);
+    long size = cached.getCacheSize();
+    assertTrue(size > 0);
+    return size;
+  }
+
+  /**
+   * Check that the images of the shapes edited since the background was cached have been
+   * dropped, so that the images kept take no more memory than the image of the whole
+   * background did.
+   * @param before the memory taken by the image of the whole background
+   */
+  private void checkDropped(long before) {
+    assertTrue(cached.getCacheSize() <= before);
+  }
+
+  /**
+   * Check that a panel paints the given tick as a panel that keeps no images would.
+   * @param panel the panel
+   * @param tick the tick
+   */
+  private void checkPaint(AnimationPanel panel, int tick) {
+    checkPaint(panel, tick, 1, 0);
+  }
+
+  /**
+   * Check that a panel paints the given tick as a panel that keeps no images would, under the
+   * given scale and translation.
+   * @param panel the panel
+   * @param tick the tick
+   * @param scale the scale in both directions
+   * @param shift the translation in both directions
+   */
+  private void checkPaint(AnimationPanel panel, int tick, double scale, double shift) {
+    AnimationPanel plain = new AnimationPanel(model, 0);
+    plain.setSize(WIDTH, HEIGHT);
+    assertArrayEquals("tick " + tick, paint(plain, tick, scale, shift),
+            paint(panel, tick, scale, shift));
+  }
+
+  /**
+   * Paint a panel at the given tick into a new image.
+   * @param panel the panel
+   * @param tick the tick
+   * @param scale the scale in both directions
+   * @param shift the translation in both directions
+   * @return the pixels of the image
+   */
+  static int[] paint(AnimationPanel panel, int tick, double scale, double shift) {
+    int width = (int) Math.ceil(WIDTH * scale + shift);
+    int height = (int) Math.ceil(HEIGHT * scale + shift);
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g2 = image.createGraphics();
+    g2.translate(shift, shift);
+    g2.scale(scale, scale);
+    g2.clipRect(0, 0, WIDTH, HEIGHT);
+    panel.paintTick(tick);
+    panel.paintComponent(g2);
+    g2.dispose();
+    return image.getRGB(0, 0, width, height, null, 0, width);
+  }
+
+  /**
+   * A panel that records the part of it that it asks to be repainted, instead of asking.
+   */
+  static final class RecordingPanel extends AnimationPanel {
+    private static final long serialVersionUID = 1L;
+    private Rectangle region; // null if no repaint has been asked for
+
+    /**
+     * Build a panel of the size of the model's scene.
+     * @param model the model that is drawn
+     * @param cacheBudget the most memory, in bytes, that images of unchanging layers may take
+     */
+    RecordingPanel(ReadOnlyModel model, long cacheBudget) {
+      super(model, cacheBudget);
+      setSize(AnimationPanelTest.WIDTH, AnimationPanelTest.HEIGHT);
+    }
+
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+      Rectangle asked = new Rectangle(x, y, width, height);
+      region = region == null ? asked : region.union(asked);
+    }
+
+    /**
+     * Find the part of the panel asked to be repainted since the last call.
+     * @return the bounds of that part, or null if no repaint has been asked for
+     */
+    Rectangle takeRegion() {
+      Rectangle taken = region;
+      region = null;
+      return taken;
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package cs3500.animator.view;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the class FramePacer, given the time rather than reading the clock.
+ */
+public class FramePacerTest {
+  private static final long TENTH = 100_000_000L; // a tenth of a second, in ns
+
+  @Test
+  public void testInvalidSpeed() {
+    for (double speed : new double[]{0, -1, Double.NaN}) {
+      try {
+        new FramePacer(speed);
+        fail("Built a pacer of speed " + speed);
+      } catch (IllegalArgumentException e) {
+        assertEquals("Speed must be positive", e.getMessage());
+      }
+    }
+    FramePacer pacer = new FramePacer(10);
+    try {
+      pacer.setSpeed(-1, 0);
+      fail("Set the speed to -1");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Speed must be positive", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testTicksDue() {
+    FramePacer pacer = new FramePacer(10);
+    pacer.restart(0);
+    assertEquals(0, pacer.ticksDue(0));
+    assertEquals(0, pacer.ticksDue(TENTH - 1));
+    assertEquals(1, pacer.ticksDue(TENTH));
+    assertEquals(0, pacer.ticksDue(TENTH)); // each tick is handed out once
+    assertEquals(2, pacer.ticksDue(35 * TENTH / 10)); // late ticks are all due at once
+    assertEquals(0.5, pacer.fraction(35 * TENTH / 10), 1e-9);
+    assertEquals(7, pacer.ticksDue(10 * TENTH));
+    assertEquals(0, pacer.ticksDue(5 * TENTH)); // time never goes back
+    assertEquals(0, pacer.fraction(5 * TENTH), 0);
+  }
+
+  @Test
+  public void testFractionalSpeed() {
+    FramePacer pacer = new FramePacer(0.5);
+    pacer.restart(0);
+    assertEquals(0, pacer.ticksDue(15 * TENTH));
+    assertEquals(0.75, pacer.fraction(15 * TENTH), 1e-9);
+    assertEquals(1, pacer.ticksDue(20 * TENTH));
+    assertEquals(0, pacer.fraction(20 * TENTH), 1e-9);
+    assertEquals(1, pacer.ticksDue(50 * TENTH));
+    assertEquals(0.5, pacer.fraction(50 * TENTH), 1e-9);
+  }
+
+  @Test
+  public void testFractionBelowOne() {
+    FramePacer pacer = new FramePacer(10);
+    pacer.restart(0);
+    // a whole tick has passed but has not been handed out yet
+    assertTrue(pacer.fraction(TENTH) < 1);
+    assertEquals(1, pacer.ticksDue(TENTH));
+    assertEquals(0, pacer.fraction(TENTH), 0);
+  }
+
+  @Test
+  public void testSetSpeed() {
+    FramePacer pacer = new FramePacer(10);
+    pacer.restart(0);
+    assertEquals(2, pacer.ticksDue(25 * TENTH / 10));
+
+    // half a tick has passed at 10 ticks per second, and the other half takes 0.025 s at 20
+    pacer.setSpeed(20, 25 * TENTH / 10);
+    assertEquals(0.5, pacer.fraction(25 * TENTH / 10), 1e-9);
+    assertEquals(0, pacer.ticksDue(27 * TENTH / 10));
+    assertEquals(1, pacer.ticksDue(275 * TENTH / 100));
+    assertEquals(2, pacer.ticksDue(375 * TENTH / 100));
+
+    // slowing down to a fractional speed
+    pacer.setSpeed(0.5, 375 * TENTH / 100);
+    assertEquals(0, pacer.ticksDue(200 * TENTH / 10));
+    assertEquals(1, pacer.ticksDue(2375 * TENTH / 100));
+  }
+
+  @Test
+  public void testSetSpeedKeepsTicksDue() {
+    FramePacer pacer = new FramePacer(10);
+    pacer.restart(0);
+    // three and a half ticks pass before any is handed out, and stay due at the new speed
+    pacer.setSpeed(5, 35 * TENTH / 10);
+    assertEquals(3, pacer.ticksDue(35 * TENTH / 10));
+    assertEquals(0.5, pacer.fraction(35 * TENTH / 10), 1e-9);
+    assertEquals(0, pacer.ticksDue(44 * TENTH / 10));
+    assertEquals(1, pacer.ticksDue(45 * TENTH / 10));
+  }
+
+  @Test
+  public void testRestart() {
+    FramePacer pacer = new FramePacer(10);
+    pacer.restart(0);
+    assertEquals(1, pacer.ticksDue(15 * TENTH / 10));
+    assertEquals(0.5, pacer.fraction(15 * TENTH / 10), 1e-9);
+
+    // the half tick counted before the pause is dropped, as are the ticks during it
+    pacer.restart(100 * TENTH);
+    assertEquals(0, pacer.ticksDue(100 * TENTH));
+    assertEquals(0, pacer.fraction(100 * TENTH), 0);
+    assertEquals(0, pacer.ticksDue(1005 * TENTH / 10));
+    assertEquals(0.5, pacer.fraction(1005 * TENTH / 10), 1e-9);
+    assertEquals(1, pacer.ticksDue(101 * TENTH));
+  }
+}
@@ -0,0 +1,282 @@
+package cs3500.animator.view;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import cs3500.animator.model.AnimationModel;
+import cs3500.animator.model.AnimationModelImpl;
+import cs3500.animator.model.ConcurrentAnimationModel;
+import cs3500.animator.model.Frame;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the class FramePipeline, whose worker reads the time from a clock that only the
+ * tests move.
+ */
+public class FramePipelineTest {
+  private static final long SLOT_NANOS = TimeUnit.MILLISECONDS.toNanos(FramePacer.FRAME_DELAY);
+  private static final double SPEED = 60;
+  private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(5);
+  private static final long SETTLE = 50; // in ms, long enough for the worker to run ahead
+
+  private AnimationModel model;
+  private AtomicLong clock;
+  private FramePipeline pipeline;
+
+  @Before
+  public void init() {
+    model = new ConcurrentAnimationModel(new AnimationModelImpl());
+    model.addLayer("1");
+    model.addRectangle("1", "R");
+    model.addMotion("1", "R", 0, 0, 0, 10, 10, 0, 0, 0);
+    model.addMotion("1", "R", 100, 1000, 500, 10, 10, 0, 0, 0);
+    clock = new AtomicLong(0);
+    pipeline = new FramePipeline(model, FramePipeline.DEFAULT_CAPACITY, clock::get);
+  }
+
+  @After
+  public void close() {
+    pipeline.close();
+  }
+
+  @Test
+  public void testInvalidArguments() {
+    try {
+      new FramePipeline(null, 4);
+      fail("Built a pipeline without a model");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Model must not be null", e.getMessage());
+    }
+    try {
+      new FramePipeline(model, 1);
+      fail("Built a pipeline of one frame");
+    } catch (IllegalArgumentException e) {
+      assertEquals("The pipeline must hold at least 2 frames", e.getMessage());
+    }
+    try {
+      new FramePipeline(model, 4, null);
+      fail("Built a pipeline without a clock");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Clock must not be null", e.getMessage());
+    }
+    try {
+      pipeline.play(0, 0, false, 0);
+      fail("Played at speed 0");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Speed must be positive", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testNothingBeforePlay() throws InterruptedException {
+    assertNull(pipeline.take(0));
+    pipeline.play(0, SPEED, false, 0);
+    assertNull(pipeline.take(-1)); // slot 0 has not started
+    pipeline.stop();
+    Thread.sleep(SETTLE);
+    assertNull(pipeline.take(slotStart(5)));
+  }
+
+  @Test
+  public void testTakesLatestSlot() throws InterruptedException {
+    pipeline.play(0, SPEED, false, 0);
+    checkFrame(awaitFrame(0, timeAt(0, 0)), timeAt(0, 0));
+    assertNull(pipeline.take(slotStart(1) - 1)); // slot 1 has not started
+
+    // with the clock standing still, the worker stops two slots ahead of it
+    Thread.sleep(SETTLE);
+    Frame frame = pipeline.take(slotStart(10));
+    assertNotNull(frame);
+    assertEquals(timeAt(0, 2), pipeline.getShownTime(), 0);
+    checkFrame(frame, timeAt(0, 2));
+    assertNull(pipeline.take(slotStart(10)));
+
+    // once the clock moves on, the slots already past are skipped
+    clock.set(slotStart(10));
+    checkFrame(awaitFrame(slotStart(10), timeAt(0, 10)), timeAt(0, 10));
+    assertNull(pipeline.take(slotStart(10)));
+    checkFrame(awaitFrame(slotStart(11), timeAt(0, 11)), timeAt(0, 11));
+  }
+
+  @Test
+  public void testPlayDropsFrames() throws InterruptedException {
+    pipeline.play(0, SPEED, false, 0);
+    awaitFrame(0, timeAt(0, 0));
+    Thread.sleep(SETTLE);
+
+    // the frames computed from time 0 are never shown after playing from time 50
+    pipeline.play(50, SPEED, false, 0);
+    assertEquals(50, pipeline.getShownTime(), 0);
+    checkFrame(awaitFrame(0, timeAt(50, 0)), timeAt(50, 0));
+    checkFrame(awaitFrame(slotStart(1), timeAt(50, 1)), timeAt(50, 1));
+
+    // nor are those computed at another speed
+    pipeline.play(50, SPEED / 2, false, 0);
+    awaitFrame(0, 50);
+    Frame frame = awaitFrame(slotStart(1), 50 + SPEED / 2 * SLOT_NANOS / 1e9);
+    checkFrame(frame, 50 + SPEED / 2 * SLOT_NANOS / 1e9);
+  }
+
+  @Test
+  public void testModelChangeDropsFrames() throws InterruptedException {
+    pipeline.play(0, SPEED, false, 0);
+    awaitFrame(0, timeAt(0, 0));
+    Thread.sleep(SETTLE); // slots 1 and 2 have been computed from the model before the edit
+
+    model.editMotion("1", "R", 100, 2000, 500, 10, 10, 0, 0, 0);
+    checkFrame(awaitFrame(slotStart(1), timeAt(0, 1)), timeAt(0, 1));
+
+    model.deleteShape("1", "R");
+    // an animation with no shapes has no ticks to play past its first
+    assertEquals(0, awaitFrame(slotStart(2), 0).size());
+  }
+
+  @Test
+  public void testStopsAtLastTick() throws InterruptedException {
+    clock.set(slotStart(5)); // the worker skips to slot 5, whose time is past the last tick
+    pipeline.play(99.5, SPEED, false, 0);
+    checkFrame(awaitFrame(slotStart(5), 100), 100);
+    Thread.sleep(SETTLE);
+    assertNull(pipeline.take(slotStart(50)));
+
+    // playing again resumes computing frames
+    pipeline.play(99.5, SPEED, false, slotStart(5));
+    checkFrame(awaitFrame(slotStart(5), 99.5), 99.5);
+  }
+
+  @Test
+  public void testLoops() {
+    clock.set(slotStart(2));
+    pipeline.play(99.5, SPEED, true, 0);
+    double time = timeAt(99.5, 2) % 101; // ticks 0 to 100 make a loop of 101 ticks
+    checkFrame(awaitFrame(slotStart(2), time), time);
+  }
+
+  @Test
+  public void testClose() throws InterruptedException {
+    pipeline.play(0, SPEED, true, 0);
+    awaitFrame(0, timeAt(0, 0));
+    pipeline.close();
+    pipeline.close();
+    assertNull(pipeline.take(slotStart(2)));
+
+    long deadline = System.nanoTime() + TIMEOUT;
+    while (workerRunning()) {
+      if (System.nanoTime() > deadline) {
+        fail("The worker did not end");
+      }
+      Thread.sleep(1);
+    }
+    model.deleteShape("1", "R"); // no longer seen by the closed pipeline
+    try {
+      pipeline.play(0, SPEED, false, 0);
+      fail("Played a closed pipeline");
+    } catch (IllegalStateException e) {
+      assertEquals("The pipeline has been closed", e.getMessage());
+    }
+    assertFalse(workerRunning());
+  }
+
+  @Test
+  public void testComputesOnTake() throws InterruptedException {
+    pipeline.close();
+    model = new AnimationModelImpl(); // not safe to read from the worker
+    model.addLayer("1");
+    model.addRectangle("1", "R");
+    model.addMotion("1", "R", 0, 0, 0, 10, 10, 0, 0, 0);
+    model.addMotion("1", "R", 100, 1000, 500, 10, 10, 0, 0, 0);
+    pipeline = new FramePipeline(model, FramePipeline.DEFAULT_CAPACITY, clock::get);
+    pipeline.play(0, SPEED, false, 0);
+    Thread.sleep(SETTLE);
+    assertFalse(workerRunning());
+
+    // each frame is computed for the slot due when it is taken
+    Frame frame = pipeline.take(slotStart(3));
+    assertNotNull(frame);
+    assertEquals(timeAt(0, 3), pipeline.getShownTime(), 0);
+    checkFrame(frame, timeAt(0, 3));
+    assertNull(pipeline.take(slotStart(3)));
+    model.editMotion("1", "R", 100, 2000, 500, 10, 10, 0, 0, 0);
+    checkFrame(pipeline.take(slotStart(4)), timeAt(0, 4));
+
+    // the last tick is shown once
+    checkFrame(pipeline.take(slotStart(500)), 100);
+    assertNull(pipeline.take(slotStart(501)));
+  }
+
+  /**
+   * Find the start of the given slot.
+   * @param slot the slot
+   * @return the start of the slot, as the clock counts
+   */
+  private static long slotStart(int slot) {
+    return slot * SLOT_NANOS;
+  }
+
+  /**
+   * Find the time of the animation the pipeline computes for the given slot, as it does.
+   * @param from the time played from
+   * @param slot the slot
+   * @return the time
+   */
+  private static double timeAt(double from, long slot) {
+    return from + slot * SPEED * SLOT_NANOS / 1e9;
+  }
+
+  /**
+   * Take frames until the one for the given time of the animation arrives.
+   * @param now the time to take the frames at
+   * @param time the time of the animation expected
+   * @return the frame
+   */
+  private Frame awaitFrame(long now, double time) {
+    long deadline = System.nanoTime() + TIMEOUT;
+    while (System.nanoTime() < deadline) {
+      Frame frame = pipeline.take(now);
+      if (frame != null) {
+        assertEquals(time, pipeline.getShownTime(), 1e-9);
+        return frame;
+      }
+      Thread.yield();
+    }
+    fail("No frame arrived for time " + time);
+    return null;
+  }
+
+  /**
+   * Check that a frame shows the model at the given time of the animation.
+   * @param frame the frame
+   * @param time the time
+   */
+  private void checkFrame(Frame frame, double time) {
+    Frame expected = model.cursor(0).seekTime(time);
+    assertEquals(expected.size(), frame.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.getHandle(i), frame.getHandle(i));
+      assertEquals(expected.getX(i), frame.getX(i));
+      assertEquals(expected.getY(i), frame.getY(i));
+    }
+  }
+
+  /**
+   * Find whether any frame pipeline still has a worker running.
+   * @return true if one does
+   */
+  private static boolean workerRunning() {
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().equals("Frame pipeline") && thread.isAlive()) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,192 @@
+package cs3500.animator.view;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.BitSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the class LayerImageCache.
+ */
+public class LayerImageCacheTest {
+  private static final int IMAGE_BYTES = 10 * 10 * 4; // a 10 by 10 image at 4 bytes a pixel
+
+  private LayerImageCache cache;
+
+  @Before
+  public void init() {
+    cache = new LayerImageCache(3 * IMAGE_BYTES);
+  }
+
+  @Test
+  public void testNegativeBudget() {
+    try {
+      new LayerImageCache(-1);
+      fail("Built a cache of budget -1");
+    } catch (IllegalArgumentException e) {
+      assertEquals("The cache budget must not be negative", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testPutAndGet() {
+    BufferedImage image = image(10);
+    LayerImageCache.Entry entry = cache.put(key(1, 2), image, 3, 4);
+    assertSame(image, entry.image);
+    assertEquals(3, entry.x);
+    assertEquals(4, entry.y);
+    assertSame(entry, cache.get(key(1, 2)));
+    assertEquals(IMAGE_BYTES, cache.size());
+
+    // the shapes' order, content and device space are all part of the key
+    assertNull(cache.get(key(2, 1)));
+    assertNull(cache.get(key(1)));
+    LayerImageCache.Key moved = new LayerImageCache.Key();
+    moved.set(rows(1, 2), 2 * LayerImageCache.ROW, 100, 100, 1, 1, 0, 0);
+    assertSame(entry, cache.get(moved));
+    moved.set(rows(1, 2), 2 * LayerImageCache.ROW, 100, 100, 1, 1, 7, -2); // whole pixels only
+    assertSame(entry, cache.get(moved));
+    moved.set(rows(1, 2), 2 * LayerImageCache.ROW, 100, 100, 1, 1, 0.5, 0);
+    assertNull(cache.get(moved));
+    moved.set(rows(1, 2), 2 * LayerImageCache.ROW, 100, 100, 2, 2, 0, 0);
+    assertNull(cache.get(moved));
+    moved.set(rows(1, 2), 2 * LayerImageCache.ROW, 101, 100, 1, 1, 0, 0);
+    assertNull(cache.get(moved));
+  }
+
+  @Test
+  public void testKeepsCopyOfKey() {
+    int[] rows = rows(1);
+    LayerImageCache.Key key = new LayerImageCache.Key();
+    key.set(rows, LayerImageCache.ROW, 100, 100, 1, 1, 0, 0);
+    LayerImageCache.Entry entry = cache.put(key, image(10), 0, 0);
+
+    // overwriting the caller's array or key does not change the key in the cache
+    rows[1] = 42;
+    key.set(rows, LayerImageCache.ROW, 100, 100, 1, 1, 0, 0);
+    assertNull(cache.get(key));
+    assertSame(entry, cache.get(key(1)));
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() {
+    LayerImageCache.Entry first = cache.put(key(1), image(10), 0, 0);
+    cache.put(key(2), image(10), 0, 0);
+    cache.put(key(3), image(10), 0, 0);
+    assertEquals(3 * IMAGE_BYTES, cache.size());
+
+    // using the first image makes the second the least recently used
+    assertSame(first, cache.get(key(1)));
+    cache.put(key(4), image(10), 0, 0);
+    assertEquals(3 * IMAGE_BYTES, cache.size());
+    assertNotNull(cache.get(key(1)));
+    assertNull(cache.get(key(2)));
+    assertNotNull(cache.get(key(3)));
+    assertNotNull(cache.get(key(4)));
+
+    // an image twice the size makes room for itself by dropping two
+    cache.put(key(5), image(14), 0, 0);
+    assertEquals(14 * 14 * 4 + IMAGE_BYTES, cache.size());
+    assertNull(cache.get(key(1)));
+    assertNull(cache.get(key(3)));
+    assertNotNull(cache.get(key(4)));
+    assertNotNull(cache.get(key(5)));
+  }
+
+  @Test
+  public void testReplacesImageOfSameKey() {
+    cache.put(key(1), image(10), 0, 0);
+    LayerImageCache.Entry entry = cache.put(key(1), image(5), 1, 1);
+    assertSame(entry, cache.get(key(1)));
+    assertEquals(5 * 5 * 4, cache.size());
+  }
+
+  @Test
+  public void testOversizedImageNotKept() {
+    cache.put(key(1), image(10), 0, 0);
+    BufferedImage image = image(20);
+    LayerImageCache.Entry entry = cache.put(key(2), image, 0, 0);
+    assertSame(image, entry.image); // still returned, to be drawn once
+    assertNull(cache.get(key(2)));
+    assertNotNull(cache.get(key(1)));
+    assertEquals(IMAGE_BYTES, cache.size());
+
+    LayerImageCache empty = new LayerImageCache(0);
+    empty.put(key(1), image(1), 0, 0);
+    assertNull(empty.get(key(1)));
+    assertEquals(0, empty.size());
+  }
+
+  @Test
+  public void testRemoveByHandle() {
+    cache.put(key(1, 2), image(10), 0, 0);
+    cache.put(key(3), image(10), 0, 0);
+    cache.put(key(4, 1), image(10), 0, 0);
+    BitSet shapes = new BitSet();
+    shapes.set(1);
+    shapes.set(7); // in no image
+    cache.remove(shapes);
+    assertNull(cache.get(key(1, 2)));
+    assertNull(cache.get(key(4, 1)));
+    assertNotNull(cache.get(key(3)));
+    assertEquals(IMAGE_BYTES, cache.size());
+
+    cache.remove(new BitSet());
+    assertNotNull(cache.get(key(3)));
+  }
+
+  @Test
+  public void testClear() {
+    cache.put(key(1), image(10), 0, 0);
+    cache.put(key(2), image(10), 0, 0);
+    cache.clear();
+    assertNull(cache.get(key(1)));
+    assertNull(cache.get(key(2)));
+    assertEquals(0, cache.size());
+    cache.put(key(1), image(10), 0, 0);
+    assertEquals(IMAGE_BYTES, cache.size());
+  }
+
+  /**
+   * Build the description of shapes with the given handles, each with content of its own.
+   * @param handles the handles
+   * @return the description, LayerImageCache.ROW ints per shape
+   */
+  private static int[] rows(int... handles) {
+    int[] rows = new int[handles.length * LayerImageCache.ROW];
+    for (int i = 0; i < handles.length; i++) {
+      rows[i * LayerImageCache.ROW] = handles[i];
+      for (int j = 1; j < LayerImageCache.ROW; j++) {
+        rows[i * LayerImageCache.ROW + j] = handles[i] * 100 + j;
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Build a key for shapes with the given handles, on a 100 by 100 panel that is not scaled.
+   * @param handles the handles
+   * @return the key
+   */
+  private static LayerImageCache.Key key(int... handles) {
+    LayerImageCache.Key key = new LayerImageCache.Key();
+    key.set(rows(handles), handles.length * LayerImageCache.ROW, 100, 100, 1, 1, 0, 0);
+    return key;
+  }
+
+  /**
+   * Build a square image.
+   * @param side the width and height of the image
+   * @return the image
+   */
+  private static BufferedImage image(int side) {
+    return new BufferedImage(side, side, BufferedImage.TYPE_INT_ARGB);
+  }
+}
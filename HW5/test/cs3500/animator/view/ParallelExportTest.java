@@ -0,0 +1,128 @@
+package cs3500.animator.view;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.function.IntFunction;
+
+import cs3500.animator.model.AnimationModel;
+import cs3500.animator.model.AnimationModelImpl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the class ParallelExport, and for the views that write their output through it.
+ */
+public class ParallelExportTest {
+  private static final int SHAPES = 700; // fills layer 1 with several sections
+
+  private AnimationModel model;
+
+  @Before
+  public void init() {
+    // layers of several sections, an empty layer, and a layer of one section
+    model = new AnimationModelImpl();
+    model.addLayer("1");
+    for (int i = 0; i < SHAPES; i++) {
+      model.addEllipse("1", "C" + i);
+      model.addMotion("1", "C" + i, 1, i, -i, 2, 4, 1, 2, 3, 0);
+      model.addMotion("1", "C" + i, 3 + i, i, i, 8, 4, 1, 2, i % 256, i);
+    }
+    model.addLayer("2");
+    model.addLayer("3");
+    model.addRectangle("3", "R");
+    model.addMotion("3", "R", 1, 1, 1, 1, 1, 1, 1, 1, 0);
+    model.addMotion("3", "R", 5, 1, 2, 1, 1, 1, 1, 1, 90);
+  }
+
+  @Test
+  public void testSections() throws IOException {
+    assertEquals("1 true " + SHAPES + " C0\n2 true 0\n3 true 1 R\n", writeSections(1));
+
+    StringBuilder expected = new StringBuilder();
+    for (int start = 0; start < SHAPES; start += ParallelExport.SECTION_SIZE) {
+      int size = Math.min(ParallelExport.SECTION_SIZE, SHAPES - start);
+      expected.append("1 ").append(start == 0).append(" ").append(size).append(" C")
+              .append(start).append("\n");
+    }
+    expected.append("2 true 0\n3 true 1 R\n");
+    for (int threads = 2; threads <= 4; threads++) {
+      assertEquals(expected.toString(), writeSections(threads));
+    }
+  }
+
+  @Test
+  public void testSectionFails() {
+    ParallelExport.SectionWriter writer = (out, layer, first, shapes) -> {
+      if (layer.equals("3")) {
+        throw new IOException("Section failed");
+      }
+      out.append(layer);
+    };
+    for (int threads = 1; threads <= 4; threads++) {
+      try {
+        ParallelExport.write(model, new OutputBuffer(new StringBuilder()), threads, writer);
+        fail("Wrote a section that failed on " + threads + " threads");
+      } catch (IOException e) {
+        assertEquals("Section failed", e.getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void testTextView() {
+    checkViewThreads(TextView::new);
+  }
+
+  @Test
+  public void testSVGView() {
+    checkViewThreads(SVGView::new);
+  }
+
+  /**
+   * Write the model's layers section by section, describing each section on a line: its layer,
+   * whether it starts the layer, its number of shapes and its first shape.
+   * @param threads the number of threads to write on
+   * @return the descriptions, in the order they reached the output
+   * @throws IOException if the output cannot be written
+   */
+  private String writeSections(int threads) throws IOException {
+    StringBuilder output = new StringBuilder();
+    OutputBuffer buffer = new OutputBuffer(output);
+    ParallelExport.write(model, buffer, threads, (out, layer, first, shapes) -> {
+      out.append(layer).append(first ? " true " : " false ").append(shapes.size());
+      if (!shapes.isEmpty()) {
+        out.append(" ").append(shapes.get(0));
+      }
+      out.append("\n");
+    });
+    buffer.flush();
+    return output.toString();
+  }
+
+  /**
+   * Check that a view writes the model the same way on any number of threads.
+   * @param views builds a view that writes on the given number of threads
+   */
+  private void checkViewThreads(IntFunction<AnimationView> views) {
+    String expected = animate(views.apply(1));
+    for (int threads = 2; threads <= 4; threads++) {
+      assertEquals(expected, animate(views.apply(threads)));
+    }
+  }
+
+  /**
+   * Have a view write the model.
+   * @param view the view
+   * @return the view's output
+   */
+  private String animate(AnimationView view) {
+    StringBuilder output = new StringBuilder();
+    view.setModel(model);
+    view.setOutput(output);
+    view.animate();
+    return output.toString();
+  }
+}